@@ -0,0 +1,104 @@
+package htsjdk.samtools;
+
+import htsjdk.samtools.util.BinaryCodec;
+import htsjdk.samtools.util.Md5CalculatingOutputStream;
+import htsjdk.samtools.util.RuntimeIOException;
+import org.broadinstitute.hellbender.utils.io.ParallelBlockCompressedOutputStream;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A version of BAMFileWriter that compresses its output on a pool of worker threads, with a
+ * {@link ParallelBlockCompressedOutputStream}. It lives in this package to write the header and to set the file
+ * source of records for the index as BAMFileWriter does.
+ *
+ * The BAM file, and its index and md5 file if requested, are identical to those written by the BAM writers of
+ * {@link SAMFileWriterFactory} with the default compression level and deflater factory. The index is built on the
+ * fly: records are added to the index once the blocks holding them have been written, so records must not be modified
+ * once added to this writer (as with the asynchronous writers of SAMFileWriterFactory).
+ */
+public final class ParallelBAMFileWriter extends SAMFileWriterImpl {
+
+    private final Path outputPath;
+    private final ParallelBlockCompressedOutputStream bgzfStream;
+    private final BinaryCodec outputBinaryCodec;
+    private final BAMIndexer bamIndexer;
+    private BAMRecordCodec bamRecordCodec = null;
+
+    /**
+     * @param outputPath BAM file to write
+     * @param header header of the BAM file
+     * @param presorted if true, records must be added in the sort order of the header, otherwise they are sorted
+     * @param createIndex if true, write an index next to the BAM file. The header must be coordinate sorted.
+     * @param createMd5File if true, write the md5 of the BAM file next to it
+     * @param compressionThreads number of worker threads compressing the output
+     */
+    public ParallelBAMFileWriter(final Path outputPath, final SAMFileHeader header, final boolean presorted,
+                                 final boolean createIndex, final boolean createMd5File, final int compressionThreads) {
+        this.outputPath = outputPath;
+        if ( createIndex && header.getSortOrder() != SAMFileHeader.SortOrder.coordinate ) {
+            throw new SAMException("Not creating BAM index since not sorted by coordinates: " + header.getSortOrder());
+        }
+        try {
+            final OutputStream fileStream = Files.newOutputStream(outputPath);
+            bgzfStream = ParallelBlockCompressedOutputStream.withDefaultCompression(
+                    createMd5File ? new Md5CalculatingOutputStream(fileStream, outputPath.resolveSibling(outputPath.getFileName() + ".md5")) : fileStream,
+                    compressionThreads);
+        } catch ( final IOException e ) {
+            throw new RuntimeIOException("Error opening file: " + outputPath, e);
+        }
+        outputBinaryCodec = new BinaryCodec(bgzfStream);
+        outputBinaryCodec.setOutputFileName(getFilename());
+        bamIndexer = createIndex ? new BAMIndexer(getIndexPath(outputPath), header) : null;
+
+        setSortOrder(header.getSortOrder(), presorted);
+        setHeader(header);
+    }
+
+    // the BAM file name with ".bam" replaced by ".bai", as for BAMFileWriter
+    private static Path getIndexPath(final Path bamPath) {
+        final String fileName = bamPath.getFileName().toString();
+        final String baseName = fileName.endsWith(BamFileIoUtils.BAM_FILE_EXTENSION) ? fileName.substring(0, fileName.lastIndexOf('.')) : fileName;
+        return bamPath.resolveSibling(baseName + BAMIndex.BAMIndexSuffix);
+    }
+
+    @Override
+    protected void writeHeader(final String textHeader) {
+        BAMFileWriter.writeHeader(outputBinaryCodec, getFileHeader(), textHeader);
+    }
+
+    @Override
+    protected void writeAlignment(final SAMRecord alignment) {
+        if ( bamRecordCodec == null ) {
+            bamRecordCodec = new BAMRecordCodec(getFileHeader());
+            bamRecordCodec.setOutputStream(bgzfStream, getFilename());
+        }
+        if ( bamIndexer == null ) {
+            bamRecordCodec.encode(alignment);
+        } else {
+            final long startPosition = bgzfStream.getPosition();
+            bamRecordCodec.encode(alignment);
+            bgzfStream.whenWritten(startPosition, bgzfStream.getPosition(), (startFilePointer, endFilePointer) -> {
+                alignment.setFileSource(new SAMFileSource(null, new BAMFileSpan(new Chunk(startFilePointer, endFilePointer))));
+                bamIndexer.processAlignment(alignment);
+            });
+        }
+    }
+
+    @Override
+    protected void finish() {
+        // closing the stream writes all blocks, so all records are indexed before the index is finished
+        outputBinaryCodec.close();
+        if ( bamIndexer != null ) {
+            bamIndexer.finish();
+        }
+    }
+
+    @Override
+    protected String getFilename() {
+        return outputPath.toString();
+    }
+}
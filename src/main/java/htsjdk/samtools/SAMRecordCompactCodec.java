@@ -0,0 +1,150 @@
+package htsjdk.samtools;
+
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import htsjdk.samtools.util.BinaryCodec;
+
+import java.util.Arrays;
+
+/**
+ * A compact binary encoding of headerless SAMRecords for Spark shuffles, as an alternative to {@link SAMRecordSparkCodec}.
+ *
+ * The fixed-length fields of the BAM encoding are written as variable-length integers, without the block size, the
+ * reference indices and the indexing bin, the reference names are written once (the mate reference name only when
+ * it differs from the reference name), and the missing base qualities of a read aren't written. The rest of the
+ * record (read name, CIGAR, bases, qualities and tags) is written in its BAM encoding, copied as is from records that
+ * were read from a BAM file, and records are decoded into {@link BAMRecord}s, which only decode those fields when they
+ * are first accessed.
+ *
+ * This class lives in the htsjdk package to get the binary tags of records that weren't read from a BAM file.
+ */
+public final class SAMRecordCompactCodec {
+    // layout bits written after the flags of each record
+    private static final int MATE_ON_SAME_REFERENCE = 1;
+    private static final int NO_BASE_QUALITIES = 2;
+
+    // base quality marking a record without base qualities in the BAM encoding
+    private static final byte NO_BASE_QUALITY = (byte) 0xFF;
+
+    private final BinaryCodec binaryCodec = new BinaryCodec();
+    private final BinaryTagCodec binaryTagCodec = new BinaryTagCodec(binaryCodec);
+    private final SAMRecordFactory samRecordFactory = new DefaultSAMRecordFactory();
+
+    /**
+     * Writes a record, ignoring its header and reference indices.
+     */
+    public void encode(final Output output, final SAMRecord record) {
+        final String referenceName = record.getReferenceName();
+        final String mateReferenceName = record.getMateReferenceName();
+        final int readLength = record.getReadLength();
+        final int cigarLength = record.getCigarLength();
+        final int readNameLength = record.getReadNameLength() + 1; // null terminated
+        final int qualitiesOffset = readNameLength + cigarLength * 4 + (readLength + 1) / 2;
+
+        final byte[] variableLengthBinaryBlock = record.getVariableBinaryRepresentation();
+        final boolean noBaseQualities = readLength > 0 && (variableLengthBinaryBlock != null ?
+                variableLengthBinaryBlock[qualitiesOffset] == NO_BASE_QUALITY : record.getBaseQualities().length == 0);
+
+        final boolean mateOnSameReference = mateReferenceName.equals(referenceName);
+        output.writeVarInt(record.getFlags(), true);
+        output.writeByte((mateOnSameReference ? MATE_ON_SAME_REFERENCE : 0) | (noBaseQualities ? NO_BASE_QUALITIES : 0));
+        output.writeString(referenceName);
+        if ( !mateOnSameReference ) {
+            output.writeString(mateReferenceName);
+        }
+        output.writeVarInt(record.getAlignmentStart(), true);
+        output.writeVarInt(record.getMateAlignmentStart(), true);
+        output.writeVarInt(record.getInferredInsertSize(), false);
+        output.writeByte(record.getMappingQuality());
+        output.writeVarInt(readNameLength, true);
+        output.writeVarInt(cigarLength, true);
+        output.writeVarInt(readLength, true);
+
+        if ( variableLengthBinaryBlock != null ) {
+            // the record is unchanged since it was read from a BAM file: copy its binary block, less missing qualities
+            output.writeVarInt(variableLengthBinaryBlock.length - (noBaseQualities ? readLength : 0), true);
+            if ( noBaseQualities ) {
+                output.writeBytes(variableLengthBinaryBlock, 0, qualitiesOffset);
+                output.writeBytes(variableLengthBinaryBlock, qualitiesOffset + readLength, variableLengthBinaryBlock.length - qualitiesOffset - readLength);
+            } else {
+                output.writeBytes(variableLengthBinaryBlock);
+            }
+        } else {
+            encodeVariableLengthBinaryBlock(output, record, qualitiesOffset, noBaseQualities);
+        }
+    }
+
+    // writes the size and the binary block of a record, as BAMRecordCodec would, less missing qualities
+    private void encodeVariableLengthBinaryBlock(final Output output, final SAMRecord record, final int qualitiesOffset, final boolean noBaseQualities) {
+        final int readLength = record.getReadLength();
+        if ( !noBaseQualities && record.getBaseQualities().length != readLength ) {
+            throw new SAMException("Mismatch between read length and quals length writing read " + record.getReadName() +
+                    "; read length: " + readLength + "; quals length: " + record.getBaseQualities().length);
+        }
+
+        int blockSize = qualitiesOffset + (noBaseQualities ? 0 : readLength);
+        SAMBinaryTagAndValue attribute = record.getBinaryAttributes();
+        while ( attribute != null ) {
+            blockSize += BinaryTagCodec.getTagSize(attribute.value);
+            attribute = attribute.getNext();
+        }
+        output.writeVarInt(blockSize, true);
+
+        binaryCodec.setOutputStream(output);
+        binaryCodec.writeString(record.getReadName(), false, true);
+        for ( final int cigarElement : BinaryCigarCodec.encode(record.getCigar()) ) {
+            binaryCodec.writeInt(cigarElement);
+        }
+        binaryCodec.writeBytes(SAMUtils.bytesToCompressedBases(record.getReadBases()));
+        if ( !noBaseQualities ) {
+            binaryCodec.writeBytes(record.getBaseQualities());
+        }
+        attribute = record.getBinaryAttributes();
+        while ( attribute != null ) {
+            binaryTagCodec.writeTag(attribute.tag, attribute.value, attribute.isUnsignedArray());
+            attribute = attribute.getNext();
+        }
+    }
+
+    /**
+     * Reads a record written by {@link #encode}.
+     *
+     * @return a headerless record, without reference indices
+     */
+    public SAMRecord decode(final Input input) {
+        final int flags = input.readVarInt(true);
+        final int layout = input.readByte();
+        final String referenceName = input.readString();
+        final String mateReferenceName = (layout & MATE_ON_SAME_REFERENCE) != 0 ? referenceName : input.readString();
+        final int alignmentStart = input.readVarInt(true);
+        final int mateAlignmentStart = input.readVarInt(true);
+        final int insertSize = input.readVarInt(false);
+        final short mappingQuality = (short) (input.readByte() & 0xFF);
+        final short readNameLength = (short) input.readVarInt(true);
+        final int cigarLength = input.readVarInt(true);
+        final int readLength = input.readVarInt(true);
+
+        final int blockSize = input.readVarInt(true);
+        final byte[] restOfRecord;
+        if ( (layout & NO_BASE_QUALITIES) != 0 ) {
+            // put back the missing qualities, so that the record has its BAM binary block
+            final int qualitiesOffset = readNameLength + cigarLength * 4 + (readLength + 1) / 2;
+            restOfRecord = new byte[blockSize + readLength];
+            input.readBytes(restOfRecord, 0, qualitiesOffset);
+            Arrays.fill(restOfRecord, qualitiesOffset, qualitiesOffset + readLength, NO_BASE_QUALITY);
+            input.readBytes(restOfRecord, qualitiesOffset + readLength, blockSize - qualitiesOffset);
+        } else {
+            restOfRecord = input.readBytes(blockSize);
+        }
+
+        final BAMRecord record = samRecordFactory.createBAMRecord(null, SAMRecord.NO_ALIGNMENT_REFERENCE_INDEX, alignmentStart,
+                readNameLength, mappingQuality, 0, cigarLength, flags, readLength,
+                SAMRecord.NO_ALIGNMENT_REFERENCE_INDEX, mateAlignmentStart, insertSize, restOfRecord);
+        // clear the indexing bin, so that the record is equal to the record it was encoded from
+        record.setFlags(flags);
+        // set the reference names, and the reference indices to null
+        record.setReferenceName(referenceName);
+        record.setMateReferenceName(mateReferenceName);
+        return record;
+    }
+}
@@ -19,6 +19,7 @@ import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.config.ConfigFactory;
 import org.broadinstitute.hellbender.utils.gcs.BucketUtils;
 import org.broadinstitute.hellbender.utils.help.HelpConstants;
+import org.broadinstitute.hellbender.utils.runtime.MetricsRegistry;
 
 import java.io.File;
 import java.io.IOException;
@@ -129,6 +130,8 @@ public abstract class CommandLineProgram implements CommandLinePluginProvider {
      * Template method that runs the startup hook, doWork and then the shutdown hook.
      */
     public final Object runTool(){
+        // don't report the metrics of earlier tools run in this JVM
+        MetricsRegistry.getDefault().reset();
         try {
             logger.info("Initializing engine");
             onStartup();
@@ -1,6 +1,7 @@
 package org.broadinstitute.hellbender.cmdline.argumentcollections;
 
 import htsjdk.samtools.ValidationStringency;
+import org.broadinstitute.barclay.argparser.Advanced;
 import org.broadinstitute.barclay.argparser.Argument;
 import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
 import org.broadinstitute.hellbender.utils.io.IOUtils;
@@ -20,6 +21,8 @@ import java.util.stream.Collectors;
 public abstract class ReadInputArgumentCollection implements Serializable {
     private static final long serialVersionUID = 1L;
 
+    public static final String LAZY_READ_DECODING_LONG_NAME = "lazy-read-decoding";
+
     @Argument(fullName = StandardArgumentDefinitions.READ_VALIDATION_STRINGENCY_LONG_NAME,
             shortName = StandardArgumentDefinitions.READ_VALIDATION_STRINGENCY_SHORT_NAME,
             doc = "Validation stringency for all SAM/BAM/CRAM/SRA files read by this program.  The default stringency value SILENT " +
@@ -37,6 +40,15 @@ public abstract class ReadInputArgumentCollection implements Serializable {
               optional = true)
     protected List<String> readIndices;
 
+    @Advanced
+    @Argument(fullName = LAZY_READ_DECODING_LONG_NAME,
+              doc = "If true, keep the reads from BAM inputs in their BAM encoding, and decode the name, CIGAR, bases, " +
+                    "qualities and tags of each read only when they are first accessed. Speeds up tools and read filters " +
+                    "that only look at some fields of the reads. Requires the validation stringency SILENT to have an effect.",
+              common = true,
+              optional = true)
+    protected boolean lazyReadDecoding = false;
+
     /**
      * Get the list of BAM/SAM/CRAM files specified at the command line.
      * Paths are the preferred format, as this can handle both local disk and NIO direct access to cloud storage.
@@ -73,4 +85,9 @@ public abstract class ReadInputArgumentCollection implements Serializable {
      * at the command line.
      */
     public ValidationStringency getReadValidationStringency() { return readValidationStringency; };
+
+    /**
+     * @return true if the reads from BAM inputs should be decoded lazily, as {@link org.broadinstitute.hellbender.utils.read.RawBAMRecordToGATKReadAdapter}s
+     */
+    public boolean useLazyReadDecoding() { return lazyReadDecoding; }
 }
@@ -8,6 +8,7 @@ import org.broadinstitute.hellbender.engine.filters.CountingReadFilter;
 import org.broadinstitute.hellbender.engine.filters.ReadFilter;
 import org.broadinstitute.hellbender.engine.filters.ReadFilterLibrary;
 import org.broadinstitute.hellbender.engine.filters.WellformedReadFilter;
+import org.broadinstitute.hellbender.transformers.ReadTransformer;
 import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.utils.IGVUtils;
 import org.broadinstitute.hellbender.utils.IntervalUtils;
@@ -16,14 +17,20 @@ import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.activityprofile.ActivityProfileState;
 import org.broadinstitute.hellbender.utils.downsampling.PositionalDownsampler;
 import org.broadinstitute.hellbender.utils.downsampling.ReadsDownsampler;
+import org.broadinstitute.hellbender.utils.iterators.OrderedParallelShardIterator;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
 
 /**
  * An AssemblyRegionWalker is a tool that processes an entire region of reads at a time, each marked as either "active"
@@ -41,7 +48,9 @@ import java.util.List;
  * handle/process active vs. inactive regions.
  *
  * Internally, the reads are loaded in chunks called read shards, which are then subdivided into active/inactive regions
- * for processing by the tool implementation. One read shard is created per contig.
+ * for processing by the tool implementation. One read shard is created per contig, unless more than one traversal
+ * thread is requested, in which case the intervals are cut into smaller shards that are processed in parallel by
+ * {@link AssemblyRegionWorker}s (see {@link #traversalThreads}).
  */
 public abstract class AssemblyRegionWalker extends GATKTool {
 
@@ -54,6 +63,14 @@ public abstract class AssemblyRegionWalker extends GATKTool {
     public static final String PROPAGATION_LONG_NAME = "max-prob-propagation-distance";
     public static final String PROFILE_OUT_LONG_NAME = "activity-profile-out";
     public static final String ASSEMBLY_REGION_OUT_LONG_NAME = "assembly-region-out";
+    public static final String TRAVERSAL_THREADS_LONG_NAME = "traversal-threads";
+    public static final String TRAVERSAL_SHARD_SIZE_LONG_NAME = "traversal-shard-size";
+
+    public static final int DEFAULT_TRAVERSAL_SHARD_SIZE = 100000;
+
+    // Maximum number of processed assembly regions each shard may get ahead of the tool's output by.
+    // Processed regions don't keep their reads, so buffering them is cheap.
+    private static final int MAX_BUFFERED_REGIONS_PER_SHARD = 1000;
 
     @Advanced
     @Argument(fullName = MIN_ASSEMBLY_LONG_NAME, doc = "Minimum size of an assembly region", optional = true)
@@ -104,6 +121,34 @@ public abstract class AssemblyRegionWalker extends GATKTool {
 
     private PrintStream assemblyRegionOutStream;
 
+    /**
+     * Number of threads used to traverse the intervals.
+     *
+     * When greater than 1, the intervals are cut into shards of at most {@link #traversalShardSize} bases, which are
+     * processed independently on a pool of worker threads: each thread has its own sources of reads, reference and
+     * Features, and its own {@link AssemblyRegionWorker}, which both finds the assembly regions in the shard and
+     * processes them. Only the output is serialized: the results of each region are emitted on the main thread, in
+     * the same order as in a single-threaded traversal.
+     *
+     * The reads of each shard are padded by the assembly region padding, and the downsampler of each shard draws from
+     * its own random number generator, seeded from the index of the shard, so output depends on the shard size but
+     * not on the number of threads. It may differ slightly from that of a single-threaded run, since assembly regions
+     * never span a shard boundary.
+     *
+     * Only supported by tools that override {@link #makeAssemblyRegionWorker}.
+     */
+    @Advanced
+    @Argument(fullName = TRAVERSAL_THREADS_LONG_NAME, doc = "Number of threads to use to traverse the intervals. When greater than 1, the intervals are cut into shards that are processed in parallel, and the output of each shard is emitted in order.", optional = true, minValue = 1)
+    protected int traversalThreads = 1;
+
+    /**
+     * Size of the shards into which the intervals are cut when more than one traversal thread is used. Shard
+     * boundaries fall at multiples of this size along each contig.
+     */
+    @Advanced
+    @Argument(fullName = TRAVERSAL_SHARD_SIZE_LONG_NAME, doc = "Maximum number of bases in each shard when using more than one traversal thread", optional = true, minValue = 1)
+    protected int traversalShardSize = DEFAULT_TRAVERSAL_SHARD_SIZE;
+
     /**
      * @return Default value for the {@link #minAssemblyRegionSize} parameter, if none is provided on the command line
      */
@@ -150,6 +195,9 @@ public abstract class AssemblyRegionWalker extends GATKTool {
     
     private List<MultiIntervalLocalReadShard> readShards;
 
+    // Intervals of each shard of a multithreaded traversal
+    private List<List<SimpleInterval>> parallelShardIntervals;
+
     /**
      * Initialize data sources for traversal.
      *
@@ -176,7 +224,12 @@ public abstract class AssemblyRegionWalker extends GATKTool {
         }
 
         final List<SimpleInterval> intervals = hasIntervals() ? intervalsForTraversal : IntervalUtils.getAllIntervalsForReference(getHeaderForReads().getSequenceDictionary());
-        readShards = makeReadShards(intervals);
+        if ( traversalThreads > 1 ) {
+            parallelShardIntervals = makeParallelShardIntervals(intervals);
+        }
+        else {
+            readShards = makeReadShards(intervals);
+        }
 
         initializeAssemblyRegionOutputStreams();
     }
@@ -202,6 +255,34 @@ public abstract class AssemblyRegionWalker extends GATKTool {
         return shards;
     }
 
+    /**
+     * Cut our intervals for traversal into shards for a multithreaded traversal, each shard containing the
+     * intervals (or parts of intervals) that fall within one window of {@link #traversalShardSize} bases on a contig.
+     * Window boundaries fall at multiples of the shard size, so that shards don't depend on the number of threads.
+     *
+     * @param intervals unmodified, sorted intervals for traversal
+     * @return the intervals of each shard, in traversal order
+     */
+    private List<List<SimpleInterval>> makeParallelShardIntervals(final List<SimpleInterval> intervals) {
+        final List<List<SimpleInterval>> shards = new ArrayList<>();
+        List<SimpleInterval> currentShard = null;
+        String currentContig = null;
+        int currentWindow = -1;
+
+        for ( final SimpleInterval piece : IntervalUtils.cutToShards(intervals, traversalShardSize) ) {
+            final int window = IntervalUtils.shardIndex(piece.getStart(), traversalShardSize);
+            if ( currentShard == null || window != currentWindow || ! piece.getContig().equals(currentContig) ) {
+                currentShard = new ArrayList<>();
+                shards.add(currentShard);
+                currentContig = piece.getContig();
+                currentWindow = window;
+            }
+            currentShard.add(piece);
+        }
+
+        return shards;
+    }
+
     private void initializeAssemblyRegionOutputStreams() {
         if ( activityProfileOut != null ) {
             try {
@@ -247,8 +328,14 @@ public abstract class AssemblyRegionWalker extends GATKTool {
         return defaultFilters;
     }
 
-    protected ReadsDownsampler createDownsampler() {
-        return maxReadsPerAlignmentStart > 0 ? new PositionalDownsampler(maxReadsPerAlignmentStart, getHeaderForReads()) : null;
+    /**
+     * @param random source of randomness for the downsampler of one read shard: the GATK random number generator in
+     *               a single-threaded traversal, or a generator seeded from the index of the shard in a multithreaded
+     *               traversal, so that the reads retained don't depend on the order in which shards are processed
+     * @return the downsampler to use for one read shard, or null for no downsampling
+     */
+    protected ReadsDownsampler createDownsampler(final Random random) {
+        return maxReadsPerAlignmentStart > 0 ? new PositionalDownsampler(maxReadsPerAlignmentStart, getHeaderForReads(), random) : null;
     }
 
     @Override
@@ -260,20 +347,168 @@ public abstract class AssemblyRegionWalker extends GATKTool {
         // meter to check the time more frequently (every 10 regions instead of every 1000 regions).
         progressMeter.setRecordsBetweenTimeChecks(10L);
 
-        for ( final MultiIntervalLocalReadShard readShard : readShards ) {
-            // Since reads in each shard are lazily fetched, we need to pass the filter and transformers to the window
-            // instead of filtering the reads directly here
-            readShard.setPreReadFilterTransformer(makePreReadFilterTransformer());
-            readShard.setReadFilter(countedFilter);
-            readShard.setDownsampler(createDownsampler());
-            readShard.setPostReadFilterTransformer(makePostReadFilterTransformer());
-
-            processReadShard(readShard, reference, features);
+        if ( traversalThreads > 1 ) {
+            traverseShardsInParallel(countedFilter);
+        }
+        else {
+            for ( final MultiIntervalLocalReadShard readShard : readShards ) {
+                // Since reads in each shard are lazily fetched, we need to pass the filter and transformers to the window
+                // instead of filtering the reads directly here
+                readShard.setPreReadFilterTransformer(makePreReadFilterTransformer());
+                readShard.setReadFilter(countedFilter);
+                readShard.setDownsampler(createDownsampler(Utils.getRandomGenerator()));
+                readShard.setPostReadFilterTransformer(makePostReadFilterTransformer());
+
+                processReadShard(readShard, reference, features);
+            }
         }
 
         logger.info(countedFilter.getSummaryLine());
     }
 
+    /**
+     * Process the shards in {@link #parallelShardIntervals} on a pool of {@link #traversalThreads} worker threads,
+     * and emit the results of each assembly region on this thread, in the same order as a single-threaded traversal.
+     *
+     * Each worker thread takes a {@link TraversalThreadContext} (its own data sources, read filter and
+     * {@link AssemblyRegionWorker}) from a pool with one context per thread for each shard it processes, so no two
+     * threads ever share one. The contexts are created on this thread before traversal starts, and closed on this
+     * thread once it is done, at which point the counts of their read filters are merged into {@code countedFilter}.
+     *
+     * @param countedFilter read filter into which the filter counts of all workers are merged
+     */
+    private void traverseShardsInParallel(final CountingReadFilter countedFilter) {
+        logger.info(String.format("Processing %d shards of up to %d bases using %d traversal threads",
+                parallelShardIntervals.size(), traversalShardSize, traversalThreads));
+
+        final List<TraversalThreadContext> threadContexts = new ArrayList<>(traversalThreads);
+        try {
+            for ( int i = 0; i < traversalThreads; ++i ) {
+                final AssemblyRegionWorker worker = makeAssemblyRegionWorker();
+                if ( worker == null ) {
+                    throw new CommandLineException.BadArgumentValue(TRAVERSAL_THREADS_LONG_NAME, Integer.toString(traversalThreads),
+                            getClass().getSimpleName() + " does not support multithreaded traversal");
+                }
+                threadContexts.add(new TraversalThreadContext(worker));
+            }
+            final Queue<TraversalThreadContext> idleThreadContexts = new ConcurrentLinkedQueue<>(threadContexts);
+
+            final List<Integer> shardIndices = new ArrayList<>(parallelShardIntervals.size());
+            for ( int i = 0; i < parallelShardIntervals.size(); ++i ) {
+                shardIndices.add(i);
+            }
+
+            try ( final OrderedParallelShardIterator<Integer, ProcessedAssemblyRegion> regions =
+                          new OrderedParallelShardIterator<>(shardIndices,
+                                  (shardIndex, sink) -> {
+                                      // at most traversalThreads shards are processed at once, so there is always an idle context
+                                      final TraversalThreadContext threadContext = idleThreadContexts.poll();
+                                      try {
+                                          processShardOnWorkerThread(shardIndex, threadContext, sink);
+                                      }
+                                      finally {
+                                          idleThreadContexts.add(threadContext);
+                                      }
+                                  },
+                                  traversalThreads, 1, MAX_BUFFERED_REGIONS_PER_SHARD, "assemblyRegionWalker-thread-%d") ) {
+                while ( regions.hasNext() ) {
+                    final ProcessedAssemblyRegion region = regions.next();
+                    logger.debug("Emitting results for assembly region at " + region.span + " isActive: " + region.isActive);
+                    writeAssemblyRegion(region.span, region.isActive, region.supportingStates);
+                    region.emitResults.run();
+                    progressMeter.update(region.span);
+                }
+            }
+        }
+        finally {
+            threadContexts.forEach(TraversalThreadContext::close);
+        }
+
+        threadContexts.forEach(threadContext -> countedFilter.mergeFilteredCounts(threadContext.readFilter));
+    }
+
+    /**
+     * Find the assembly regions in a single shard of a multithreaded traversal, and process each of them with the
+     * worker of the given context, on a worker thread.
+     *
+     * @param shardIndex index of the shard to process in {@link #parallelShardIntervals}
+     * @param threadContext context for exclusive use by this call
+     * @param sink destination for the processed assembly regions, in order
+     */
+    private void processShardOnWorkerThread(final int shardIndex, final TraversalThreadContext threadContext, final Consumer<ProcessedAssemblyRegion> sink) {
+        final MultiIntervalLocalReadShard shard = new MultiIntervalLocalReadShard(parallelShardIntervals.get(shardIndex), assemblyRegionPadding, threadContext.reads);
+        shard.setPreReadFilterTransformer(threadContext.preReadFilterTransformer);
+        shard.setReadFilter(threadContext.readFilter);
+        shard.setDownsampler(createDownsampler(Utils.makeShardRandomGenerator(shardIndex)));
+        shard.setPostReadFilterTransformer(threadContext.postReadFilterTransformer);
+
+        final Iterator<AssemblyRegion> assemblyRegionIter = new AssemblyRegionIterator(shard, getHeaderForReads(), threadContext.reference,
+                threadContext.features, threadContext.worker.assemblyRegionEvaluator(), minAssemblyRegionSize, maxAssemblyRegionSize,
+                assemblyRegionPadding, activeProbThreshold, maxProbPropagationDistance, includeReadsWithDeletionsInIsActivePileups());
+        while ( assemblyRegionIter.hasNext() ) {
+            final AssemblyRegion region = assemblyRegionIter.next();
+            logger.debug("Processing assembly region at " + region.getSpan() + " isActive: " + region.isActive() + " numReads: " + region.getReads().size());
+
+            // capture what we output about the region before the worker gets a chance to modify it
+            final SimpleInterval span = region.getSpan();
+            final boolean isActive = region.isActive();
+            final List<ActivityProfileState> supportingStates = activityProfileOutStream != null ? region.getSupportingStates() : Collections.emptyList();
+
+            final Runnable emitResults = threadContext.worker.apply(region,
+                    new ReferenceContext(threadContext.reference, region.getExtendedSpan()),
+                    new FeatureContext(threadContext.features, region.getExtendedSpan()));
+            sink.accept(new ProcessedAssemblyRegion(span, isActive, supportingStates, emitResults));
+        }
+    }
+
+    /**
+     * Everything one traversal thread needs to process shards independently of the other threads: its own sources
+     * of reads, reference and Features, read filter and transformers, and {@link AssemblyRegionWorker}.
+     */
+    private final class TraversalThreadContext implements AutoCloseable {
+        private final AssemblyRegionWorker worker;
+        private final CountingReadFilter readFilter = makeReadFilter();
+        private final ReadTransformer preReadFilterTransformer = makePreReadFilterTransformer();
+        private final ReadTransformer postReadFilterTransformer = makePostReadFilterTransformer();
+        private final ReadsDataSource reads = createReadsDataSource();
+        private final ReferenceDataSource reference = ReferenceDataSource.of(referenceArguments.getReferencePath());
+        private final FeatureManager featureManager = createFeatureManager(FeatureDataSource.DEFAULT_QUERY_LOOKAHEAD_BASES);
+        // null if the tool has no Feature inputs, as for the tool's own data sources
+        private final FeatureManager features = featureManager.isEmpty() ? null : featureManager;
+
+        private TraversalThreadContext(final AssemblyRegionWorker worker) {
+            this.worker = worker;
+        }
+
+        @Override
+        public void close() {
+            worker.close();
+            reads.close();
+            reference.close();
+            featureManager.close();
+        }
+    }
+
+    /**
+     * An assembly region processed on a traversal thread, reduced to what the main thread needs to output it:
+     * its bounds and activity for the assembly region debugging outputs and the progress meter, and the action that
+     * emits the tool's results for it. Doesn't keep the reads of the region, so that it is cheap to buffer.
+     */
+    private static final class ProcessedAssemblyRegion {
+        private final SimpleInterval span;
+        private final boolean isActive;
+        private final List<ActivityProfileState> supportingStates;
+        private final Runnable emitResults;
+
+        private ProcessedAssemblyRegion(final SimpleInterval span, final boolean isActive,
+                                        final List<ActivityProfileState> supportingStates, final Runnable emitResults) {
+            this.span = span;
+            this.isActive = isActive;
+            this.supportingStates = supportingStates;
+            this.emitResults = Utils.nonNull(emitResults);
+        }
+    }
+
     /**
      * Divide the given Shard up into active/inactive AssemblyRegions using the {@link #assemblyRegionEvaluator},
      * and send each region to the tool implementation for processing.
@@ -287,28 +522,34 @@ public abstract class AssemblyRegionWalker extends GATKTool {
 
         // Call into the tool implementation to process each assembly region from this shard.
         while ( assemblyRegionIter.hasNext() ) {
-            final AssemblyRegion assemblyRegion = assemblyRegionIter.next();
-            
-            logger.debug("Processing assembly region at " + assemblyRegion.getSpan() + " isActive: " + assemblyRegion.isActive() + " numReads: " + assemblyRegion.getReads().size());
-            writeAssemblyRegion(assemblyRegion);
+            processAssemblyRegion(assemblyRegionIter.next(), reference, features);
+        }
+    }
 
-            apply(assemblyRegion,
-                    new ReferenceContext(reference, assemblyRegion.getExtendedSpan()),
-                    new FeatureContext(features, assemblyRegion.getExtendedSpan()));
+    private void processAssemblyRegion(final AssemblyRegion assemblyRegion, final ReferenceDataSource reference, final FeatureManager features) {
+        logger.debug("Processing assembly region at " + assemblyRegion.getSpan() + " isActive: " + assemblyRegion.isActive() + " numReads: " + assemblyRegion.getReads().size());
+        writeAssemblyRegion(assemblyRegion);
 
-            // For this traversal, the progress meter unit is the assembly region rather than the read shard
-            progressMeter.update(assemblyRegion.getSpan());
-        }
+        apply(assemblyRegion,
+                new ReferenceContext(reference, assemblyRegion.getExtendedSpan()),
+                new FeatureContext(features, assemblyRegion.getExtendedSpan()));
+
+        // For this traversal, the progress meter unit is the assembly region rather than the read shard
+        progressMeter.update(assemblyRegion.getSpan());
     }
 
     private void writeAssemblyRegion(final AssemblyRegion region) {
-        writeActivityProfile(region.getSupportingStates());
+        writeAssemblyRegion(region.getSpan(), region.isActive(), region.getSupportingStates());
+    }
+
+    private void writeAssemblyRegion(final SimpleInterval span, final boolean isActive, final List<ActivityProfileState> supportingStates) {
+        writeActivityProfile(supportingStates);
 
         if ( assemblyRegionOutStream != null ) {
-            IGVUtils.printIGVFormatRow(assemblyRegionOutStream, new SimpleInterval(region.getContig(), region.getStart(), region.getStart()),
+            IGVUtils.printIGVFormatRow(assemblyRegionOutStream, new SimpleInterval(span.getContig(), span.getStart(), span.getStart()),
                     "end-marker", 0.0);
-            IGVUtils.printIGVFormatRow(assemblyRegionOutStream, region,
-                    "size=" + new SimpleInterval(region).size(), region.isActive() ? 1.0 : -1.0);
+            IGVUtils.printIGVFormatRow(assemblyRegionOutStream, span,
+                    "size=" + span.size(), isActive ? 1.0 : -1.0);
         }
     }
 
@@ -345,6 +586,21 @@ public abstract class AssemblyRegionWalker extends GATKTool {
      */
     public abstract AssemblyRegionEvaluator assemblyRegionEvaluator();
 
+    /**
+     * Tools that support multithreaded traversal (see {@link #traversalThreads}) must override this method.
+     *
+     * Called on the main thread after {@link #onTraversalStart}, once for each traversal thread, when more than one
+     * traversal thread is requested. Each worker returned is used by a single traversal thread at a time, concurrently
+     * with the other workers, to find and process the assembly regions of its shards in place of
+     * {@link #assemblyRegionEvaluator} and {@link #apply}, and is closed on the main thread once traversal is done.
+     *
+     * @return a new worker for exclusive use by one traversal thread, or null if multithreaded traversal is not
+     *         supported by this tool (the default)
+     */
+    protected AssemblyRegionWorker makeAssemblyRegionWorker() {
+        return null;
+    }
+
     /**
      * Process an individual AssemblyRegion. Must be implemented by tool authors.
      *
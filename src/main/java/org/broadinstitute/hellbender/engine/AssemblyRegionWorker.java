@@ -0,0 +1,36 @@
+package org.broadinstitute.hellbender.engine;
+
+/**
+ * Processes the assembly regions of an {@link AssemblyRegionWalker} on one of its traversal threads, when more than
+ * one traversal thread is requested (see {@link AssemblyRegionWalker#makeAssemblyRegionWorker}).
+ *
+ * A worker is only ever used by one traversal thread at a time, and may therefore keep mutable state (such as its
+ * own calling engine), but it must never touch the tool's outputs: {@link #apply} computes the results for a region,
+ * and returns an action that emits them, which the walker runs on the main thread, in the same order in which the
+ * regions are traversed.
+ */
+public interface AssemblyRegionWorker extends AutoCloseable {
+
+    /**
+     * @return The evaluator used by this worker to determine whether each locus is active or not. Must make the same
+     *         determinations as {@link AssemblyRegionWalker#assemblyRegionEvaluator}.
+     */
+    AssemblyRegionEvaluator assemblyRegionEvaluator();
+
+    /**
+     * Process an individual AssemblyRegion on a traversal thread, as {@link AssemblyRegionWalker#apply} would.
+     *
+     * @param region region to process (pre-marked as either active or inactive)
+     * @param referenceContext reference data overlapping the full extended span of the assembly region
+     * @param featureContext features overlapping the full extended span of the assembly region
+     * @return an action that emits the results for this region (for example, writes its variant calls), which will be
+     *         run on the main thread, after the actions of all regions that precede this one
+     */
+    Runnable apply(final AssemblyRegion region, final ReferenceContext referenceContext, final FeatureContext featureContext);
+
+    /**
+     * Release any resources held by this worker. Called on the main thread once traversal is done.
+     */
+    @Override
+    default void close() { }
+}
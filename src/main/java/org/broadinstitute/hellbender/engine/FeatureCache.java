@@ -5,6 +5,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.broadinstitute.hellbender.exceptions.GATKException;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.runtime.MetricsRegistry;
 
 import java.util.*;
 
@@ -54,6 +55,14 @@ class FeatureCache<CACHED_FEATURE extends Feature> {
      */
     private int numCacheMisses = 0;
 
+    /**
+     * Runtime metrics counting the hits and misses of all Feature caches (including {@link MultiWindowFeatureCache}s)
+     */
+    static final MetricsRegistry.Counter CACHE_HITS_METRIC = MetricsRegistry.getDefault().counter(
+            "gatk_feature_cache_queries_total", "Queries of the Feature caches, by result", "result", "hit");
+    static final MetricsRegistry.Counter CACHE_MISSES_METRIC = MetricsRegistry.getDefault().counter(
+            "gatk_feature_cache_queries_total", "Queries of the Feature caches, by result", "result", "miss");
+
     /**
      * Initial capacity of our cache (will grow by doubling if needed)
      */
@@ -155,9 +164,11 @@ class FeatureCache<CACHED_FEATURE extends Feature> {
 
         if ( cacheHit ) {
             ++numCacheHits;
+            CACHE_HITS_METRIC.increment();
         }
         else {
             ++numCacheMisses;
+            CACHE_MISSES_METRIC.increment();
         }
 
         return cacheHit;
@@ -23,8 +23,8 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.channels.SeekableByteChannel;
 import java.nio.file.Path;
-import java.util.Iterator;
-import java.util.List;
+import java.util.*;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
 /**
@@ -90,6 +90,18 @@ public final class FeatureDataSource<T extends Feature> implements GATKDataSourc
      */
     private final FeatureCache<T> queryCache;
 
+    /**
+     * If non-null, used in place of {@link #queryCache} to cache Features from several disjoint windows at once.
+     * See {@link #enableMultiWindowQueryCache}.
+     */
+    private MultiWindowFeatureCache<T> multiWindowQueryCache;
+
+    /**
+     * Intervals that upcoming queries are expected to fall within, grouped by contig and sorted by start position.
+     * If set, used to choose how far ahead to read when refilling {@link #multiWindowQueryCache}. Null if not set.
+     */
+    private Map<String, List<SimpleInterval>> queryLookaheadIntervals;
+
     /**
      * When we experience a cache miss (ie., a query interval not fully contained within our cache) and need
      * to re-populate the Feature cache from disk to satisfy a query, this controls the number of extra bases
@@ -125,6 +137,12 @@ public final class FeatureDataSource<T extends Feature> implements GATKDataSourc
      */
     public static final int DEFAULT_QUERY_LOOKAHEAD_BASES = 1000;
 
+    /**
+     * When extending a cache window over upcoming query lookahead intervals (see {@link #setQueryLookaheadIntervals}),
+     * never extend it by more than this many bases beyond the end of the query that produced the cache miss.
+     */
+    public static final int MAX_INTERVAL_QUERY_LOOKAHEAD_BASES = 100_000;
+
     /**
      * Creates a FeatureDataSource backed by the provided File. The data source will have an automatically
      * generated name, and will look ahead the default number of bases ({@link #DEFAULT_QUERY_LOOKAHEAD_BASES})
@@ -236,7 +254,8 @@ public final class FeatureDataSource<T extends Feature> implements GATKDataSourc
         Utils.validateArg( queryLookaheadBases >= 0, "Query lookahead bases must be >= 0");
         this.featureInput = Utils.nonNull(featureInput, "featureInput must not be null");
 
-        final Function<SeekableByteChannel, SeekableByteChannel> cloudWrapper = (cloudPrefetchBuffer > 0 ? is -> SeekableByteChannelPrefetcher.addPrefetcher(cloudPrefetchBuffer, is) : Function.identity());
+        // the prefetcher of the data reopens its path, so that it can fetch several blocks at once
+        final Function<SeekableByteChannel, SeekableByteChannel> cloudWrapper = (cloudPrefetchBuffer > 0 ? is -> SeekableByteChannelPrefetcher.addPrefetcher(cloudPrefetchBuffer, is, IOUtils.getPath(featureInput.getFeaturePath())) : Function.identity());
         final Function<SeekableByteChannel, SeekableByteChannel> cloudIndexWrapper = (cloudIndexPrefetchBuffer > 0 ? is -> SeekableByteChannelPrefetcher.addPrefetcher(cloudIndexPrefetchBuffer, is) : Function.identity());
 
         // Create a feature reader without requiring an index.  We will require one ourselves as soon as
@@ -497,6 +516,14 @@ public final class FeatureDataSource<T extends Feature> implements GATKDataSourc
                                     "If it's a file, please index it using the bundled tool " + IndexFeatureFile.class.getSimpleName());
         }
 
+        if ( multiWindowQueryCache != null ) {
+            if ( ! multiWindowQueryCache.cacheHit(interval) ) {
+                final SimpleInterval window = getMultiWindowQueryCacheWindow(interval);
+                queryIntoCache(window, queryIter -> multiWindowQueryCache.fill(queryIter, window));
+            }
+            return multiWindowQueryCache.getCachedFeatures(interval);
+        }
+
         // If the query can be satisfied using existing cache contents, prepare for retrieval
         // by discarding all Features at the beginning of the cache that end before the start
         // of our query interval.
@@ -523,10 +550,6 @@ public final class FeatureDataSource<T extends Feature> implements GATKDataSourc
      * @param interval the query interval that produced a cache miss
      */
     private void refillQueryCache( final SimpleInterval interval ) {
-        // Tribble documentation states that having multiple iterators open simultaneously over the same FeatureReader
-        // results in undefined behavior
-        closeOpenIterationIfNecessary();
-
         // Expand the end of our query by the configured number of bases, in anticipation of probable future
         // queries with slightly larger start/stop positions.
         //
@@ -535,13 +558,105 @@ public final class FeatureDataSource<T extends Feature> implements GATKDataSourc
         // Note: we use addExact to blow up on overflow rather than propagate negative results downstream
         final SimpleInterval queryInterval = new SimpleInterval(interval.getContig(), interval.getStart(), Math.addExact(interval.getEnd(), queryLookaheadBases));
 
+        queryIntoCache(queryInterval, queryIter -> queryCache.fill(queryIter, queryInterval));
+    }
+
+    /**
+     * Determine the window to load into {@link #multiWindowQueryCache} after a cache miss. The window extends
+     * queryLookaheadBases bases after the end of the provided interval. If lookahead intervals were provided via
+     * {@link #setQueryLookaheadIntervals}, the window is further extended over each upcoming lookahead interval that
+     * starts within it, with the lookahead measured from the end of that interval instead, so that clusters of nearby
+     * intervals are served by a single query. That extension is limited to {@link #MAX_INTERVAL_QUERY_LOOKAHEAD_BASES}.
+     *
+     * @param interval the query interval that produced a cache miss
+     * @return the window to load into the cache, which contains interval
+     */
+    private SimpleInterval getMultiWindowQueryCacheWindow( final SimpleInterval interval ) {
+        // Note: we use addExact to blow up on overflow rather than propagate negative results downstream
+        long windowEnd = Math.addExact(interval.getEnd(), queryLookaheadBases);
+
+        final List<SimpleInterval> contigIntervals = queryLookaheadIntervals != null ? queryLookaheadIntervals.get(interval.getContig()) : null;
+        if ( contigIntervals != null && queryLookaheadBases > 0 ) {
+            final long maxWindowEnd = (long)interval.getEnd() + Math.max(queryLookaheadBases, MAX_INTERVAL_QUERY_LOOKAHEAD_BASES);
+
+            // Find the first lookahead interval that ends after the query, then extend over those that start within the window
+            int low = 0;
+            int high = contigIntervals.size();
+            while ( low < high ) {
+                final int mid = (low + high) >>> 1;
+                if ( contigIntervals.get(mid).getEnd() <= interval.getEnd() ) {
+                    low = mid + 1;
+                }
+                else {
+                    high = mid;
+                }
+            }
+            for ( int i = low; i < contigIntervals.size() && contigIntervals.get(i).getStart() <= windowEnd && windowEnd < maxWindowEnd; ++i ) {
+                windowEnd = Math.max(windowEnd, (long)contigIntervals.get(i).getEnd() + queryLookaheadBases);
+            }
+            windowEnd = Math.min(windowEnd, maxWindowEnd);
+        }
+
+        // Note that it doesn't matter if we go off the end of the contig, since our reader's
+        // query operation is not aware of (and does not care about) contig boundaries.
+        return new SimpleInterval(interval.getContig(), interval.getStart(), Math.toIntExact(windowEnd));
+    }
+
+    /**
+     * Query our reader over the given interval, passing the resulting iterator to the given cache-filling operation.
+     * The query iterator is closed immediately afterwards.
+     *
+     * Calling this has the side effect of invalidating (closing) any currently-open iteration over
+     * this data source.
+     *
+     * @param queryInterval interval over which to query our reader
+     * @param cacheFiller operation that populates a cache from the query iterator
+     */
+    private void queryIntoCache( final SimpleInterval queryInterval, final Consumer<CloseableTribbleIterator<T>> cacheFiller ) {
+        // Tribble documentation states that having multiple iterators open simultaneously over the same FeatureReader
+        // results in undefined behavior
+        closeOpenIterationIfNecessary();
+
         // Query iterator over our reader will be immediately closed after re-populating our cache
         try ( CloseableTribbleIterator<T> queryIter = featureReader.query(queryInterval.getContig(), queryInterval.getStart(), queryInterval.getEnd()) ) {
-            queryCache.fill(queryIter, queryInterval);
+            cacheFiller.accept(queryIter);
         }
         catch ( IOException e ) {
-            throw new GATKException("Error querying file " + featureInput + " over interval " + interval, e);
+            throw new GATKException("Error querying file " + featureInput + " over interval " + queryInterval, e);
+        }
+    }
+
+    /**
+     * Cache the Features from up to maxWindows disjoint windows of the genome for queries initiated via
+     * {@link #query(SimpleInterval)} and/or {@link #queryAndPrefetch(SimpleInterval)}, evicting the least-recently-used
+     * window when necessary, instead of the default single window. Performs better than the default cache when queries
+     * move backwards or jump between distant loci. Discards the contents of the current cache.
+     *
+     * @param maxWindows maximum number of disjoint windows to cache (must be >= 1)
+     */
+    public void enableMultiWindowQueryCache( final int maxWindows ) {
+        multiWindowQueryCache = new MultiWindowFeatureCache<>(maxWindows);
+    }
+
+    /**
+     * Provide the intervals that upcoming queries initiated via {@link #query(SimpleInterval)} and/or
+     * {@link #queryAndPrefetch(SimpleInterval)} are expected to fall within (typically, the intervals for traversal),
+     * so that the multi-window cache can read ahead over them after a cache miss. Has no effect unless
+     * {@link #enableMultiWindowQueryCache} has been called. Queries outside these intervals are still answered correctly.
+     *
+     * @param intervals upcoming query intervals, which must be non-overlapping. Null or empty to clear.
+     */
+    public void setQueryLookaheadIntervals( final List<SimpleInterval> intervals ) {
+        if ( intervals == null || intervals.isEmpty() ) {
+            queryLookaheadIntervals = null;
+            return;
+        }
+
+        queryLookaheadIntervals = new HashMap<>();
+        for ( final SimpleInterval interval : intervals ) {
+            queryLookaheadIntervals.computeIfAbsent(interval.getContig(), contig -> new ArrayList<>()).add(interval);
         }
+        queryLookaheadIntervals.values().forEach(contigIntervals -> contigIntervals.sort(Comparator.comparingInt(SimpleInterval::getStart)));
     }
 
     /**
@@ -571,7 +686,12 @@ public final class FeatureDataSource<T extends Feature> implements GATKDataSourc
         closeOpenIterationIfNecessary();
 
         logger.debug(String.format("Cache statistics for FeatureInput %s:", featureInput));
-        queryCache.printCacheStatistics();
+        if ( multiWindowQueryCache != null ) {
+            multiWindowQueryCache.printCacheStatistics();
+        }
+        else {
+            queryCache.printCacheStatistics();
+        }
 
         try {
             if ( featureReader != null ) {
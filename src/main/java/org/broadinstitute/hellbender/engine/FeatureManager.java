@@ -284,6 +284,26 @@ public final class FeatureManager implements AutoCloseable {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Switch all of our data sources to caching the Features from up to maxWindows disjoint windows of the genome
+     * for queries (see {@link FeatureDataSource#enableMultiWindowQueryCache}).
+     *
+     * @param maxWindows maximum number of disjoint windows to cache per data source (must be >= 1)
+     */
+    public void enableMultiWindowQueryCaches( final int maxWindows ) {
+        featureSources.values().forEach(ds -> ds.enableMultiWindowQueryCache(maxWindows));
+    }
+
+    /**
+     * Provide all of our data sources with the intervals that upcoming queries are expected to fall within,
+     * for use in reading ahead after cache misses (see {@link FeatureDataSource#setQueryLookaheadIntervals}).
+     *
+     * @param intervals upcoming query intervals, which must be non-overlapping. Null or empty to clear.
+     */
+    public void setQueryLookaheadIntervals( final List<SimpleInterval> intervals ) {
+        featureSources.values().forEach(ds -> ds.setQueryLookaheadIntervals(intervals));
+    }
+
     /**
      * Given a FeatureInput argument field from our tool, queries the data source for that FeatureInput
      * over the specified interval, and returns a List of the Features overlapping that interval from
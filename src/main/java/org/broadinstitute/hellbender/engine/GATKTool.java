@@ -10,6 +10,7 @@ import htsjdk.variant.variantcontext.writer.Options;
 import htsjdk.variant.variantcontext.writer.VariantContextWriter;
 import htsjdk.variant.vcf.VCFHeaderLine;
 import htsjdk.variant.vcf.VCFSimpleHeaderLine;
+import org.broadinstitute.barclay.argparser.Advanced;
 import org.broadinstitute.barclay.argparser.Argument;
 import org.broadinstitute.barclay.argparser.ArgumentCollection;
 import org.broadinstitute.barclay.argparser.CommandLinePluginDescriptor;
@@ -34,6 +35,8 @@ import org.broadinstitute.hellbender.utils.read.GATKRead;
 import org.broadinstitute.hellbender.utils.read.ReadUtils;
 import org.broadinstitute.hellbender.utils.read.SAMFileGATKReadWriter;
 import org.broadinstitute.hellbender.utils.reference.ReferenceUtils;
+import org.broadinstitute.hellbender.utils.runtime.MetricsRegistry;
+import org.broadinstitute.hellbender.utils.runtime.MetricsReporter;
 import org.broadinstitute.hellbender.utils.variant.GATKVariantContextUtils;
 
 import java.io.File;
@@ -49,6 +52,19 @@ import java.util.stream.Stream;
  */
 public abstract class GATKTool extends CommandLineProgram {
 
+    public static final String ASYNC_READ_DECODING_LONG_NAME = "async-read-decoding";
+    public static final String FEATURE_CACHE_WINDOWS_LONG_NAME = "feature-cache-windows";
+    public static final String RUNTIME_METRICS_OUTPUT_LONG_NAME = "runtime-metrics-output";
+    public static final String RUNTIME_METRICS_FORMAT_LONG_NAME = "runtime-metrics-format";
+    public static final String SECONDS_BETWEEN_RUNTIME_METRICS_LONG_NAME = "seconds-between-runtime-metrics";
+    public static final String OUTPUT_COMPRESSION_THREADS_LONG_NAME = "output-compression-threads";
+
+    // Number of reads handed from the background decoding thread to the tool at a time, with --async-read-decoding
+    private static final int ASYNC_READ_BATCH_SIZE = 1000;
+
+    // Maximum number of read batches the background decoding thread may get ahead of the tool by
+    private static final int ASYNC_READ_MAX_BUFFERED_BATCHES = 10;
+
     @ArgumentCollection
     protected IntervalArgumentCollection intervalArgumentCollection = requiresIntervals() ? new RequiredIntervalArgumentCollection() : new OptionalIntervalArgumentCollection();
 
@@ -108,6 +124,30 @@ public abstract class GATKTool extends CommandLineProgram {
     @Argument(fullName = StandardArgumentDefinitions.CLOUD_INDEX_PREFETCH_BUFFER_LONG_NAME, shortName = StandardArgumentDefinitions.CLOUD_INDEX_PREFETCH_BUFFER_SHORT_NAME, doc = "Size of the cloud-only prefetch buffer (in MB; 0 to disable). Defaults to cloudPrefetchBuffer if unset.", optional=true)
     public int cloudIndexPrefetchBuffer = getDefaultCloudIndexPrefetchBufferSize();
 
+    @Advanced
+    @Argument(fullName = ASYNC_READ_DECODING_LONG_NAME, doc = "If true, decompress, decode, transform and filter reads on background threads, overlapping that work with the processing of each read by the tool. Has no effect on traversals that do not read all reads sequentially.", optional = true)
+    public boolean asyncReadDecoding = false;
+
+    @Advanced
+    @Argument(fullName = FEATURE_CACHE_WINDOWS_LONG_NAME, doc = "If greater than 0, cache Features from up to this many disjoint regions of the genome per Feature input, discarding the least recently used, and read ahead over the intervals for traversal after a cache miss. Speeds up traversals over many scattered intervals, and with queries that move backwards. If 0, cache a single region that moves forward with each query.", optional = true, minValue = 0)
+    public int featureCacheWindows = 0;
+
+    @Advanced
+    @Argument(fullName = RUNTIME_METRICS_OUTPUT_LONG_NAME, doc = "If specified, export runtime metrics of the engine (reads decoded and filtered, Feature cache hits and misses, prefetcher stalls, PairHMM and assembly times...) to this file while the tool runs.", optional = true)
+    public String runtimeMetricsOutput = null;
+
+    @Advanced
+    @Argument(fullName = RUNTIME_METRICS_FORMAT_LONG_NAME, doc = "Format of the runtime metrics file: JSON_LINES appends a line of JSON with all metrics at each export, PROMETHEUS replaces the file with the current metrics in the Prometheus text format at each export.", optional = true)
+    public MetricsReporter.Format runtimeMetricsFormat = MetricsReporter.Format.JSON_LINES;
+
+    @Advanced
+    @Argument(fullName = SECONDS_BETWEEN_RUNTIME_METRICS_LONG_NAME, doc = "Export runtime metrics every time this many seconds elapse (0 to export them only at the start and the end of the run).", optional = true, minValue = 0)
+    public double secondsBetweenRuntimeMetrics = 60.0;
+
+    @Advanced
+    @Argument(fullName = OUTPUT_COMPRESSION_THREADS_LONG_NAME, doc = "If greater than 0, compress BAM and block-compressed VCF outputs on this many threads, in addition to the thread writing them. The outputs and their indices are identical to those compressed on the writing thread.", optional = true, minValue = 0)
+    public int outputCompressionThreads = 0;
+
     @Argument(fullName = StandardArgumentDefinitions.DISABLE_BAM_INDEX_CACHING_LONG_NAME,
             shortName = StandardArgumentDefinitions.DISABLE_BAM_INDEX_CACHING_SHORT_NAME,
             doc = "If true, don't cache bam indexes, this will reduce memory requirements but may harm performance if many intervals are specified.  Caching is automatically disabled if there are no intervals specified.",
@@ -159,6 +199,11 @@ public abstract class GATKTool extends CommandLineProgram {
      */
     protected ProgressMeter progressMeter;
 
+    /**
+     * Exporter of runtime metrics (null if no runtime metrics output was requested)
+     */
+    private MetricsReporter runtimeMetricsReporter;
+
     /**
      * Return the list of GATKCommandLinePluginDescriptors to be used for this tool.
      * Uses the read filter plugin.
@@ -243,12 +288,20 @@ public abstract class GATKTool extends CommandLineProgram {
      * 3. Transformed with {@link #makePostReadFilterTransformer()}.
      *
      * Note: the filter is passed to keep the state of {@link CountingReadFilter}, obtained with {@link #makeReadFilter()}.
+     *
+     * If {@link #asyncReadDecoding} is set, all three steps are performed on a background thread, so the filter state
+     * may only be inspected once the stream has been fully consumed.
      */
     protected Stream<GATKRead> getTransformedReadStream(final ReadFilter filter) {
         // if has reads, return an transformed/filtered/transformed stream
         if (hasReads()) {
             final ReadTransformer preTransformer = makePreReadFilterTransformer();
             final ReadTransformer postTransformer = makePostReadFilterTransformer();
+            if ( asyncReadDecoding ) {
+                return Utils.stream(reads.asynchronousIterator(
+                        readStream -> readStream.map(preTransformer).filter(filter).map(postTransformer),
+                        ASYNC_READ_BATCH_SIZE, ASYNC_READ_MAX_BUFFERED_BATCHES));
+            }
             return Utils.stream(reads)
                     .map(preTransformer)
                     .filter(filter)
@@ -303,26 +356,44 @@ public abstract class GATKTool extends CommandLineProgram {
      */
     void initializeReads() {
         if (! readArguments.getReadFiles().isEmpty()) {
-            SamReaderFactory factory = SamReaderFactory.makeDefault().validationStringency(readArguments.getReadValidationStringency());
-            if (hasReference()) { // pass in reference if available, because CRAM files need it
-                factory = factory.referenceSequence(referenceArguments.getReferencePath());
-            }
-            else if (hasCramInput()) {
-                throw new UserException.MissingReference("A reference file is required when using CRAM files.");
-            }
-
-            if(bamIndexCachingShouldBeEnabled()) {
-                factory = factory.enable(SamReaderFactory.Option.CACHE_FILE_BASED_INDEXES);
-            }
-
-            reads = new ReadsDataSource(readArguments.getReadPaths(), readArguments.getReadIndexPaths(), factory, cloudPrefetchBuffer,
-                (cloudIndexPrefetchBuffer < 0 ? cloudPrefetchBuffer : cloudIndexPrefetchBuffer));
+            reads = createReadsDataSource();
         }
         else {
             reads = null;
         }
     }
 
+    /**
+     * Open a new, independent source of reads over the read inputs for this tool, configured the same way as
+     * the tool's own {@link #reads} data source. Used by traversals that need a separate source of reads
+     * for each worker thread. Must only be called when read inputs are present.
+     *
+     * Package-private so that engine classes can access it, but concrete tool child classes cannot.
+     */
+    ReadsDataSource createReadsDataSource() {
+        SamReaderFactory factory = SamReaderFactory.makeDefault().validationStringency(readArguments.getReadValidationStringency());
+        if (hasReference()) { // pass in reference if available, because CRAM files need it
+            factory = factory.referenceSequence(referenceArguments.getReferencePath());
+        }
+        else if (hasCramInput()) {
+            throw new UserException.MissingReference("A reference file is required when using CRAM files.");
+        }
+
+        if(bamIndexCachingShouldBeEnabled()) {
+            factory = factory.enable(SamReaderFactory.Option.CACHE_FILE_BASED_INDEXES);
+        }
+
+        if (asyncReadDecoding) {
+            // inflate BGZF blocks ahead of the decoding thread
+            factory = factory.setUseAsyncIo(true);
+        }
+
+        final ReadsDataSource readsDataSource = new ReadsDataSource(readArguments.getReadPaths(), readArguments.getReadIndexPaths(), factory, cloudPrefetchBuffer,
+            (cloudIndexPrefetchBuffer < 0 ? cloudPrefetchBuffer : cloudIndexPrefetchBuffer));
+        readsDataSource.setLazyReadDecoding(readArguments.useLazyReadDecoding());
+        return readsDataSource;
+    }
+
 
     private boolean bamIndexCachingShouldBeEnabled() {
         return intervalArgumentCollection.intervalsSpecified() && !disableBamIndexCaching;
@@ -344,13 +415,39 @@ public abstract class GATKTool extends CommandLineProgram {
      * By default, this method initializes the FeatureManager to use the lookahead cache of {@link FeatureDataSource#DEFAULT_QUERY_LOOKAHEAD_BASES} bases.
      */
     void initializeFeatures() {
-        features = new FeatureManager(this, FeatureDataSource.DEFAULT_QUERY_LOOKAHEAD_BASES, cloudPrefetchBuffer, cloudIndexPrefetchBuffer,
-                                      referenceArguments.getReferencePath());
+        features = createFeatureManager(FeatureDataSource.DEFAULT_QUERY_LOOKAHEAD_BASES);
         if ( features.isEmpty() ) {  // No available sources of Features discovered for this tool
             features = null;
         }
     }
 
+    /**
+     * Open a new, independent FeatureManager over the Feature inputs for this tool. Used by traversals that
+     * need a separate source of Features for each worker thread, as well as by {@link #initializeFeatures}.
+     *
+     * Package-private so that engine classes can access it, but concrete tool child classes cannot.
+     *
+     * @param featureQueryLookahead number of bases to look ahead when caching Feature queries
+     * @return a new FeatureManager (which may be empty, if the tool has no Feature inputs)
+     */
+    FeatureManager createFeatureManager(final int featureQueryLookahead) {
+        final FeatureManager featureManager = new FeatureManager(this, featureQueryLookahead, cloudPrefetchBuffer, cloudIndexPrefetchBuffer,
+                                  referenceArguments.getReferencePath());
+        configureFeatureQueryCaches(featureManager);
+        return featureManager;
+    }
+
+    /**
+     * Apply the {@link #featureCacheWindows} setting to the given FeatureManager, using our intervals for traversal
+     * (if already initialized) for read-ahead.
+     */
+    private void configureFeatureQueryCaches(final FeatureManager featureManager) {
+        if ( featureCacheWindows > 0 ) {
+            featureManager.enableMultiWindowQueryCaches(featureCacheWindows);
+            featureManager.setQueryLookaheadIntervals(intervalsForTraversal);
+        }
+    }
+
     /**
      * Initialize our intervals for traversal.
      *
@@ -549,6 +646,11 @@ public abstract class GATKTool extends CommandLineProgram {
     protected void onStartup() {
         super.onStartup();
 
+        if ( runtimeMetricsOutput != null ) {
+            runtimeMetricsReporter = new MetricsReporter(MetricsRegistry.getDefault(), IOUtils.getPath(runtimeMetricsOutput),
+                    runtimeMetricsFormat, secondsBetweenRuntimeMetrics);
+        }
+
         loadMasterSequenceDictionary();
 
         initializeReference();
@@ -559,6 +661,12 @@ public abstract class GATKTool extends CommandLineProgram {
 
         initializeIntervals(); // Must be initialized after reference, reads and features, since intervals currently require a sequence dictionary from another data source
 
+        if ( features != null ) {
+            // Done after interval initialization so that the Feature caches can read ahead over the intervals.
+            // Traversals may create their own FeatureManager in initializeFeatures(), so this can't be done there.
+            configureFeatureQueryCaches(features);
+        }
+
         if ( ! disableSequenceDictionaryValidation ) {
             validateSequenceDictionaries();
         }
@@ -697,7 +805,8 @@ public abstract class GATKTool extends CommandLineProgram {
                 getHeaderForSAMWriter(),
                 preSorted,
                 createOutputBamIndex,
-                createOutputBamMD5
+                createOutputBamMD5,
+                outputCompressionThreads
             )
         );
     }
@@ -733,6 +842,7 @@ public abstract class GATKTool extends CommandLineProgram {
                 outFile,
                 sequenceDictionary,
                 createOutputVariantMD5,
+                outputCompressionThreads,
                 options.toArray(new Options[options.size()]));
     }
 
@@ -856,6 +966,10 @@ public abstract class GATKTool extends CommandLineProgram {
         if ( hasFeatures() ) {
             features.close();
         }
+
+        if ( runtimeMetricsReporter != null ) {
+            runtimeMetricsReporter.close();
+        }
     }
 
     /**
@@ -3,10 +3,7 @@ package org.broadinstitute.hellbender.engine;
 import htsjdk.samtools.SAMSequenceDictionary;
 import htsjdk.samtools.SAMSequenceRecord;
 import htsjdk.samtools.util.CloseableIterator;
-import htsjdk.samtools.util.MergingIterator;
 import htsjdk.variant.variantcontext.VariantContext;
-import htsjdk.variant.variantcontext.VariantContextComparator;
-import htsjdk.variant.variantcontext.writer.VariantContextWriter;
 import htsjdk.variant.vcf.VCFHeader;
 import htsjdk.variant.vcf.VCFUtils;
 import org.apache.logging.log4j.LogManager;
@@ -37,10 +34,24 @@ import java.util.stream.Collectors;
  * -Targeted queries by one interval at a time. This also requires the files to have been indexed using
  *  the bundled tool IndexFeatureFile. Targeted queries by one interval at a time are unaffected by
  *  any intervals for full traversal set via {@link #setIntervalsForTraversal(List)}.
+ *
+ * The variants of the sources are merged through a binary heap of one cursor per source, keyed on the position of
+ * the next variant of the source in the merged sequence dictionary, so that merging many sources costs a logarithmic
+ * number of integer comparisons per variant. Variants at the same position are returned in the order of their sources.
+ * The query lookahead is a budget shared by all sources, so that the total number of variants cached for queries does
+ * not grow with the number of sources.
  */
 public final class MultiVariantDataSource implements GATKDataSource<VariantContext>, AutoCloseable {
     private static final Logger logger = LogManager.getLogger(MultiVariantDataSource.class);
 
+    /**
+     * Each source looks ahead at least this many bases during queries (or the whole lookahead, if smaller),
+     * however many sources share the lookahead. This is a small fraction of
+     * {@link FeatureDataSource#DEFAULT_QUERY_LOOKAHEAD_BASES}, so that the default lookahead is still divided
+     * between up to ten sources.
+     */
+    public static final int MIN_SOURCE_QUERY_LOOKAHEAD_BASES = 100;
+
     /**
      * List of FeatureDataSource objects aggregated by this MultiVariantDataSource
      */
@@ -73,10 +84,10 @@ public final class MultiVariantDataSource implements GATKDataSource<VariantConte
 
     /**
      * Creates a MultiVariantDataSource backed by the provided FeatureInputs. We will look ahead the specified number of bases
-     * during queries that produce cache misses.
+     * during queries that produce cache misses, divided between the sources (see {@link #getSourceQueryLookaheadBases}).
      *
      * @param featureInputs List of FeatureInput<VariantContext>> specifying sources of VariantContexts
-     * @param queryLookaheadBases look ahead this many bases during queries that produce cache misses
+     * @param queryLookaheadBases look ahead this many bases during queries that produce cache misses, in total across the sources
      * @param cloudPrefetchBuffer  MB size of caching/prefetching wrapper for the data, if on Google Cloud (0 to disable).
      * @param cloudIndexPrefetchBuffer MB size of caching/prefetching wrapper for the index, if on Google Cloud (0 to disable).
      * @param reference reference to use when creating FeatureDataSources, may be null, only needed by GenomicsDB
@@ -85,9 +96,10 @@ public final class MultiVariantDataSource implements GATKDataSource<VariantConte
         Utils.validateArg(queryLookaheadBases >= 0, "Query lookahead bases must be >= 0");
         Utils.validateArg(featureInputs != null && featureInputs.size() > 0, "FeatureInputs list must be non-null and non-empty");
 
+        final int sourceQueryLookaheadBases = getSourceQueryLookaheadBases(queryLookaheadBases, featureInputs.size());
         featureInputs.forEach(
                 featureInput -> featureDataSources.add(
-                        new FeatureDataSource<>(featureInput, queryLookaheadBases, VariantContext.class, cloudPrefetchBuffer, cloudIndexPrefetchBuffer,
+                        new FeatureDataSource<>(featureInput, sourceQueryLookaheadBases, VariantContext.class, cloudPrefetchBuffer, cloudIndexPrefetchBuffer,
                                                 reference)));
 
         // Ensure that the merged header and sequence dictionary that we use are in sync with each
@@ -108,6 +120,21 @@ public final class MultiVariantDataSource implements GATKDataSource<VariantConte
         }
     }
 
+    /**
+     * Divide a query lookahead between sources, so that the total number of bases cached by the sources is bounded by
+     * the lookahead rather than growing with the number of sources, with a floor of {@link #MIN_SOURCE_QUERY_LOOKAHEAD_BASES}
+     * per source so that queries over many sources don't degenerate into a cache miss per query.
+     *
+     * @param queryLookaheadBases total lookahead, in bases
+     * @param numSources number of sources sharing the lookahead
+     * @return the number of bases each source should look ahead
+     */
+    static int getSourceQueryLookaheadBases(final int queryLookaheadBases, final int numSources) {
+        Utils.validateArg(queryLookaheadBases >= 0, "Query lookahead bases must be >= 0");
+        Utils.validateArg(numSources > 0, "there must be at least one source");
+        return Math.max(queryLookaheadBases / numSources, Math.min(queryLookaheadBases, MIN_SOURCE_QUERY_LOOKAHEAD_BASES));
+    }
+
     /**
      * Returns the aggregate sequence dictionary for this source of Variants. Uses the dictionary resulting
      * from merging available individual VCF headers (if present) for variant inputs.
@@ -192,11 +219,9 @@ public final class MultiVariantDataSource implements GATKDataSource<VariantConte
         closeOpenIterationIfNecessary();
 
         if (featureDataSources.size() > 1) {
-            final List<CloseableIterator<VariantContext>> iterators = new ArrayList<>(featureDataSources.size());
-            featureDataSources.forEach(ds -> iterators.add(getCloseableIteratorWrapper(iteratorFromSource.apply((ds)))));
-
-            final VariantContextComparator varComparator = new VariantContextComparator(getSequenceDictionary());
-            currentIterator = new MergingIterator<>(varComparator, iterators);
+            final List<Iterator<VariantContext>> iterators = new ArrayList<>(featureDataSources.size());
+            featureDataSources.forEach(ds -> iterators.add(iteratorFromSource.apply(ds)));
+            currentIterator = new MergingVariantIterator(iterators, getSequenceDictionary());
         } else {
             currentIterator = getCloseableIteratorWrapper(iteratorFromSource.apply(featureDataSources.get(0)));
         }
@@ -371,7 +396,7 @@ public final class MultiVariantDataSource implements GATKDataSource<VariantConte
     }
 
     /**
-     * Wrap the sourceIterator in a CloseableIterator to make it usable as a MergingIterator source.
+     * Wrap the sourceIterator in a CloseableIterator, so that it can be closed when a new iteration starts.
      */
     private CloseableIterator<VariantContext> getCloseableIteratorWrapper(final Iterator<VariantContext> sourceIterator) {
         Utils.nonNull(sourceIterator);
@@ -396,6 +421,92 @@ public final class MultiVariantDataSource implements GATKDataSource<VariantConte
         };
     }
 
+    /**
+     * Merges iterators over the sources into a single iterator in the order of a sequence dictionary, with a binary
+     * heap of cursors over the sources. Each cursor holds the next variant of its source and its position packed into
+     * a long (contig index in the high bits, start in the low bits), so that the heap compares positions without
+     * looking contigs up in the dictionary. Ties are broken by source index, which makes the merge stable.
+     */
+    private static final class MergingVariantIterator implements CloseableIterator<VariantContext> {
+        private final SAMSequenceDictionary dictionary;
+        private final PriorityQueue<SourceCursor> heap;
+
+        private static final class SourceCursor {
+            private final int sourceIndex;
+            private Iterator<VariantContext> iterator;
+            private VariantContext head;
+            private long headPosition = Long.MIN_VALUE;
+
+            private SourceCursor(final int sourceIndex, final Iterator<VariantContext> iterator) {
+                this.sourceIndex = sourceIndex;
+                this.iterator = Utils.nonNull(iterator);
+            }
+        }
+
+        private MergingVariantIterator(final List<Iterator<VariantContext>> sourceIterators, final SAMSequenceDictionary dictionary) {
+            this.dictionary = Utils.nonNull(dictionary);
+            heap = new PriorityQueue<>(sourceIterators.size(),
+                    Comparator.<SourceCursor>comparingLong(cursor -> cursor.headPosition).thenComparingInt(cursor -> cursor.sourceIndex));
+            for ( int i = 0; i < sourceIterators.size(); i++ ) {
+                final SourceCursor cursor = new SourceCursor(i, sourceIterators.get(i));
+                if ( advance(cursor) ) {
+                    heap.add(cursor);
+                }
+            }
+        }
+
+        /**
+         * Move a cursor to the next variant of its source
+         *
+         * @return false if the source is exhausted
+         */
+        private boolean advance(final SourceCursor cursor) {
+            if ( cursor.iterator == null || !cursor.iterator.hasNext() ) {
+                cursor.head = null;
+                cursor.iterator = null;
+                return false;
+            }
+            final VariantContext variant = cursor.iterator.next();
+            final int contigIndex = dictionary.getSequenceIndex(variant.getContig());
+            if ( contigIndex < 0 ) {
+                throw new UserException.MissingContigInSequenceDictionary(variant.getContig(), dictionary);
+            }
+            final long position = ((long) contigIndex << 32) | variant.getStart();
+            if ( position < cursor.headPosition ) {
+                throw new UserException(String.format(
+                        "The variants of input %d are not sorted in the order of the sequence dictionary: %s:%d follows %s:%d",
+                        cursor.sourceIndex + 1, variant.getContig(), variant.getStart(), cursor.head.getContig(), cursor.head.getStart()));
+            }
+            cursor.head = variant;
+            cursor.headPosition = position;
+            return true;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !heap.isEmpty();
+        }
+
+        @Override
+        public VariantContext next() {
+            final SourceCursor cursor = heap.poll();
+            if ( cursor == null ) {
+                throw new NoSuchElementException("hasNext should be called before next");
+            }
+            final VariantContext variant = cursor.head;
+            if ( advance(cursor) ) {
+                heap.add(cursor);
+            }
+            return variant;
+        }
+
+        @Override
+        public void close() {
+            heap.forEach(cursor -> cursor.iterator = null);
+            heap.clear();
+        }
+    }
+
     /**
      * Return lexicographically sorted set of uniquified sample names merged from across input data sources
      */
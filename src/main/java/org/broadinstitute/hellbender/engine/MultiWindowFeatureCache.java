@@ -0,0 +1,300 @@
+package org.broadinstitute.hellbender.engine;
+
+import htsjdk.samtools.util.IntervalTree;
+import htsjdk.tribble.Feature;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.util.*;
+
+/**
+ * MultiWindowFeatureCache: alternative to {@link FeatureCache} for {@link FeatureDataSource} that holds the Features
+ * from several disjoint windows of the genome at once, rather than a single window whose start moves forward with
+ * each query.
+ *
+ * Windows are indexed by an interval tree per contig, so a query is a cache hit if it is wholly contained in ANY
+ * of the cached windows, regardless of the order of queries. This makes the cache suitable for access patterns that
+ * the single-window cache handles poorly: queries that jump backwards (eg., padded assembly regions), and queries
+ * that alternate between a small number of distant loci. When more than the maximum number of windows are cached,
+ * the least-recently-used window is evicted. A newly-filled window replaces any cached windows it overlaps.
+ *
+ * Usage:
+ * -Test whether each query interval is a cache hit via {@link #cacheHit(SimpleInterval)}
+ *
+ * -If it is a cache miss, add a new window that contains the query interval using
+ *  {@link #fill(Iterator, SimpleInterval)}, typically with significant lookahead after the query interval.
+ *
+ * -Retrieve the Features overlapping the query interval using {@link #getCachedFeatures(SimpleInterval)}.
+ *
+ * @param <CACHED_FEATURE> Type of Feature record we are caching
+ */
+class MultiWindowFeatureCache<CACHED_FEATURE extends Feature> {
+    private static final Logger logger = LogManager.getLogger(MultiWindowFeatureCache.class);
+
+    /**
+     * Maximum number of windows we may hold at once
+     */
+    private final int maxWindows;
+
+    /**
+     * Our cached windows, keyed by contig, and then by the interval each window covers
+     */
+    private final Map<String, IntervalTree<CacheWindow<CACHED_FEATURE>>> windowsByContig = new HashMap<>();
+
+    /**
+     * All cached windows, in order from least-recently-used to most-recently-used
+     */
+    private final LinkedHashMap<SimpleInterval, CacheWindow<CACHED_FEATURE>> windowsByRecency = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Number of times we called {@link #cacheHit(SimpleInterval)} and it returned true
+     */
+    private int numCacheHits = 0;
+
+    /**
+     * Number of times we called {@link #cacheHit(SimpleInterval)} and it returned false
+     */
+    private int numCacheMisses = 0;
+
+    /**
+     * Number of windows discarded to keep the number of cached windows under {@link #maxWindows}
+     */
+    private int numEvictions = 0;
+
+    /**
+     * Number of windows discarded because a newly-filled window overlapped them
+     */
+    private int numReplacements = 0;
+
+    /**
+     * Total number of Features loaded into the cache across all fill operations
+     */
+    private long numFeaturesLoaded = 0;
+
+    /**
+     * Create an initially-empty MultiWindowFeatureCache
+     *
+     * @param maxWindows maximum number of disjoint windows to cache at once (must be >= 1)
+     */
+    public MultiWindowFeatureCache( final int maxWindows ) {
+        Utils.validateArg(maxWindows >= 1, "maxWindows must be >= 1");
+        this.maxWindows = maxWindows;
+    }
+
+    /**
+     * @return the number of windows currently cached
+     */
+    public int getNumCachedWindows() {
+        return windowsByRecency.size();
+    }
+
+    /**
+     * @return the intervals covered by the currently-cached windows, from least-recently-used to most-recently-used
+     */
+    public List<SimpleInterval> getCachedWindows() {
+        return new ArrayList<>(windowsByRecency.keySet());
+    }
+
+    /**
+     * @return Number of times we called {@link #cacheHit(SimpleInterval)} and it returned true
+     */
+    public int getNumCacheHits() {
+        return numCacheHits;
+    }
+
+    /**
+     * @return Number of times we called {@link #cacheHit(SimpleInterval)} and it returned false
+     */
+    public int getNumCacheMisses() {
+        return numCacheMisses;
+    }
+
+    /**
+     * @return Number of least-recently-used windows discarded to make room for new windows
+     */
+    public int getNumEvictions() {
+        return numEvictions;
+    }
+
+    /**
+     * @return Number of windows discarded because a newly-filled window overlapped them
+     */
+    public int getNumReplacements() {
+        return numReplacements;
+    }
+
+    /**
+     * @return Total number of Features loaded into the cache
+     */
+    public long getNumFeaturesLoaded() {
+        return numFeaturesLoaded;
+    }
+
+    /**
+     * Determines whether all records overlapping the provided interval are already contained in our cache,
+     * ie., whether the interval is wholly contained within one of our cached windows. A hit marks the
+     * containing window as most-recently-used.
+     *
+     * @param interval the interval to check against the contents of our cache
+     * @return true if all records overlapping the provided interval are already contained in our cache, otherwise false
+     */
+    public boolean cacheHit( final SimpleInterval interval ) {
+        final CacheWindow<CACHED_FEATURE> window = findContainingWindow(interval);
+
+        if ( window != null ) {
+            ++numCacheHits;
+            FeatureCache.CACHE_HITS_METRIC.increment();
+            windowsByRecency.get(window.interval); // access to update recency
+        }
+        else {
+            ++numCacheMisses;
+            FeatureCache.CACHE_MISSES_METRIC.increment();
+        }
+
+        return window != null;
+    }
+
+    /**
+     * Add a new window to our cache containing the records from the provided iterator, preserving their relative
+     * ordering. Any cached windows overlapping the new window are discarded, and then the least-recently-used
+     * windows are evicted if we hold more than the maximum number of windows.
+     *
+     * @param featureIter iterator from which to pull Features with which to populate the new window. Features must
+     *                    be sorted by start position.
+     * @param interval all Features from featureIter overlap this interval
+     */
+    public void fill( final Iterator<CACHED_FEATURE> featureIter, final SimpleInterval interval ) {
+        final CacheWindow<CACHED_FEATURE> newWindow = new CacheWindow<>(interval, featureIter);
+        numFeaturesLoaded += newWindow.features.size();
+
+        final IntervalTree<CacheWindow<CACHED_FEATURE>> contigWindows = windowsByContig.computeIfAbsent(interval.getContig(), contig -> new IntervalTree<>());
+        final List<CacheWindow<CACHED_FEATURE>> overlappedWindows = new ArrayList<>();
+        contigWindows.overlappers(interval.getStart(), interval.getEnd()).forEachRemaining(node -> overlappedWindows.add(node.getValue()));
+        for ( final CacheWindow<CACHED_FEATURE> overlappedWindow : overlappedWindows ) {
+            removeWindow(overlappedWindow);
+            ++numReplacements;
+        }
+
+        contigWindows.put(interval.getStart(), interval.getEnd(), newWindow);
+        windowsByRecency.put(interval, newWindow);
+
+        while ( windowsByRecency.size() > maxWindows ) {
+            removeWindow(windowsByRecency.values().iterator().next());
+            ++numEvictions;
+        }
+    }
+
+    /**
+     * Returns (but does not remove) all cached Features that overlap the provided interval, in their original order.
+     * Must only be called for intervals for which {@link #cacheHit(SimpleInterval)} is true, or that are contained in
+     * the most recently filled window.
+     *
+     * @param interval the interval that returned Features must overlap
+     * @return all cached Features that overlap the interval
+     */
+    public List<CACHED_FEATURE> getCachedFeatures( final SimpleInterval interval ) {
+        final CacheWindow<CACHED_FEATURE> window = findContainingWindow(interval);
+        if ( window == null ) {
+            throw new GATKException("BUG: attempted to retrieve Features for interval " + interval + " that is not contained in the Feature cache");
+        }
+        return window.getOverlappingFeatures(interval);
+    }
+
+    /**
+     * Print statistics about the cache hit rate and window turnover for debugging
+     */
+    public void printCacheStatistics() {
+        final int totalQueries = getNumCacheHits() + getNumCacheMisses();
+        logger.debug(String.format("Cache hit rate was %.2f%% (%d out of %d total queries)",
+                totalQueries > 0 ? ((double)getNumCacheHits() / totalQueries) * 100.0 : 0.0,
+                getNumCacheHits(),
+                totalQueries));
+        logger.debug(String.format("Loaded %d Features into %d windows (at most %d cached at once); %d windows evicted as least-recently-used, %d replaced by overlapping windows",
+                getNumFeaturesLoaded(), getNumCacheMisses(), maxWindows, getNumEvictions(), getNumReplacements()));
+    }
+
+    private CacheWindow<CACHED_FEATURE> findContainingWindow( final SimpleInterval interval ) {
+        final IntervalTree<CacheWindow<CACHED_FEATURE>> contigWindows = windowsByContig.get(interval.getContig());
+        if ( contigWindows == null ) {
+            return null;
+        }
+
+        // Windows are disjoint, so at most a handful of them can overlap the interval
+        final Iterator<IntervalTree.Node<CacheWindow<CACHED_FEATURE>>> overlappers = contigWindows.overlappers(interval.getStart(), interval.getEnd());
+        while ( overlappers.hasNext() ) {
+            final CacheWindow<CACHED_FEATURE> window = overlappers.next().getValue();
+            if ( window.interval.contains(interval) ) {
+                return window;
+            }
+        }
+        return null;
+    }
+
+    private void removeWindow( final CacheWindow<CACHED_FEATURE> window ) {
+        windowsByContig.get(window.interval.getContig()).remove(window.interval.getStart(), window.interval.getEnd());
+        windowsByRecency.remove(window.interval);
+    }
+
+    /**
+     * The Features overlapping one cached window, sorted by start position
+     */
+    private static final class CacheWindow<CACHED_FEATURE extends Feature> {
+        private final SimpleInterval interval;
+        private final List<CACHED_FEATURE> features;
+        private final int[] featureStarts;
+
+        /**
+         * Length of the longest Feature in this window, which bounds how far before a query interval
+         * we must start looking for overlapping Features
+         */
+        private final int maxFeatureLength;
+
+        CacheWindow( final SimpleInterval interval, final Iterator<CACHED_FEATURE> featureIter ) {
+            this.interval = interval;
+            this.features = new ArrayList<>();
+            int maxLength = 1;
+            while ( featureIter.hasNext() ) {
+                final CACHED_FEATURE feature = featureIter.next();
+                features.add(feature);
+                maxLength = Math.max(maxLength, feature.getEnd() - feature.getStart() + 1);
+            }
+            this.maxFeatureLength = maxLength;
+
+            this.featureStarts = new int[features.size()];
+            for ( int i = 0; i < featureStarts.length; ++i ) {
+                featureStarts[i] = features.get(i).getStart();
+            }
+        }
+
+        List<CACHED_FEATURE> getOverlappingFeatures( final SimpleInterval query ) {
+            // No Feature starting before this position can reach the query interval
+            final int earliestPossibleStart = query.getStart() - maxFeatureLength + 1;
+            final List<CACHED_FEATURE> overlapping = new ArrayList<>();
+            for ( int i = firstIndexStartingAtOrAfter(earliestPossibleStart); i < featureStarts.length && featureStarts[i] <= query.getEnd(); ++i ) {
+                final CACHED_FEATURE feature = features.get(i);
+                if ( feature.getEnd() >= query.getStart() ) {
+                    overlapping.add(feature);
+                }
+            }
+            return overlapping;
+        }
+
+        private int firstIndexStartingAtOrAfter( final int position ) {
+            int low = 0;
+            int high = featureStarts.length;
+            while ( low < high ) {
+                final int mid = (low + high) >>> 1;
+                if ( featureStarts[mid] < position ) {
+                    low = mid + 1;
+                }
+                else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
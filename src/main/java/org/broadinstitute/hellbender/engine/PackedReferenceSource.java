@@ -0,0 +1,292 @@
+package org.broadinstitute.hellbender.engine;
+
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.SAMSequenceRecord;
+import htsjdk.samtools.SAMTextHeaderCodec;
+import htsjdk.samtools.reference.ReferenceSequence;
+import htsjdk.samtools.util.BufferedLineReader;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Manages queries over a packed reference image: a memory-mapped file holding the bases of all contigs of a
+ * reference back to back, exactly as {@link ReferenceFileSource} returns them (upper-cased, IUPAC codes converted to N).
+ *
+ * Images are created from a fasta file once, with {@link #writeImage}, and are found next to their fasta by
+ * {@link ReferenceDataSource#of(Path)}, which logs that the image is used in place of the fasta. Opening an image only reads its sequence dictionary; bases are paged in by
+ * the operating system on demand, and the pages are shared by all processes on the host that map the same image.
+ * {@link #queryBuffer} returns views on the mapped image that don't copy any bases, and {@link #queryAndPrefetch}
+ * copies exactly the bases queried, with none of the parsing of fasta lines and upper-casing of the fasta source.
+ *
+ * The image format is:
+ * <ul>
+ *     <li>the 8 bytes of {@link #MAGIC}, the last of which is the version of the format</li>
+ *     <li>the length, as a big-endian int, and the UTF-8 bytes of a SAM text header holding the sequence dictionary</li>
+ *     <li>the bases of each contig, in dictionary order, with no separators</li>
+ * </ul>
+ *
+ * Queries don't change the state of this source, so it may be queried by many threads at once.
+ */
+public final class PackedReferenceSource implements ReferenceDataSource {
+    private static final Logger logger = LogManager.getLogger(PackedReferenceSource.class);
+
+    /**
+     * Extension added to the name of a fasta file to get the name of its packed image
+     */
+    public static final String IMAGE_EXTENSION = ".refimg";
+
+    private static final byte VERSION = 1;
+    private static final byte[] MAGIC = {'G', 'A', 'T', 'K', 'R', 'E', 'F', VERSION};
+
+    // bases are read and written in chunks of this size
+    private static final int CHUNK_SIZE = 1 << 20;
+
+    // images already reported as used in place of their fasta, so that tools opening a reference per thread report it once
+    private static final Set<Path> reportedImages = ConcurrentHashMap.newKeySet();
+
+    private final SAMSequenceDictionary sequenceDictionary;
+    // bases of each contig, indexed as the dictionary
+    private final ByteBuffer[] contigBases;
+
+    /**
+     * Initialize this data source using a packed reference image
+     *
+     * @param imagePath reference image, as written by {@link #writeImage}. Must be on the default file system.
+     */
+    public PackedReferenceSource(final Path imagePath) {
+        Utils.nonNull(imagePath);
+        try ( final FileChannel channel = FileChannel.open(imagePath, StandardOpenOption.READ) ) {
+            final ByteBuffer header = ByteBuffer.allocate(MAGIC.length + Integer.BYTES).order(ByteOrder.BIG_ENDIAN);
+            readFully(channel, header, 0);
+            final byte[] magic = new byte[MAGIC.length];
+            header.get(magic);
+            if ( !Arrays.equals(magic, MAGIC) ) {
+                throw new UserException.MalformedFile(imagePath, "not a packed reference image, or an image from an unsupported version");
+            }
+            final int dictionaryLength = header.getInt();
+            final ByteBuffer dictionaryBytes = ByteBuffer.allocate(dictionaryLength);
+            readFully(channel, dictionaryBytes, header.capacity());
+            sequenceDictionary = new SAMTextHeaderCodec()
+                    .decode(BufferedLineReader.fromString(new String(dictionaryBytes.array(), StandardCharsets.UTF_8)), imagePath.toString())
+                    .getSequenceDictionary();
+
+            final List<SAMSequenceRecord> sequences = sequenceDictionary.getSequences();
+            contigBases = new ByteBuffer[sequences.size()];
+            long offset = header.capacity() + (long) dictionaryLength;
+            for ( int i = 0; i < contigBases.length; i++ ) {
+                final int length = sequences.get(i).getSequenceLength();
+                if ( offset + length > channel.size() ) {
+                    throw new UserException.MalformedFile(imagePath, "the image is truncated in contig " + sequences.get(i).getSequenceName());
+                }
+                // the mapping stays valid after the channel is closed
+                contigBases[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+                offset += length;
+            }
+            if ( offset != channel.size() ) {
+                throw new UserException.MalformedFile(imagePath, "the image is larger than its sequence dictionary accounts for");
+            }
+        } catch ( final IOException e ) {
+            throw new UserException.CouldNotReadInputFile(imagePath, e);
+        }
+    }
+
+    private static void readFully(final FileChannel channel, final ByteBuffer buffer, final long position) throws IOException {
+        while ( buffer.hasRemaining() ) {
+            if ( channel.read(buffer, position + buffer.position()) < 0 ) {
+                throw new IOException("unexpected end of file");
+            }
+        }
+        buffer.flip();
+    }
+
+    /**
+     * @param fastaPath a reference fasta
+     * @return the path where the packed image of this fasta is expected
+     */
+    public static Path getImagePath(final Path fastaPath) {
+        return fastaPath.resolveSibling(fastaPath.getFileName() + IMAGE_EXTENSION);
+    }
+
+    /**
+     * Open the packed image of a fasta in place of the fasta, logging that it is used the first time it is opened
+     *
+     * @param fastaPath a reference fasta with an up-to-date image (see {@link #hasUpToDateImage})
+     * @return a source over the image of the fasta
+     */
+    static PackedReferenceSource openImageOf(final Path fastaPath) {
+        final Path imagePath = getImagePath(Utils.nonNull(fastaPath));
+        if ( reportedImages.add(imagePath.toAbsolutePath()) ) {
+            logger.info("Reading the bases of reference " + fastaPath.toUri() + " from its packed image " + imagePath.toUri());
+        }
+        return new PackedReferenceSource(imagePath);
+    }
+
+    /**
+     * @param fastaPath a reference fasta
+     * @return true if there is a packed image of this fasta that can be used instead of it: one on the default file
+     *         system, at {@link #getImagePath}, and not older than the fasta
+     */
+    public static boolean hasUpToDateImage(final Path fastaPath) {
+        Utils.nonNull(fastaPath);
+        if ( fastaPath.getFileSystem() != FileSystems.getDefault() ) {
+            return false;
+        }
+        final Path imagePath = getImagePath(fastaPath);
+        try {
+            return Files.isRegularFile(imagePath) && Files.exists(fastaPath) &&
+                    Files.getLastModifiedTime(imagePath).compareTo(Files.getLastModifiedTime(fastaPath)) >= 0;
+        } catch ( final IOException e ) {
+            return false;
+        }
+    }
+
+    /**
+     * Write a packed image of a reference
+     *
+     * The image is written to a temporary file next to imagePath, which is then renamed to imagePath, so that tools
+     * never see a partially written image, and an existing image is left untouched if writing fails.
+     *
+     * @param reference reference to write, whose bases are written exactly as returned by its queries
+     * @param imagePath file to write the image to
+     */
+    public static void writeImage(final ReferenceDataSource reference, final Path imagePath) {
+        Utils.nonNull(reference);
+        Utils.nonNull(imagePath);
+        final SAMSequenceDictionary dictionary = reference.getSequenceDictionary();
+        final StringWriter dictionaryWriter = new StringWriter();
+        new SAMTextHeaderCodec().encode(dictionaryWriter, new SAMFileHeader(dictionary));
+        final byte[] dictionaryBytes = dictionaryWriter.toString().getBytes(StandardCharsets.UTF_8);
+
+        Path tempPath = null;
+        try {
+            tempPath = Files.createTempFile(imagePath.toAbsolutePath().getParent(), imagePath.getFileName().toString(), ".tmp");
+            try ( final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempPath), CHUNK_SIZE)) ) {
+                out.write(MAGIC);
+                out.writeInt(dictionaryBytes.length);
+                out.write(dictionaryBytes);
+                for ( final SAMSequenceRecord sequence : dictionary.getSequences() ) {
+                    for ( long start = 1; start <= sequence.getSequenceLength(); start += CHUNK_SIZE ) {
+                        final long stop = Math.min(start + CHUNK_SIZE - 1, sequence.getSequenceLength());
+                        final byte[] bases = reference.queryAndPrefetch(sequence.getSequenceName(), start, stop).getBases();
+                        if ( bases.length != stop - start + 1 ) {
+                            throw new GATKException("Reference returned " + bases.length + " bases for " + sequence.getSequenceName() + ":" + start + "-" + stop);
+                        }
+                        out.write(bases);
+                    }
+                }
+            }
+            try {
+                Files.move(tempPath, imagePath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch ( final AtomicMoveNotSupportedException e ) {
+                Files.move(tempPath, imagePath, StandardCopyOption.REPLACE_EXISTING);
+            }
+            tempPath = null;
+        } catch ( final IOException e ) {
+            throw new UserException.CouldNotCreateOutputFile(imagePath.toString(), e);
+        } finally {
+            if ( tempPath != null ) {
+                try {
+                    Files.deleteIfExists(tempPath);
+                } catch ( final IOException e ) {
+                    logger.warn("Could not delete temporary reference image " + tempPath.toUri(), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Start an iteration over the entire reference. Not yet supported!
+     *
+     * @return iterator over all bases in this reference
+     */
+    @Override
+    public Iterator<Byte> iterator() {
+        throw new UnsupportedOperationException("Iteration over entire reference not yet implemented");
+    }
+
+    /**
+     * Query a specific interval on this reference, and get back all bases spanning that interval at once.
+     *
+     * @param contig query interval contig
+     * @param start query interval start
+     * @param stop query interval stop (included)
+     * @return a ReferenceSequence containing a copy of all bases spanning the query interval
+     */
+    @Override
+    public ReferenceSequence queryAndPrefetch( final String contig, final long start, final long stop ) {
+        final int contigIndex = getContigIndex(contig, start, stop);
+        final byte[] bases = new byte[(int) (stop - start + 1)];
+        final ByteBuffer view = contigBases[contigIndex].duplicate();
+        view.position((int) start - 1);
+        view.get(bases);
+        return new ReferenceSequence(contig, contigIndex, bases);
+    }
+
+    /**
+     * Query a specific interval on this reference, and get back a read-only view on the image of the bases spanning
+     * that interval, from position 0 to its limit. No bases are copied.
+     *
+     * @param interval query interval
+     * @return read-only buffer of the bases spanning the query interval
+     */
+    @Override
+    public ByteBuffer queryBuffer( final SimpleInterval interval ) {
+        final int contigIndex = getContigIndex(interval.getContig(), interval.getStart(), interval.getEnd());
+        final ByteBuffer view = contigBases[contigIndex].duplicate();
+        view.limit(interval.getEnd());
+        view.position(interval.getStart() - 1);
+        return view.slice();
+    }
+
+    private int getContigIndex( final String contig, final long start, final long stop ) {
+        final SAMSequenceRecord sequence = sequenceDictionary.getSequence(contig);
+        if ( sequence == null ) {
+            throw new UserException.MissingContigInSequenceDictionary(contig, sequenceDictionary);
+        }
+        Utils.validateArg(start >= 1, () -> String.format("Asking for start %d on contig %s, but positions start at 1", start, contig));
+        Utils.validateArg(stop >= start - 1, () -> String.format("Asking for stop<start (%d < %d)", stop, start));
+        Utils.validateArg(stop <= sequence.getSequenceLength(), () -> String.format("Asking for stop %d on contig %s but it only has %d bases.", stop, contig, sequence.getSequenceLength()));
+        return sequence.getSequenceIndex();
+    }
+
+    /**
+     * Get the sequence dictionary for this reference
+     *
+     * @return SAMSequenceDictionary for this reference
+     */
+    @Override
+    public SAMSequenceDictionary getSequenceDictionary() {
+        return sequenceDictionary;
+    }
+
+    /**
+     * no-op: the image is unmapped once this source and the buffers returned by it are garbage collected
+     */
+    @Override
+    public void close() {}
+}
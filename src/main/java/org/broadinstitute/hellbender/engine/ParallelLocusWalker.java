@@ -0,0 +1,191 @@
+package org.broadinstitute.hellbender.engine;
+
+import htsjdk.samtools.SAMSequenceDictionary;
+import org.broadinstitute.barclay.argparser.Advanced;
+import org.broadinstitute.barclay.argparser.Argument;
+import org.broadinstitute.barclay.argparser.CommandLineException;
+import org.broadinstitute.hellbender.engine.filters.CountingReadFilter;
+import org.broadinstitute.hellbender.utils.IntervalUtils;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.iterators.OrderedParallelShardIterator;
+import org.broadinstitute.hellbender.utils.locusiterator.AlignmentContextIteratorBuilder;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * A {@link LocusWalker} whose per-locus work can be done on multiple threads.
+ *
+ * Instead of implementing {@link #apply}, tool authors split their per-locus processing into two parts:
+ * - {@link #computeLocusResult}, which examines a single locus and returns a result for it. With more than one
+ *   traversal thread this is called concurrently on worker threads, so it must not modify any state of the tool.
+ * - {@link #reduceLocusResult}, which is always called on the main thread, once per result, in exactly the
+ *   same (locus) order as in a single-threaded traversal. This is where output should be written or accumulated.
+ *
+ * When {@link #traversalThreads} is greater than 1, the traversal intervals (or the whole genome, if no intervals
+ * were specified) are split into shards, one per contig. Each shard is processed on a worker thread that has its own
+ * sources of reads, reference and Features, and its own AlignmentContext stream, so output is identical to that of a
+ * single-threaded run. Multithreaded traversal can't be combined with downsampling (see {@link #maxDepthPerSample}),
+ * as the reads retained would depend on the order in which the threads run, and needs indexed reads to query each
+ * contig: reads without an index are traversed on a single thread.
+ *
+ * @param <T> type of the per-locus result
+ */
+public abstract class ParallelLocusWalker<T> extends LocusWalker {
+
+    public static final String TRAVERSAL_THREADS_LONG_NAME = "traversal-threads";
+
+    // Number of per-locus results handed from a worker to the main thread at a time
+    private static final int RESULT_BATCH_SIZE = 1000;
+
+    // Maximum number of result batches each worker may get ahead of the main thread by
+    private static final int MAX_BUFFERED_BATCHES_PER_WORKER = 20;
+
+    @Advanced
+    @Argument(fullName = TRAVERSAL_THREADS_LONG_NAME, doc = "Number of threads to use for the traversal. Loci on different contigs are processed in parallel, and results are combined in the same order as in a single-threaded run.", optional = true, minValue = 1)
+    protected int traversalThreads = 1;
+
+    /**
+     * Compute the result for an individual locus. Must be implemented by tool authors.
+     *
+     * May be called concurrently from multiple threads, and therefore must not modify any state of the tool.
+     *
+     * @param alignmentContext current alignment context
+     * @param referenceContext Reference bases spanning the current locus (see {@link LocusWalker#apply})
+     * @param featureContext Features spanning the current locus (see {@link LocusWalker#apply})
+     * @return the result for this locus, or null if there is nothing to pass on to {@link #reduceLocusResult}
+     */
+    public abstract T computeLocusResult(AlignmentContext alignmentContext, ReferenceContext referenceContext, FeatureContext featureContext);
+
+    /**
+     * Process the result for an individual locus, as returned by {@link #computeLocusResult}. Must be implemented by
+     * tool authors. Always called on the main thread, in locus order.
+     *
+     * @param result non-null result for one locus
+     */
+    public abstract void reduceLocusResult(T result);
+
+    /**
+     * Implemented in terms of {@link #computeLocusResult} and {@link #reduceLocusResult}.
+     *
+     * Marked final so that tool authors don't override it.
+     */
+    @Override
+    public final void apply(AlignmentContext alignmentContext, ReferenceContext referenceContext, FeatureContext featureContext) {
+        final T result = computeLocusResult(alignmentContext, referenceContext, featureContext);
+        if ( result != null ) {
+            reduceLocusResult(result);
+        }
+    }
+
+    @Override
+    public void traverse() {
+        final List<List<SimpleInterval>> shards = IntervalUtils.groupIntervalsByContig(getIntervalsToShard());
+        if ( traversalThreads == 1 || shards.size() <= 1 ) {
+            super.traverse();
+            return;
+        }
+        if ( maxDepthPerSample > 0 ) {
+            throw new CommandLineException.BadArgumentValue(TRAVERSAL_THREADS_LONG_NAME, Integer.toString(traversalThreads),
+                    "multithreaded traversal is not supported with downsampling: set maxDepthPerSample to 0 or use a single traversal thread");
+        }
+        if ( !reads.indicesAvailable() ) {
+            logger.warn("Multithreaded traversal requires an index for every reads input. Traversing on a single thread.");
+            super.traverse();
+            return;
+        }
+
+        logger.info(String.format("Processing %d contigs using %d traversal threads", shards.size(), traversalThreads));
+
+        final List<CountingReadFilter> workerFilters = new ArrayList<>(shards.size());
+        for ( int i = 0; i < shards.size(); ++i ) {
+            workerFilters.add(makeReadFilter());
+        }
+
+        final List<Integer> shardIndices = new ArrayList<>(shards.size());
+        for ( int i = 0; i < shards.size(); ++i ) {
+            shardIndices.add(i);
+        }
+
+        try ( final OrderedParallelShardIterator<Integer, LocusResult<T>> results =
+                      new OrderedParallelShardIterator<>(shardIndices,
+                              (shardIndex, sink) -> computeResultsForShard(shards.get(shardIndex), workerFilters.get(shardIndex), sink),
+                              traversalThreads, RESULT_BATCH_SIZE, MAX_BUFFERED_BATCHES_PER_WORKER, "locusWalker-thread-%d") ) {
+            while ( results.hasNext() ) {
+                final LocusResult<T> locusResult = results.next();
+                if ( locusResult.result != null ) {
+                    reduceLocusResult(locusResult.result);
+                }
+                progressMeter.update(locusResult.locus);
+            }
+        }
+
+        final CountingReadFilter countedFilter = makeReadFilter();
+        workerFilters.forEach(countedFilter::mergeFilteredCounts);
+        logger.info(countedFilter.getSummaryLine());
+    }
+
+    /**
+     * @return the intervals to divide into per-contig shards, in traversal order: the intervals for traversal if
+     *         specified, otherwise whole contigs in the order in which they are traversed
+     */
+    private List<SimpleInterval> getIntervalsToShard() {
+        if ( hasIntervals() ) {
+            return intervalsForTraversal;
+        }
+        // Empty loci are emitted over the best available dictionary, otherwise loci are produced in the order of the reads
+        final SAMSequenceDictionary dictionary = emitEmptyLoci() ? getBestAvailableSequenceDictionary() : getHeaderForReads().getSequenceDictionary();
+        return IntervalUtils.getAllIntervalsForReference(dictionary);
+    }
+
+    /**
+     * Compute the per-locus results for a single shard on a worker thread, using data sources private to this call.
+     *
+     * @param shardIntervals intervals on a single contig
+     * @param workerFilter read filter private to this call
+     * @param sink destination for the results, in locus order
+     */
+    private void computeResultsForShard(final List<SimpleInterval> shardIntervals, final CountingReadFilter workerFilter, final Consumer<LocusResult<T>> sink) {
+        try ( final ReadsDataSource workerReads = createReadsDataSource();
+              final ReferenceDataSource workerReference = hasReference() ? ReferenceDataSource.of(referenceArguments.getReferencePath()) : null;
+              final FeatureManager workerFeatures = hasFeatures() ? createFeatureManager(FeatureDataSource.DEFAULT_QUERY_LOOKAHEAD_BASES) : null ) {
+
+            final MultiIntervalLocalReadShard readShard = new MultiIntervalLocalReadShard(shardIntervals, workerReads);
+            readShard.setPreReadFilterTransformer(makePreReadFilterTransformer());
+            readShard.setReadFilter(workerFilter);
+            readShard.setPostReadFilterTransformer(makePostReadFilterTransformer());
+
+            final AlignmentContextIteratorBuilder alignmentContextIteratorBuilder = new AlignmentContextIteratorBuilder();
+            alignmentContextIteratorBuilder.setDownsamplingInfo(getDownsamplingInfo());
+            alignmentContextIteratorBuilder.setEmitEmptyLoci(emitEmptyLoci());
+            alignmentContextIteratorBuilder.setIncludeDeletions(includeDeletions());
+            alignmentContextIteratorBuilder.setKeepUniqueReadListInLibs(keepUniqueReadListInLibs());
+            alignmentContextIteratorBuilder.setIncludeNs(includeNs());
+
+            final Iterator<AlignmentContext> iterator = alignmentContextIteratorBuilder.build(
+                    readShard.iterator(), getHeaderForReads(), shardIntervals, getBestAvailableSequenceDictionary(),
+                    hasReference());
+
+            iterator.forEachRemaining(alignmentContext -> {
+                final SimpleInterval alignmentInterval = new SimpleInterval(alignmentContext);
+                final T result = computeLocusResult(alignmentContext, new ReferenceContext(workerReference, alignmentInterval), new FeatureContext(workerFeatures, alignmentInterval));
+                sink.accept(new LocusResult<>(alignmentInterval, result));
+            });
+        }
+    }
+
+    /**
+     * The result for one locus, together with the locus itself for progress reporting.
+     */
+    private static final class LocusResult<T> {
+        private final SimpleInterval locus;
+        private final T result;
+
+        LocusResult(final SimpleInterval locus, final T result) {
+            this.locus = locus;
+            this.result = result;
+        }
+    }
+}
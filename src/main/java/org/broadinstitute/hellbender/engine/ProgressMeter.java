@@ -6,6 +6,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.runtime.MetricsRegistry;
 
 import java.util.function.LongSupplier;
 
@@ -21,7 +22,8 @@ import java.util.function.LongSupplier;
  * Note that {@link #start} must only be called once, before any {@link #update(Locatable)}.
  * Note no {@link #update(Locatable)} must be called after {@link #stop}.
  *
- * All output is made at INFO level via log4j.
+ * All output is made at INFO level via log4j. The number of records processed is also counted, at every time
+ * check, in the {@link MetricsRegistry#getDefault() default metrics registry}, labelled with the record label.
  */
 public final class ProgressMeter {
     protected static final Logger logger = LogManager.getLogger(ProgressMeter.class);
@@ -125,6 +127,12 @@ public final class ProgressMeter {
      */
     private String recordLabel = DEFAULT_RECORD_LABEL;
 
+    /**
+     * Runtime metric counting the records processed, and the number of records we have added to it so far.
+     */
+    private MetricsRegistry.Counter recordsMetric;
+    private long numRecordsInMetric = 0L;
+
     /**
      * Create a progress meter with the default update interval of {@link #DEFAULT_SECONDS_BETWEEN_UPDATES} seconds
      * and the default time function {@link #DEFAULT_TIME_FUNCTION}.
@@ -198,6 +206,9 @@ public final class ProgressMeter {
         numRecordsProcessed = 0L;
         numLoggerUpdates = 0L;
         currentLocus = null;
+        recordsMetric = MetricsRegistry.getDefault().counter("gatk_traversal_records_total",
+                "Records processed from the primary input of the traversal", "record_type", recordLabel);
+        numRecordsInMetric = 0L;
     }
 
     /**
@@ -214,6 +225,7 @@ public final class ProgressMeter {
         if ( numRecordsProcessed % recordsBetweenTimeChecks == 0 ) {
             currentTimeMs = timeFunction.getAsLong();
             this.currentLocus = currentLocus;
+            updateRecordsMetric();
 
             if ( secondsSinceLastPrint() >= secondsBetweenUpdates ) {
                 printProgress();
@@ -231,11 +243,17 @@ public final class ProgressMeter {
         Utils.validate( !stopped, "the progress meter has been stopped already");
         this.stopped = true;
         currentTimeMs = timeFunction.getAsLong();
+        updateRecordsMetric();
         // Output progress a final time at the end
         printProgress();
         logger.info(String.format("Traversal complete. Processed %d total %s in %.1f minutes.", numRecordsProcessed, recordLabel, elapsedTimeInMinutes()));
     }
 
+    private void updateRecordsMetric() {
+        recordsMetric.add(numRecordsProcessed - numRecordsInMetric);
+        numRecordsInMetric = numRecordsProcessed;
+    }
+
     /**
      * Print column headings labelling the output from {@link #printProgress}
      */
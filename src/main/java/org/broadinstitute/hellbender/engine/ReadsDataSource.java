@@ -5,6 +5,8 @@ import htsjdk.samtools.*;
 import htsjdk.samtools.util.CloseableIterator;
 import htsjdk.samtools.util.IOUtil;
 import java.nio.channels.SeekableByteChannel;
+import java.util.function.BiFunction;
+import java.util.function.BooleanSupplier;
 import java.util.function.Function;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -14,16 +16,19 @@ import org.broadinstitute.hellbender.exceptions.GATKException;
 import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.gcs.BucketUtils;
+import org.broadinstitute.hellbender.utils.iterators.OrderedParallelShardIterator;
 import org.broadinstitute.hellbender.utils.iterators.SAMRecordToReadIterator;
 import org.broadinstitute.hellbender.utils.iterators.SamReaderQueryingIterator;
 import org.broadinstitute.hellbender.utils.nio.SeekableByteChannelPrefetcher;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.read.RawBAMRecordToGATKReadAdapter;
 import org.broadinstitute.hellbender.utils.read.ReadConstants;
 
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.*;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Manages traversals and queries over sources of reads (for now, SAM/BAM/CRAM files only).
@@ -78,6 +83,18 @@ public final class ReadsDataSource implements GATKDataSource<GATKRead>, AutoClos
      */
     private boolean indicesAvailable;
 
+    /**
+     * Background iteration started via {@link #asynchronousIterator}, if one is active. Must be stopped before
+     * the underlying reader iterations are closed.
+     */
+    private OrderedParallelShardIterator<Iterator<GATKRead>, GATKRead> asynchronousIteration;
+
+    /**
+     * If true, reads from BAM files are returned as {@link RawBAMRecordToGATKReadAdapter}s, which decode their
+     * variable-length fields only when they are first accessed.
+     */
+    private boolean lazyReadDecoding = false;
+
     /**
      * Initialize this data source with a single SAM/BAM file and validation stringency SILENT.
      *
@@ -160,12 +177,17 @@ public final class ReadsDataSource implements GATKDataSource<GATKRead>, AutoClos
             SamReaderFactory customSamReaderFactory,
             int cloudPrefetchBuffer, int cloudIndexPrefetchBuffer) {
         this(samPaths, samIndices, customSamReaderFactory,
-            (cloudPrefetchBuffer > 0 ? is -> SeekableByteChannelPrefetcher.addPrefetcher(cloudPrefetchBuffer, is)
-                                     : Function.identity()),
+            makePrefetchingCloudWrapper(cloudPrefetchBuffer),
             (cloudIndexPrefetchBuffer > 0 ? is -> SeekableByteChannelPrefetcher.addPrefetcher(cloudIndexPrefetchBuffer, is)
                 : Function.identity()));
     }
 
+    // The prefetcher of each cloud input reopens the input's path, so that it can fetch several blocks at once.
+    private static BiFunction<Path, SeekableByteChannel, SeekableByteChannel> makePrefetchingCloudWrapper(final int cloudPrefetchBuffer) {
+        return cloudPrefetchBuffer > 0 ? (path, is) -> SeekableByteChannelPrefetcher.addPrefetcher(cloudPrefetchBuffer, is, path)
+                                       : (path, is) -> is;
+    }
+
     /**
      * Initialize this data source with multiple SAM/BAM/CRAM files, explicit indices for those files,
      * and a custom SamReaderFactory.
@@ -182,6 +204,17 @@ public final class ReadsDataSource implements GATKDataSource<GATKRead>, AutoClos
         SamReaderFactory customSamReaderFactory,
         Function<SeekableByteChannel, SeekableByteChannel> cloudWrapper,
         Function<SeekableByteChannel, SeekableByteChannel> cloudIndexWrapper) {
+        this(samPaths, samIndices, customSamReaderFactory, (path, is) -> cloudWrapper.apply(is), cloudIndexWrapper);
+    }
+
+    /**
+     * @param cloudWrapper caching/prefetching wrapper for the data, if on Google Cloud, given the path of the data
+     *                     along with the channel to wrap
+     */
+    private ReadsDataSource( final List<Path> samPaths, final List<Path> samIndices,
+        SamReaderFactory customSamReaderFactory,
+        BiFunction<Path, SeekableByteChannel, SeekableByteChannel> cloudWrapper,
+        Function<SeekableByteChannel, SeekableByteChannel> cloudIndexWrapper) {
         Utils.nonNull(samPaths);
         Utils.nonEmpty(samPaths, "ReadsDataSource cannot be created from empty file list");
 
@@ -211,7 +244,7 @@ public final class ReadsDataSource implements GATKDataSource<GATKRead>, AutoClos
 
             Function<SeekableByteChannel, SeekableByteChannel> wrapper =
                 (BucketUtils.isCloudStorageUrl(samPath)
-                    ? cloudWrapper
+                    ? is -> cloudWrapper.apply(samPath, is)
                     : Function.identity());
             // if samIndices==null then we'll guess the index name from the file name.
             // If the file's on the cloud, then the search will only consider locations that are also
@@ -254,6 +287,17 @@ public final class ReadsDataSource implements GATKDataSource<GATKRead>, AutoClos
         return indicesAvailable;
     }
 
+    /**
+     * Sets whether iterations and queries started after this call return the reads from BAM files as
+     * {@link RawBAMRecordToGATKReadAdapter}s, which decode their variable-length fields only when they are first accessed,
+     * instead of {@link org.broadinstitute.hellbender.utils.read.SAMRecordToGATKReadAdapter}s. Disabled by default.
+     *
+     * @param lazyReadDecoding true to decode the reads lazily
+     */
+    public void setLazyReadDecoding( final boolean lazyReadDecoding ) {
+        this.lazyReadDecoding = lazyReadDecoding;
+    }
+
     /**
      * Restricts a traversal of this data source via {@link #iterator} to only return reads which overlap the given intervals.
      * Calls to {@link #query} are not affected by setting these intervals.
@@ -330,6 +374,56 @@ public final class ReadsDataSource implements GATKDataSource<GATKRead>, AutoClos
         return prepareIteratorsForTraversal(intervalsForTraversal, traverseUnmapped);
     }
 
+    /**
+     * Iterate over all reads in this data source, exactly as {@link #iterator} does, but decode the reads and pass them
+     * through the supplied read pipeline (typically transformers and filters) on a background thread. Processed reads
+     * are handed back in batches through a bounded buffer, so that decoding overlaps with the caller's own processing
+     * of each read.
+     *
+     * The read pipeline is only ever run on the background thread, and has completed once the returned iterator is
+     * exhausted. The iteration is stopped by the next call to {@link #iterator}, {@link #query}, {@link #queryUnmapped}
+     * or {@link #asynchronousIterator}, and by {@link #close}.
+     *
+     * @param readPipeline operations to apply to the stream of reads on the background thread
+     * @param batchSize number of reads handed to the caller at a time
+     * @param maxBufferedBatches maximum number of batches the background thread may get ahead of the caller by
+     * @return An iterator over the reads in this data source, limited to reads that overlap the intervals supplied
+     *         via {@link #setTraversalBounds} (if intervals were provided), after processing by readPipeline
+     */
+    public Iterator<GATKRead> asynchronousIterator( final Function<Stream<GATKRead>, Stream<GATKRead>> readPipeline,
+                                                    final int batchSize, final int maxBufferedBatches ) {
+        Utils.nonNull(readPipeline);
+        logger.debug("Preparing readers for asynchronous traversal");
+
+        // The reader iterators are opened here, but consumed only by the background thread
+        final Iterator<GATKRead> readIterator = prepareIteratorsForTraversal(intervalsForTraversal, traverseUnmapped);
+        asynchronousIteration = new OrderedParallelShardIterator<Iterator<GATKRead>, GATKRead>(Collections.singletonList(readIterator),
+                (iterator, sink, cancelled) -> readPipeline.apply(Utils.stream(stopWhenCancelled(iterator, cancelled))).forEachOrdered(sink),
+                1, batchSize, maxBufferedBatches, "readsDataSource-decoder-%d");
+        return asynchronousIteration;
+    }
+
+    /**
+     * Wraps an iterator so that it ends as soon as the iteration is cancelled, checking before each read, so that a
+     * background iteration stops promptly even when the read pipeline filters out most reads.
+     */
+    private static Iterator<GATKRead> stopWhenCancelled( final Iterator<GATKRead> iterator, final BooleanSupplier cancelled ) {
+        return new Iterator<GATKRead>() {
+            @Override
+            public boolean hasNext() {
+                return ! cancelled.getAsBoolean() && iterator.hasNext();
+            }
+
+            @Override
+            public GATKRead next() {
+                if ( ! hasNext() ) {
+                    throw new NoSuchElementException();
+                }
+                return iterator.next();
+            }
+        };
+    }
+
     /**
      * Query reads over a specific interval. This operation is not affected by prior calls to
      * {@link #setTraversalBounds}
@@ -421,7 +515,7 @@ public final class ReadsDataSource implements GATKDataSource<GATKRead>, AutoClos
             startingIterator = new MergingSamRecordIterator(headerMerger, readers, true);
         }
 
-        return new SAMRecordToReadIterator(startingIterator);
+        return new SAMRecordToReadIterator(startingIterator, lazyReadDecoding);
     }
 
     /**
@@ -487,6 +581,11 @@ public final class ReadsDataSource implements GATKDataSource<GATKRead>, AutoClos
      * Close any previously-opened iterations over our readers (htsjdk allows only one open iteration per reader).
      */
     private void closePreviousIterationsIfNecessary() {
+        if ( asynchronousIteration != null ) {
+            asynchronousIteration.close();
+            asynchronousIteration = null;
+        }
+
         for ( Map.Entry<SamReader, CloseableIterator<SAMRecord>> readerEntry : readers.entrySet() ) {
             CloseableIterator<SAMRecord> readerIterator = readerEntry.getValue();
             if ( readerIterator != null ) {
@@ -8,6 +8,7 @@ import org.broadinstitute.hellbender.exceptions.GATKException;
 import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.iterators.ByteArrayIterator;
 
+import java.nio.ByteBuffer;
 import java.util.Iterator;
 
 /**
@@ -54,6 +55,12 @@ public final class ReferenceContext implements Iterable<Byte> {
      */
     private ReferenceSequence cachedSequence;
 
+    /**
+     * View on the reference bases spanning this interval/window if {@link #getBasesBuffer()} has been called, and
+     * {@link #getBases()} had not been. Cleared along with {@link #cachedSequence}.
+     */
+    private ByteBuffer cachedBuffer;
+
 
     /**
      * Create a ReferenceContext with no backing data source. This context will always return
@@ -168,6 +175,29 @@ public final class ReferenceContext implements Iterable<Byte> {
         return cachedSequence.getBases();
     }
 
+    /**
+     * Get all reference bases in this context, as a read-only buffer from position 0 to its limit. The buffer is cached
+     * in this object for future queries, and each call returns an independent view on it.
+     * Will always return an empty buffer if there is no backing data source and/or interval to query.
+     *
+     * Unlike {@link #getBases()}, doesn't copy the bases if the backing data source holds them in memory, as
+     * {@link PackedReferenceSource} does.
+     *
+     * @return reference bases in this context, as a read-only buffer
+     */
+    public ByteBuffer getBasesBuffer() {
+        if ( dataSource == null || window == null ) {
+            return ByteBuffer.allocate(0).asReadOnlyBuffer();
+        }
+        if ( cachedSequence != null ) {
+            return ByteBuffer.wrap(cachedSequence.getBases()).asReadOnlyBuffer();
+        }
+        if ( cachedBuffer == null ) {
+            cachedBuffer = dataSource.queryBuffer(window).asReadOnlyBuffer();
+        }
+        return cachedBuffer.duplicate();
+    }
+
     /**
      * Get all reference bases in this context with the given window.
      * Does not cache results or modify this {@link ReferenceContext} at all.
@@ -283,6 +313,7 @@ public final class ReferenceContext implements Iterable<Byte> {
 
         // Changing the window size invalidates our cached query result
         cachedSequence = null;
+        cachedBuffer = null;
     }
 
     /**
@@ -364,6 +395,14 @@ public final class ReferenceContext implements Iterable<Byte> {
      * @return The base at the given locus from the reference.
      */
     public byte getBase() {
-        return getBases()[interval.getStart() - window.getStart()];
+        final int offset = interval.getStart() - window.getStart();
+        if ( cachedSequence != null || dataSource == null || window == null ) {
+            return getBases()[offset];
+        }
+        if ( cachedBuffer == null ) {
+            cachedBuffer = dataSource.queryBuffer(window).asReadOnlyBuffer();
+        }
+        // absolute get, which leaves the cached buffer unchanged
+        return cachedBuffer.get(offset);
     }
 }
@@ -4,10 +4,12 @@ import htsjdk.samtools.SAMSequenceDictionary;
 import htsjdk.samtools.reference.ReferenceSequence;
 import java.nio.file.Path;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.iterators.ByteArrayIterator;
 import org.broadinstitute.hellbender.utils.reference.ReferenceBases;
 
 import java.io.File;
+import java.nio.ByteBuffer;
 import java.util.Iterator;
 
 /**
@@ -20,11 +22,16 @@ public interface ReferenceDataSource extends GATKDataSource<Byte>, AutoCloseable
     /**
      * Initialize this data source using a fasta file.
      *
-     * The provided fasta file must have companion .fai and .dict files.
+     * The provided fasta file must have companion .fai and .dict files. If it also has an up-to-date packed image,
+     * as created by {@link org.broadinstitute.hellbender.tools.PackedReferenceImageCreator}, the image is used instead,
+     * and a message is logged the first time it is.
      *
      * @param fastaPath reference fasta Path
      */
     public static ReferenceDataSource of(final Path fastaPath) {
+        if ( PackedReferenceSource.hasUpToDateImage(Utils.nonNull(fastaPath)) ) {
+            return PackedReferenceSource.openImageOf(fastaPath);
+        }
         return new ReferenceFileSource(fastaPath);
     }
 
@@ -62,6 +69,20 @@ public interface ReferenceDataSource extends GATKDataSource<Byte>, AutoCloseable
      */
     public ReferenceSequence queryAndPrefetch(final String contig, final long start , final long stop);
 
+    /**
+     * Query a specific interval on this reference, and get back a buffer of all bases spanning that interval,
+     * from position 0 to its limit. The buffer must not be modified.
+     *
+     * Sources holding the reference in memory may return views on it, without copying any bases. The default
+     * implementation wraps the bases returned by #queryAndPrefetch(interval).
+     *
+     * @param interval query interval
+     * @return a buffer of all bases spanning the query interval
+     */
+    default public ByteBuffer queryBuffer( final SimpleInterval interval ) {
+        return ByteBuffer.wrap(queryAndPrefetch(interval).getBases());
+    }
+
     /**
       * Query a specific interval on this reference, and get back an iterator over the bases spanning that interval.
       *
@@ -11,6 +11,7 @@ import org.broadinstitute.hellbender.utils.reference.ReferenceBases;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.Iterator;
 
@@ -101,6 +102,22 @@ public final class ReferenceMemorySource implements ReferenceDataSource {
         return new ReferenceSequence(contig, contigIndex, Arrays.copyOfRange(basesBytes, startIndex, startIndex+length));
     }
 
+    /**
+     * Query a specific interval on this reference, and get back a view on the bases spanning that interval,
+     * from position 0 to its limit, without copying them.
+     *
+     * @param interval query interval
+     * @return buffer of the bases spanning the query interval, backed by the in-memory bases
+     */
+    @Override
+    public ByteBuffer queryBuffer( final SimpleInterval interval ) {
+        final int startIndex = interval.getStart() - bases.getInterval().getStart();
+        final byte[] basesBytes = bases.getBases();
+        Utils.validIndex(startIndex, basesBytes.length);
+        Utils.validateArg(startIndex + interval.size() <= basesBytes.length, () -> String.format("Asking for stop %d on contig %s but the ReferenceData only has data until %d.", interval.getEnd(), interval.getContig(), bases.getInterval().getEnd()));
+        return ByteBuffer.wrap(basesBytes, startIndex, interval.size()).slice();
+    }
+
 
     /**
      * Get the sequence dictionary for this reference
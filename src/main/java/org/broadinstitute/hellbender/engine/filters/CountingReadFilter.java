@@ -5,6 +5,7 @@ import com.google.common.annotations.VisibleForTesting;
 import htsjdk.samtools.SAMFileHeader;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
 import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.runtime.MetricsRegistry;
 
 import java.util.List;
 import java.util.function.Predicate;
@@ -21,6 +22,9 @@ import java.util.stream.IntStream;
  * predicates, i.e. an "or" filter will report a filter count of 1 in the case where both component predicates
  * are evaluated and both fail, but the the individual component filters will report a count of 1 at the next
  * level.
+ *
+ * The reads filtered by each simple (non-compound) filter are also counted in the
+ * {@link MetricsRegistry#getDefault() default metrics registry}, labelled with the name of the filter.
  */
 public class CountingReadFilter extends ReadFilter {
 
@@ -33,6 +37,9 @@ public class CountingReadFilter extends ReadFilter {
     // Number of reads filtered by this filter
     protected long filteredCount = 0;
 
+    // Runtime metric counting the reads filtered by delegateFilter, looked up on first use (filters are serialized)
+    private transient MetricsRegistry.Counter filteredMetric;
+
     public CountingReadFilter(final ReadFilter readFilter) {
         Utils.nonNull(readFilter);
         delegateFilter = readFilter;
@@ -75,6 +82,20 @@ public class CountingReadFilter extends ReadFilter {
         filteredCount = 0;
     }
 
+    /**
+     * Add the counts of another filter with the same structure (ie., one produced the same way as this filter)
+     * to the counts of this filter, at every level. Used to combine the counts of filters that were applied to
+     * disjoint sets of reads, for example on different threads.
+     *
+     * @param other filter whose counts should be added to ours; must have the same structure as this filter
+     */
+    public void mergeFilteredCounts(final CountingReadFilter other) {
+        Utils.nonNull(other);
+        Utils.validateArg(getClass() == other.getClass() && getName().equals(other.getName()),
+                () -> "cannot merge the counts of filter " + other.getName() + " into filter " + getName());
+        filteredCount += other.filteredCount;
+    }
+
     public String getName() {return delegateFilter.getClass().getSimpleName();}
 
     // Returns a summary line with filter counts organized by level
@@ -126,6 +147,10 @@ public class CountingReadFilter extends ReadFilter {
         final boolean accept = delegateFilter.test(read);
         if (!accept) {
             filteredCount++;
+            if (filteredMetric == null) {
+                filteredMetric = MetricsRegistry.getDefault().counter("gatk_reads_filtered_total", "Reads filtered out, by read filter", "filter", getName());
+            }
+            filteredMetric.increment();
         }
         return accept;
     }
@@ -152,6 +177,12 @@ public class CountingReadFilter extends ReadFilter {
         public String getName() {
             return "Not " + delegateCountingFilter.getName();
         }
+
+        @Override
+        public void mergeFilteredCounts(final CountingReadFilter other) {
+            super.mergeFilteredCounts(other);
+            delegateCountingFilter.mergeFilteredCounts(((CountingNegateReadFilter)other).delegateCountingFilter);
+        }
     }
 
     /**
@@ -194,6 +225,13 @@ public class CountingReadFilter extends ReadFilter {
             this.rhs.resetFilteredCount();
         }
 
+        @Override
+        public void mergeFilteredCounts(final CountingReadFilter other) {
+            super.mergeFilteredCounts(other);
+            this.lhs.mergeFilteredCounts(((CountingBinopReadFilter)other).lhs);
+            this.rhs.mergeFilteredCounts(((CountingBinopReadFilter)other).rhs);
+        }
+
         @Override
         public abstract String getName();
     }
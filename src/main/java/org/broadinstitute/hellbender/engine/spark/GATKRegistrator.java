@@ -12,7 +12,9 @@ import htsjdk.variant.variantcontext.Genotype;
 import htsjdk.variant.variantcontext.VariantContext;
 import org.apache.spark.serializer.KryoRegistrator;
 import org.bdgenomics.adam.serialization.ADAMKryoRegistrator;
+import org.broadinstitute.hellbender.utils.read.RawBAMRecordToGATKReadAdapter;
 import org.broadinstitute.hellbender.utils.read.SAMRecordToGATKReadAdapter;
+import org.broadinstitute.hellbender.utils.read.markduplicates.DuplicateSetKey;
 import org.broadinstitute.hellbender.utils.read.markduplicates.PairedEnds;
 
 import java.util.Collections;
@@ -51,10 +53,14 @@ public class GATKRegistrator implements KryoRegistrator {
 
         kryo.register(SAMRecordToGATKReadAdapter.class, new SAMRecordToGATKReadAdapterSerializer());
 
+        // the lazily decoded fields are transient, so only the BAM encoding of the read is serialized
+        kryo.register(RawBAMRecordToGATKReadAdapter.class, new FieldSerializer<>(kryo, RawBAMRecordToGATKReadAdapter.class));
+
         kryo.register(SAMRecord.class, new SAMRecordSerializer());
 
         //register to avoid writing the full name of this class over and over
         kryo.register(PairedEnds.class, new FieldSerializer<>(kryo, PairedEnds.class));
+        kryo.register(DuplicateSetKey.class, new FieldSerializer<>(kryo, DuplicateSetKey.class));
 
         // register the ADAM data types using Avro serialization, including:
         //     AlignmentRecord
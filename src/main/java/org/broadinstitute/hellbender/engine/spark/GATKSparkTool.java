@@ -411,7 +411,7 @@ public abstract class GATKSparkTool extends SparkCommandLineProgram {
         }
 
         readInput = readArguments.getReadFilesNames().get(0);
-        readsSource = new ReadsSparkSource(sparkContext, readArguments.getReadValidationStringency());
+        readsSource = new ReadsSparkSource(sparkContext, readArguments.getReadValidationStringency(), readArguments.useLazyReadDecoding());
         readsHeader = readsSource.getHeader(
                 readInput,
                 hasReference() ?  referenceArguments.getReferenceFileName() : null);
@@ -0,0 +1,235 @@
+package org.broadinstitute.hellbender.engine.spark.datasources;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.cram.build.CramIO;
+import htsjdk.samtools.cram.common.CramVersions;
+import htsjdk.samtools.util.BlockCompressedFilePointerUtil;
+import htsjdk.samtools.util.BlockCompressedStreamConstants;
+import org.apache.commons.io.FileUtils;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.seqdoop.hadoop_bam.SAMFormat;
+import org.seqdoop.hadoop_bam.SplittingBAMIndex;
+import org.seqdoop.hadoop_bam.SplittingBAMIndexer;
+import org.seqdoop.hadoop_bam.util.NIOFileUtil;
+import org.seqdoop.hadoop_bam.util.SAMFileMerger;
+import org.seqdoop.hadoop_bam.util.SAMOutputPreparer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Merges the headerless part files written by Hadoop-BAM into a single file, as {@link SAMFileMerger#mergeParts} does,
+ * but copying the parts concurrently. The offset of each part in the output is known from the sizes of the parts, so
+ * chunks of the parts are copied by a pool of threads with positional writes, and the splitting index of a BAM output
+ * is generated from the splitting indices of the parts while they are being copied. The output and its splitting index
+ * are identical to those of {@link SAMFileMerger#mergeParts}.
+ *
+ * Positional writes need the parts and the output to be on the local file system: other outputs are merged by
+ * {@link SAMFileMerger#mergeParts}.
+ */
+public final class ParallelSAMFileMerger {
+
+    // size of the chunks of the parts copied by each task
+    private static final long DEFAULT_CHUNK_SIZE = 64L * 1024 * 1024;
+
+    // the part files written by Hadoop output formats, as matched by SAMFileMerger
+    private static final String PARTS_GLOB = "glob:**/part-[mr]-[0-9][0-9][0-9][0-9][0-9]*";
+
+    private ParallelSAMFileMerger() {}
+
+    /**
+     * Merges the parts of a directory written by a Hadoop output format into a single file, and deletes the directory.
+     *
+     * @param partDirectory directory of the headerless part files
+     * @param outputFile file to write
+     * @param samOutputFormat format of the parts and of the output
+     * @param header header to write at the start of the output
+     * @param numThreads number of threads copying the parts. With 1 thread, or if the parts or the output aren't on the
+     *                   local file system, the parts are merged by {@link SAMFileMerger#mergeParts}.
+     */
+    public static void mergeParts(final String partDirectory, final String outputFile, final SAMFormat samOutputFormat,
+                                  final SAMFileHeader header, final int numThreads) throws IOException {
+        mergeParts(partDirectory, outputFile, samOutputFormat, header, numThreads, DEFAULT_CHUNK_SIZE);
+    }
+
+    static void mergeParts(final String partDirectory, final String outputFile, final SAMFormat samOutputFormat,
+                           final SAMFileHeader header, final int numThreads, final long chunkSize) throws IOException {
+        Utils.validateArg(numThreads > 0, "the number of threads must be positive");
+        Utils.validateArg(chunkSize > 0, "the chunk size must be positive");
+        final Path partPath = NIOFileUtil.asPath(partDirectory);
+        final Path outputPath = NIOFileUtil.asPath(outputFile);
+        if ( numThreads == 1 || partPath.getFileSystem() != FileSystems.getDefault() || outputPath.getFileSystem() != FileSystems.getDefault() ) {
+            SAMFileMerger.mergeParts(partDirectory, outputFile, samOutputFormat, header);
+            return;
+        }
+
+        if ( !Files.exists(partPath.resolve("_SUCCESS")) ) {
+            throw new NoSuchFileException(partPath.toString(), null, "Unable to find _SUCCESS file");
+        }
+        Utils.validateArg(!partPath.equals(outputPath), () -> "Cannot merge parts into output with same path: " + partPath);
+        final List<Path> parts = getFilesMatching(partPath, PARTS_GLOB, SplittingBAMIndexer.OUTPUT_FILE_EXTENSION);
+        Utils.validateArg(!parts.isEmpty(), () -> "Could not write bam file because no part files were found in " + partPath);
+
+        final ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+        new SAMOutputPreparer().prepareForRecords(headerBytes, samOutputFormat, header);
+        final ByteArrayOutputStream terminatorBytes = new ByteArrayOutputStream();
+        writeTerminatorBlock(terminatorBytes, samOutputFormat);
+
+        // the offset of each part in the output, followed by the offset of the terminator block
+        final long[] partOffsets = new long[parts.size() + 1];
+        partOffsets[0] = headerBytes.size();
+        for ( int i = 0; i < parts.size(); i++ ) {
+            partOffsets[i + 1] = partOffsets[i] + Files.size(parts.get(i));
+        }
+
+        Files.deleteIfExists(outputPath);
+        final ExecutorService executor = Executors.newFixedThreadPool(numThreads,
+                new ThreadFactoryBuilder().setNameFormat("part-merger-%d").setDaemon(true).build());
+        try ( final FileChannel output = FileChannel.open(outputPath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE) ) {
+            // writing the terminator block first sets the size of the output, as transferFrom doesn't write past the end
+            writeFully(output, terminatorBytes.toByteArray(), partOffsets[parts.size()]);
+            writeFully(output, headerBytes.toByteArray(), 0);
+
+            final List<Future<?>> copies = new ArrayList<>();
+            for ( int i = 0; i < parts.size(); i++ ) {
+                final Path part = parts.get(i);
+                final long partSize = partOffsets[i + 1] - partOffsets[i];
+                for ( long start = 0; start < partSize; start += chunkSize ) {
+                    final long chunkStart = start;
+                    final long outputPosition = partOffsets[i] + start;
+                    final long length = Math.min(chunkSize, partSize - start);
+                    copies.add(executor.submit(() -> {
+                        copyChunk(part, chunkStart, length, output, outputPosition);
+                        return null;
+                    }));
+                }
+            }
+            mergeSplittingBaiFiles(outputPath, partPath, parts, partOffsets);
+
+            for ( final Future<?> copy : copies ) {
+                awaitCopy(copy);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        FileUtils.deleteDirectory(partPath.toFile());
+    }
+
+    // the files under the directory matching the glob but not ending with the extension to exclude, sorted by path,
+    // as SAMFileMerger lists the parts
+    private static List<Path> getFilesMatching(final Path directory, final String syntaxAndPattern, final String excludesExtension) throws IOException {
+        final PathMatcher matcher = directory.getFileSystem().getPathMatcher(syntaxAndPattern);
+        try ( final Stream<Path> files = Files.walk(directory) ) {
+            final List<Path> matching = files.filter(matcher::matches)
+                    .filter(path -> excludesExtension == null || !path.toString().endsWith(excludesExtension))
+                    .collect(Collectors.toList());
+            Collections.sort(matching);
+            return matching;
+        }
+    }
+
+    private static void writeTerminatorBlock(final OutputStream out, final SAMFormat samOutputFormat) throws IOException {
+        if ( samOutputFormat == SAMFormat.CRAM ) {
+            CramIO.issueEOF(CramVersions.DEFAULT_CRAM_VERSION, out);
+        } else {
+            out.write(BlockCompressedStreamConstants.EMPTY_GZIP_BLOCK);
+        }
+    }
+
+    private static void copyChunk(final Path part, final long start, final long length, final FileChannel output, final long outputPosition) throws IOException {
+        try ( final FileChannel input = FileChannel.open(part, StandardOpenOption.READ) ) {
+            input.position(start);
+            long copied = 0;
+            while ( copied < length ) {
+                final long transferred = output.transferFrom(input, outputPosition + copied, length - copied);
+                if ( transferred <= 0 ) {
+                    throw new IOException("Part file " + part + " is shorter than expected");
+                }
+                copied += transferred;
+            }
+        }
+    }
+
+    private static void writeFully(final FileChannel output, final byte[] bytes, final long position) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while ( buffer.hasRemaining() ) {
+            output.write(buffer, position + buffer.position());
+        }
+    }
+
+    private static void awaitCopy(final Future<?> copy) throws IOException {
+        try {
+            copy.get();
+        } catch ( final InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while merging the part files");
+        } catch ( final ExecutionException e ) {
+            if ( e.getCause() instanceof IOException ) {
+                throw (IOException) e.getCause();
+            }
+            throw new GATKException("Failed to copy a part file", e.getCause());
+        }
+    }
+
+    /**
+     * Writes the splitting index of the output from the splitting indices of the parts, if any, shifting the virtual
+     * offsets of each part by the offset of the part in the output.
+     */
+    private static void mergeSplittingBaiFiles(final Path outputPath, final Path partPath, final List<Path> parts, final long[] partOffsets) throws IOException {
+        final List<Path> partIndices = getFilesMatching(partPath, PARTS_GLOB + SplittingBAMIndexer.OUTPUT_FILE_EXTENSION, null);
+        if ( partIndices.isEmpty() ) {
+            return;
+        }
+        Utils.validate(partIndices.size() == parts.size(), () -> "Found " + partIndices.size() + " splitting indices for " + parts.size() + " part files in " + partPath);
+
+        final Path indexPath = outputPath.resolveSibling(outputPath.getFileName() + SplittingBAMIndexer.OUTPUT_FILE_EXTENSION);
+        Files.deleteIfExists(indexPath);
+        try ( final OutputStream out = Files.newOutputStream(indexPath) ) {
+            final SplittingBAMIndexer indexer = new SplittingBAMIndexer(out);
+            for ( int i = 0; i < partIndices.size(); i++ ) {
+                final List<Long> virtualOffsets;
+                try ( final InputStream in = Files.newInputStream(partIndices.get(i)) ) {
+                    virtualOffsets = new SplittingBAMIndex(in).getVirtualOffsets();
+                }
+                // the last offset of the index of a part is the end of the part
+                final long partSize = partOffsets[i + 1] - partOffsets[i];
+                final long indexedSize = BlockCompressedFilePointerUtil.getBlockAddress(virtualOffsets.get(virtualOffsets.size() - 1));
+                if ( indexedSize != partSize ) {
+                    throw new IOException("Part file length mismatch for " + parts.get(i) + ": its index ends at " + indexedSize + ", expected: " + partSize);
+                }
+                for ( final long virtualOffset : virtualOffsets.subList(0, virtualOffsets.size() - 1) ) {
+                    indexer.writeVirtualOffset(shiftVirtualFilePointer(virtualOffset, partOffsets[i]));
+                }
+            }
+            indexer.finish(partOffsets[parts.size()]);
+        }
+    }
+
+    private static long shiftVirtualFilePointer(final long virtualFilePointer, final long offset) {
+        final long blockAddress = BlockCompressedFilePointerUtil.getBlockAddress(virtualFilePointer);
+        final int blockOffset = BlockCompressedFilePointerUtil.getBlockOffset(virtualFilePointer);
+        return ((blockAddress + offset) << 16) | blockOffset;
+    }
+}
@@ -26,7 +26,6 @@ import org.broadinstitute.hellbender.utils.read.HeaderlessSAMRecordCoordinateCom
 import org.broadinstitute.hellbender.utils.read.ReadsWriteFormat;
 import org.broadinstitute.hellbender.utils.spark.SparkUtils;
 import org.seqdoop.hadoop_bam.*;
-import org.seqdoop.hadoop_bam.util.SAMFileMerger;
 import scala.Tuple2;
 
 import java.io.File;
@@ -228,7 +227,7 @@ public final class ReadsSparkSink {
         final JavaRDD<SAMRecord> sortedReads = SparkUtils.sortReads(reads, header, numReducers);
         final String outputPartsDirectory = outputFile + ".parts/";
         saveAsShardedHadoopFiles(ctx, outputPartsDirectory, referenceFile, samOutputFormat, sortedReads,  header, false);
-        SAMFileMerger.mergeParts(outputPartsDirectory, outputFile, samOutputFormat, header);
+        ParallelSAMFileMerger.mergeParts(outputPartsDirectory, outputFile, samOutputFormat, header, Runtime.getRuntime().availableProcessors());
     }
 
     private static Class<? extends OutputFormat<NullWritable, SAMRecordWritable>> getOutputFormat(final SAMFormat samFormat, final boolean writeHeader) {
@@ -29,6 +29,7 @@ import org.broadinstitute.hellbender.utils.io.IOUtils;
 import org.broadinstitute.hellbender.utils.read.BDGAlignmentRecordToGATKReadAdapter;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
 import org.broadinstitute.hellbender.utils.read.ReadConstants;
+import org.broadinstitute.hellbender.utils.read.RawBAMRecordToGATKReadAdapter;
 import org.broadinstitute.hellbender.utils.read.SAMRecordToGATKReadAdapter;
 import org.broadinstitute.hellbender.utils.spark.SparkUtils;
 import org.seqdoop.hadoop_bam.AnySAMInputFormat;
@@ -53,6 +54,7 @@ public final class ReadsSparkSource implements Serializable {
 
     private transient final JavaSparkContext ctx;
     private ValidationStringency validationStringency = ReadConstants.DEFAULT_READ_VALIDATION_STRINGENCY;
+    private boolean lazyReadDecoding = false;
 
     private static final Logger logger = LogManager.getLogger(ReadsSparkSource.class);
 
@@ -64,6 +66,16 @@ public final class ReadsSparkSource implements Serializable {
         this.validationStringency = validationStringency;
     }
 
+    /**
+     * @param lazyReadDecoding if true, load the reads from BAM files as {@link RawBAMRecordToGATKReadAdapter}s, which
+     *                         decode their variable-length fields only when they are first accessed
+     */
+    public ReadsSparkSource(final JavaSparkContext ctx, final ValidationStringency validationStringency, final boolean lazyReadDecoding)
+    {
+        this(ctx, validationStringency);
+        this.lazyReadDecoding = lazyReadDecoding;
+    }
+
 
     /**
      * Loads Reads using Hadoop-BAM. For local files, readFileName must have the fully-qualified path,
@@ -113,9 +125,15 @@ public final class ReadsSparkSource implements Serializable {
                 readFileName, AnySAMInputFormat.class, LongWritable.class, SAMRecordWritable.class,
                 conf);
 
+        // only records read from BAM files have a BAM encoding to keep
+        final boolean lazyDecoding = lazyReadDecoding && isBam;
         JavaRDD<GATKRead> reads= rdd2.map(v1 -> {
             SAMRecord sam = v1._2().get();
             if (isBam || samRecordOverlaps(sam, traversalParameters)) { // don't check overlaps for BAM since it is done by input format
+                // lazily decoded reads don't keep the header of their record
+                if (lazyDecoding) {
+                    return RawBAMRecordToGATKReadAdapter.adapt(sam);
+                }
                 return (GATKRead) SAMRecordToGATKReadAdapter.headerlessReadAdapter(sam);
             }
             return null;
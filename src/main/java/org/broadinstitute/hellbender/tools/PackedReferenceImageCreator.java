@@ -0,0 +1,79 @@
+package org.broadinstitute.hellbender.tools;
+
+import org.broadinstitute.barclay.argparser.Argument;
+import org.broadinstitute.barclay.argparser.CommandLineProgramProperties;
+import org.broadinstitute.barclay.help.DocumentedFeature;
+import org.broadinstitute.hellbender.cmdline.CommandLineProgram;
+import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
+import org.broadinstitute.hellbender.engine.PackedReferenceSource;
+import org.broadinstitute.hellbender.engine.ReferenceFileSource;
+import org.broadinstitute.hellbender.utils.io.IOUtils;
+import picard.cmdline.programgroups.ReferenceProgramGroup;
+
+import java.nio.file.Path;
+
+/**
+ * Create a packed reference image, which GATK tools use instead of the reference FASTA file when reading reference bases
+ *
+ * <p>The image holds the upper-cased bases of all contigs back to back, and is memory-mapped by the tools that read it,
+ * so that reference queries neither parse the FASTA file nor allocate caches, and all GATK processes on a host share the
+ * same copy of the reference in memory. It is used automatically by tools given the FASTA file with -R whenever it is
+ * found next to the FASTA file, under the FASTA file name with the extension ".refimg" added, and is not older than the
+ * FASTA file; tools log a message when they use it. The FASTA file and its .fai and .dict companions are still required.
+ * The image is written to a temporary file that is renamed once complete, so tools never read a partial image.</p>
+ *
+ * <h3>Input</h3>
+ *
+ * <ul>
+ *     <li>Reference FASTA file, with its .fai and .dict companion files</li>
+ * </ul>
+ *
+ * <h4>Output</h4>
+ *
+ * <ul>
+ *     <li>Packed reference image file</li>
+ * </ul>
+ *
+ * <h3>Usage example</h3>
+ *
+ * <pre>
+ * gatk PackedReferenceImageCreator \
+ *     -I reference.fasta \
+ *     -O reference.fasta.refimg
+ * </pre>
+ *
+ */
+@DocumentedFeature
+@CommandLineProgramProperties(
+        summary = "Create a memory-mappable packed image of a reference FASTA file, used by GATK tools in place of the FASTA file",
+        oneLineSummary = "Create a packed reference image for faster reference access",
+        programGroup = ReferenceProgramGroup.class
+)
+public final class PackedReferenceImageCreator extends CommandLineProgram {
+
+    @Argument(fullName = StandardArgumentDefinitions.INPUT_LONG_NAME,
+            shortName = StandardArgumentDefinitions.INPUT_SHORT_NAME,
+            doc = "Input reference FASTA file location.")
+    private String referenceFastaLoc = null;
+
+    /**
+     * If not provided, the default image file path will be the same as the reference FASTA with the extension ".refimg",
+     * which is where tools look for it.
+     */
+    @Argument(fullName = StandardArgumentDefinitions.OUTPUT_LONG_NAME,
+            shortName = StandardArgumentDefinitions.OUTPUT_SHORT_NAME,
+            doc = "Output packed reference image file (ending in \"" + PackedReferenceSource.IMAGE_EXTENSION + "\").",
+            optional = true)
+    private String referenceImageOutputLoc = null;
+
+    @Override
+    protected Object doWork() {
+        final Path fastaPath = IOUtils.getPath(referenceFastaLoc);
+        final Path imagePath = referenceImageOutputLoc == null ? PackedReferenceSource.getImagePath(fastaPath) : IOUtils.getPath(referenceImageOutputLoc);
+        // read the fasta itself, rather than any existing image of it
+        try ( final ReferenceFileSource reference = new ReferenceFileSource(fastaPath) ) {
+            PackedReferenceSource.writeImage(reference, imagePath);
+        }
+        return null;
+    }
+}
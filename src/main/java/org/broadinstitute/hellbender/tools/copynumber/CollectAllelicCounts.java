@@ -11,7 +11,7 @@ import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
 import org.broadinstitute.hellbender.cmdline.programgroups.CoverageAnalysisProgramGroup;
 import org.broadinstitute.hellbender.engine.AlignmentContext;
 import org.broadinstitute.hellbender.engine.FeatureContext;
-import org.broadinstitute.hellbender.engine.LocusWalker;
+import org.broadinstitute.hellbender.engine.ParallelLocusWalker;
 import org.broadinstitute.hellbender.engine.ReferenceContext;
 import org.broadinstitute.hellbender.engine.filters.MappingQualityReadFilter;
 import org.broadinstitute.hellbender.engine.filters.ReadFilter;
@@ -22,6 +22,7 @@ import org.broadinstitute.hellbender.tools.copynumber.arguments.CopyNumberArgume
 import org.broadinstitute.hellbender.tools.copynumber.formats.metadata.Metadata;
 import org.broadinstitute.hellbender.tools.copynumber.formats.metadata.MetadataUtils;
 import org.broadinstitute.hellbender.tools.copynumber.formats.metadata.SampleLocatableMetadata;
+import org.broadinstitute.hellbender.tools.copynumber.formats.records.AllelicCount;
 import org.broadinstitute.hellbender.utils.Nucleotide;
 
 import java.io.File;
@@ -79,7 +80,7 @@ import java.util.List;
 )
 @DocumentedFeature
 @BetaFeature
-public final class CollectAllelicCounts extends LocusWalker {
+public final class CollectAllelicCounts extends ParallelLocusWalker<AllelicCount> {
     private static final Logger logger = LogManager.getLogger(CollectAllelicCounts.class);
 
     private static final int DEFAULT_MINIMUM_MAPPING_QUALITY = 30;
@@ -147,8 +148,13 @@ public final class CollectAllelicCounts extends LocusWalker {
     }
 
     @Override
-    public void apply(AlignmentContext alignmentContext, ReferenceContext referenceContext, FeatureContext featureContext) {
+    public AllelicCount computeLocusResult(AlignmentContext alignmentContext, ReferenceContext referenceContext, FeatureContext featureContext) {
         final byte refAsByte = referenceContext.getBase();
-        allelicCountCollector.collectAtLocus(Nucleotide.valueOf(refAsByte), alignmentContext.getBasePileup(), alignmentContext.getLocation(), minimumBaseQuality);
+        return AllelicCountCollector.computeAllelicCount(Nucleotide.valueOf(refAsByte), alignmentContext.getBasePileup(), alignmentContext.getLocation(), minimumBaseQuality);
+    }
+
+    @Override
+    public void reduceLocusResult(final AllelicCount allelicCount) {
+        allelicCountCollector.addAllelicCount(allelicCount);
     }
 }
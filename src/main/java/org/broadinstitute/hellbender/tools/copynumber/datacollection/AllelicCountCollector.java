@@ -46,6 +46,32 @@ public final class AllelicCountCollector {
      * @param minBaseQuality minimum base quality in the read for that read to count at that position.  Must be greater than or equal to 0.
      */
     public void collectAtLocus(final Nucleotide refBase, final ReadPileup pileup, final Locatable locus, final int minBaseQuality) {
+        final AllelicCount allelicCount = computeAllelicCount(refBase, pileup, locus, minBaseQuality);
+        if (allelicCount != null) {
+            addAllelicCount(allelicCount);
+        }
+    }
+
+    /**
+     * Add a count computed by {@link #computeAllelicCount} to this class.  Counts must be added in the
+     * same order in which they would be collected by {@link #collectAtLocus}.
+     *
+     * @param allelicCount count to add.  Not {@code null}
+     */
+    public void addAllelicCount(final AllelicCount allelicCount) {
+        allelicCounts.add(Utils.nonNull(allelicCount));
+    }
+
+    /**
+     * Compute the counts for a specific locus without adding them to any collector.  Safe to call concurrently.
+     *
+     * @param refBase single nucleotide of the reference.  Not {@code null}
+     * @param pileup associated pileup at the locus.  Not {@code null}
+     * @param locus position in genome to collect alellic counts.  Not {@code null}
+     * @param minBaseQuality minimum base quality in the read for that read to count at that position.  Must be greater than or equal to 0.
+     * @return the counts at the locus, or {@code null} if the reference base is not one of {@link AllelicCountCollector#BASES}
+     */
+    public static AllelicCount computeAllelicCount(final Nucleotide refBase, final ReadPileup pileup, final Locatable locus, final int minBaseQuality) {
         Utils.nonNull(refBase);
         Utils.nonNull(pileup);
         Utils.nonNull(locus);
@@ -54,7 +80,7 @@ public final class AllelicCountCollector {
         if (!BASES.contains(refBase)) {
             logger.warn(String.format("The reference position at %s has an unknown base call (value: %s). Skipping...",
                     locus, refBase.toString()));
-            return;
+            return null;
         }
 
         final Nucleotide.Counter nucleotideCounter = new Nucleotide.Counter();
@@ -69,9 +95,9 @@ public final class AllelicCountCollector {
         final int altReadCount = totalBaseCount - refReadCount;                                         //we take alt = total - ref instead of the actual alt count
         final Nucleotide altBase = altReadCount == 0 ? Nucleotide.N : inferAltFromPileupBaseCounts(nucleotideCounter, refBase);
 
-        allelicCounts.add(new AllelicCount(
+        return new AllelicCount(
                 new SimpleInterval(locus.getContig(), locus.getStart(), locus.getEnd()),
-                refReadCount, altReadCount, refBase, altBase));
+                refReadCount, altReadCount, refBase, altBase);
     }
 
     /**
@@ -10,6 +10,7 @@ import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.activityprofile.ActivityProfileState;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.PrintStream;
@@ -64,6 +65,27 @@ public final class ExampleAssemblyRegionWalker extends AssemblyRegionWalker {
         return (locusPileup, referenceContext, featureContext) -> new ActivityProfileState(new SimpleInterval(locusPileup), 1.0);
     }
 
+    @Override
+    protected AssemblyRegionWorker makeAssemblyRegionWorker() {
+        return new AssemblyRegionWorker() {
+            @Override
+            public AssemblyRegionEvaluator assemblyRegionEvaluator() {
+                // Our evaluator is stateless, so it is safe to share it among traversal threads
+                return ExampleAssemblyRegionWalker.this.assemblyRegionEvaluator();
+            }
+
+            @Override
+            public Runnable apply( AssemblyRegion region, ReferenceContext referenceContext, FeatureContext featureContext ) {
+                // Format the output for the region on the traversal thread, and print it on the main thread
+                final ByteArrayOutputStream regionOutput = new ByteArrayOutputStream();
+                try ( final PrintStream regionOutputStream = new PrintStream(regionOutput) ) {
+                    printRegion(regionOutputStream, region, referenceContext, featureContext);
+                }
+                return () -> outputStream.print(regionOutput.toString());
+            }
+        };
+    }
+
     @Override
     public void onTraversalStart() {
         try {
@@ -76,26 +98,30 @@ public final class ExampleAssemblyRegionWalker extends AssemblyRegionWalker {
 
     @Override
     public void apply( AssemblyRegion region, ReferenceContext referenceContext, FeatureContext featureContext ) {
-        outputStream.printf("%s assembly region at %s (%s with padding), containing %d reads.\n\n",
+        printRegion(outputStream, region, referenceContext, featureContext);
+    }
+
+    private void printRegion( final PrintStream out, final AssemblyRegion region, final ReferenceContext referenceContext, final FeatureContext featureContext ) {
+        out.printf("%s assembly region at %s (%s with padding), containing %d reads.\n\n",
                 region.isActive() ? "ACTIVE" : "INACTIVE", region.getSpan(), region.getExtendedSpan(), region.getReads().size());
 
-        printReferenceBases(referenceContext);
+        printReferenceBases(out, referenceContext);
 
         if ( featureContext.hasBackingDataSource() ) {
-            printOverlappingVariants(featureContext);
+            printOverlappingVariants(out, featureContext);
         }
     }
 
-    private void printReferenceBases( final ReferenceContext refContext ) {
-        outputStream.printf("\tOverlapping reference bases: %s\n\n", new String(refContext.getBases()));
+    private void printReferenceBases( final PrintStream out, final ReferenceContext refContext ) {
+        out.printf("\tOverlapping reference bases: %s\n\n", new String(refContext.getBases()));
     }
 
-    private void printOverlappingVariants( final FeatureContext featureContext ) {
+    private void printOverlappingVariants( final PrintStream out, final FeatureContext featureContext ) {
         for ( final VariantContext variant : featureContext.getValues(knownVariants) ) {
-            outputStream.printf("\tOverlapping variant at %s:%d-%d. Ref: %s Alt(s): %s\n\n",
+            out.printf("\tOverlapping variant at %s:%d-%d. Ref: %s Alt(s): %s\n\n",
                     variant.getContig(), variant.getStart(), variant.getEnd(), variant.getReference(), variant.getAlternateAlleles());
         }
-        outputStream.println();
+        out.println();
     }
 
     @Override
@@ -12,8 +12,10 @@ import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
 import org.broadinstitute.hellbender.engine.spark.GATKSparkTool;
 import org.broadinstitute.hellbender.tools.ApplyBQSRArgumentCollection;
 import org.broadinstitute.hellbender.tools.spark.transforms.ApplyBQSRSparkFn;
+import org.broadinstitute.hellbender.transformers.BQSRReadTransformer;
 import org.broadinstitute.hellbender.utils.gcs.BucketUtils;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.recalibration.CompiledRecalibrationTables;
 import org.broadinstitute.hellbender.utils.recalibration.RecalibrationReport;
 import picard.cmdline.programgroups.ReadDataManipulationProgramGroup;
 
@@ -84,8 +86,10 @@ public final class ApplyBQSRSpark extends GATKSparkTool {
     @Override
     protected void runTool(JavaSparkContext ctx) {
         JavaRDD<GATKRead> initialReads = getReads();
-        Broadcast<RecalibrationReport> recalibrationReportBroadCast = ctx.broadcast(new RecalibrationReport(BucketUtils.openFile(bqsrRecalFile)));
-        final JavaRDD<GATKRead> recalibratedReads = ApplyBQSRSparkFn.apply(initialReads, recalibrationReportBroadCast, getHeaderForReads(), applyBQSRArgs);
+        final RecalibrationReport recalibrationReport = new RecalibrationReport(BucketUtils.openFile(bqsrRecalFile));
+        // compile the report once, here, rather than in every partition
+        final Broadcast<CompiledRecalibrationTables> compiledTablesBroadcast = ctx.broadcast(BQSRReadTransformer.compileRecalibrationReport(recalibrationReport, applyBQSRArgs));
+        final JavaRDD<GATKRead> recalibratedReads = ApplyBQSRSparkFn.apply(initialReads, compiledTablesBroadcast, getHeaderForReads(), applyBQSRArgs);
         writeReads(ctx, output, recalibratedReads);
     }
 }
@@ -7,17 +7,20 @@ import org.broadinstitute.hellbender.tools.ApplyBQSRArgumentCollection;
 import org.broadinstitute.hellbender.transformers.BQSRReadTransformer;
 import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
-import org.broadinstitute.hellbender.utils.recalibration.RecalibrationReport;
+import org.broadinstitute.hellbender.utils.recalibration.CompiledRecalibrationTables;
 
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
 public class ApplyBQSRSparkFn {
 
-    public static JavaRDD<GATKRead> apply(JavaRDD<GATKRead> reads, final Broadcast<RecalibrationReport> reportBroadcast, final SAMFileHeader readsHeader, ApplyBQSRArgumentCollection args) {
+    /**
+     * @param compiledTablesBroadcast the recalibration report compiled by {@link BQSRReadTransformer#compileRecalibrationReport} with the same args
+     */
+    public static JavaRDD<GATKRead> apply(JavaRDD<GATKRead> reads, final Broadcast<CompiledRecalibrationTables> compiledTablesBroadcast, final SAMFileHeader readsHeader, ApplyBQSRArgumentCollection args) {
         return reads.mapPartitions(readsIterator -> {
-            final RecalibrationReport report = reportBroadcast.getValue();
-            final BQSRReadTransformer transformer = new BQSRReadTransformer(readsHeader, report, args);//reuse this for all reads in the partition
+            final CompiledRecalibrationTables compiledTables = compiledTablesBroadcast.getValue();
+            final BQSRReadTransformer transformer = new BQSRReadTransformer(readsHeader, compiledTables, args);//reuse this for all reads in the partition
             final Iterable<GATKRead> readsIterable = () -> readsIterator;
             return Utils.stream(readsIterable).map(read -> transformer.apply(read)).collect(Collectors.toList()).iterator();
         });
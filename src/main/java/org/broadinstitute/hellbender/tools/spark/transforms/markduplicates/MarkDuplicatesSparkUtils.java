@@ -3,6 +3,7 @@ package org.broadinstitute.hellbender.tools.spark.transforms.markduplicates;
 import com.google.common.collect.*;
 import htsjdk.samtools.SAMFileHeader;
 import htsjdk.samtools.metrics.MetricsFile;
+import org.apache.spark.Partitioner;
 import org.apache.spark.api.java.JavaPairRDD;
 import org.apache.spark.api.java.JavaRDD;
 import org.broadinstitute.hellbender.exceptions.GATKException;
@@ -37,9 +38,10 @@ public class MarkDuplicatesSparkUtils {
      *   (c) Label each read with alignment information: Library, reference index,
      *       stranded unclipped start and reverse strand.
      *   (d) Leftover reads are emitted, unmodified, as an unpaired end.
-     * (4) GroupByKey: Group PairedEnds that share alignment information. These pairs
-     *     are duplicates of each other.
-     * (5) markDuplicatePairs:
+     * (4) Shuffle PairedEnds keyed by a compact {@link DuplicateSetKey} to partitions of nearby positions, sorting
+     *     them by key within each partition, so that PairedEnds that share alignment information are adjacent.
+     *     These pairs are duplicates of each other.
+     * (5) markDuplicatePairs, streaming over each partition one group of duplicates at a time (see {@link #spanByKey}):
      *   (a) For each group created by (4), sort the pairs by score and mark all but the
      *       highest scoring as duplicates.
      *   (b) Determine which duplicates are optical duplicates and increase the overall count.
@@ -56,13 +58,14 @@ public class MarkDuplicatesSparkUtils {
             keyedReads = keyReadPairs.groupByKey(numReducers);
         }
 
-        JavaPairRDD<String, Iterable<PairedEnds>> keyedPairs = keyedReads.flatMapToPair(keyedRead -> {
-            List<Tuple2<String, PairedEnds>> out = Lists.newArrayList();
+        final Map<String, Integer> libraryIndices = DuplicateSetKey.getLibraryIndices(header);
+        JavaPairRDD<DuplicateSetKey, PairedEnds> keyedPairs = keyedReads.flatMapToPair(keyedRead -> {
+            List<Tuple2<DuplicateSetKey, PairedEnds>> out = Lists.newArrayList();
             // Write each read out as a pair with only the first slot filled
             for (GATKRead read : keyedRead._2()) {
                 read.setIsDuplicate(false);
                 final PairedEnds pair = PairedEnds.of(read);
-                out.add(new Tuple2<>(pair.keyForFragment(header), pair));
+                out.add(new Tuple2<>(pair.keyForFragment(header, libraryIndices), pair));
             }
             // Write each paired read with a mapped mate as a pair
             final List<GATKRead> sorted = Lists.newArrayList(Iterables.filter(keyedRead._2(), read -> ReadUtils.readHasMappedMate(read)));
@@ -74,17 +77,20 @@ public class MarkDuplicatesSparkUtils {
                     pair = PairedEnds.of(record);
                 } else {                                           //second in pair
                     pair.and(record);
-                    out.add(new Tuple2<>(pair.key(header), pair));
+                    out.add(new Tuple2<>(pair.key(header, libraryIndices), pair));
                     pair = null;                                   //back to first
                 }
             }
             if (pair != null) {                                    //left over read
-                out.add(new Tuple2<>(pair.key(header), pair));
+                out.add(new Tuple2<>(pair.key(header, libraryIndices), pair));
             }
             return out.iterator();
-        }).groupByKey(numReducers);
+        });
 
-        return markPairedEnds(keyedPairs, scoringStrategy, finder, header);
+        // sorting within partitions brings the groups of duplicates together without keeping all the groups of a
+        // partition in memory, as groupByKey would
+        final JavaPairRDD<DuplicateSetKey, PairedEnds> sortedPairs = keyedPairs.repartitionAndSortWithinPartitions(new DuplicateSetKeyPartitioner(numReducers));
+        return markPairedEnds(spanByKey(sortedPairs), scoringStrategy, finder, header);
     }
 
     static JavaPairRDD<String, Iterable<GATKRead>> spanReadsByKey(final SAMFileHeader header, final JavaRDD<GATKRead> reads) {
@@ -153,7 +159,7 @@ public class MarkDuplicatesSparkUtils {
         };
     }
 
-    static JavaRDD<GATKRead> markPairedEnds(final JavaPairRDD<String, Iterable<PairedEnds>> keyedPairs,
+    static JavaRDD<GATKRead> markPairedEnds(final JavaPairRDD<DuplicateSetKey, Iterable<PairedEnds>> keyedPairs,
                                             final MarkDuplicatesScoringStrategy scoringStrategy,
                                             final OpticalDuplicateFinder finder, final SAMFileHeader header) {
         return keyedPairs.flatMap(keyedPair -> {
@@ -162,7 +168,7 @@ public class MarkDuplicatesSparkUtils {
 
             // Each key corresponds to either fragments or paired ends, not a mixture of both.
 
-            if (ReadsKey.isFragment(keyedPair._1())) { // fragments
+            if (keyedPair._1().isFragment()) { // fragments
                 return handleFragments(pairedEnds, scoringStrategy, header).iterator();
             }
 
@@ -346,6 +352,35 @@ public class MarkDuplicatesSparkUtils {
         MetricsUtils.saveMetrics(result, metricsOutputPath);
     }
 
+    /**
+     * Partitioner of duplicate set keys that sends the keys whose first ends are in the same bin of positions to the
+     * same partition, and consecutive bins to consecutive partitions, so that partitions keep coordinate locality
+     * while sharing the load of each contig.
+     */
+    static final class DuplicateSetKeyPartitioner extends Partitioner {
+        private static final long serialVersionUID = 1L;
+        private static final int BIN_SIZE_BITS = 16;
+        private final int numPartitions;
+
+        public DuplicateSetKeyPartitioner(final int numPartitions) {
+            Utils.validateArg(numPartitions > 0, "the number of partitions must be positive");
+            this.numPartitions = numPartitions;
+        }
+
+        @Override
+        public int numPartitions() {
+            return numPartitions;
+        }
+
+        @Override
+        public int getPartition(final Object key) {
+            final DuplicateSetKey duplicateSetKey = (DuplicateSetKey) key;
+            final long bin = ((long) duplicateSetKey.getReferenceIndex() << (Integer.SIZE - BIN_SIZE_BITS))
+                    + (duplicateSetKey.getStrandedUnclippedStart() >> BIN_SIZE_BITS);
+            return (int) Math.floorMod(bin, (long) numPartitions);
+        }
+    }
+
     /**
      * GATKRead comparator that compares based on mapping position followed by SAM flags.
      */
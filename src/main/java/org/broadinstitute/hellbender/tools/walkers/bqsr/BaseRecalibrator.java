@@ -1,5 +1,6 @@
 package org.broadinstitute.hellbender.tools.walkers.bqsr;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import htsjdk.tribble.Feature;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -12,6 +13,7 @@ import org.broadinstitute.hellbender.engine.*;
 import org.broadinstitute.hellbender.engine.filters.ReadFilter;
 import org.broadinstitute.hellbender.engine.filters.ReadFilterLibrary;
 import org.broadinstitute.hellbender.engine.filters.WellformedReadFilter;
+import org.broadinstitute.hellbender.exceptions.GATKException;
 import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
@@ -24,8 +26,18 @@ import picard.cmdline.programgroups.ReadDataManipulationProgramGroup;
 import java.io.File;
 import java.io.IOException;
 import java.io.PrintStream;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * First pass of the base quality score recalibration.
@@ -87,6 +99,12 @@ public final class BaseRecalibrator extends ReadWalker {
             "(such as read group, reported quality score, machine cycle, and nucleotide context).";
 
     public static final String KNOWN_SITES_ARG_FULL_NAME = "known-sites";
+    public static final String RECALIBRATION_THREADS_LONG_NAME = "recalibration-threads";
+
+    // Number of reads handed to a worker thread at a time, when using more than one thread
+    private static final int READS_PER_BATCH = 100;
+    // Number of batches per worker thread that may wait to be processed before the traversal processes batches itself
+    private static final int MAX_QUEUED_BATCHES_PER_THREAD = 4;
 
     protected static final Logger logger = LogManager.getLogger(BaseRecalibrator.class);
 
@@ -115,8 +133,25 @@ public final class BaseRecalibrator extends ReadWalker {
     @Argument(shortName = StandardArgumentDefinitions.OUTPUT_SHORT_NAME, fullName = StandardArgumentDefinitions.OUTPUT_LONG_NAME, doc = "The output recalibration table file to create", optional = false)
     private File recalTableFile = null;
 
+    /**
+     * With more than one thread, reads are processed concurrently by a pool of worker threads, each of which accumulates
+     * its own recalibration data. This data is combined at the end of the traversal, so the output is the same as with
+     * a single thread (up to the rounding of the number of mismatches).
+     */
+    @Argument(fullName = RECALIBRATION_THREADS_LONG_NAME, doc = "Number of threads to use to collect recalibration data", optional = true, minValue = 1)
+    private int recalibrationThreads = 1;
+
     private BaseRecalibrationEngine recalibrationEngine;
 
+    // worker threads when using more than one thread, each with its own datasource for the reference
+    private ExecutorService recalibrationExecutor = null;
+    private ThreadLocal<ReferenceDataSource> workerReferenceDataSources = null;
+    private final Queue<ReferenceDataSource> allWorkerReferenceDataSources = new ConcurrentLinkedQueue<>();
+    // reads and known sites of the next batch, and batches submitted to the workers that may not be done yet
+    private List<GATKRead> readBatch = new ArrayList<>(READS_PER_BATCH);
+    private List<List<Feature>> knownSitesBatch = new ArrayList<>(READS_PER_BATCH);
+    private final Deque<Future<?>> pendingBatches = new ArrayDeque<>();
+
     private ReferenceDataSource referenceDataSource; // datasource for the reference. We're using a different one from the engine itself to avoid messing with its caches.
 
     /**
@@ -141,9 +176,25 @@ public final class BaseRecalibrator extends ReadWalker {
 
         Utils.warnOnNonIlluminaReadGroups(getHeaderForReads(), logger);
 
-        recalibrationEngine = new BaseRecalibrationEngine(recalArgs, getHeaderForReads());
+        recalibrationEngine = new BaseRecalibrationEngine(recalArgs, getHeaderForReads(), recalibrationThreads > 1);
         recalibrationEngine.logCovariatesUsed();
         referenceDataSource = ReferenceDataSource.of(referenceArguments.getReferencePath());
+
+        if ( recalibrationThreads > 1 ) {
+            logger.info(String.format("Collecting recalibration data using %d threads", recalibrationThreads));
+            final ThreadFactoryBuilder threadFactory = new ThreadFactoryBuilder()
+                    .setNameFormat("recalibration-thread-%d")
+                    .setDaemon(true);
+            // when the workers fall behind, the traversal thread processes batches itself rather than queueing more reads
+            recalibrationExecutor = new ThreadPoolExecutor(recalibrationThreads, recalibrationThreads, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(recalibrationThreads * MAX_QUEUED_BATCHES_PER_THREAD), threadFactory.build(),
+                    new ThreadPoolExecutor.CallerRunsPolicy());
+            workerReferenceDataSources = ThreadLocal.withInitial(() -> {
+                final ReferenceDataSource workerReferenceDataSource = ReferenceDataSource.of(referenceArguments.getReferencePath());
+                allWorkerReferenceDataSources.add(workerReferenceDataSource);
+                return workerReferenceDataSource;
+            });
+        }
     }
 
     @Override
@@ -182,11 +233,61 @@ public final class BaseRecalibrator extends ReadWalker {
      */
     @Override
     public void apply( GATKRead read, ReferenceContext ref, FeatureContext featureContext ) {
-        recalibrationEngine.processRead(read, referenceDataSource, featureContext.getValues(knownSites));
+        if ( recalibrationExecutor == null ) {
+            recalibrationEngine.processRead(read, referenceDataSource, featureContext.getValues(knownSites));
+            return;
+        }
+        readBatch.add(read);
+        knownSitesBatch.add(featureContext.getValues(knownSites));
+        if ( readBatch.size() >= READS_PER_BATCH ) {
+            submitBatch();
+        }
+    }
+
+    private void submitBatch() {
+        final List<GATKRead> reads = readBatch;
+        final List<List<Feature>> readKnownSites = knownSitesBatch;
+        readBatch = new ArrayList<>(READS_PER_BATCH);
+        knownSitesBatch = new ArrayList<>(READS_PER_BATCH);
+
+        pendingBatches.add(recalibrationExecutor.submit(() -> {
+            final ReferenceDataSource workerReferenceDataSource = workerReferenceDataSources.get();
+            for ( int i = 0; i < reads.size(); i++ ) {
+                recalibrationEngine.processRead(reads.get(i), workerReferenceDataSource, readKnownSites.get(i));
+            }
+        }));
+
+        // forget about the batches that are done, rethrowing any failure as early as possible
+        while ( !pendingBatches.isEmpty() && pendingBatches.peekFirst().isDone() ) {
+            waitForBatch(pendingBatches.pollFirst());
+        }
+    }
+
+    private static void waitForBatch(final Future<?> batch) {
+        try {
+            batch.get();
+        } catch ( final InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new GATKException("Interrupted while collecting recalibration data", e);
+        } catch ( final ExecutionException e ) {
+            if ( e.getCause() instanceof RuntimeException ) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new GATKException("Failed to collect recalibration data", e.getCause());
+        }
     }
 
     @Override
     public Object onTraversalSuccess() {
+        if ( recalibrationExecutor != null ) {
+            if ( !readBatch.isEmpty() ) {
+                submitBatch();
+            }
+            while ( !pendingBatches.isEmpty() ) {
+                waitForBatch(pendingBatches.pollFirst());
+            }
+            recalibrationExecutor.shutdown();
+        }
         recalibrationEngine.finalizeData();
 
         logger.info("Calculating quantized quality scores...");
@@ -217,4 +318,17 @@ public final class BaseRecalibrator extends ReadWalker {
             throw new UserException.CouldNotCreateOutputFile(recalTableFile, e);
         }
     }
-}
\ No newline at end of file
+
+    @Override
+    public void closeTool() {
+        if ( recalibrationExecutor != null ) {
+            recalibrationExecutor.shutdownNow();
+        }
+        for ( final ReferenceDataSource workerReferenceDataSource : allWorkerReferenceDataSources ) {
+            workerReferenceDataSource.close();
+        }
+        if ( referenceDataSource != null ) {
+            referenceDataSource.close();
+        }
+    }
+}
@@ -21,6 +21,7 @@ import org.broadinstitute.hellbender.utils.haplotype.Haplotype;
 import org.broadinstitute.hellbender.utils.haplotype.HaplotypeBAMWriter;
 import org.broadinstitute.hellbender.utils.io.IOUtils;
 import org.broadinstitute.hellbender.utils.read.*;
+import org.broadinstitute.hellbender.utils.runtime.MetricsRegistry;
 import org.broadinstitute.hellbender.utils.smithwaterman.SmithWatermanAligner;
 import org.broadinstitute.hellbender.utils.variant.GATKVariantContextUtils;
 
@@ -36,6 +37,9 @@ public final class AssemblyBasedCallerUtils {
 
     static final int REFERENCE_PADDING_FOR_ASSEMBLY = 500;
 
+    private static final MetricsRegistry.Timer ASSEMBLY_METRIC = MetricsRegistry.getDefault().timer(
+            "gatk_assembly_seconds", "Local assemblies of assembly regions (excluding those found in the assembly result cache)");
+
     /**
      * Returns a map with the original read as a key and the realigned read as the value.
      * <p>
@@ -184,6 +188,7 @@ public final class AssemblyBasedCallerUtils {
         assemblyEngine.setRecoverDanglingBranches(!rtaac.doNotRecoverDanglingBranches);
         assemblyEngine.setMinDanglingBranchLength(rtaac.minDanglingBranchLength);
         assemblyEngine.setMinBaseQualityToUseInAssembly(args.minBaseQualityScore);
+        assemblyEngine.setNumKmerSizeThreads(rtaac.kmerSizeThreads);
 
         if ( rtaac.graphOutput != null ) {
             assemblyEngine.setGraphWriter(new File(rtaac.graphOutput));
@@ -240,6 +245,25 @@ public final class AssemblyBasedCallerUtils {
                                                   final ReferenceSequenceFile referenceReader,
                                                   final ReadThreadingAssembler assemblyEngine,
                                                   final SmithWatermanAligner aligner){
+        return assembleReads(region, givenAlleles, argumentCollection, header, sampleList, logger, referenceReader, assemblyEngine, aligner, null);
+    }
+
+    /**
+     * High-level function that runs the assembler on the given region's reads,
+     * returning a data structure with the resulting information needed
+     * for further HC steps. If an assembly result cache is provided, the result is taken from it
+     * when possible, and added to it otherwise.
+     */
+    public static AssemblyResultSet assembleReads(final AssemblyRegion region,
+                                                  final List<VariantContext> givenAlleles,
+                                                  final AssemblyBasedCallerArgumentCollection argumentCollection,
+                                                  final SAMFileHeader header,
+                                                  final SampleList sampleList,
+                                                  final Logger logger,
+                                                  final ReferenceSequenceFile referenceReader,
+                                                  final ReadThreadingAssembler assemblyEngine,
+                                                  final SmithWatermanAligner aligner,
+                                                  final AssemblyResultCache assemblyResultCache){
         finalizeRegion(region, argumentCollection.errorCorrectReads, argumentCollection.dontUseSoftClippedBases, (byte)(argumentCollection.minBaseQualityScore - 1), header, sampleList);
         if( argumentCollection.debug) {
             logger.info("Assembling " + region.getSpan() + " with " + region.size() + " reads:    (with overlap region = " + region.getExtendedSpan() + ")");
@@ -249,6 +273,18 @@ public final class AssemblyBasedCallerUtils {
         final SimpleInterval paddedReferenceLoc = getPaddedReferenceLoc(region, REFERENCE_PADDING_FOR_ASSEMBLY, referenceReader);
         final Haplotype referenceHaplotype = createReferenceHaplotype(region, paddedReferenceLoc, referenceReader);
 
+        final String assemblyResultCacheKey = assemblyResultCache == null ? null :
+                assemblyResultCache.computeKey(region, givenAlleles, fullReferenceWithPadding, paddedReferenceLoc, header);
+        // cached results don't carry their graphs, so assemble every region when the graphs are to be written out
+        final boolean writesGraphs = argumentCollection.assemblerArgs.graphOutput != null || argumentCollection.assemblerArgs.debugGraphTransformations;
+        if ( assemblyResultCacheKey != null && ! writesGraphs ) {
+            final AssemblyResultSet cachedResultSet = assemblyResultCache.get(assemblyResultCacheKey, region, fullReferenceWithPadding, paddedReferenceLoc);
+            if ( cachedResultSet != null ) {
+                cachedResultSet.debugDump(logger);
+                return cachedResultSet;
+            }
+        }
+
         final ReadErrorCorrector readErrorCorrector = argumentCollection.errorCorrectReads ?
                 new ReadErrorCorrector(argumentCollection.assemblerArgs.kmerLengthForReadErrorCorrection,
                         HaplotypeCallerEngine.MIN_TAIL_QUALITY_WITH_ERROR_CORRECTION,
@@ -258,10 +294,15 @@ public final class AssemblyBasedCallerUtils {
                 null;
 
         try {
+            final long startNanos = System.nanoTime();
             final AssemblyResultSet assemblyResultSet = assemblyEngine.runLocalAssembly(region, referenceHaplotype, fullReferenceWithPadding,
                                                                                         paddedReferenceLoc, givenAlleles, readErrorCorrector, header,
                                                                                         aligner);
+            ASSEMBLY_METRIC.recordSince(startNanos);
             assemblyResultSet.debugDump(logger);
+            if ( assemblyResultCacheKey != null ) {
+                assemblyResultCache.put(assemblyResultCacheKey, assemblyResultSet);
+            }
             return assemblyResultSet;
         } catch (final Exception e){
             // Capture any exception that might be thrown, and write out the assembly failure BAM if requested
@@ -0,0 +1,359 @@
+package org.broadinstitute.hellbender.tools.walkers.haplotypecaller;
+
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.TextCigarCodec;
+import htsjdk.samtools.util.Locatable;
+import htsjdk.variant.variantcontext.Allele;
+import htsjdk.variant.variantcontext.VariantContext;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.broadinstitute.hellbender.engine.AssemblyRegion;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.graphs.SeqGraph;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.haplotype.Haplotype;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.read.ReadUtils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Persistent on-disk cache of local assembly results, so that reruns of the HaplotypeCaller on the same data
+ * (for example with different genotyping or annotation arguments) can skip assembly of unchanged regions.
+ *
+ * Each entry is keyed by a digest of everything that determines the result of assembling a region: the region
+ * and its padded reference bases, the reads to be assembled (after region finalization), any given alleles,
+ * the arguments that control the assembler, and the GATK version, since a new version may assemble differently.
+ * An entry holds the haplotypes of the resulting {@link AssemblyResultSet}, with their alignments to the reference,
+ * scores, and the kmer size and assembly status of the graph each one came from, in a compact compressed binary
+ * form. The assembly graphs themselves are not kept, so result sets restored from the cache carry empty placeholder
+ * graphs of the right kmer size.
+ *
+ * Entries are stored one per file under the cache directory, and are written atomically, so a cache directory
+ * may be shared by several concurrent runs. Entries that can't be read (eg., written by an incompatible version)
+ * are treated as cache misses.
+ */
+public final class AssemblyResultCache {
+    private static final Logger logger = LogManager.getLogger(AssemblyResultCache.class);
+
+    private static final int MAGIC_NUMBER = 0x41524331; // "ARC1"
+    private static final int FORMAT_VERSION = 2;
+    private static final String ENTRY_EXTENSION = ".arc";
+
+    private static final String GATK_VERSION = AssemblyResultCache.class.getPackage().getImplementationVersion() != null ?
+            AssemblyResultCache.class.getPackage().getImplementationVersion() : "Unavailable";
+
+    // kmer size written for haplotypes (such as the reference) that didn't come from an assembly graph
+    private static final int NO_KMER_SIZE = 0;
+
+    private final Path cacheDirectory;
+    private final String assemblerSettings;
+
+    private long numHits = 0;
+    private long numMisses = 0;
+    private long numWriteFailures = 0;
+
+    /**
+     * Open (creating it if necessary) an assembly result cache in the given directory
+     *
+     * @param cacheDirectory directory in which cache entries are stored
+     * @param args the arguments of the caller, from which the assembler settings that go into each key are taken
+     */
+    public AssemblyResultCache(final String cacheDirectory, final AssemblyBasedCallerArgumentCollection args) {
+        this(cacheDirectory, args, GATK_VERSION);
+    }
+
+    /**
+     * Open (creating it if necessary) an assembly result cache in the given directory, for results assembled
+     * by the given version of the GATK
+     */
+    AssemblyResultCache(final String cacheDirectory, final AssemblyBasedCallerArgumentCollection args, final String gatkVersion) {
+        Utils.nonNull(cacheDirectory);
+        Utils.nonNull(args);
+        Utils.nonNull(gatkVersion);
+        this.cacheDirectory = Paths.get(cacheDirectory);
+        this.assemblerSettings = describeAssemblerSettings(args, gatkVersion);
+        try {
+            Files.createDirectories(this.cacheDirectory);
+        } catch ( final IOException e ) {
+            throw new UserException.CouldNotCreateOutputFile(cacheDirectory, "could not create assembly result cache directory", e);
+        }
+    }
+
+    /**
+     * @return the version and arguments that affect the result of assembling a region, as a string
+     */
+    static String describeAssemblerSettings(final AssemblyBasedCallerArgumentCollection args, final String gatkVersion) {
+        final ReadThreadingAssemblerArgumentCollection rtaac = args.assemblerArgs;
+        return String.join(";",
+                "gatkVersion=" + gatkVersion,
+                "kmerSizes=" + rtaac.kmerSizes,
+                "dontIncreaseKmerSizesForCycles=" + rtaac.dontIncreaseKmerSizesForCycles,
+                "allowNonUniqueKmersInRef=" + rtaac.allowNonUniqueKmersInRef,
+                "numPruningSamples=" + rtaac.numPruningSamples,
+                "doNotRecoverDanglingBranches=" + rtaac.doNotRecoverDanglingBranches,
+                "minDanglingBranchLength=" + rtaac.minDanglingBranchLength,
+                "maxNumHaplotypesInPopulation=" + rtaac.maxNumHaplotypesInPopulation,
+                "errorCorrectKmers=" + rtaac.errorCorrectKmers,
+                "minPruneFactor=" + rtaac.minPruneFactor,
+                "kmerLengthForReadErrorCorrection=" + rtaac.kmerLengthForReadErrorCorrection,
+                "minObservationsForKmerToBeSolid=" + rtaac.minObservationsForKmerToBeSolid,
+                "errorCorrectReads=" + args.errorCorrectReads,
+                "dontUseSoftClippedBases=" + args.dontUseSoftClippedBases,
+                "minBaseQualityScore=" + args.minBaseQualityScore,
+                "smithWaterman=" + args.smithWatermanImplementation);
+    }
+
+    /**
+     * Compute the cache key for assembling a finalized region
+     *
+     * @param region the region to be assembled, after {@link AssemblyBasedCallerUtils#finalizeRegion}
+     * @param givenAlleles the alleles to inject into the haplotypes during GGA mode
+     * @param fullReferenceWithPadding the padded reference bases for the region
+     * @param paddedReferenceLoc the location of fullReferenceWithPadding
+     * @param header header for the reads
+     * @return a key uniquely identifying the assembly result for these inputs
+     */
+    public String computeKey(final AssemblyRegion region, final List<VariantContext> givenAlleles,
+                             final byte[] fullReferenceWithPadding, final SimpleInterval paddedReferenceLoc,
+                             final SAMFileHeader header) {
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch ( final NoSuchAlgorithmException e ) {
+            throw new IllegalStateException("SHA-256 digest algorithm not present", e);
+        }
+
+        update(digest, assemblerSettings);
+        update(digest, region.getSpan());
+        update(digest, region.getExtendedSpan());
+        update(digest, paddedReferenceLoc);
+        update(digest, fullReferenceWithPadding);
+
+        update(digest, givenAlleles.size());
+        for ( final VariantContext vc : givenAlleles ) {
+            update(digest, new SimpleInterval(vc));
+            for ( final Allele allele : vc.getAlleles() ) {
+                update(digest, allele.toString());
+            }
+        }
+
+        update(digest, region.getReads().size());
+        for ( final GATKRead read : region.getReads() ) {
+            update(digest, read.getName());
+            update(digest, ReadUtils.getSampleName(read, header));
+            update(digest, read.isUnmapped() ? "*" : read.getContig());
+            update(digest, read.getStart());
+            update(digest, TextCigarCodec.encode(read.getCigar()));
+            update(digest, read.getMappingQuality());
+            update(digest, read.isReverseStrand() ? 1 : 0);
+            update(digest, read.getBasesNoCopy());
+            update(digest, read.getBaseQualitiesNoCopy());
+        }
+
+        final StringBuilder key = new StringBuilder();
+        for ( final byte b : digest.digest() ) {
+            key.append(String.format("%02x", b));
+        }
+        return key.toString();
+    }
+
+    /**
+     * Look up the assembly result for a key
+     *
+     * @param key key from {@link #computeKey}
+     * @param region the region being assembled, to be used as the region for genotyping
+     * @param fullReferenceWithPadding the padded reference bases for the region
+     * @param paddedReferenceLoc the location of fullReferenceWithPadding
+     * @return the cached assembly result, or null if there is no (readable) entry for this key
+     */
+    public AssemblyResultSet get(final String key, final AssemblyRegion region, final byte[] fullReferenceWithPadding, final SimpleInterval paddedReferenceLoc) {
+        final Path entryPath = getEntryPath(key);
+        try ( final DataInputStream in = new DataInputStream(new InflaterInputStream(new BufferedInputStream(Files.newInputStream(entryPath)))) ) {
+            final AssemblyResultSet resultSet = readEntry(in, key);
+            if ( resultSet != null ) {
+                resultSet.setRegionForGenotyping(region);
+                resultSet.setFullReferenceWithPadding(fullReferenceWithPadding);
+                resultSet.setPaddedReferenceLoc(paddedReferenceLoc);
+                ++numHits;
+                return resultSet;
+            }
+            logger.warn("Ignoring incompatible assembly result cache entry " + entryPath);
+        } catch ( final NoSuchFileException e ) {
+            // a plain cache miss
+        } catch ( final IOException | RuntimeException e ) {
+            logger.warn("Ignoring unreadable assembly result cache entry " + entryPath + ": " + e.getMessage());
+        }
+        ++numMisses;
+        return null;
+    }
+
+    /**
+     * Store the assembly result for a key. Failure to write the entry is not fatal, since it only means
+     * that a later run will have to assemble the region again.
+     *
+     * @param key key from {@link #computeKey}
+     * @param resultSet the result of assembling the region
+     */
+    public void put(final String key, final AssemblyResultSet resultSet) {
+        if ( resultSet.getHaplotypeList().stream().anyMatch(h -> h.getCigar() == null || h.getGenomeLocation() == null) ) {
+            return; // not something we can restore faithfully
+        }
+        final Path entryPath = getEntryPath(key);
+        Path tempPath = null;
+        try {
+            Files.createDirectories(entryPath.getParent());
+            tempPath = Files.createTempFile(entryPath.getParent(), key, ".tmp");
+            try ( final DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(new BufferedOutputStream(Files.newOutputStream(tempPath)))) ) {
+                writeEntry(out, key, resultSet);
+            }
+            Files.move(tempPath, entryPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch ( final IOException e ) {
+            if ( numWriteFailures++ == 0 ) {
+                logger.warn("Unable to write assembly result cache entry " + entryPath + ": " + e.getMessage());
+            }
+            if ( tempPath != null ) {
+                try {
+                    Files.deleteIfExists(tempPath);
+                } catch ( final IOException ignored ) {
+                    // nothing more we can do
+                }
+            }
+        }
+    }
+
+    /**
+     * @return Number of lookups that found a cached assembly result
+     */
+    public long getNumHits() {
+        return numHits;
+    }
+
+    /**
+     * @return Number of lookups that didn't find a cached assembly result
+     */
+    public long getNumMisses() {
+        return numMisses;
+    }
+
+    /**
+     * Log the number of regions whose assembly was found in the cache
+     */
+    public void logStatistics() {
+        final long lookups = numHits + numMisses;
+        if ( lookups > 0 ) {
+            logger.info(String.format("Assembly result cache: %d out of %d regions (%.2f%%) were found in %s",
+                    numHits, lookups, 100.0 * numHits / lookups, cacheDirectory));
+        }
+        if ( numWriteFailures > 0 ) {
+            logger.warn(String.format("Assembly result cache: failed to write %d entries", numWriteFailures));
+        }
+    }
+
+    // Spread the entries over subdirectories, so no single directory gets too large
+    private Path getEntryPath(final String key) {
+        return cacheDirectory.resolve(key.substring(0, 2)).resolve(key + ENTRY_EXTENSION);
+    }
+
+    private static void writeEntry(final DataOutputStream out, final String key, final AssemblyResultSet resultSet) throws IOException {
+        out.writeInt(MAGIC_NUMBER);
+        out.writeInt(FORMAT_VERSION);
+        out.writeUTF(key);
+
+        final List<Haplotype> haplotypes = resultSet.getHaplotypeList();
+        out.writeInt(haplotypes.size());
+        for ( final Haplotype haplotype : haplotypes ) {
+            final AssemblyResult assemblyResult = resultSet.getAssemblyResultForHaplotype(haplotype);
+            out.writeBoolean(haplotype.isReference());
+            out.writeInt(assemblyResult != null ? assemblyResult.getKmerSize() : NO_KMER_SIZE);
+            if ( assemblyResult != null ) {
+                out.writeUTF(assemblyResult.getStatus().name());
+            }
+            out.writeInt(haplotype.length());
+            out.write(haplotype.getBases());
+            out.writeUTF(TextCigarCodec.encode(haplotype.getCigar()));
+            out.writeInt(haplotype.getAlignmentStartHapwrtRef());
+            out.writeDouble(haplotype.getScore());
+            final Locatable location = haplotype.getGenomeLocation();
+            out.writeUTF(location.getContig());
+            out.writeInt(location.getStart());
+            out.writeInt(location.getEnd());
+        }
+    }
+
+    private static AssemblyResultSet readEntry(final DataInputStream in, final String key) throws IOException {
+        if ( in.readInt() != MAGIC_NUMBER || in.readInt() != FORMAT_VERSION || ! in.readUTF().equals(key) ) {
+            return null;
+        }
+
+        final AssemblyResultSet resultSet = new AssemblyResultSet();
+        // all haplotypes from the graph of one kmer size must share a single AssemblyResult
+        final Map<Integer, AssemblyResult> assemblyResultByKmerSize = new HashMap<>();
+        final int numHaplotypes = in.readInt();
+        for ( int i = 0; i < numHaplotypes; ++i ) {
+            final boolean isReference = in.readBoolean();
+            final int kmerSize = in.readInt();
+            final AssemblyResult.Status status = kmerSize == NO_KMER_SIZE ? null : AssemblyResult.Status.valueOf(in.readUTF());
+            final byte[] bases = new byte[in.readInt()];
+            in.readFully(bases);
+
+            final Haplotype haplotype = new Haplotype(bases, isReference);
+            haplotype.setCigar(TextCigarCodec.decode(in.readUTF()));
+            haplotype.setAlignmentStartHapwrtRef(in.readInt());
+            haplotype.setScore(in.readDouble());
+            haplotype.setGenomeLocation(new SimpleInterval(in.readUTF(), in.readInt(), in.readInt()));
+
+            if ( kmerSize == NO_KMER_SIZE ) {
+                resultSet.add(haplotype);
+            } else {
+                resultSet.add(haplotype, assemblyResultByKmerSize.computeIfAbsent(kmerSize,
+                        k -> new AssemblyResult(status, new SeqGraph(k), null)));
+            }
+        }
+        return resultSet;
+    }
+
+    private static void update(final MessageDigest digest, final String value) {
+        if ( value == null ) {
+            update(digest, -1);
+        } else {
+            update(digest, value.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static void update(final MessageDigest digest, final byte[] value) {
+        update(digest, value.length);
+        digest.update(value);
+    }
+
+    private static void update(final MessageDigest digest, final int value) {
+        digest.update((byte)(value >>> 24));
+        digest.update((byte)(value >>> 16));
+        digest.update((byte)(value >>> 8));
+        digest.update((byte)value);
+    }
+
+    private static void update(final MessageDigest digest, final Locatable location) {
+        update(digest, location.getContig());
+        update(digest, location.getStart());
+        update(digest, location.getEnd());
+    }
+}
@@ -387,6 +387,17 @@ public final class AssemblyResultSet {
         return Arrays.asList(haplotypes.toArray(new Haplotype[haplotypes.size()]));
     }
 
+    /**
+     * Returns the assembly result that gave rise to a haplotype in the set.
+     *
+     * @param haplotype the haplotype of interest.
+     *
+     * @return {@code null} if the haplotype was added without an assembly result, or is not in the set.
+     */
+    AssemblyResult getAssemblyResultForHaplotype(final Haplotype haplotype) {
+        return assemblyResultByHaplotype.get(haplotype);
+    }
+
     /**
      * Returns the maximum kmerSize available.
      *
@@ -2,11 +2,13 @@ package org.broadinstitute.hellbender.tools.walkers.haplotypecaller;
 
 import htsjdk.samtools.SAMSequenceDictionary;
 import htsjdk.samtools.reference.ReferenceSequenceFile;
+import htsjdk.variant.variantcontext.VariantContext;
 import htsjdk.variant.variantcontext.writer.VariantContextWriter;
 import java.nio.file.Path;
 import org.broadinstitute.barclay.argparser.Argument;
 import org.broadinstitute.barclay.argparser.ArgumentCollection;
 import org.broadinstitute.barclay.argparser.BetaFeature;
+import org.broadinstitute.barclay.argparser.CommandLineException;
 import org.broadinstitute.barclay.argparser.CommandLineProgramProperties;
 import org.broadinstitute.barclay.help.DocumentedFeature;
 import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
@@ -20,8 +22,12 @@ import org.broadinstitute.hellbender.utils.SimpleInterval;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 import org.broadinstitute.hellbender.utils.io.IOUtils;
+import org.broadinstitute.hellbender.utils.variant.writers.ReferenceConfidenceSink;
+import org.broadinstitute.hellbender.utils.variant.writers.ReferenceConfidenceSite;
 
 
 /**
@@ -191,6 +197,56 @@ public final class HaplotypeCaller extends AssemblyRegionWalker {
         return hcEngine;
     }
 
+    /**
+     * Each traversal thread gets its own engine, with its own reference reader, assembler and genotyping engines.
+     * Calls are buffered by the worker and written to the VCF or GVCF writer on the main thread.
+     */
+    @Override
+    protected AssemblyRegionWorker makeAssemblyRegionWorker() {
+        if ( hcArgs.bamOutputPath != null ) {
+            throw new CommandLineException.BadArgumentValue(AssemblyRegionWalker.TRAVERSAL_THREADS_LONG_NAME, Integer.toString(traversalThreads),
+                    "a bam output cannot be written when using more than one traversal thread");
+        }
+
+        final HaplotypeCallerEngine workerEngine = new HaplotypeCallerEngine(hcArgs, createOutputBamIndex, createOutputBamMD5, getHeaderForReads(), getReferenceReader(referenceArguments));
+        return new AssemblyRegionWorker() {
+            @Override
+            public AssemblyRegionEvaluator assemblyRegionEvaluator() {
+                return workerEngine;
+            }
+
+            @Override
+            public Runnable apply(final AssemblyRegion region, final ReferenceContext referenceContext, final FeatureContext featureContext) {
+                if ( vcfWriter instanceof ReferenceConfidenceSink ) {
+                    final ReferenceConfidenceSink gvcfWriter = (ReferenceConfidenceSink) vcfWriter;
+                    final List<Consumer<ReferenceConfidenceSink>> records = new ArrayList<>();
+                    workerEngine.callRegion(region, featureContext, new ReferenceConfidenceSink() {
+                        @Override
+                        public void add(final VariantContext vc) {
+                            records.add(sink -> sink.add(vc));
+                        }
+
+                        @Override
+                        public void addReferenceConfidenceSite(final ReferenceConfidenceSite site) {
+                            // the engine reuses the site, so keep a copy
+                            final ReferenceConfidenceSite siteCopy = site.copy();
+                            records.add(sink -> sink.addReferenceConfidenceSite(siteCopy));
+                        }
+                    });
+                    return () -> records.forEach(record -> record.accept(gvcfWriter));
+                } else {
+                    final List<VariantContext> calls = workerEngine.callRegion(region, featureContext);
+                    return () -> calls.forEach(vcfWriter::add);
+                }
+            }
+
+            @Override
+            public void close() {
+                workerEngine.shutdown();
+            }
+        };
+    }
+
     @Override
     public void onTraversalStart() {
         final ReferenceSequenceFile referenceReader = getReferenceReader(referenceArguments);
@@ -215,7 +271,12 @@ public final class HaplotypeCaller extends AssemblyRegionWalker {
 
     @Override
     public void apply(final AssemblyRegion region, final ReferenceContext referenceContext, final FeatureContext featureContext ) {
-        hcEngine.callRegion(region, featureContext).forEach(vcfWriter::add);
+        if ( vcfWriter instanceof ReferenceConfidenceSink ) {
+            // in GVCF mode, hand the reference confidence of hom-ref sites straight to the writer that merges them into blocks
+            hcEngine.callRegion(region, featureContext, (ReferenceConfidenceSink) vcfWriter);
+        } else {
+            hcEngine.callRegion(region, featureContext).forEach(vcfWriter::add);
+        }
     }
 
     @Override
@@ -43,6 +43,19 @@ public class HaplotypeCallerArgumentCollection extends AssemblyBasedCallerArgume
     // general advanced arguments to control haplotype caller behavior
     // -----------------------------------------------------------------------------------------------
 
+    public static final String ASSEMBLY_RESULT_CACHE_LONG_NAME = "assembly-result-cache";
+
+    /**
+     * Directory in which to keep the results of local assembly from one run to the next. Regions whose reads,
+     * reference, assembly arguments and GATK version are unchanged since a previous run that used the same directory
+     * skip assembly and go straight to the likelihood calculation and genotyping. This is useful when rerunning on the
+     * same data with different genotyping or annotation arguments. The directory is created if it does not exist.
+     * Cached results are not used when assembly graphs are written out, since the graphs themselves are not cached.
+     */
+    @Advanced
+    @Argument(fullName = ASSEMBLY_RESULT_CACHE_LONG_NAME, doc = "Directory in which to cache local assembly results for reuse by later runs", optional = true)
+    public String assemblyResultCacheDirectory = null;
+
     /**
      * When HC is run in reference confidence mode with banding compression enabled (-ERC GVCF), homozygous-reference
      * sites are compressed into bands of similar genotype quality (GQ) that are emitted as a single VCF record. See
@@ -44,10 +44,11 @@ import org.broadinstitute.hellbender.utils.variant.GATKVCFHeaderLines;
 import org.broadinstitute.hellbender.utils.variant.GATKVariantContextUtils;
 import org.broadinstitute.hellbender.utils.variant.HomoSapiensConstants;
 import org.broadinstitute.hellbender.utils.variant.writers.GVCFWriter;
+import org.broadinstitute.hellbender.utils.variant.writers.ReferenceConfidenceSink;
+import org.broadinstitute.hellbender.utils.variant.writers.ReferenceConfidenceSite;
 
 import java.io.File;
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * The core engine for the HaplotypeCaller that does all of the actual work of the tool.
@@ -77,6 +78,9 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
 
     private ReadThreadingAssembler assemblyEngine = null;
 
+    // persistent cache of assembly results, if requested
+    private AssemblyResultCache assemblyResultCache = null;
+
     private ReadLikelihoodCalculationEngine likelihoodCalculationEngine = null;
 
     private HaplotypeCallerGenotypingEngine genotypingEngine = null;
@@ -132,7 +136,6 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
      */
     private static final int READ_QUALITY_FILTER_THRESHOLD = 20;
 
-    private static final List<VariantContext> NO_CALLS = Collections.emptyList();
 
     private static final Allele FAKE_REF_ALLELE = Allele.create("N", true); // used in isActive function to call into UG Engine. Should never appear anywhere in a VCF file
     private static final Allele FAKE_ALT_ALLELE = Allele.create("<FAKE_ALT>", false); // used in isActive function to call into UG Engine. Should never appear anywhere in a VCF file
@@ -188,6 +191,9 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
 
         haplotypeBAMWriter = AssemblyBasedCallerUtils.createBamWriter(hcArgs, createBamOutIndex, createBamOutMD5, readsHeader);
         assemblyEngine = AssemblyBasedCallerUtils.createReadThreadingAssembler(hcArgs);
+        if ( hcArgs.assemblyResultCacheDirectory != null ) {
+            assemblyResultCache = new AssemblyResultCache(hcArgs.assemblyResultCacheDirectory, hcArgs);
+        }
         likelihoodCalculationEngine = AssemblyBasedCallerUtils.createLikelihoodCalculationEngine(hcArgs.likelihoodArgs);
 
         trimmer.initialize(hcArgs.assemblyRegionTrimmerArgs, readsHeader.getSequenceDictionary(), hcArgs.debug,
@@ -474,9 +480,37 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
      * @return List of variants discovered in the region (may be empty)
      */
     public List<VariantContext> callRegion(final AssemblyRegion region, final FeatureContext features) {
+        final List<VariantContext> result = new ArrayList<>();
+        callRegion(region, features, new ReferenceConfidenceSink() {
+            @Override
+            public void add(final VariantContext vc) {
+                result.add(vc);
+            }
+
+            @Override
+            public void addReferenceConfidenceSite(final ReferenceConfidenceSite site) {
+                result.add(site.toVariantContext());
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Generate variant calls for an assembly region, and hand them to {@code output} in order by genomic position.
+     *
+     * In reference confidence mode, the reference confidence of hom-ref sites is handed to {@code output} as
+     * {@link ReferenceConfidenceSite}s, so that a {@link GVCFWriter} can merge them into blocks without a VariantContext
+     * being built for each site. The results are otherwise the same as those of {@link #callRegion(AssemblyRegion, FeatureContext)}.
+     *
+     * @param region region to assemble and perform variant calling on
+     * @param features Features overlapping the assembly region
+     * @param output destination of the variants discovered in the region
+     */
+    public void callRegion(final AssemblyRegion region, final FeatureContext features, final ReferenceConfidenceSink output) {
+        Utils.nonNull(output);
         if ( hcArgs.justDetermineActiveRegions ) {
             // we're benchmarking ART and/or the active region determination code in the HC, just leave without doing any work
-            return NO_CALLS;
+            return;
         }
 
         if ( hcArgs.sampleNameToUse != null ) {
@@ -485,7 +519,8 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
 
         if( ! region.isActive() ) {
             // Not active so nothing to do!
-            return referenceModelForNoVariation(region, true);
+            referenceModelForNoVariation(region, true, output);
+            return;
         }
 
         final List<VariantContext> givenAlleles = new ArrayList<>();
@@ -494,15 +529,17 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
 
             // No alleles found in this region so nothing to do!
             if ( givenAlleles.isEmpty() ) {
-                return referenceModelForNoVariation(region, true);
+                referenceModelForNoVariation(region, true, output);
+                return;
             }
         } else if( region.size() == 0 ) {
             // No reads here so nothing to do!
-            return referenceModelForNoVariation(region, true);
+            referenceModelForNoVariation(region, true, output);
+            return;
         }
 
         // run the local assembler, getting back a collection of information on how we should proceed
-        final AssemblyResultSet untrimmedAssemblyResult =  AssemblyBasedCallerUtils.assembleReads(region, givenAlleles, hcArgs, readsHeader, samplesList, logger, referenceReader, assemblyEngine, aligner);
+        final AssemblyResultSet untrimmedAssemblyResult =  AssemblyBasedCallerUtils.assembleReads(region, givenAlleles, hcArgs, readsHeader, samplesList, logger, referenceReader, assemblyEngine, aligner, assemblyResultCache);
 
         final SortedSet<VariantContext> allVariationEvents = untrimmedAssemblyResult.getVariationEvents();
         // TODO - line bellow might be unnecessary : it might be that assemblyResult will always have those alleles anyway
@@ -512,7 +549,8 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
         final AssemblyRegionTrimmer.Result trimmingResult = trimmer.trim(region, allVariationEvents);
 
         if ( ! trimmingResult.isVariationPresent() && ! hcArgs.disableOptimizations ) {
-            return referenceModelForNoVariation(region, false);
+            referenceModelForNoVariation(region, false, output);
+            return;
         }
 
         final AssemblyResultSet assemblyResult =
@@ -531,18 +569,20 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
         // abort early if something is out of the acceptable range
         // TODO is this ever true at this point??? perhaps GGA. Need to check.
         if( ! assemblyResult.isVariationPresent() && ! hcArgs.disableOptimizations ) {
-            return referenceModelForNoVariation(region, false);
+            referenceModelForNoVariation(region, false, output);
+            return;
         }
 
         // For sure this is not true if gVCF is on.
         if ( hcArgs.dontGenotype ) {
-            return NO_CALLS; // user requested we not proceed
+            return; // user requested we not proceed
         }
 
         // TODO is this ever true at this point??? perhaps GGA. Need to check.
         if ( regionForGenotyping.size() == 0 && ! hcArgs.disableOptimizations ) {
             // no reads remain after filtering so nothing else to do!
-            return referenceModelForNoVariation(region, false);
+            referenceModelForNoVariation(region, false, output);
+            return;
         }
 
         // evaluate each sample's reads against all haplotypes
@@ -591,31 +631,29 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
         if ( emitReferenceConfidence() ) {
             if ( !containsCalls(calledHaplotypes) ) {
                 // no called all of the potential haplotypes
-                return referenceModelForNoVariation(region, false);
+                referenceModelForNoVariation(region, false, output);
             }
             else {
-                final List<VariantContext> result = new LinkedList<>();
                 // output left-flanking non-variant section:
                 if (trimmingResult.hasLeftFlankingRegion()) {
-                    result.addAll(referenceModelForNoVariation(trimmingResult.nonVariantLeftFlankRegion(), false));
+                    referenceModelForNoVariation(trimmingResult.nonVariantLeftFlankRegion(), false, output);
                 }
                 // output variant containing region.
-                result.addAll(referenceConfidenceModel.calculateRefConfidence(assemblyResult.getReferenceHaplotype(),
+                referenceConfidenceModel.calculateRefConfidence(assemblyResult.getReferenceHaplotype(),
                         calledHaplotypes.getCalledHaplotypes(), assemblyResult.getPaddedReferenceLoc(), regionForGenotyping,
-                        readLikelihoods, genotypingEngine.getPloidyModel(), calledHaplotypes.getCalls()));
+                        readLikelihoods, genotypingEngine.getPloidyModel(), calledHaplotypes.getCalls(), output);
                 // output right-flanking non-variant section:
                 if (trimmingResult.hasRightFlankingRegion()) {
-                    result.addAll(referenceModelForNoVariation(trimmingResult.nonVariantRightFlankRegion(), false));
+                    referenceModelForNoVariation(trimmingResult.nonVariantRightFlankRegion(), false, output);
                 }
-                return result;
             }
         }
         else {
             //TODO this should be updated once reducible annotations are handled properly.
-            return calledHaplotypes.getCalls()
+            calledHaplotypes.getCalls()
                     .stream()
                     .map(RMSMappingQuality.getInstance()::finalizeRawMQ)
-                    .collect(Collectors.toList());
+                    .forEach(output::add);
         }
     }
 
@@ -631,9 +669,9 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
      *
      * @param region the region to return a no-variation result
      * @param needsToBeFinalized should the region be finalized before computing the ref model (should be false if already done)
-     * @return a list of variant contexts (can be empty) to emit for this ref region
+     * @param output destination of the results (if any) to emit for this ref region
      */
-    private List<VariantContext> referenceModelForNoVariation(final AssemblyRegion region, final boolean needsToBeFinalized) {
+    private void referenceModelForNoVariation(final AssemblyRegion region, final boolean needsToBeFinalized, final ReferenceConfidenceSink output) {
         if ( emitReferenceConfidence() ) {
             //TODO - why the activeRegion cannot manage its own one-time finalization and filtering?
             //TODO - perhaps we can remove the last parameter of this method and the three lines bellow?
@@ -645,12 +683,9 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
             final SimpleInterval paddedLoc = region.getExtendedSpan();
             final Haplotype refHaplotype = AssemblyBasedCallerUtils.createReferenceHaplotype(region, paddedLoc, referenceReader);
             final List<Haplotype> haplotypes = Collections.singletonList(refHaplotype);
-            return referenceConfidenceModel.calculateRefConfidence(refHaplotype, haplotypes,
+            referenceConfidenceModel.calculateRefConfidence(refHaplotype, haplotypes,
                     paddedLoc, region, createDummyStratifiedReadMap(refHaplotype, samplesList, region),
-                    genotypingEngine.getPloidyModel(), Collections.emptyList());
-        }
-        else {
-            return NO_CALLS;
+                    genotypingEngine.getPloidyModel(), Collections.emptyList(), output);
         }
     }
 
@@ -674,9 +709,13 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
     public void shutdown() {
         likelihoodCalculationEngine.close();
         aligner.close();
+        assemblyEngine.close();
         if ( haplotypeBAMWriter.isPresent() ) {
             haplotypeBAMWriter.get().close();
         }
+        if ( assemblyResultCache != null ) {
+            assemblyResultCache.logStatistics();
+        }
 
 
     }
@@ -15,6 +15,7 @@ import org.broadinstitute.hellbender.utils.haplotype.Haplotype;
 import org.broadinstitute.hellbender.utils.pairhmm.PairHMM;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
 import org.broadinstitute.hellbender.utils.read.ReadUtils;
+import org.broadinstitute.hellbender.utils.runtime.MetricsRegistry;
 import org.broadinstitute.hellbender.utils.variant.GATKVariantContextUtils;
 
 import java.io.File;
@@ -31,6 +32,11 @@ public final class PairHMMLikelihoodCalculationEngine implements ReadLikelihoodC
 
     private static final Logger logger = LogManager.getLogger(PairHMMLikelihoodCalculationEngine.class);
 
+    private static final MetricsRegistry.Timer PAIRHMM_METRIC = MetricsRegistry.getDefault().timer(
+            "gatk_pairhmm_seconds", "PairHMM computations, one per sample per assembly region");
+    private static final MetricsRegistry.Counter PAIRHMM_PAIRS_METRIC = MetricsRegistry.getDefault().counter(
+            "gatk_pairhmm_read_haplotype_pairs_total", "Read/haplotype pairs evaluated by the PairHMM");
+
     private static final int MAX_STR_UNIT_LENGTH = 8;
     private static final int MAX_REPEAT_LENGTH   = 20;
     private static final int MIN_ADJUSTED_QSCORE = 10;
@@ -247,10 +253,22 @@ public final class PairHMMLikelihoodCalculationEngine implements ReadLikelihoodC
         // Modify the read qualities by applying the PCR error model and capping the minimum base,insertion,deletion qualities
         final List<GATKRead> processedReads = modifyReadQualities(likelihoods.reads());
 
-        final Map<GATKRead, byte[]> gapContinuationPenalties = buildGapContinuationPenalties(processedReads, constantGCP);
+        // Reads with the same bases and (processed) qualities have the same likelihoods, so run the PairHMM on only one
+        // read of each group of duplicates, and copy its likelihoods to the others
+        final DuplicateReadsLikelihoodMatrix uniqueReadLikelihoods = new DuplicateReadsLikelihoodMatrix(likelihoods, processedReads);
+        final List<GATKRead> uniqueReads = uniqueReadLikelihoods.reads();
+
+        final Map<GATKRead, byte[]> gapContinuationPenalties = buildGapContinuationPenalties(uniqueReads, constantGCP);
 
         // Run the PairHMM to calculate the log10 likelihood of each (processed) reads' arising from each haplotype
-        pairHMM.computeLog10Likelihoods(likelihoods, processedReads, gapContinuationPenalties);
+        final long startNanos = System.nanoTime();
+        if ( uniqueReads.size() == processedReads.size() ) {
+            pairHMM.computeLog10Likelihoods(likelihoods, processedReads, gapContinuationPenalties);
+        } else {
+            pairHMM.computeLog10Likelihoods(uniqueReadLikelihoods, uniqueReads, gapContinuationPenalties);
+        }
+        PAIRHMM_METRIC.recordSince(startNanos);
+        PAIRHMM_PAIRS_METRIC.add((long) uniqueReads.size() * likelihoods.numberOfAlleles());
 
         writeDebugLikelihoods(likelihoods);
     }
@@ -297,6 +315,119 @@ public final class PairHMMLikelihoodCalculationEngine implements ReadLikelihoodC
         return currentVal < minQual ? fixedQual : currentVal;
     }
 
+    /**
+     * The inputs of the PairHMM for a read, other than the gap continuation penalties, which are the same for all reads of
+     * the same length. Reads with equal keys have equal likelihoods.
+     */
+    private static final class PairHMMReadKey {
+        private final byte[] bases;
+        private final byte[] quals;
+        private final byte[] insQuals;
+        private final byte[] delQuals;
+        private final int hashCode;
+
+        PairHMMReadKey(final GATKRead read) {
+            bases = read.getBases();
+            quals = read.getBaseQualities();
+            insQuals = ReadUtils.getBaseInsertionQualities(read);
+            delQuals = ReadUtils.getBaseDeletionQualities(read);
+            hashCode = ((Arrays.hashCode(bases) * 31 + Arrays.hashCode(quals)) * 31 + Arrays.hashCode(insQuals)) * 31 + Arrays.hashCode(delQuals);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if ( this == o ) {
+                return true;
+            }
+            if ( !(o instanceof PairHMMReadKey) ) {
+                return false;
+            }
+            final PairHMMReadKey other = (PairHMMReadKey) o;
+            return hashCode == other.hashCode && Arrays.equals(bases, other.bases) && Arrays.equals(quals, other.quals)
+                    && Arrays.equals(insQuals, other.insQuals) && Arrays.equals(delQuals, other.delQuals);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    /**
+     * View of a likelihood matrix with only the first of each group of duplicate processed reads, that is, reads with
+     * equal {@link PairHMMReadKey}s. Setting the likelihood of a read sets it for all its duplicates in the underlying matrix.
+     */
+    private static final class DuplicateReadsLikelihoodMatrix implements LikelihoodMatrix<Haplotype> {
+        private final LikelihoodMatrix<Haplotype> matrix;
+        private final List<GATKRead> uniqueReads;
+        // duplicateIndices[i] holds the indices in matrix of the reads identical to uniqueReads.get(i)
+        private final int[][] duplicateIndices;
+
+        /**
+         * @param matrix the matrix to write likelihoods to
+         * @param processedReads the processed versions of the reads in matrix, in the same order
+         */
+        DuplicateReadsLikelihoodMatrix(final LikelihoodMatrix<Haplotype> matrix, final List<GATKRead> processedReads) {
+            this.matrix = Utils.nonNull(matrix);
+            Utils.validateArg(processedReads.size() == matrix.numberOfReads(), "there must be one processed read per read");
+            final Map<PairHMMReadKey, List<Integer>> readIndicesByKey = new LinkedHashMap<>(processedReads.size());
+            uniqueReads = new ArrayList<>();
+            for ( int r = 0; r < processedReads.size(); r++ ) {
+                final GATKRead read = processedReads.get(r);
+                final List<Integer> indices = readIndicesByKey.computeIfAbsent(new PairHMMReadKey(read), key -> {
+                    uniqueReads.add(read);
+                    return new ArrayList<>(1);
+                });
+                indices.add(r);
+            }
+            duplicateIndices = readIndicesByKey.values().stream()
+                    .map(indices -> indices.stream().mapToInt(Integer::intValue).toArray())
+                    .toArray(int[][]::new);
+        }
+
+        @Override
+        public List<GATKRead> reads() { return Collections.unmodifiableList(uniqueReads); }
+
+        @Override
+        public List<Haplotype> alleles() { return matrix.alleles(); }
+
+        @Override
+        public void set(final int alleleIndex, final int readIndex, final double value) {
+            for ( final int r : duplicateIndices[readIndex] ) {
+                matrix.set(alleleIndex, r, value);
+            }
+        }
+
+        @Override
+        public double get(final int alleleIndex, final int readIndex) { return matrix.get(alleleIndex, duplicateIndices[readIndex][0]); }
+
+        @Override
+        public int indexOfAllele(final Haplotype allele) { return matrix.indexOfAllele(allele); }
+
+        @Override
+        public int indexOfRead(final GATKRead read) { return uniqueReads.indexOf(read); }
+
+        @Override
+        public int numberOfAlleles() { return matrix.numberOfAlleles(); }
+
+        @Override
+        public int numberOfReads() { return uniqueReads.size(); }
+
+        @Override
+        public Haplotype getAllele(final int alleleIndex) { return matrix.getAllele(alleleIndex); }
+
+        @Override
+        public GATKRead getRead(final int readIndex) { return uniqueReads.get(readIndex); }
+
+        @Override
+        public void copyAlleleLikelihoods(final int alleleIndex, final double[] dest, final int offset) {
+            Utils.nonNull(dest);
+            for ( int r = 0; r < uniqueReads.size(); r++ ) {
+                dest[offset + r] = get(alleleIndex, r);
+            }
+        }
+    }
+
     private static Map<GATKRead, byte[]> buildGapContinuationPenalties(final List<GATKRead> reads, final byte gapPenalty) {
         final Map<GATKRead, byte[]> result = new HashMap<>(reads.size());
         reads.stream().forEach(read -> result.put(read, Utils.dupBytes(gapPenalty, read.getLength())));
@@ -111,6 +111,15 @@ public final class ReadThreadingAssemblerArgumentCollection implements Serializa
     @Argument(fullName="min-pruning", doc = "Minimum support to not prune paths in the graph", optional = true)
     public int minPruneFactor = 2;
 
+    /**
+     * The assembly graphs for the different kmer sizes (and for the larger kmer sizes tried when those graphs have
+     * cycles or are low complexity) are independent of each other, so they can be built and pruned concurrently.
+     * This mostly speeds up the assembly of complex regions. The results are the same regardless of the number of threads.
+     */
+    @Advanced
+    @Argument(fullName="kmer-size-threads", doc="Number of threads with which to assemble the graphs for different kmer sizes concurrently", optional = true, minValue = 1)
+    public int kmerSizeThreads = 1;
+
     @Hidden
     @Argument(fullName="debug-graph-transformations", doc="Write DOT formatted graph files out of the assembler for only this graph size", optional = true)
     public boolean debugGraphTransformations = false;
@@ -26,7 +26,8 @@ import org.broadinstitute.hellbender.utils.pileup.ReadPileup;
 import org.broadinstitute.hellbender.utils.read.AlignmentUtils;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
 import org.broadinstitute.hellbender.utils.variant.GATKVCFConstants;
-import org.broadinstitute.hellbender.utils.variant.GATKVariantContextUtils;
+import org.broadinstitute.hellbender.utils.variant.writers.ReferenceConfidenceSink;
+import org.broadinstitute.hellbender.utils.variant.writers.ReferenceConfidenceSite;
 
 import java.util.*;
 import java.util.stream.DoubleStream;
@@ -205,6 +206,40 @@ public final class ReferenceConfidenceModel {
                                                        final ReadLikelihoods<Haplotype> readLikelihoods,
                                                        final PloidyModel ploidyModel,
                                                        final List<VariantContext> variantCalls) {
+        Utils.nonNull(activeRegion, "activeRegion cannot be null");
+        final List<VariantContext> results = new ArrayList<>(activeRegion.getSpan().size());
+        calculateRefConfidence(refHaplotype, calledHaplotypes, paddedReferenceLoc, activeRegion, readLikelihoods, ploidyModel, variantCalls,
+                new ReferenceConfidenceSink() {
+                    @Override
+                    public void add(final VariantContext vc) {
+                        results.add(vc);
+                    }
+
+                    @Override
+                    public void addReferenceConfidenceSite(final ReferenceConfidenceSite site) {
+                        results.add(site.toVariantContext());
+                    }
+                });
+        return results;
+    }
+
+    /**
+     * Calculate the reference confidence for a single sample given the its read data, as {@link #calculateRefConfidence}
+     * does, but hand the results to {@code output} rather than returning them, with the reference confidence of each
+     * site given as a {@link ReferenceConfidenceSite} rather than as a VariantContext, which {@code output} may not
+     * need to build (see {@link org.broadinstitute.hellbender.utils.variant.writers.GVCFWriter}).
+     *
+     * @param output destination of the calls from {@code variantCalls} and of the reference confidence sites, in order
+     *               by genomic position
+     */
+    public void calculateRefConfidence(final Haplotype refHaplotype,
+                                       final Collection<Haplotype> calledHaplotypes,
+                                       final SimpleInterval paddedReferenceLoc,
+                                       final AssemblyRegion activeRegion,
+                                       final ReadLikelihoods<Haplotype> readLikelihoods,
+                                       final PloidyModel ploidyModel,
+                                       final List<VariantContext> variantCalls,
+                                       final ReferenceConfidenceSink output) {
         Utils.nonNull(refHaplotype, "refHaplotype cannot be null");
         Utils.nonNull(calledHaplotypes, "calledHaplotypes cannot be null");
         Utils.validateArg(calledHaplotypes.contains(refHaplotype), "calledHaplotypes must contain the refHaplotype");
@@ -214,13 +249,15 @@ public final class ReferenceConfidenceModel {
         Utils.validateArg(readLikelihoods.numberOfSamples() == 1, () -> "readLikelihoods must contain exactly one sample but it contained " + readLikelihoods.numberOfSamples());
         Utils.validateArg( refHaplotype.length() == activeRegion.getExtendedSpan().size(), () -> "refHaplotype " + refHaplotype.length() + " and activeRegion location size " + activeRegion.getSpan().size() + " are different");
         Utils.nonNull(ploidyModel, "the ploidy model cannot be null");
+        Utils.nonNull(output, "output cannot be null");
         final int ploidy = ploidyModel.samplePloidy(0); // the first sample = the only sample in reference-confidence mode.
 
         final SimpleInterval refSpan = activeRegion.getSpan();
         final List<ReadPileup> refPileups = getPileupsOverReference(refHaplotype, calledHaplotypes, paddedReferenceLoc, activeRegion, refSpan, readLikelihoods);
         final byte[] ref = refHaplotype.getBases();
-        final List<VariantContext> results = new ArrayList<>(refSpan.size());
         final String sampleName = readLikelihoods.getSample(0);
+        // reused for every site, as the output copies what it keeps
+        final ReferenceConfidenceSite site = new ReferenceConfidenceSite("HC", sampleName, ploidy);
 
         final int globalRefOffset = refSpan.getStart() - activeRegion.getExtendedSpan().getStart();
         for ( final ReadPileup pileup : refPileups ) {
@@ -229,35 +266,27 @@ public final class ReferenceConfidenceModel {
 
             final VariantContext overlappingSite = getOverlappingVariantContext(curPos, variantCalls);
             if ( overlappingSite != null && overlappingSite.getStart() == curPos.getStart() ) {
-                results.add(overlappingSite);
+                output.add(overlappingSite);
             } else {
-                // otherwise emit a reference confidence variant context
-                results.add(makeReferenceConfidenceVariantContext(ploidy, ref, sampleName, globalRefOffset, pileup, curPos, offset));
+                // otherwise emit a reference confidence site
+                setReferenceConfidenceSite(site, ploidy, ref, globalRefOffset, pileup, curPos, offset);
+                output.addReferenceConfidenceSite(site);
             }
         }
-
-        return results;
     }
 
-    private VariantContext makeReferenceConfidenceVariantContext(final int ploidy,
-                                                                 final byte[] ref,
-                                                                 final String sampleName,
-                                                                 final int globalRefOffset,
-                                                                 final ReadPileup pileup,
-                                                                 final Locatable curPos,
-                                                                 final int offset) {
+    private void setReferenceConfidenceSite(final ReferenceConfidenceSite site,
+                                            final int ploidy,
+                                            final byte[] ref,
+                                            final int globalRefOffset,
+                                            final ReadPileup pileup,
+                                            final Locatable curPos,
+                                            final int offset) {
         // Assume infinite population on a single sample.
         final int refOffset = offset + globalRefOffset;
         final byte refBase = ref[refOffset];
         final RefVsAnyResult homRefCalc = calcGenotypeLikelihoodsOfRefVsAny(ploidy, pileup, refBase, BASE_QUAL_THRESHOLD, null);
 
-        final Allele refAllele = Allele.create(refBase, true);
-        final List<Allele> refSiteAlleles = Arrays.asList(refAllele, Allele.NON_REF_ALLELE);
-        final VariantContextBuilder vcb = new VariantContextBuilder("HC", curPos.getContig(), curPos.getStart(), curPos.getStart(), refSiteAlleles);
-        final GenotypeBuilder gb = new GenotypeBuilder(sampleName, GATKVariantContextUtils.homozygousAlleleList(refAllele, ploidy));
-        gb.AD(homRefCalc.getAD());
-        gb.DP(homRefCalc.getDP());
-
         // genotype likelihood calculation
         final GenotypeLikelihoods snpGLs = GenotypeLikelihoods.fromLog10Likelihoods(homRefCalc.getGenotypeLikelihoodsCappedByHomRefLikelihood());
         final int nIndelInformativeReads = calcNIndelInformativeReads(pileup, refOffset, ref, indelInformativeDepthIndelSize);
@@ -271,12 +300,7 @@ public final class ReferenceConfidenceModel {
         // as our GLs for the site.
         final GenotypeLikelihoods leastConfidenceGLs = getGLwithWorstGQ(indelGLs, snpGLs);
 
-        final int[] leastConfidenceGLsAsPLs = leastConfidenceGLs.getAsPLs();
-        gb.GQ(GATKVariantContextUtils.calculateGQFromPLs(leastConfidenceGLsAsPLs));
-        gb.PL(leastConfidenceGLsAsPLs);
-
-        vcb.genotypes(gb.make());
-        return vcb.make();
+        site.set(curPos.getContig(), curPos.getStart(), refBase, homRefCalc.refDepth, homRefCalc.nonRefDepth, leastConfidenceGLs.getAsPLs());
     }
 
     /**
@@ -0,0 +1,325 @@
+package org.broadinstitute.hellbender.tools.walkers.haplotypecaller.readthreading;
+
+import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.Kmer;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Map from kmers of a fixed size to (non-null) values, for use by the read threading graph.
+ *
+ * Kmers are looked up directly in the sequences they come from, without creating a {@link Kmer} object per lookup.
+ * Kmers made up only of the bases A, C, G and T are packed 2 bits per base into one or more longs, and kept in an
+ * open-addressing hash table with linear probing, so that each entry costs no objects other than its value.
+ * Kmers containing any other base (which are rare: Ns are excluded from assembly) are kept in an ordinary
+ * {@link HashMap} keyed by {@link Kmer}.
+ *
+ * Not thread-safe.
+ *
+ * @param <V> type of the values
+ */
+final class PackedKmerMap<V> {
+    private static final int BASES_PER_WORD = Long.SIZE / 2;
+    private static final int MIN_CAPACITY = 16;
+    // resize the table when it becomes more than half full
+    private static final int MAX_LOAD_NUMERATOR = 1;
+    private static final int MAX_LOAD_DENOMINATOR = 2;
+    private static final byte[] CODE_TO_BASE = {'A', 'C', 'G', 'T'};
+
+    private final int kmerSize;
+    private final int wordsPerKmer;
+
+    // packed kmer in slot i occupies keys[i * wordsPerKmer] to keys[(i + 1) * wordsPerKmer - 1]
+    private long[] keys;
+    // values[i] == null means slot i is empty
+    private Object[] values;
+    private int mask;
+    private int numPacked = 0;
+
+    // kmers that can't be packed, created on demand
+    private Map<Kmer, V> unpackable = null;
+
+    // the packed form of the kmer being looked up
+    private final long[] packedKmer;
+
+    /**
+     * Create an empty map
+     *
+     * @param kmerSize size of all kmers in this map, must be >= 1
+     */
+    PackedKmerMap(final int kmerSize) {
+        this(kmerSize, MIN_CAPACITY);
+    }
+
+    /**
+     * Create an empty map
+     *
+     * @param kmerSize size of all kmers in this map, must be >= 1
+     * @param expectedSize number of kmers the map should hold without resizing
+     */
+    PackedKmerMap(final int kmerSize, final int expectedSize) {
+        Utils.validateArg(kmerSize > 0, () -> "bad kmerSize " + kmerSize);
+        this.kmerSize = kmerSize;
+        this.wordsPerKmer = (kmerSize + BASES_PER_WORD - 1) / BASES_PER_WORD;
+        this.packedKmer = new long[wordsPerKmer];
+        allocateTable(capacityFor(expectedSize));
+    }
+
+    /**
+     * @return the size of the kmers in this map
+     */
+    int getKmerSize() {
+        return kmerSize;
+    }
+
+    /**
+     * @return the number of kmers in this map
+     */
+    int size() {
+        return numPacked + (unpackable == null ? 0 : unpackable.size());
+    }
+
+    /**
+     * Get the value for the kmer starting at offset start of sequence
+     *
+     * @return the value for the kmer, or null if the kmer is not in the map
+     */
+    @SuppressWarnings("unchecked")
+    V get(final byte[] sequence, final int start) {
+        if ( ! pack(sequence, start) ) {
+            return unpackable == null ? null : unpackable.get(new Kmer(sequence, start, kmerSize));
+        }
+        final int slot = findSlot(packedKmer, 0);
+        return (V) values[slot];
+    }
+
+    /**
+     * @return true if the kmer starting at offset start of sequence is in the map
+     */
+    boolean containsKey(final byte[] sequence, final int start) {
+        return get(sequence, start) != null;
+    }
+
+    /**
+     * Associate the kmer starting at offset start of sequence with value, unless the kmer is already in the map
+     *
+     * The sequence must not be modified afterwards, since kmers that can't be packed refer to it.
+     *
+     * @param value non-null value
+     * @return the value previously associated with the kmer (in which case the map is unchanged), or null
+     */
+    @SuppressWarnings("unchecked")
+    V putIfAbsent(final byte[] sequence, final int start, final V value) {
+        Utils.nonNull(value);
+        if ( ! pack(sequence, start) ) {
+            if ( unpackable == null ) {
+                unpackable = new HashMap<>();
+            }
+            return unpackable.putIfAbsent(new Kmer(sequence, start, kmerSize), value);
+        }
+
+        int slot = findSlot(packedKmer, 0);
+        if ( values[slot] != null ) {
+            return (V) values[slot];
+        }
+        if ( (numPacked + 1) * MAX_LOAD_DENOMINATOR > values.length * MAX_LOAD_NUMERATOR ) {
+            rehash(values.length * 2);
+            slot = findSlot(packedKmer, 0);
+        }
+        System.arraycopy(packedKmer, 0, keys, slot * wordsPerKmer, wordsPerKmer);
+        values[slot] = value;
+        numPacked++;
+        return null;
+    }
+
+    /**
+     * Remove the kmer starting at offset start of sequence from the map
+     *
+     * @return the value that was associated with the kmer, or null if the kmer was not in the map
+     */
+    @SuppressWarnings("unchecked")
+    V remove(final byte[] sequence, final int start) {
+        if ( ! pack(sequence, start) ) {
+            return unpackable == null ? null : unpackable.remove(new Kmer(sequence, start, kmerSize));
+        }
+        int slot = findSlot(packedKmer, 0);
+        final V removed = (V) values[slot];
+        if ( removed == null ) {
+            return null;
+        }
+        values[slot] = null;
+        numPacked--;
+
+        // shift back any entries that probed past the slot we just emptied, so lookups don't stop there
+        int next = slot;
+        while ( true ) {
+            next = (next + 1) & mask;
+            if ( values[next] == null ) {
+                break;
+            }
+            final int home = hash(keys, next * wordsPerKmer) & mask;
+            final boolean homeIsBetween = slot <= next ? (slot < home && home <= next) : (slot < home || home <= next);
+            if ( ! homeIsBetween ) {
+                System.arraycopy(keys, next * wordsPerKmer, keys, slot * wordsPerKmer, wordsPerKmer);
+                values[slot] = values[next];
+                values[next] = null;
+                slot = next;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Remove all kmers from the map, keeping its current capacity
+     */
+    void clear() {
+        if ( numPacked > 0 ) {
+            Arrays.fill(values, null);
+            numPacked = 0;
+        }
+        unpackable = null;
+    }
+
+    /**
+     * @return the values in this map, in no particular order
+     */
+    @SuppressWarnings("unchecked")
+    List<V> values() {
+        final List<V> result = new ArrayList<>(size());
+        for ( final Object value : values ) {
+            if ( value != null ) {
+                result.add((V) value);
+            }
+        }
+        if ( unpackable != null ) {
+            result.addAll(unpackable.values());
+        }
+        return result;
+    }
+
+    /**
+     * Materialize the kmers in this map. Meant for testing and debugging, not for performance.
+     *
+     * @return the kmers in this map, in no particular order
+     */
+    List<Kmer> keys() {
+        final List<Kmer> result = new ArrayList<>(size());
+        for ( int slot = 0; slot < values.length; slot++ ) {
+            if ( values[slot] != null ) {
+                result.add(new Kmer(unpack(keys, slot * wordsPerKmer)));
+            }
+        }
+        if ( unpackable != null ) {
+            result.addAll(unpackable.keySet());
+        }
+        return result;
+    }
+
+    /**
+     * Pack the kmer starting at offset start of sequence into packedKmer
+     *
+     * @return false if the kmer contains a base other than A, C, G or T (in which case packedKmer is garbage)
+     */
+    private boolean pack(final byte[] sequence, final int start) {
+        Utils.validateArg(start >= 0 && start + kmerSize <= sequence.length, "kmer extends beyond the end of the sequence");
+        for ( int word = 0; word < wordsPerKmer; word++ ) {
+            final int from = start + word * BASES_PER_WORD;
+            final int to = Math.min(start + kmerSize, from + BASES_PER_WORD);
+            long packed = 0;
+            for ( int i = from; i < to; i++ ) {
+                final int code = baseCode(sequence[i]);
+                if ( code < 0 ) {
+                    return false;
+                }
+                packed = (packed << 2) | code;
+            }
+            packedKmer[word] = packed;
+        }
+        return true;
+    }
+
+    private byte[] unpack(final long[] packed, final int offset) {
+        final byte[] bases = new byte[kmerSize];
+        for ( int word = 0; word < wordsPerKmer; word++ ) {
+            final int from = word * BASES_PER_WORD;
+            final int to = Math.min(kmerSize, from + BASES_PER_WORD);
+            long value = packed[offset + word];
+            for ( int i = to - 1; i >= from; i-- ) {
+                bases[i] = CODE_TO_BASE[(int) (value & 3)];
+                value >>>= 2;
+            }
+        }
+        return bases;
+    }
+
+    private static int baseCode(final byte base) {
+        switch ( base ) {
+            case 'A': return 0;
+            case 'C': return 1;
+            case 'G': return 2;
+            case 'T': return 3;
+            default: return -1;
+        }
+    }
+
+    /**
+     * @return the slot holding the packed kmer at offset of kmer, or the empty slot where it would go
+     */
+    private int findSlot(final long[] kmer, final int offset) {
+        int slot = hash(kmer, offset) & mask;
+        while ( values[slot] != null && ! keyEquals(slot, kmer, offset) ) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private boolean keyEquals(final int slot, final long[] kmer, final int offset) {
+        final int keyOffset = slot * wordsPerKmer;
+        for ( int word = 0; word < wordsPerKmer; word++ ) {
+            if ( keys[keyOffset + word] != kmer[offset + word] ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int hash(final long[] kmer, final int offset) {
+        long h = 0;
+        for ( int word = 0; word < wordsPerKmer; word++ ) {
+            h = (h ^ kmer[offset + word]) * 0x9E3779B97F4A7C15L;
+            h ^= h >>> 32;
+        }
+        return (int) (h ^ (h >>> 16));
+    }
+
+    private static int capacityFor(final int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while ( (long) expectedSize * MAX_LOAD_DENOMINATOR > (long) capacity * MAX_LOAD_NUMERATOR ) {
+            capacity *= 2;
+        }
+        return capacity;
+    }
+
+    private void allocateTable(final int capacity) {
+        keys = new long[capacity * wordsPerKmer];
+        values = new Object[capacity];
+        mask = capacity - 1;
+    }
+
+    private void rehash(final int newCapacity) {
+        final long[] oldKeys = keys;
+        final Object[] oldValues = values;
+        allocateTable(newCapacity);
+        for ( int oldSlot = 0; oldSlot < oldValues.length; oldSlot++ ) {
+            if ( oldValues[oldSlot] != null ) {
+                final int slot = findSlot(oldKeys, oldSlot * wordsPerKmer);
+                System.arraycopy(oldKeys, oldSlot * wordsPerKmer, keys, slot * wordsPerKmer, wordsPerKmer);
+                values[slot] = oldValues[oldSlot];
+            }
+        }
+    }
+}
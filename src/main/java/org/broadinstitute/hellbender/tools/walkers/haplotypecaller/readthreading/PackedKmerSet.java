@@ -0,0 +1,86 @@
+package org.broadinstitute.hellbender.tools.walkers.haplotypecaller.readthreading;
+
+import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.Kmer;
+
+import java.util.List;
+
+/**
+ * Set of kmers of a fixed size, backed by a {@link PackedKmerMap}, so that adding or looking up a kmer in a sequence
+ * doesn't require creating a {@link Kmer} object.
+ *
+ * Not thread-safe.
+ */
+final class PackedKmerSet {
+    private static final Object PRESENT = new Object();
+
+    private final PackedKmerMap<Object> map;
+
+    /**
+     * Create an empty set
+     *
+     * @param kmerSize size of all kmers in this set, must be >= 1
+     */
+    PackedKmerSet(final int kmerSize) {
+        map = new PackedKmerMap<>(kmerSize);
+    }
+
+    /**
+     * Create an empty set
+     *
+     * @param kmerSize size of all kmers in this set, must be >= 1
+     * @param expectedSize number of kmers the set should hold without resizing
+     */
+    PackedKmerSet(final int kmerSize, final int expectedSize) {
+        map = new PackedKmerMap<>(kmerSize, expectedSize);
+    }
+
+    /**
+     * @return the size of the kmers in this set
+     */
+    int getKmerSize() {
+        return map.getKmerSize();
+    }
+
+    /**
+     * Add the kmer starting at offset start of sequence. The sequence must not be modified afterwards.
+     *
+     * @return true if the kmer was not already in the set
+     */
+    boolean add(final byte[] sequence, final int start) {
+        return map.putIfAbsent(sequence, start, PRESENT) == null;
+    }
+
+    /**
+     * @return true if the kmer starting at offset start of sequence is in the set
+     */
+    boolean contains(final byte[] sequence, final int start) {
+        return map.containsKey(sequence, start);
+    }
+
+    /**
+     * @return the number of kmers in the set
+     */
+    int size() {
+        return map.size();
+    }
+
+    boolean isEmpty() {
+        return map.size() == 0;
+    }
+
+    /**
+     * Remove all kmers from the set, keeping its current capacity
+     */
+    void clear() {
+        map.clear();
+    }
+
+    /**
+     * Materialize the kmers in this set. Meant for testing and debugging, not for performance.
+     *
+     * @return the kmers in this set, in no particular order
+     */
+    List<Kmer> toKmers() {
+        return map.keys();
+    }
+}
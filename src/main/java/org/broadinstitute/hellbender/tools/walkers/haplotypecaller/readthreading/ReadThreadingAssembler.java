@@ -27,8 +27,12 @@ import java.io.File;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
 
-public final class ReadThreadingAssembler {
+public final class ReadThreadingAssembler implements AutoCloseable {
     private static final Logger logger = LogManager.getLogger(ReadThreadingAssembler.class);
 
     private static final int DEFAULT_NUM_PATHS_PER_GRAPH = 128;
@@ -66,6 +70,12 @@ public final class ReadThreadingAssembler {
     private File debugGraphOutputPath = null;  //Where to write debug graphs, if unset it defaults to the current working dir
     private File graphOutputPath = null;
 
+    /**
+     * Pool on which the graphs for different kmer sizes are assembled concurrently, shared by all the regions
+     * we assemble.  If null, the graphs are assembled one after another on the calling thread.
+     */
+    private ForkJoinPool kmerSizeThreadPool = null;
+
     public ReadThreadingAssembler(final int maxAllowedPathsForReadThreadingAssembler, final List<Integer> kmerSizes, final boolean dontIncreaseKmerSizesForCycles, final boolean allowNonUniqueKmersInRef, final int numPruningSamples) {
         Utils.validateArg( maxAllowedPathsForReadThreadingAssembler >= 1, "numBestHaplotypesPerGraph should be >= 1 but got " + maxAllowedPathsForReadThreadingAssembler);
         this.kmerSizes = kmerSizes;
@@ -386,26 +396,71 @@ public final class ReadThreadingAssembler {
         final List<AssemblyResult> results = new LinkedList<>();
 
         // first, try using the requested kmer sizes
-        for ( final int kmerSize : kmerSizes ) {
-            addResult(results, createGraph(reads, refHaplotype, kmerSize, givenHaplotypes, dontIncreaseKmerSizesForCycles, allowNonUniqueKmersInRef, header, aligner));
+        for ( final AssemblyResult result : createGraphs(kmerSizes, kmerSize -> createGraph(reads, refHaplotype, kmerSize, givenHaplotypes, dontIncreaseKmerSizesForCycles, allowNonUniqueKmersInRef, header, aligner)) ) {
+            addResult(results, result);
         }
 
         // if none of those worked, iterate over larger sizes if allowed to do so
         if ( results.isEmpty() && !dontIncreaseKmerSizesForCycles ) {
+            final int lastKmerSize = arrayMaxInt(kmerSizes) + MAX_KMER_ITERATIONS_TO_ATTEMPT * KMER_SIZE_ITERATION_INCREASE;
             int kmerSize = arrayMaxInt(kmerSizes) + KMER_SIZE_ITERATION_INCREASE;
-            int numIterations = 1;
-            while ( results.isEmpty() && numIterations <= MAX_KMER_ITERATIONS_TO_ATTEMPT ) {
+            // when assembling concurrently, speculatively try as many of the larger sizes at once as we have threads,
+            // keeping only the result for the smallest size that works
+            final int numAttemptsAtOnce = assembleKmerSizesConcurrently() ? kmerSizeThreadPool.getParallelism() : 1;
+            while ( results.isEmpty() && kmerSize <= lastKmerSize ) {
+                final List<Integer> attemptKmerSizes = new ArrayList<>();
+                for ( int i = 0; i < numAttemptsAtOnce && kmerSize <= lastKmerSize; i++ ) {
+                    attemptKmerSizes.add(kmerSize);
+                    kmerSize += KMER_SIZE_ITERATION_INCREASE;
+                }
+
                 // on the last attempt we will allow low complexity graphs
-                final boolean lastAttempt = numIterations == MAX_KMER_ITERATIONS_TO_ATTEMPT;
-                addResult(results, createGraph(reads, refHaplotype, kmerSize, givenHaplotypes, lastAttempt, lastAttempt, header, aligner));
-                kmerSize += KMER_SIZE_ITERATION_INCREASE;
-                numIterations++;
+                final List<AssemblyResult> attemptResults = createGraphs(attemptKmerSizes, attemptKmerSize -> {
+                    final boolean lastAttempt = attemptKmerSize == lastKmerSize;
+                    return createGraph(reads, refHaplotype, attemptKmerSize, givenHaplotypes, lastAttempt, lastAttempt, header, aligner);
+                });
+                for ( final AssemblyResult result : attemptResults ) {
+                    if ( results.isEmpty() ) {
+                        addResult(results, result);
+                    }
+                }
             }
         }
 
         return results;
     }
 
+    /**
+     * Create the graphs for several kmer sizes, concurrently if we have a thread pool for doing so
+     *
+     * @param kmerSizes the kmer sizes for which to create graphs
+     * @param graphCreator creates the (possibly null) result for a kmer size.  Must be safe to call concurrently.
+     * @return the results of graphCreator, in the same order as kmerSizes
+     */
+    private List<AssemblyResult> createGraphs(final List<Integer> kmerSizes, final IntFunction<AssemblyResult> graphCreator) {
+        if ( ! assembleKmerSizesConcurrently() || kmerSizes.size() < 2 ) {
+            final List<AssemblyResult> results = new ArrayList<>(kmerSizes.size());
+            for ( final int kmerSize : kmerSizes ) {
+                results.add(graphCreator.apply(kmerSize));
+            }
+            return results;
+        }
+
+        // the graph creators share the caller's SmithWatermanAligner, which is safe to use from several threads
+        final List<ForkJoinTask<AssemblyResult>> tasks = kmerSizes.stream()
+                .map(kmerSize -> kmerSizeThreadPool.submit(() -> graphCreator.apply(kmerSize)))
+                .collect(Collectors.toList());
+        // join() rethrows any exception thrown while creating a graph
+        return tasks.stream().map(ForkJoinTask::join).collect(Collectors.toList());
+    }
+
+    /**
+     * Debug graph transformations are always done on the calling thread, since their output files would collide
+     */
+    private boolean assembleKmerSizesConcurrently() {
+        return kmerSizeThreadPool != null && ! debugGraphTransformations;
+    }
+
     private static int arrayMaxInt(final List<Integer> array) {
         return array.stream().mapToInt(Integer::intValue).max().orElseThrow(() -> new IllegalArgumentException("Array size cannot be 0!"));
     }
@@ -633,4 +688,32 @@ public final class ReadThreadingAssembler {
     public void setRemovePathsNotConnectedToRef(final boolean removePathsNotConnectedToRef) {
         this.removePathsNotConnectedToRef = removePathsNotConnectedToRef;
     }
+
+    public int getNumKmerSizeThreads() {
+        return kmerSizeThreadPool == null ? 1 : kmerSizeThreadPool.getParallelism();
+    }
+
+    /**
+     * Set the number of threads with which to assemble the graphs for different kmer sizes concurrently.  With a
+     * single thread (the default) the graphs are assembled one after another on the calling thread.  The results
+     * are the same regardless of the number of threads.
+     */
+    public void setNumKmerSizeThreads(final int numKmerSizeThreads) {
+        ParamUtils.isPositive(numKmerSizeThreads, "The number of kmer size threads must be positive");
+        if ( kmerSizeThreadPool != null ) {
+            kmerSizeThreadPool.shutdown();
+        }
+        kmerSizeThreadPool = numKmerSizeThreads > 1 ? new ForkJoinPool(numKmerSizeThreads) : null;
+    }
+
+    /**
+     * Shut down the threads used to assemble the graphs for different kmer sizes concurrently, if any
+     */
+    @Override
+    public void close() {
+        if ( kmerSizeThreadPool != null ) {
+            kmerSizeThreadPool.shutdown();
+            kmerSizeThreadPool = null;
+        }
+    }
 }
\ No newline at end of file
@@ -58,12 +58,12 @@ public class ReadThreadingGraph extends BaseGraph<MultiDeBruijnVertex, MultiSamp
     /**
      * A set of non-unique kmers that cannot be used as merge points in the graph
      */
-    private Set<Kmer> nonUniqueKmers;
+    private PackedKmerSet nonUniqueKmers;
 
     /**
      * A map from kmers -> their corresponding vertex in the graph
      */
-    private final Map<Kmer, MultiDeBruijnVertex> uniqueKmers = new LinkedHashMap<>();
+    private final PackedKmerMap<MultiDeBruijnVertex> uniqueKmers;
 
     private final boolean debugGraphTransformations;
     private final byte minBaseQualityToUseInAssembly;
@@ -97,6 +97,7 @@ public class ReadThreadingGraph extends BaseGraph<MultiDeBruijnVertex, MultiSamp
     @VisibleForTesting
     protected ReadThreadingGraph(final int kmerSizeFromString, final EdgeFactory<MultiDeBruijnVertex, MultiSampleEdge> edgeFactory) {
         super(kmerSizeFromString, new MyEdgeFactory(1));
+        uniqueKmers = new PackedKmerMap<>(kmerSizeFromString);
         debugGraphTransformations = false;
         minBaseQualityToUseInAssembly = 0;
     }
@@ -145,6 +146,7 @@ public class ReadThreadingGraph extends BaseGraph<MultiDeBruijnVertex, MultiSamp
 
         Utils.validateArg( kmerSize > 0, () -> "bad minkKmerSize " + kmerSize);
 
+        this.uniqueKmers = new PackedKmerMap<>(kmerSize);
         this.debugGraphTransformations = debugGraphTransformations;
         this.minBaseQualityToUseInAssembly = minBaseQualityToUseInAssembly;
 
@@ -267,8 +269,7 @@ public class ReadThreadingGraph extends BaseGraph<MultiDeBruijnVertex, MultiSamp
         }
 
         for ( int i = seqForKmers.start; i < seqForKmers.stop - kmerSize; i++ ) {
-            final Kmer kmer1 = new Kmer(seqForKmers.sequence, i, kmerSize);
-            if ( isThreadingStart(kmer1) ) {
+            if ( isThreadingStart(seqForKmers.sequence, i) ) {
                 return i;
             }
         }
@@ -282,12 +283,13 @@ public class ReadThreadingGraph extends BaseGraph<MultiDeBruijnVertex, MultiSamp
      * @see #setThreadingStartOnlyAtExistingVertex(boolean)
      * @see #getThreadingStartOnlyAtExistingVertex()
      *
-     * @param kmer the query kmer.
+     * @param sequence the sequence containing the query kmer.
+     * @param start the position of the query kmer in sequence.
      * @return {@code true} if we can start thread the sequence at this kmer, {@code false} otherwise.
      */
-    private boolean isThreadingStart(final Kmer kmer) {
-        Utils.nonNull(kmer);
-        return startThreadingOnlyAtExistingVertex ? uniqueKmers.containsKey(kmer) : !nonUniqueKmers.contains(kmer);
+    private boolean isThreadingStart(final byte[] sequence, final int start) {
+        Utils.nonNull(sequence);
+        return startThreadingOnlyAtExistingVertex ? uniqueKmers.containsKey(sequence, start) : !nonUniqueKmers.contains(sequence, start);
     }
 
     /**
@@ -346,8 +348,7 @@ public class ReadThreadingGraph extends BaseGraph<MultiDeBruijnVertex, MultiSamp
         final boolean result = super.removeVertex(V);
         if (result) {
             final byte[] sequence = V.getSequence();
-            final Kmer kmer = new Kmer(sequence);
-            uniqueKmers.remove(kmer);
+            uniqueKmers.remove(sequence, 0);
         }
         return result;
     }
@@ -430,9 +431,9 @@ public class ReadThreadingGraph extends BaseGraph<MultiDeBruijnVertex, MultiSamp
 
     /** structure that keeps track of the non-unique kmers for a given kmer size */
     private static final class NonUniqueResult {
-        final Set<Kmer> nonUniques;
+        final PackedKmerSet nonUniques;
 
-        private NonUniqueResult(final Set<Kmer> nonUniques) {
+        private NonUniqueResult(final PackedKmerSet nonUniques) {
             this.nonUniques = nonUniques;
         }
     }
@@ -967,26 +968,24 @@ public class ReadThreadingGraph extends BaseGraph<MultiDeBruijnVertex, MultiSamp
      */
     private NonUniqueResult determineKmerSizeAndNonUniques(final int minKmerSize, final int maxKmerSize) {
         final Collection<SequenceForKmers> withNonUniques = getAllPendingSequences();
-        final Set<Kmer> nonUniqueKmers = new HashSet<>();
+        PackedKmerSet nonUniqueKmers = new PackedKmerSet(minKmerSize);
 
         // go through the sequences and determine which kmers aren't unique within each read
         for (int kmerSize = minKmerSize ; kmerSize <= maxKmerSize; kmerSize++) {
-            // clear out set of non-unique kmers
-            nonUniqueKmers.clear();
+            // start a new set of non-unique kmers, and a scratch set of the kmers seen within a sequence, for this kmerSize
+            nonUniqueKmers = new PackedKmerSet(kmerSize);
+            final PackedKmerSet kmersInSequence = new PackedKmerSet(kmerSize);
 
             // loop over all sequences that have non-unique kmers in them from the previous iterator
             final Iterator<SequenceForKmers> it = withNonUniques.iterator();
             while ( it.hasNext() ) {
                 final SequenceForKmers sequenceForKmers = it.next();
 
-                // determine the non-unique kmers for this sequence
-                final Collection<Kmer> nonUniquesFromSeq = determineNonUniqueKmers(sequenceForKmers, kmerSize);
-                if ( nonUniquesFromSeq.isEmpty() ) {
+                // determine the non-unique kmers for this sequence, keeping track of them for this kmerSize
+                kmersInSequence.clear();
+                if ( ! addNonUniqueKmers(sequenceForKmers, kmersInSequence, nonUniqueKmers) ) {
                     // remove this sequence from future consideration
                     it.remove();
-                } else {
-                    // keep track of the non-uniques for this kmerSize, and keep it in the list of sequences that have non-uniques
-                    nonUniqueKmers.addAll(nonUniquesFromSeq);
                 }
             }
 
@@ -1016,17 +1015,29 @@ public class ReadThreadingGraph extends BaseGraph<MultiDeBruijnVertex, MultiSamp
      * @return a non-null collection of non-unique kmers in sequence
      */
     static Collection<Kmer> determineNonUniqueKmers(final SequenceForKmers seqForKmers, final int kmerSize) {
-        // count up occurrences of kmers within each read
-        final Set<Kmer> allKmers = new LinkedHashSet<>();
-        final List<Kmer> nonUniqueKmers = new ArrayList<>();
-        final int stopPosition = seqForKmers.stop - kmerSize;
+        final PackedKmerSet nonUniqueKmers = new PackedKmerSet(kmerSize);
+        addNonUniqueKmers(seqForKmers, new PackedKmerSet(kmerSize, seqForKmers.stop), nonUniqueKmers);
+        return nonUniqueKmers.toKmers();
+    }
+
+    /**
+     * Add the non-unique kmers from sequence to a set, without creating an object per kmer
+     * @param seqForKmers a sequence to get kmers from
+     * @param kmersInSequence an empty set, used to count up occurrences of kmers within the sequence.  Its kmer size
+     *                        is the size of the kmers to consider.
+     * @param nonUniqueKmers the set to which to add the non-unique kmers in sequence
+     * @return true if sequence has any non-unique kmers
+     */
+    private static boolean addNonUniqueKmers(final SequenceForKmers seqForKmers, final PackedKmerSet kmersInSequence, final PackedKmerSet nonUniqueKmers) {
+        boolean foundNonUnique = false;
+        final int stopPosition = seqForKmers.stop - kmersInSequence.getKmerSize();
         for (int i = 0; i <= stopPosition; i++) {
-            final Kmer kmer = new Kmer(seqForKmers.sequence, i, kmerSize);
-            if (!allKmers.add(kmer)) {
-                nonUniqueKmers.add(kmer);
+            if (!kmersInSequence.add(seqForKmers.sequence, i)) {
+                nonUniqueKmers.add(seqForKmers.sequence, i);
+                foundNonUnique = true;
             }
         }
-        return nonUniqueKmers;
+        return foundNonUnique;
     }
 
     @Override
@@ -1061,36 +1072,52 @@ public class ReadThreadingGraph extends BaseGraph<MultiDeBruijnVertex, MultiSamp
      * @return a non-null vertex
      */
     private MultiDeBruijnVertex getOrCreateKmerVertex(final byte[] sequence, final int start) {
-        final Kmer kmer = new Kmer(sequence, start, kmerSize);
-        final MultiDeBruijnVertex vertex = getUniqueKmerVertex(kmer, true);
-        return ( vertex != null ) ? vertex : createVertex(kmer);
+        final MultiDeBruijnVertex vertex = getUniqueKmerVertex(sequence, start, true);
+        return ( vertex != null ) ? vertex : createVertex(sequence, start);
     }
 
     /**
-     * Get the unique vertex for kmer, or null if not possible.
+     * Get the unique vertex for the kmer in sequence starting at start, or null if not possible.
      *
      * @param allowRefSource if true, we will allow kmer to match the reference source vertex
      * @return a vertex for kmer, or null if it's not unique
      */
-    private MultiDeBruijnVertex getUniqueKmerVertex(final Kmer kmer, final boolean allowRefSource) {
-        if ( ! allowRefSource && kmer.equals(refSource) ) {
+    private MultiDeBruijnVertex getUniqueKmerVertex(final byte[] sequence, final int start, final boolean allowRefSource) {
+        if ( ! allowRefSource && isRefSource(sequence, start) ) {
             return null;
         }
 
-        return uniqueKmers.get(kmer);
+        return uniqueKmers.get(sequence, start);
+    }
+
+    /**
+     * @return true if the kmer in sequence starting at start is the reference source kmer
+     */
+    private boolean isRefSource(final byte[] sequence, final int start) {
+        if ( refSource == null ) {
+            return false;
+        }
+        final byte[] refSourceBases = refSource.bases();
+        for ( int i = 0; i < kmerSize; i++ ) {
+            if ( refSourceBases[i] != sequence[start + i] ) {
+                return false;
+            }
+        }
+        return true;
     }
 
 
     /**
-     * Create a new vertex for kmer.  Add it to the uniqueKmers map if appropriate.
+     * Create a new vertex for the kmer in sequence starting at start.  Add it to the uniqueKmers map if appropriate.
      *
      * kmer must not have a entry in unique kmers, or an error will be thrown
      *
-     * @param kmer the kmer we want to create a vertex for
+     * @param sequence the sequence containing the kmer we want to create a vertex for
+     * @param start the position of the kmer start
      * @return the non-null created vertex
      */
-    private MultiDeBruijnVertex createVertex(final Kmer kmer) {
-        final MultiDeBruijnVertex newVertex = new MultiDeBruijnVertex(kmer.bases());
+    private MultiDeBruijnVertex createVertex(final byte[] sequence, final int start) {
+        final MultiDeBruijnVertex newVertex = new MultiDeBruijnVertex(Arrays.copyOfRange(sequence, start, start + kmerSize));
         final int prevSize = vertexSet().size();
         addVertex(newVertex);
 
@@ -1100,9 +1127,9 @@ public class ReadThreadingGraph extends BaseGraph<MultiDeBruijnVertex, MultiSamp
         }
 
         // add the vertex to the unique kmer map, if it is in fact unique
-        if ( ! nonUniqueKmers.contains(kmer) && ! uniqueKmers.containsKey(kmer) ) // TODO -- not sure this last test is necessary
+        if ( ! nonUniqueKmers.contains(sequence, start) ) // TODO -- not sure putIfAbsent (rather than put) is necessary
         {
-            uniqueKmers.put(kmer, newVertex);
+            uniqueKmers.putIfAbsent(sequence, start, newVertex);
         }
 
         return newVertex;
@@ -1133,15 +1160,14 @@ public class ReadThreadingGraph extends BaseGraph<MultiDeBruijnVertex, MultiSamp
         }
 
         // none of our outgoing edges had our unique suffix base, so we check for an opportunity to merge back in
-        final Kmer kmer = new Kmer(sequence, kmerStart, kmerSize);
-        final MultiDeBruijnVertex uniqueMergeVertex = getUniqueKmerVertex(kmer, false);
+        final MultiDeBruijnVertex uniqueMergeVertex = getUniqueKmerVertex(sequence, kmerStart, false);
 
         if ( isRef && uniqueMergeVertex != null ) {
             throw new IllegalStateException("Found a unique vertex to merge into the reference graph " + prevVertex + " -> " + uniqueMergeVertex);
         }
 
         // either use our unique merge vertex, or create a new one in the chain
-        final MultiDeBruijnVertex nextVertex = uniqueMergeVertex == null ? createVertex(kmer) : uniqueMergeVertex;
+        final MultiDeBruijnVertex nextVertex = uniqueMergeVertex == null ? createVertex(sequence, kmerStart) : uniqueMergeVertex;
         addEdge(prevVertex, nextVertex, ((MyEdgeFactory)getEdgeFactory()).createEdge(isRef, count));
         return nextVertex;
     }
@@ -1196,7 +1222,7 @@ public class ReadThreadingGraph extends BaseGraph<MultiDeBruijnVertex, MultiSamp
      */
     @VisibleForTesting
     Set<Kmer> getNonUniqueKmers() {
-        return nonUniqueKmers;
+        return nonUniqueKmers == null ? null : new LinkedHashSet<>(nonUniqueKmers.toKmers());
     }
 
     @Override
@@ -1207,7 +1233,7 @@ public class ReadThreadingGraph extends BaseGraph<MultiDeBruijnVertex, MultiSamp
 
     @Override
     public MultiDeBruijnVertex findKmer(final Kmer k) {
-        return uniqueKmers.get(k);
+        return k.length() == kmerSize ? uniqueKmers.get(k.bases(), 0) : null;
     }
 
 
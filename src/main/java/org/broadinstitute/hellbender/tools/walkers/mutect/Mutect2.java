@@ -1,10 +1,12 @@
 package org.broadinstitute.hellbender.tools.walkers.mutect;
 
 import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.variant.variantcontext.VariantContext;
 import htsjdk.variant.variantcontext.writer.VariantContextWriter;
 import org.broadinstitute.barclay.argparser.Argument;
 import org.broadinstitute.barclay.argparser.ArgumentCollection;
 import org.broadinstitute.barclay.argparser.BetaFeature;
+import org.broadinstitute.barclay.argparser.CommandLineException;
 import org.broadinstitute.barclay.argparser.CommandLineProgramProperties;
 import org.broadinstitute.barclay.help.DocumentedFeature;
 import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
@@ -16,6 +18,7 @@ import org.broadinstitute.hellbender.utils.downsampling.ReadsDownsampler;
 
 import java.io.File;
 import java.util.List;
+import java.util.Random;
 
 /**
  * Call somatic short variants, both SNVs and indels, via local assembly of haplotypes
@@ -197,13 +200,44 @@ public final class Mutect2 extends AssemblyRegionWalker {
     }
 
     @Override
-    protected ReadsDownsampler createDownsampler() {
-        return new MutectDownsampler(maxReadsPerAlignmentStart, MTAC.maxSuspiciousReadsPerAlignmentStart, MTAC.downsamplingStride);
+    protected ReadsDownsampler createDownsampler(final Random random) {
+        return new MutectDownsampler(maxReadsPerAlignmentStart, MTAC.maxSuspiciousReadsPerAlignmentStart, MTAC.downsamplingStride, random);
     }
 
     @Override
     public AssemblyRegionEvaluator assemblyRegionEvaluator() { return m2Engine; }
 
+    /**
+     * Each traversal thread gets its own engine, with its own reference reader, assembler and genotyping engine.
+     * Calls are buffered by the worker and written to the VCF writer on the main thread.
+     */
+    @Override
+    protected AssemblyRegionWorker makeAssemblyRegionWorker() {
+        if ( MTAC.bamOutputPath != null ) {
+            throw new CommandLineException.BadArgumentValue(AssemblyRegionWalker.TRAVERSAL_THREADS_LONG_NAME, Integer.toString(traversalThreads),
+                    "a bam output cannot be written when using more than one traversal thread");
+        }
+
+        final Mutect2Engine workerEngine = new Mutect2Engine(MTAC, createOutputBamIndex, createOutputBamMD5, getHeaderForReads(), referenceArguments.getReferenceFileName());
+        return new AssemblyRegionWorker() {
+            @Override
+            public AssemblyRegionEvaluator assemblyRegionEvaluator() {
+                return workerEngine;
+            }
+
+            @Override
+            public Runnable apply(final AssemblyRegion region, final ReferenceContext referenceContext, final FeatureContext featureContext) {
+                final List<VariantContext> calls = workerEngine.callRegion(region, referenceContext, featureContext);
+                return () -> calls.forEach(vcfWriter::add);
+            }
+
+            @Override
+            public void close() {
+                workerEngine.shutdown();
+            }
+        };
+    }
+
     @Override
     public void onTraversalStart() {
         m2Engine = new Mutect2Engine(MTAC, createOutputBamIndex, createOutputBamMD5, getHeaderForReads(), referenceArguments.getReferenceFileName());
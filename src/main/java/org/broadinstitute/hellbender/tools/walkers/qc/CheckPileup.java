@@ -58,7 +58,7 @@ import java.util.List;
             "interval.",
     oneLineSummary = "Compare GATK's internal pileup to a reference Samtools mpileup",
     programGroup = DiagnosticsAndQCProgramGroup.class)
-public final class CheckPileup extends LocusWalker {
+public final class CheckPileup extends ParallelLocusWalker<CheckPileup.LocusCheck> {
 
     /**
      * This is the existing mpileup against which we'll compare GATK's internal pileup at each genome position in the desired interval.
@@ -125,8 +125,26 @@ public final class CheckPileup extends LocusWalker {
         }
     }
 
+    /**
+     * The outcome of comparing the pileups at one locus, computed concurrently and reported in order by
+     * {@link #reduceLocusResult(LocusCheck)}
+     */
+    static final class LocusCheck {
+        // line to report if the pileups don't match, or null if they do
+        private final String mismatch;
+        // message of the error to throw unless continueAfterAnError, or null if the pileups match
+        private final String errorMessage;
+        private final int pileupSize;
+
+        private LocusCheck(final String mismatch, final String errorMessage, final int pileupSize) {
+            this.mismatch = mismatch;
+            this.errorMessage = errorMessage;
+            this.pileupSize = pileupSize;
+        }
+    }
+
     @Override
-    public void apply(final AlignmentContext context, final ReferenceContext ref, final FeatureContext featureContext) {
+    public LocusCheck computeLocusResult(final AlignmentContext context, final ReferenceContext ref, final FeatureContext featureContext) {
         final ReadPileup pileup = context.getBasePileup();
         final SAMPileupFeature truePileup = getTruePileup(featureContext);
 
@@ -135,23 +153,32 @@ public final class CheckPileup extends LocusWalker {
         }
 
         if ( truePileup == null ) {
-            out.printf("No truth pileup data available at %s%n", pileup.getPileupString((char) ref.getBase()));
+            return new LocusCheck(
+                    String.format("No truth pileup data available at %s%n", pileup.getPileupString((char) ref.getBase())),
+                    String.format("No pileup data available at %s given GATK's output of %s -- this walker requires samtools mpileup data over all bases",
+                            context.getLocation(), new String(pileup.getBases())),
+                    pileup.size());
+        }
+        final String pileupDiff = pileupDiff(pileup, truePileup);
+        if ( pileupDiff != null ) {
+            return new LocusCheck(
+                    String.format("%s vs. %s%n", pileup.getPileupString((char) ref.getBase()), truePileup.getPileupString()),
+                    String.format("The input pileup doesn't match the GATK's internal pileup: %s", pileupDiff),
+                    pileup.size());
+        }
+        return new LocusCheck(null, null, pileup.size());
+    }
+
+    @Override
+    public void reduceLocusResult(final LocusCheck check) {
+        if ( check.mismatch != null ) {
+            out.print(check.mismatch);
             if ( !continueAfterAnError) {
-                throw new UserException.BadInput(
-                        String.format("No pileup data available at %s given GATK's output of %s -- this walker requires samtools mpileup data over all bases",
-                        context.getLocation(), new String(pileup.getBases())));
-            }
-        } else {
-            final String pileupDiff = pileupDiff(pileup, truePileup);
-            if ( pileupDiff != null ) {
-                out.printf("%s vs. %s%n", pileup.getPileupString((char) ref.getBase()), truePileup.getPileupString());
-                if ( !continueAfterAnError) {
-                    throw new UserException.BadInput(String.format("The input pileup doesn't match the GATK's internal pileup: %s", pileupDiff));
-                }
+                throw new UserException.BadInput(check.errorMessage);
             }
         }
         nLoci++;
-        nBases += pileup.size();
+        nBases += check.pileupSize;
     }
 
     public String pileupDiff(final ReadPileup a, final SAMPileupFeature b) {
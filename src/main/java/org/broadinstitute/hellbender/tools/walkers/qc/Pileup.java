@@ -71,7 +71,7 @@ import java.util.stream.Collectors;
     oneLineSummary = "Prints read alignments in samtools pileup format",
     programGroup = CoverageAnalysisProgramGroup.class)
 @DocumentedFeature
-public final class Pileup extends LocusWalker {
+public final class Pileup extends ParallelLocusWalker<String> {
 
     private static final String VERBOSE_DELIMITER = "@"; // it's ugly to use "@" but it's literally the only usable character not allowed in read names
 
@@ -150,7 +150,7 @@ public final class Pileup extends LocusWalker {
     }
 
     @Override
-    public void apply(AlignmentContext alignmentContext, ReferenceContext referenceContext, FeatureContext featureContext) {
+    public String computeLocusResult(AlignmentContext alignmentContext, ReferenceContext referenceContext, FeatureContext featureContext) {
         final String features = getFeaturesString(featureContext);
         final ReadPileup basePileup = alignmentContext.getBasePileup();
         final StringBuilder s = new StringBuilder();
@@ -164,7 +164,12 @@ public final class Pileup extends LocusWalker {
             s.append(" ").append(createVerboseOutput(basePileup));
         }
         s.append("\n");
-        out.print(s.toString());
+        return s.toString();
+    }
+
+    @Override
+    public void reduceLocusResult(final String pileupLine) {
+        out.print(pileupLine);
     }
 
     /**
@@ -7,7 +7,6 @@ import org.broadinstitute.hellbender.exceptions.UserException.MalformedRead;
 import org.broadinstitute.hellbender.tools.ApplyBQSRArgumentCollection;
 import org.broadinstitute.hellbender.utils.QualityUtils;
 import org.broadinstitute.hellbender.utils.Utils;
-import org.broadinstitute.hellbender.utils.collections.NestedIntegerArray;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
 import org.broadinstitute.hellbender.utils.read.ReadUtils;
 import org.broadinstitute.hellbender.utils.recalibration.*;
@@ -16,37 +15,22 @@ import org.broadinstitute.hellbender.utils.recalibration.covariates.ReadCovariat
 import org.broadinstitute.hellbender.utils.recalibration.covariates.StandardCovariateList;
 
 import java.io.File;
-import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
-import static org.broadinstitute.hellbender.utils.MathUtils.fastRound;
-import static org.broadinstitute.hellbender.utils.QualityUtils.boundQual;
-import static org.broadinstitute.hellbender.utils.recalibration.RecalDatum.MAX_RECALIBRATED_Q_SCORE;
-
 public final class BQSRReadTransformer implements ReadTransformer {
     private static final long serialVersionUID = 1L;
 
-    private final QuantizationInfo quantizationInfo; // histogram containing the map for qual quantization (calculated after recalibration is done)
-    private final RecalibrationTables recalibrationTables;
+    // the recalibration model, precomputed for all covariate keys
+    private final CompiledRecalibrationTables compiledTables;
     private final StandardCovariateList covariates; // list of all covariates to be used in this calculation
     private final SAMFileHeader header;
     
     private final int preserveQLessThan;
-    private final double globalQScorePrior;
     private final boolean emitOriginalQuals;
 
-    //These fields are created to avoid redoing these calculations for every read
-    private final int totalCovariateCount;
-    private final int specialCovariateCount;
-
-    private static final int BASE_SUBSTITUTION_INDEX = EventType.BASE_SUBSTITUTION.ordinal();
-
-    //Note: varargs allocates a new array every time. We'll pre-allocate one array and reuse it to avoid object allocation for every base of every read.
-    private final RecalDatum[] empiricalQualCovsArgs;
     private final boolean useOriginalBaseQualities;
 
-    private byte[] staticQuantizedMapping;
     private final CovariateKeyCache keyCache;
 
     /**
@@ -61,54 +45,61 @@ public final class BQSRReadTransformer implements ReadTransformer {
     }
 
     /**
-     * Constructor using separate RecalibrationTables, QuantizationInfo, and StandardCovariateList
+     * Constructor using a RecalibrationReport
+     *
+     * @param header header for the reads
+     * @param recalInfo the output of BaseRecalibration, containing the recalibration information
+     * @param args a set of arguments to control how bqsr is applied
+     */
+    public BQSRReadTransformer(final SAMFileHeader header, final RecalibrationReport recalInfo, final ApplyBQSRArgumentCollection args) {
+        this(header, compileRecalibrationReport(recalInfo, args), args);
+    }
+
+    /**
+     * Constructor using recalibration tables already compiled by {@link #compileRecalibrationReport}, which may be shared by many transformers
      *
      * @param header header for the reads
-     * @param recalibrationTables recalibration tables output from BQSR
-     * @param quantizationInfo quantization info
-     * @param covariates standard covariate set
-     * @param args ApplyBQSR arguments
+     * @param compiledTables the compiled recalibration information
+     * @param args a set of arguments to control how bqsr is applied, which should be those the tables were compiled with
      */
-    private BQSRReadTransformer(final SAMFileHeader header, final RecalibrationTables recalibrationTables, final QuantizationInfo quantizationInfo, final StandardCovariateList covariates, final ApplyBQSRArgumentCollection args) {
+    public BQSRReadTransformer(final SAMFileHeader header, final CompiledRecalibrationTables compiledTables, final ApplyBQSRArgumentCollection args) {
         this.header = header;
-        this.recalibrationTables = recalibrationTables;
-        this.covariates = covariates;
-        this.quantizationInfo = quantizationInfo;
+        this.compiledTables = Utils.nonNull(compiledTables);
+        this.covariates = compiledTables.getCovariates();
 
+        this.preserveQLessThan = args.PRESERVE_QSCORES_LESS_THAN;
+        this.emitOriginalQuals = args.emitOriginalQuals;
+        this.useOriginalBaseQualities = args.useOriginalBaseQualities;
+
+        keyCache = new CovariateKeyCache();//one cache per transformer
+    }
+
+    /**
+     * Precompute the recalibration of a RecalibrationReport, for the given arguments
+     *
+     * @param recalInfo the output of BaseRecalibration, containing the recalibration information
+     * @param args the arguments controlling the priors and the quantization of the recalibrated qualities
+     * @return the compiled recalibration tables, from which transformers can be created with {@link #BQSRReadTransformer(SAMFileHeader, CompiledRecalibrationTables, ApplyBQSRArgumentCollection)}
+     */
+    public static CompiledRecalibrationTables compileRecalibrationReport(final RecalibrationReport recalInfo, final ApplyBQSRArgumentCollection args) {
+        Utils.nonNull(recalInfo);
+        Utils.nonNull(args);
+        final QuantizationInfo quantizationInfo = recalInfo.getQuantizationInfo(); // histogram containing the map for qual quantization (calculated after recalibration is done)
         if (args.quantizationLevels == 0) { // quantizationLevels == 0 means no quantization, preserve the quality scores
             quantizationInfo.noQuantization();
         } else if (args.quantizationLevels > 0 && args.quantizationLevels != quantizationInfo.getQuantizationLevels()) { // any other positive value means, we want a different quantization than the one pre-calculated in the recalibration report. Negative values mean the user did not provide a quantization argument, and just wants to use what's in the report.
             quantizationInfo.quantizeQualityScores(args.quantizationLevels);
         }
 
-        this.preserveQLessThan = args.PRESERVE_QSCORES_LESS_THAN;
-        this.globalQScorePrior = args.globalQScorePrior;
-        this.emitOriginalQuals = args.emitOriginalQuals;
-        this.useOriginalBaseQualities = args.useOriginalBaseQualities;
-
         // staticQuantizedQuals is entirely separate from the dynamic binning that quantizationLevels, and
         // staticQuantizedQuals does not make use of quantizationInfo
+        byte[] staticQuantizedMapping = null;
         if(args.staticQuantizationQuals != null && !args.staticQuantizationQuals.isEmpty()) {
             staticQuantizedMapping = constructStaticQuantizedMapping(args.staticQuantizationQuals, args.roundDown);
         }
 
-        totalCovariateCount = covariates.size();
-        specialCovariateCount = covariates.numberOfSpecialCovariates();
-
-        //Note: We pre-create the varargs arrays that will be used in the calls. Otherwise we're spending a lot of time allocating those int[] objects
-        empiricalQualCovsArgs = new RecalDatum[totalCovariateCount - specialCovariateCount];
-        keyCache = new CovariateKeyCache();//one cache per transformer
-    }
-
-    /**
-     * Constructor using a RecalibrationReport
-     *
-     * @param header header for the reads
-     * @param recalInfo the output of BaseRecalibration, containing the recalibration information
-     * @param args a set of arguments to control how bqsr is applied
-     */
-    public BQSRReadTransformer(final SAMFileHeader header, final RecalibrationReport recalInfo, final ApplyBQSRArgumentCollection args) {
-        this(header, recalInfo.getRecalibrationTables(), recalInfo.getQuantizationInfo(), recalInfo.getCovariates(), args);
+        return new CompiledRecalibrationTables(recalInfo.getRecalibrationTables(), recalInfo.getCovariates(), args.globalQScorePrior,
+                quantizationInfo.getQuantizedQuals(), staticQuantizedMapping);
     }
 
     /**
@@ -127,6 +118,8 @@ public final class BQSRReadTransformer implements ReadTransformer {
      * - The final shift equation is:
      * <p>
      * Qrecal = Qreported + DeltaQ + DeltaQ(pos) + DeltaQ(dinuc) + DeltaQ( ... any other covariate ... )
+     * <p>
+     * All of these shifts are precomputed by {@link CompiledRecalibrationTables}.
      *
      * @param originalRead the read to recalibrate
      */
@@ -151,21 +144,13 @@ public final class BQSRReadTransformer implements ReadTransformer {
         // get the keyset for this base using the error model
         final int[][] fullReadKeySet = readCovariates.getKeySet(EventType.BASE_SUBSTITUTION);
 
-        // the rg key is constant over the whole read, the global deltaQ is too
-        final int rgKey = fullReadKeySet[0][0];
-
-        final RecalDatum empiricalQualRG = recalibrationTables.getReadGroupTable().get2Keys(rgKey, BASE_SUBSTITUTION_INDEX);
-
-        if (empiricalQualRG == null) {
+        // the rg key is constant over the whole read
+        if (!compiledTables.hasReadGroup(fullReadKeySet[0][0])) {
             return read;
         }
         final byte[] quals = read.getBaseQualities();
 
         final int readLength = quals.length;
-        final double epsilon = globalQScorePrior > 0.0 ? globalQScorePrior : empiricalQualRG.getEstimatedQReported();
-
-        final NestedIntegerArray<RecalDatum> qualityScoreTable = recalibrationTables.getQualityScoreTable();
-        final List<Byte> quantizedQuals = quantizationInfo.getQuantizedQuals();
 
         //Note: this loop is under very heavy use in applyBQSR. Keep it slim.
         for (int offset = 0; offset < readLength; offset++) { // recalibrate all bases in the read
@@ -174,33 +159,12 @@ public final class BQSRReadTransformer implements ReadTransformer {
             if (quals[offset] < preserveQLessThan) {
                 continue;
             }
-            Arrays.fill(empiricalQualCovsArgs, null);  //clear the array
-            final int[] keySet = fullReadKeySet[offset];
-
-
-            final RecalDatum empiricalQualQS = qualityScoreTable.get3Keys(keySet[0], keySet[1], BASE_SUBSTITUTION_INDEX);
-
-            for (int i = specialCovariateCount; i < totalCovariateCount; i++) {
-                if (keySet[i] >= 0) {
-                    empiricalQualCovsArgs[i - specialCovariateCount] = recalibrationTables.getTable(i).get4Keys(keySet[0], keySet[1], keySet[i], BASE_SUBSTITUTION_INDEX);
-                }
-            }
-            final double recalibratedQualDouble = hierarchicalBayesianQualityEstimate(epsilon, empiricalQualRG, empiricalQualQS, empiricalQualCovsArgs);
-
-            final byte recalibratedQualityScore = quantizedQuals.get(getRecalibratedQual(recalibratedQualDouble));
-
-            // Bin to static quals
-            quals[offset] = staticQuantizedMapping == null ? recalibratedQualityScore : staticQuantizedMapping[recalibratedQualityScore];
+            quals[offset] = compiledTables.getRecalibratedQuality(fullReadKeySet[offset]);
         }
         read.setBaseQualities(quals);
         return read;
     }
 
-    // recalibrated quality is bound between 1 and MAX_QUAL
-    private byte getRecalibratedQual(final double recalibratedQualDouble) {
-        return boundQual(fastRound(recalibratedQualDouble), MAX_RECALIBRATED_Q_SCORE);
-    }
-
     public static double hierarchicalBayesianQualityEstimate( final double epsilon,
                                                               final RecalDatum empiricalQualRG,
                                                               final RecalDatum empiricalQualQS,
@@ -61,6 +61,18 @@ public final class Utils {
         randomDataGenerator.reSeed(GATK_RANDOM_SEED);
     }
 
+    /**
+     * Makes a random number generator for one shard of the input, seeded from the GATK random seed and the index of
+     * the shard, so that the random numbers drawn while processing a shard don't depend on which shards were processed
+     * before it, or concurrently with it.
+     *
+     * @param shardIndex index of the shard
+     * @return a new random number generator, always seeded the same for the same shard index
+     */
+    public static Random makeShardRandomGenerator(final long shardIndex) {
+        return new Random(GATK_RANDOM_SEED + shardIndex * 0x9E3779B97F4A7C15L);
+    }
+
     private static final int TEXT_WARNING_WIDTH = 68;
     private static final String TEXT_WARNING_PREFIX = "* ";
     private static final String TEXT_WARNING_BORDER = StringUtils.repeat('*', TEXT_WARNING_PREFIX.length() + TEXT_WARNING_WIDTH);
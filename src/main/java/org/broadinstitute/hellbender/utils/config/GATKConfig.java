@@ -154,6 +154,11 @@ public interface GATKConfig extends Mutable, Accessible {
     @DefaultValue("-1")
     int cloudIndexPrefetchBuffer();
 
+    // Maximum number of blocks prefetched ahead of the one being read from cloud inputs. Each block takes a buffer
+    // of cloudPrefetchBuffer MB for each input, and each traversal thread opens its own inputs.
+    @DefaultValue("4")
+    int cloudPrefetchMaxBlocks();
+
     @DefaultValue("20")
     int gcsMaxRetries();
 
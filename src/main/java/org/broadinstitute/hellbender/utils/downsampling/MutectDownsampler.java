@@ -22,6 +22,8 @@ public final class MutectDownsampler extends ReadsDownsampler {
 
     private GATKRead firstReadInStride;
 
+    private final Random random;
+
 
     /**
      * @param maxReadsPerAlignmentStart Maximum number of reads per alignment start position. Must be > 0
@@ -30,6 +32,19 @@ public final class MutectDownsampler extends ReadsDownsampler {
     public MutectDownsampler(final int maxReadsPerAlignmentStart,
                              final int maxSuspiciousReadsPerAlignmentStart,
                              final int stride) {
+        this(maxReadsPerAlignmentStart, maxSuspiciousReadsPerAlignmentStart, stride, Utils.getRandomGenerator());
+    }
+
+    /**
+     * @param maxReadsPerAlignmentStart Maximum number of reads per alignment start position. Must be > 0
+     * @param stride Length in bases constituting a single pool of reads to downsample
+     * @param random source of randomness used to pick the reads to retain
+     */
+    public MutectDownsampler(final int maxReadsPerAlignmentStart,
+                             final int maxSuspiciousReadsPerAlignmentStart,
+                             final int stride,
+                             final Random random) {
+        this.random = Utils.nonNull(random);
         // convert coverage per base to coverage per stride
         maxCoverage = maxReadsPerAlignmentStart <= 0 ? Integer.MAX_VALUE : (maxReadsPerAlignmentStart * stride);
         this.stride = ParamUtils.isPositive(stride, "stride must be > 0");
@@ -92,7 +107,7 @@ public final class MutectDownsampler extends ReadsDownsampler {
             } else {
                 // if we exceed the max coverage, just use well-mapped reads.  Maybe the number of such reads won't reach
                 // the desired coverage, but if the region is decently mappable the shortfall will be minor.
-                final ReservoirDownsampler wellMappedDownsampler = new ReservoirDownsampler(maxCoverage, false);
+                final ReservoirDownsampler wellMappedDownsampler = new ReservoirDownsampler(maxCoverage, false, random);
                 pendingReads.stream().filter(read -> read.getMappingQuality() > SUSPICIOUS_MAPPING_QUALITY).forEach(wellMappedDownsampler::submit);
                 final List<GATKRead> readsToFinalize = wellMappedDownsampler.consumeFinalizedItems();
                 if (stride > 1) {
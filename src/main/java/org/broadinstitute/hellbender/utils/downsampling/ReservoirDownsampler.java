@@ -7,6 +7,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Random;
 
 /**
  * Reservoir Downsampler: Selects n reads out of a stream whose size is not known in advance, with
@@ -51,6 +52,10 @@ public final class ReservoirDownsampler extends ReadsDownsampler {
      */
     private int totalReadsSeen;
 
+    /**
+     * Source of randomness used to pick the reads to retain
+     */
+    private final Random random;
 
     /**
      * Construct a ReservoirDownsampler
@@ -63,18 +68,33 @@ public final class ReservoirDownsampler extends ReadsDownsampler {
      *                           internal buffers to targetSampleSize initially, which minimizes
      *                           the cost of allocation if we often use targetSampleSize or more
      *                           elements.
+     * @param random source of randomness used to pick the reads to retain
      */
-    public ReservoirDownsampler(final int targetSampleSize, final boolean expectFewOverflows ) {
+    public ReservoirDownsampler(final int targetSampleSize, final boolean expectFewOverflows, final Random random ) {
         if ( targetSampleSize <= 0 ) {
             throw new IllegalArgumentException("Cannot do reservoir downsampling with a sample size <= 0");
         }
 
         this.targetSampleSize = targetSampleSize;
         this.expectFewOverflows = expectFewOverflows;
+        this.random = Utils.nonNull(random);
         clearItems();
         resetStats();
     }
 
+    /**
+     * Construct a ReservoirDownsampler using the GATK random number generator
+     *
+     * @param targetSampleSize Size of the reservoir used by this downsampler.
+     *
+     * @param expectFewOverflows if true, this downsampler will be optimized for the case
+     *                           where most of the time we won't fill up anything like the
+     *                           targetSampleSize elements.
+     */
+    public ReservoirDownsampler(final int targetSampleSize, final boolean expectFewOverflows ) {
+        this(targetSampleSize, expectFewOverflows, Utils.getRandomGenerator());
+    }
+
     /**
      * Construct a ReservoirDownsampler
      *
@@ -100,7 +120,7 @@ public final class ReservoirDownsampler extends ReadsDownsampler {
                 isLinkedList = false;
             }
 
-            final int randomSlot = Utils.getRandomGenerator().nextInt(totalReadsSeen);
+            final int randomSlot = random.nextInt(totalReadsSeen);
             if ( randomSlot < targetSampleSize ) {
                 reservoir.set(randomSlot, newRead);
             }
@@ -40,12 +40,21 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
     private final GATKRead[][] readsBySampleIndex;
 
     /**
-     * Indexed per sample, allele and finally read (within sample).
+     * Indexed per sample, then a single array per sample indexed by allele and finally read (within sample).
      * <p>
-     *     valuesBySampleIndex[s][a][r] == lnLk(R_r | A_a) where R_r comes from Sample s.
+     *     valuesBySampleIndex[s][a * readCapacityBySampleIndex[s] + r] == lnLk(R_r | A_a) where R_r comes from Sample s.
      * </p>
+     * <p>
+     *     Each sample array may have room for more reads and alleles than the sample currently has, so that reads can be
+     *     removed in place and alleles and reads added without always reallocating.
+     * </p>
+     */
+    private final double[][] valuesBySampleIndex;
+
+    /**
+     * Stride between the likelihoods of consecutive alleles in {@link #valuesBySampleIndex}, per sample.
      */
-    private final double[][][] valuesBySampleIndex;
+    private final int[] readCapacityBySampleIndex;
 
     /**
      * Sample list
@@ -122,7 +131,8 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
 
         readsBySampleIndex = new GATKRead[sampleCount][];
         readListBySampleIndex = (List<GATKRead>[])new List[sampleCount];
-        valuesBySampleIndex = new double[sampleCount][][];
+        valuesBySampleIndex = new double[sampleCount][];
+        readCapacityBySampleIndex = new int[sampleCount];
         referenceAlleleIndex = findReferenceAllele(alleles);
 
         readIndexBySampleIndex = new Object2IntMap[sampleCount];
@@ -139,11 +149,13 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
                             final SampleList samples,
                             final GATKRead[][] readsBySampleIndex,
                             final Object2IntMap<GATKRead>[] readIndex,
-                            final double[][][] values) {
+                            final double[][] values,
+                            final int[] readCapacities) {
         this.samples = samples;
         this.alleles = alleles;
         this.readsBySampleIndex = readsBySampleIndex;
         this.valuesBySampleIndex = values;
+        this.readCapacityBySampleIndex = readCapacities;
         this.readIndexBySampleIndex = readIndex;
         final int sampleCount = samples.numberOfSamples();
         this.readListBySampleIndex = (List<GATKRead>[])new List[sampleCount];
@@ -171,8 +183,8 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
                 : reads.toArray(new GATKRead[reads.size()]);
         final int sampleReadCount = readsBySampleIndex[sampleIndex].length;
 
-        final double[][] sampleValues = new double[alleleCount][sampleReadCount];
-        valuesBySampleIndex[sampleIndex] = sampleValues;
+        valuesBySampleIndex[sampleIndex] = new double[alleleCount * sampleReadCount];
+        readCapacityBySampleIndex[sampleIndex] = sampleReadCount;
     }
 
     /**
@@ -183,7 +195,7 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
         final int sampleCount = samples.numberOfSamples();
         final int alleleCount = alleles.numberOfAlleles();
 
-        final double[][][] newLikelihoodValues = new double[sampleCount][alleleCount][];
+        final double[][] newLikelihoodValues = new double[sampleCount][];
 
         @SuppressWarnings({"unchecked", "rawtypes"})
         final Object2IntMap<GATKRead>[] newReadIndexBySampleIndex = new Object2IntMap[sampleCount];
@@ -191,9 +203,7 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
 
         for (int s = 0; s < sampleCount; s++) {
             newReadsBySampleIndex[s] = readsBySampleIndex[s].clone();
-            for (int a = 0; a < alleleCount; a++) {
-                newLikelihoodValues[s][a] = valuesBySampleIndex[s][a].clone();
-            }
+            newLikelihoodValues[s] = Arrays.copyOf(valuesBySampleIndex[s], alleleCount * readCapacityBySampleIndex[s]);
         }
 
         // Finally we create the new read-likelihood
@@ -202,7 +212,8 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
                 samples,
                 newReadsBySampleIndex,
                 newReadIndexBySampleIndex,
-                newLikelihoodValues);
+                newLikelihoodValues,
+                readCapacityBySampleIndex.clone());
     }
 
 
@@ -346,47 +357,50 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
         }
 
         for (int s = 0; s < valuesBySampleIndex.length; s++) {
-            final double[][] sampleValues = valuesBySampleIndex[s];
+            final double[] sampleValues = valuesBySampleIndex[s];
+            final int readCapacity = readCapacityBySampleIndex[s];
             final int readCount = readsBySampleIndex[s].length;
             for (int r = 0; r < readCount; r++) {
-                normalizeLikelihoodsPerRead(bestToZero, maximumLikelihoodDifferenceCap, sampleValues, s, r);
+                normalizeLikelihoodsPerRead(bestToZero, maximumLikelihoodDifferenceCap, sampleValues, readCapacity, s, r);
             }
         }
     }
 
     // Does the normalizeLikelihoods job for each read.
     private void normalizeLikelihoodsPerRead(final boolean bestToZero, final double maximumBestAltLikelihoodDifference,
-                                             final double[][] sampleValues, final int sampleIndex, final int readIndex) {
+                                             final double[] sampleValues, final int readCapacity,
+                                             final int sampleIndex, final int readIndex) {
 
         final BestAllele bestAlternativeAllele = searchBestAllele(sampleIndex,readIndex,false);
 
         final double worstLikelihoodCap = bestAlternativeAllele.likelihood + maximumBestAltLikelihoodDifference;
 
         final double referenceLikelihood = referenceAlleleIndex == MISSING_REF ? Double.NEGATIVE_INFINITY :
-                sampleValues[referenceAlleleIndex][readIndex];
+                sampleValues[referenceAlleleIndex * readCapacity + readIndex];
 
         final double bestAbsoluteLikelihood = Math.max(bestAlternativeAllele.likelihood, referenceLikelihood);
 
         final int alleleCount = alleles.numberOfAlleles();
+        final int end = alleleCount * readCapacity + readIndex;
         if (bestToZero) {
             if (bestAbsoluteLikelihood == Double.NEGATIVE_INFINITY) {
-                for (int a = 0; a < alleleCount; a++) {
-                    sampleValues[a][readIndex] = 0;
+                for (int i = readIndex; i < end; i += readCapacity) {
+                    sampleValues[i] = 0;
                 }
             } else if (worstLikelihoodCap != Double.NEGATIVE_INFINITY) {
-                for (int a = 0; a < alleleCount; a++) {
-                    sampleValues[a][readIndex] = (sampleValues[a][readIndex] < worstLikelihoodCap ? worstLikelihoodCap : sampleValues[a][readIndex]) - bestAbsoluteLikelihood;
+                for (int i = readIndex; i < end; i += readCapacity) {
+                    sampleValues[i] = (sampleValues[i] < worstLikelihoodCap ? worstLikelihoodCap : sampleValues[i]) - bestAbsoluteLikelihood;
                 }
             } else {
-                for (int a = 0; a < alleleCount; a++) {
-                    sampleValues[a][readIndex] -= bestAbsoluteLikelihood;
+                for (int i = readIndex; i < end; i += readCapacity) {
+                    sampleValues[i] -= bestAbsoluteLikelihood;
                 }
             }
         } else {
             // Guarantee to be the case by enclosing code.
-            for (int a = 0; a < alleleCount; a++) {
-                if (sampleValues[a][readIndex] < worstLikelihoodCap) {
-                    sampleValues[a][readIndex] = worstLikelihoodCap;
+            for (int i = readIndex; i < end; i += readCapacity) {
+                if (sampleValues[i] < worstLikelihoodCap) {
+                    sampleValues[i] = worstLikelihoodCap;
                 }
             }
         }
@@ -441,16 +455,17 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
             return new BestAllele(sampleIndex, readIndex, -1, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY);
         }
 
-        final double[][] sampleValues = valuesBySampleIndex[sampleIndex];
+        final double[] sampleValues = valuesBySampleIndex[sampleIndex];
+        final int readCapacity = readCapacityBySampleIndex[sampleIndex];
         int bestAlleleIndex = canBeReference || referenceAlleleIndex != 0 ? 0 : 1;
 
-        double bestLikelihood = sampleValues[bestAlleleIndex][readIndex];
+        double bestLikelihood = sampleValues[bestAlleleIndex * readCapacity + readIndex];
         double secondBestLikelihood = Double.NEGATIVE_INFINITY;
         for (int a = bestAlleleIndex + 1; a < alleleCount; a++) {
             if (!canBeReference && referenceAlleleIndex == a) {
                 continue;
             }
-            final double candidateLikelihood = sampleValues[a][readIndex];
+            final double candidateLikelihood = sampleValues[a * readCapacity + readIndex];
             if (candidateLikelihood > bestLikelihood) {
                 bestAlleleIndex = a;
                 secondBestLikelihood = bestLikelihood;
@@ -530,15 +545,11 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
 
         //copy old allele likelihoods and set new allele likelihoods to the default value
         for (int s = 0; s < samples.numberOfSamples(); s++) {
-            final int sampleReadCount = readsBySampleIndex[s].length;
-            final double[][] newValuesBySampleIndex = Arrays.copyOf(valuesBySampleIndex[s], newAlleleCount);
-            for (int a = oldAlleleCount; a < newAlleleCount; a++) {
-                newValuesBySampleIndex[a] = new double[sampleReadCount];
-                if (defaultLikelihood != 0.0) {
-                    Arrays.fill(newValuesBySampleIndex[a], defaultLikelihood);
-                }
+            final int readCapacity = readCapacityBySampleIndex[s];
+            if (valuesBySampleIndex[s].length < newAlleleCount * readCapacity) {
+                valuesBySampleIndex[s] = Arrays.copyOf(valuesBySampleIndex[s], newAlleleCount * readCapacity);
             }
-            valuesBySampleIndex[s] = newValuesBySampleIndex;
+            Arrays.fill(valuesBySampleIndex[s], oldAlleleCount * readCapacity, newAlleleCount * readCapacity, defaultLikelihood);
         }
         return true;
     }
@@ -569,15 +580,17 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
         final int[] oldToNewAlleleIndexMap = oldToNewAlleleIndexMap(newToOldAlleleMap, oldAlleleCount, newAlleles);
 
         // We calculate the marginal likelihoods.
-        final double[][][] newLikelihoodValues = marginalLikelihoods(oldAlleleCount, newAlleleCount, oldToNewAlleleIndexMap, null);
+        final double[][] newLikelihoodValues = marginalLikelihoods(oldAlleleCount, newAlleleCount, oldToNewAlleleIndexMap, null);
 
         final int sampleCount = samples.numberOfSamples();
 
         final Object2IntMap<GATKRead>[] newReadIndexBySampleIndex = new Object2IntMap[sampleCount];
         final GATKRead[][] newReadsBySampleIndex = new GATKRead[sampleCount][];
+        final int[] newReadCapacities = new int[sampleCount];
 
         for (int s = 0; s < sampleCount; s++) {
             newReadsBySampleIndex[s] = readsBySampleIndex[s].clone();
+            newReadCapacities[s] = newReadsBySampleIndex[s].length;
         }
 
         // Finally we create the new read-likelihood
@@ -585,7 +598,7 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
                 new IndexedAlleleList(newAlleles),
                 samples,
                 newReadsBySampleIndex,
-                newReadIndexBySampleIndex, newLikelihoodValues);
+                newReadIndexBySampleIndex, newLikelihoodValues, newReadCapacities);
     }
 
 
@@ -623,13 +636,14 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
         final int[][] readsToKeep = overlappingReadIndicesBySampleIndex(overlap);
         // We calculate the marginal likelihoods.
 
-        final double[][][] newLikelihoodValues = marginalLikelihoods(oldAlleleCount, newAlleleCount, oldToNewAlleleIndexMap, readsToKeep);
+        final double[][] newLikelihoodValues = marginalLikelihoods(oldAlleleCount, newAlleleCount, oldToNewAlleleIndexMap, readsToKeep);
 
         final int sampleCount = samples.numberOfSamples();
 
         @SuppressWarnings({"rawtypes","unchecked"})
         final Object2IntMap<GATKRead>[] newReadIndexBySampleIndex = (Object2IntMap<GATKRead>[])new Object2IntMap[sampleCount];
         final GATKRead[][] newReadsBySampleIndex = new GATKRead[sampleCount][];
+        final int[] newReadCapacities = new int[sampleCount];
 
         for (int s = 0; s < sampleCount; s++) {
             final int[] sampleReadsToKeep = readsToKeep[s];
@@ -644,12 +658,13 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
                     newReadsBySampleIndex[s][i] = oldSampleReads[sampleReadsToKeep[i]];
                 }
             }
+            newReadCapacities[s] = newSampleReadCount;
         }
 
         // Finally we create the new read-likelihood
         return new ReadLikelihoods<>(new IndexedAlleleList<>(newAlleles), samples,
                 newReadsBySampleIndex,
-                newReadIndexBySampleIndex, newLikelihoodValues);
+                newReadIndexBySampleIndex, newLikelihoodValues, newReadCapacities);
     }
 
     private int[][] overlappingReadIndicesBySampleIndex(final Locatable overlap) {
@@ -698,32 +713,34 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
     }
 
     // Calculate the marginal likelihoods considering the old -> new allele index mapping.
-    private double[][][] marginalLikelihoods(final int oldAlleleCount, final int newAlleleCount, final int[] oldToNewAlleleIndexMap, final int[][] readsToKeep) {
+    // The result for each sample has exactly room for the reads kept.
+    private double[][] marginalLikelihoods(final int oldAlleleCount, final int newAlleleCount, final int[] oldToNewAlleleIndexMap, final int[][] readsToKeep) {
 
         final int sampleCount = samples.numberOfSamples();
-        final double[][][] result = new double[sampleCount][][];
+        final double[][] result = new double[sampleCount][];
 
         for (int s = 0; s < sampleCount; s++) {
             final int sampleReadCount = readsBySampleIndex[s].length;
-            final double[][] oldSampleValues = valuesBySampleIndex[s];
+            final double[] oldSampleValues = valuesBySampleIndex[s];
+            final int oldReadCapacity = readCapacityBySampleIndex[s];
             final int[] sampleReadToKeep = readsToKeep == null || readsToKeep[s].length == sampleReadCount ? null : readsToKeep[s];
             final int newSampleReadCount = sampleReadToKeep == null ? sampleReadCount : sampleReadToKeep.length;
-            final double[][] newSampleValues = result[s] = new double[newAlleleCount][newSampleReadCount];
+            final double[] newSampleValues = result[s] = new double[newAlleleCount * newSampleReadCount];
             // We initiate all likelihoods to -Inf.
-            for (int a = 0; a < newAlleleCount; a++) {
-                Arrays.fill(newSampleValues[a], Double.NEGATIVE_INFINITY);
-            }
+            Arrays.fill(newSampleValues, Double.NEGATIVE_INFINITY);
             // For each old allele and read we update the new table keeping the maximum likelihood.
-            for (int r = 0; r < newSampleReadCount; r++) {
-                for (int a = 0; a < oldAlleleCount; a++) {
-                    final int oldReadIndex = newSampleReadCount == sampleReadCount ? r : sampleReadToKeep[r];
-                    final int newAlleleIndex = oldToNewAlleleIndexMap[a];
-                    if (newAlleleIndex == -1) {
-                        continue;
-                    }
-                    final double likelihood = oldSampleValues[a][oldReadIndex];
-                    if (likelihood > newSampleValues[newAlleleIndex][r]) {
-                        newSampleValues[newAlleleIndex][r] = likelihood;
+            for (int a = 0; a < oldAlleleCount; a++) {
+                final int newAlleleIndex = oldToNewAlleleIndexMap[a];
+                if (newAlleleIndex == -1) {
+                    continue;
+                }
+                final int oldOffset = a * oldReadCapacity;
+                final int newOffset = newAlleleIndex * newSampleReadCount;
+                for (int r = 0; r < newSampleReadCount; r++) {
+                    final int oldReadIndex = sampleReadToKeep == null ? r : sampleReadToKeep[r];
+                    final double likelihood = oldSampleValues[oldOffset + oldReadIndex];
+                    if (likelihood > newSampleValues[newOffset + r]) {
+                        newSampleValues[newOffset + r] = likelihood;
                     }
                 }
             }
@@ -789,9 +806,10 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
         final double log10MaxLikelihoodForTrueAllele = maxErrorsForRead * log10QualPerBase;
 
         final int alleleCount = alleles.numberOfAlleles();
-        final double[][] sampleValues = valuesBySampleIndex[sampleIndex];
+        final double[] sampleValues = valuesBySampleIndex[sampleIndex];
+        final int readCapacity = readCapacityBySampleIndex[sampleIndex];
         for (int a = 0; a < alleleCount; a++) {
-            if (sampleValues[a][readIndex] >= log10MaxLikelihoodForTrueAllele) {
+            if (sampleValues[a * readCapacity + readIndex] >= log10MaxLikelihoodForTrueAllele) {
                 return false;
             }
         }
@@ -831,18 +849,25 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
         }
     }
 
-    // Extends the likelihood arrays-matrices.
+    // Extends the likelihood arrays-matrices, reallocating only if the sample does not have room for the new reads.
     private void extendsLikelihoodArrays(final double initialLikelihood, final int sampleIndex, final int sampleReadCount, final int newSampleReadCount) {
-        final double[][] sampleValues = valuesBySampleIndex[sampleIndex];
         final int alleleCount = alleles.numberOfAlleles();
-        for (int a = 0; a < alleleCount; a++) {
-            sampleValues[a] = Arrays.copyOf(sampleValues[a], newSampleReadCount);
-        }
-        if (initialLikelihood != 0.0) // the default array new value.
-        {
+        final int readCapacity = readCapacityBySampleIndex[sampleIndex];
+        if (newSampleReadCount > readCapacity) {
+            // leave some room so that repeated additions don't reallocate every time
+            final int newReadCapacity = Math.max(newSampleReadCount, readCapacity + (readCapacity >> 1));
+            final double[] oldSampleValues = valuesBySampleIndex[sampleIndex];
+            final double[] newSampleValues = new double[alleleCount * newReadCapacity];
             for (int a = 0; a < alleleCount; a++) {
-                Arrays.fill(sampleValues[a], sampleReadCount, newSampleReadCount, initialLikelihood);
+                System.arraycopy(oldSampleValues, a * readCapacity, newSampleValues, a * newReadCapacity, sampleReadCount);
             }
+            valuesBySampleIndex[sampleIndex] = newSampleValues;
+            readCapacityBySampleIndex[sampleIndex] = newReadCapacity;
+        }
+        final double[] sampleValues = valuesBySampleIndex[sampleIndex];
+        final int stride = readCapacityBySampleIndex[sampleIndex];
+        for (int a = 0; a < alleleCount; a++) {
+            Arrays.fill(sampleValues, a * stride + sampleReadCount, a * stride + newSampleReadCount, initialLikelihood);
         }
     }
 
@@ -921,13 +946,14 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
         final double[] qualifiedAlleleLikelihoods = new double[nonSymbolicAlleleCount];
         final Median medianCalculator = new Median();
         for (int s = 0; s < samples.numberOfSamples(); s++) {
-            final double[][] sampleValues = valuesBySampleIndex[s];
-            final int readCount = sampleValues[0].length;
+            final double[] sampleValues = valuesBySampleIndex[s];
+            final int readCapacity = readCapacityBySampleIndex[s];
+            final int readCount = readsBySampleIndex[s].length;
             for (int r = 0; r < readCount; r++) {
                 final BestAllele bestAllele = searchBestAllele(s, r, true);
                 int numberOfQualifiedAlleleLikelihoods = 0;
                 for (int i = 0; i < alleleCount; i++) {
-                    final double alleleLikelihood = sampleValues[i][r];
+                    final double alleleLikelihood = sampleValues[i * readCapacity + r];
                     if (i != nonRefAlleleIndex && alleleLikelihood < bestAllele.likelihood
                             && !Double.isNaN(alleleLikelihood) && allelesToConsider.indexOfAllele(alleles.getAllele(i)) != -1) {
                         qualifiedAlleleLikelihoods[numberOfQualifiedAlleleLikelihoods++] = alleleLikelihood;
@@ -938,7 +964,7 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
                 // so the read is not informative at all given the existing alleles. Unless there is only one (or zero) concrete
                 // alleles with give the same (the best) likelihood to the NON-REF. When there is only one (or zero) concrete
                 // alleles we set the NON-REF likelihood to NaN.
-                sampleValues[nonRefAlleleIndex][r] = !Double.isNaN(nonRefLikelihood) ? nonRefLikelihood
+                sampleValues[nonRefAlleleIndex * readCapacity + r] = !Double.isNaN(nonRefLikelihood) ? nonRefLikelihood
                         : nonSymbolicAlleleCount <= 1 ? Double.NaN : bestAllele.likelihood;
             }
         }
@@ -1214,13 +1240,7 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
         Utils.skimArray(oldSampleReads,firstDeleted, newSampleReads, firstDeleted, removeIndex, firstDeleted);
 
         // Then we skim out the likelihoods of the removed reads.
-        final double[][] oldSampleValues = valuesBySampleIndex[sampleIndex];
-        final double[][] newSampleValues = new double[alleleCount][newSampleReadCount];
-        for (int a = 0; a < alleleCount; a++) {
-            System.arraycopy(oldSampleValues[a], 0, newSampleValues[a], 0, firstDeleted);
-            Utils.skimArray(oldSampleValues[a], firstDeleted, newSampleValues[a], firstDeleted, removeIndex, firstDeleted);
-        }
-        valuesBySampleIndex[sampleIndex] = newSampleValues;
+        removeSampleValues(sampleIndex, alleleCount, sampleReadCount, removeIndex, firstDeleted);
         readsBySampleIndex[sampleIndex] = newSampleReads;
         readListBySampleIndex[sampleIndex] = null; // reset the unmodifiable list.
     }
@@ -1272,17 +1292,28 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
         }
 
         // Then we skim out the likelihoods of the removed reads.
-        final double[][] oldSampleValues = valuesBySampleIndex[sampleIndex];
-        final double[][] newSampleValues = new double[alleleCount][newSampleReadCount];
-        for (int a = 0; a < alleleCount; a++) {
-            System.arraycopy(oldSampleValues[a],0,newSampleValues[a],0,firstDeleted);
-            Utils.skimArray(oldSampleValues[a], firstDeleted, newSampleValues[a], firstDeleted, removeIndex, firstDeleted);
-        }
-        valuesBySampleIndex[sampleIndex] = newSampleValues;
+        removeSampleValues(sampleIndex, alleleCount, sampleReadCount, removeIndex, firstDeleted);
         readsBySampleIndex[sampleIndex] = newSampleReads;
         readListBySampleIndex[sampleIndex] = null; // reset the unmodifiable list.
     }
 
+    // Skims out the likelihoods of removed reads in place, moving those of the remaining reads towards the start of each
+    // allele's row. The sample keeps its read capacity.
+    private void removeSampleValues(final int sampleIndex, final int alleleCount, final int sampleReadCount,
+                                    final boolean[] removeIndex, final int firstDeleted) {
+        final double[] sampleValues = valuesBySampleIndex[sampleIndex];
+        final int readCapacity = readCapacityBySampleIndex[sampleIndex];
+        for (int a = 0; a < alleleCount; a++) {
+            final int offset = a * readCapacity;
+            int to = offset + firstDeleted;
+            for (int r = firstDeleted; r < sampleReadCount; r++) {
+                if (!removeIndex[r]) {
+                    sampleValues[to++] = sampleValues[offset + r];
+                }
+            }
+        }
+    }
+
 
     private Object2IntMap<GATKRead> readIndexBySampleIndex(final int sampleIndex) {
         if (readIndexBySampleIndex[sampleIndex] == null) {
@@ -1319,16 +1350,16 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
 
         @Override
         public void set(final int alleleIndex, final int readIndex, final double value) {
-            Utils.validIndex(alleleIndex, valuesBySampleIndex[sampleIndex].length);
-            Utils.validIndex(readIndex, valuesBySampleIndex[sampleIndex][alleleIndex].length);
-            valuesBySampleIndex[sampleIndex][alleleIndex][readIndex] = value;
+            Utils.validIndex(alleleIndex, alleles.numberOfAlleles());
+            Utils.validIndex(readIndex, readsBySampleIndex[sampleIndex].length);
+            valuesBySampleIndex[sampleIndex][alleleIndex * readCapacityBySampleIndex[sampleIndex] + readIndex] = value;
         }
 
         @Override
         public double get(final int alleleIndex, final int readIndex) {
-            Utils.validIndex(alleleIndex, valuesBySampleIndex[sampleIndex].length);
-            Utils.validIndex(readIndex, valuesBySampleIndex[sampleIndex][alleleIndex].length);
-            return valuesBySampleIndex[sampleIndex][alleleIndex][readIndex];
+            Utils.validIndex(alleleIndex, alleles.numberOfAlleles());
+            Utils.validIndex(readIndex, readsBySampleIndex[sampleIndex].length);
+            return valuesBySampleIndex[sampleIndex][alleleIndex * readCapacityBySampleIndex[sampleIndex] + readIndex];
         }
 
         @Override
@@ -1368,8 +1399,8 @@ public final class ReadLikelihoods<A extends Allele> implements SampleList, Alle
         @Override
         public void copyAlleleLikelihoods(final int alleleIndex, final double[] dest, final int offset) {
             Utils.nonNull(dest);
-            Utils.validIndex(alleleIndex, valuesBySampleIndex[sampleIndex].length);
-            System.arraycopy(valuesBySampleIndex[sampleIndex][alleleIndex], 0, dest, offset, numberOfReads());
+            Utils.validIndex(alleleIndex, alleles.numberOfAlleles());
+            System.arraycopy(valuesBySampleIndex[sampleIndex], alleleIndex * readCapacityBySampleIndex[sampleIndex], dest, offset, numberOfReads());
         }
     }
 }
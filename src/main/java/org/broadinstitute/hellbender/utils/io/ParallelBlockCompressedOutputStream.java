@@ -0,0 +1,395 @@
+package org.broadinstitute.hellbender.utils.io;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import htsjdk.samtools.util.BlockCompressedOutputStream;
+import htsjdk.samtools.util.BlockCompressedStreamConstants;
+import htsjdk.samtools.util.LocationAware;
+import htsjdk.samtools.util.zip.DeflaterFactory;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * BGZF output stream that deflates blocks on a pool of worker threads, and writes them in order on the thread that
+ * writes to the stream.
+ *
+ * Data is cut into blocks and each block is deflated exactly as by htsjdk's {@link BlockCompressedOutputStream}, so
+ * the output is byte for byte that of a BlockCompressedOutputStream with the same compression level and deflater
+ * factory, terminator block included. The number of blocks queued or being deflated is bounded: once that many blocks
+ * are in flight, writing to the stream blocks until the oldest of them has been deflated and written.
+ *
+ * Since the compressed size of the blocks in flight isn't known yet, {@link #getPosition()} doesn't return a BGZF
+ * virtual file pointer, but the number of the current block and the offset in that block, packed the same way. Such
+ * positions are turned into virtual file pointers once the blocks before theirs have been written: see
+ * {@link #whenWritten}, which lets writers build indices on the fly.
+ *
+ * As a BlockCompressedOutputStream, this stream is meant to be used by a single thread.
+ */
+public final class ParallelBlockCompressedOutputStream extends OutputStream implements LocationAware {
+
+    /**
+     * Receives the virtual file pointers of the start and end of a span of the stream
+     */
+    @FunctionalInterface
+    public interface FilePointerSpanConsumer {
+        void accept(long startFilePointer, long endFilePointer);
+    }
+
+    // blocks that may be queued or being deflated, per worker thread
+    private static final int BLOCKS_IN_FLIGHT_PER_THREAD = 4;
+
+    private static final int UNCOMPRESSED_BLOCK_SIZE = BlockCompressedStreamConstants.DEFAULT_UNCOMPRESSED_BLOCK_SIZE;
+    private static final int MAX_DEFLATED_SIZE = BlockCompressedStreamConstants.MAX_COMPRESSED_BLOCK_SIZE - BlockCompressedStreamConstants.BLOCK_HEADER_LENGTH;
+
+    // positions, as virtual file pointers, keep the offset in the block in their 16 low bits
+    private static final int OFFSET_BITS = 16;
+    private static final long OFFSET_MASK = (1L << OFFSET_BITS) - 1;
+
+    private final OutputStream out;
+    private final int compressionLevel;
+    private final DeflaterFactory deflaterFactory;
+    private final ExecutorService executor;
+    private final int maxBlocksInFlight;
+
+    // compressed blocks, in the order they are to be written
+    private final Deque<Future<ByteBuffer>> blocksInFlight = new ArrayDeque<>();
+    // deflaters and uncompressed buffers not in use by any worker
+    private final Queue<Deflater> idleDeflaters = new ConcurrentLinkedQueue<>();
+    private final Queue<byte[]> idleBuffers = new ConcurrentLinkedQueue<>();
+
+    private byte[] buffer = new byte[UNCOMPRESSED_BLOCK_SIZE];
+    private int bufferedBytes = 0;
+    private long blocksSubmitted = 0;
+    private long blocksWritten = 0;
+    // address in the output of the next block to write
+    private long bytesWritten = 0;
+    // spans waiting for their blocks to be written, in the order they were registered
+    private final Deque<PendingSpan> pendingSpans = new ArrayDeque<>();
+    // oldest block that positions handed out but not yet used in a span may refer to
+    private long oldestReferencedBlock = Long.MAX_VALUE;
+    // addresses of the written blocks from that block on, the first of which is block number historyStart
+    private long[] blockAddresses = new long[16];
+    private int historySize = 0;
+    private long historyStart = 0;
+    private boolean closed = false;
+
+    private static final class PendingSpan {
+        private final long start;
+        private final long end;
+        private final FilePointerSpanConsumer consumer;
+        private long startFilePointer = -1;
+        private long endFilePointer = -1;
+
+        private PendingSpan(final long start, final long end, final FilePointerSpanConsumer consumer) {
+            this.start = start;
+            this.end = end;
+            this.consumer = consumer;
+        }
+    }
+
+    /**
+     * @param out stream to write the compressed blocks to, closed with this stream
+     * @param compressionLevel deflate compression level of the blocks
+     * @param deflaterFactory creates the deflaters of the worker threads
+     * @param numThreads number of worker threads deflating blocks
+     */
+    public ParallelBlockCompressedOutputStream(final OutputStream out, final int compressionLevel, final DeflaterFactory deflaterFactory, final int numThreads) {
+        this.out = Utils.nonNull(out);
+        this.deflaterFactory = Utils.nonNull(deflaterFactory);
+        Utils.validateArg(compressionLevel >= Deflater.NO_COMPRESSION && compressionLevel <= Deflater.BEST_COMPRESSION, () -> "invalid compression level " + compressionLevel);
+        Utils.validateArg(numThreads > 0, "numThreads must be > 0");
+        this.compressionLevel = compressionLevel;
+        this.maxBlocksInFlight = BLOCKS_IN_FLIGHT_PER_THREAD * numThreads;
+        this.executor = Executors.newFixedThreadPool(numThreads, new ThreadFactoryBuilder().setNameFormat("bgzf-compressor-%d").setDaemon(true).build());
+    }
+
+    /**
+     * @param out stream to write the compressed blocks to, closed with this stream
+     * @param numThreads number of worker threads deflating blocks
+     * @return a stream with the default compression level and deflater factory of {@link BlockCompressedOutputStream}
+     */
+    public static ParallelBlockCompressedOutputStream withDefaultCompression(final OutputStream out, final int numThreads) {
+        return new ParallelBlockCompressedOutputStream(out, BlockCompressedOutputStream.getDefaultCompressionLevel(),
+                BlockCompressedOutputStream.getDefaultDeflaterFactory(), numThreads);
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+        ensureOpen();
+        buffer[bufferedBytes++] = (byte) b;
+        if ( bufferedBytes == UNCOMPRESSED_BLOCK_SIZE ) {
+            submitBlock();
+        }
+    }
+
+    @Override
+    public void write(final byte[] bytes, int offset, int length) throws IOException {
+        ensureOpen();
+        Utils.nonNull(bytes);
+        Utils.validateArg(offset >= 0 && length >= 0 && offset + length <= bytes.length, "invalid offset or length");
+        while ( length > 0 ) {
+            final int n = Math.min(length, UNCOMPRESSED_BLOCK_SIZE - bufferedBytes);
+            System.arraycopy(bytes, offset, buffer, bufferedBytes, n);
+            bufferedBytes += n;
+            offset += n;
+            length -= n;
+            if ( bufferedBytes == UNCOMPRESSED_BLOCK_SIZE ) {
+                submitBlock();
+            }
+        }
+    }
+
+    /**
+     * Deflate any partially filled block, and write all blocks in flight to the underlying stream. As with
+     * {@link BlockCompressedOutputStream}, flushing ends the current block, so it changes the output.
+     */
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        submitBlock();
+        while ( !blocksInFlight.isEmpty() ) {
+            writeBlock(await(blocksInFlight.removeFirst()));
+        }
+        out.flush();
+    }
+
+    /**
+     * Write all blocks and the BGZF terminator block, and close the underlying stream
+     */
+    @Override
+    public void close() throws IOException {
+        if ( closed ) {
+            return;
+        }
+        try {
+            flush();
+            out.write(BlockCompressedStreamConstants.EMPTY_GZIP_BLOCK);
+        } finally {
+            closed = true;
+            executor.shutdownNow();
+            Deflater deflater;
+            while ( (deflater = idleDeflaters.poll()) != null ) {
+                deflater.end();
+            }
+            out.close();
+        }
+    }
+
+    /**
+     * @return the current position in the stream, made of the number of the current block and of the offset in that
+     *         block, which {@link #whenWritten} and {@link #getFilePointer} turn into a virtual file pointer. The
+     *         addresses of the blocks written from then on are kept until a span is registered with {@link #whenWritten},
+     *         so that positions taken before writing a record can be used once the record is written.
+     */
+    @Override
+    public long getPosition() {
+        oldestReferencedBlock = Math.min(oldestReferencedBlock, blocksSubmitted);
+        return (blocksSubmitted << OFFSET_BITS) | bufferedBytes;
+    }
+
+    /**
+     * Register a callback to receive the virtual file pointers of a span of the stream, once the blocks holding the
+     * span have been written. Callbacks are called on the thread writing to the stream, from this method or from its
+     * write, flush or close methods, in the order the spans were registered.
+     *
+     * Spans must be registered in the order of their starts, and positions before the start of a registered span
+     * can't be used in later spans.
+     *
+     * @param start position of the start of the span, as returned by {@link #getPosition()}
+     * @param end position of the end of the span, as returned by {@link #getPosition()}
+     * @param consumer receives the virtual file pointers of the start and end of the span
+     */
+    public void whenWritten(final long start, final long end, final FilePointerSpanConsumer consumer) {
+        Utils.nonNull(consumer);
+        Utils.validateArg(start <= end, "the span ends before its start");
+        Utils.validateArg(isResolvable(start) || getBlock(start) > blocksWritten, "the span starts before the start of a span already registered");
+        Utils.validateArg(end <= getPosition(), "the span ends past the current position");
+        pendingSpans.addLast(new PendingSpan(start, end, consumer));
+        resolvePendingSpans();
+
+        // the addresses of the blocks before the start of the span won't be needed anymore
+        oldestReferencedBlock = getBlock(start);
+        final int obsoleteBlocks = (int) Math.min(historySize, Math.max(0, oldestReferencedBlock - historyStart));
+        System.arraycopy(blockAddresses, obsoleteBlocks, blockAddresses, 0, historySize - obsoleteBlocks);
+        historySize -= obsoleteBlocks;
+        historyStart += obsoleteBlocks;
+    }
+
+    /**
+     * @param position a position, as returned by {@link #getPosition()}, in a block that has been written or is the
+     *                 next block to be written: typically the final position, once the stream is flushed or closed
+     * @return the virtual file pointer of that position
+     */
+    public long getFilePointer(final long position) {
+        Utils.validateArg(isResolvable(position), "the blocks preceding the position haven't been written yet");
+        return toFilePointer(position);
+    }
+
+    private static long getBlock(final long position) {
+        return position >>> OFFSET_BITS;
+    }
+
+    // the address of a block is known once all the blocks before it have been written
+    private boolean isResolvable(final long position) {
+        final long block = getBlock(position);
+        return block == blocksWritten || (block >= historyStart && block < historyStart + historySize);
+    }
+
+    private long toFilePointer(final long position) {
+        final long block = getBlock(position);
+        final long blockAddress = block == blocksWritten ? bytesWritten : blockAddresses[(int) (block - historyStart)];
+        return (blockAddress << OFFSET_BITS) | (position & OFFSET_MASK);
+    }
+
+    private void ensureOpen() throws IOException {
+        if ( closed ) {
+            throw new IOException("Stream closed");
+        }
+    }
+
+    private void submitBlock() throws IOException {
+        if ( bufferedBytes == 0 ) {
+            return;
+        }
+        while ( blocksInFlight.size() >= maxBlocksInFlight ) {
+            writeBlock(await(blocksInFlight.removeFirst()));
+        }
+        final byte[] uncompressed = buffer;
+        final int length = bufferedBytes;
+        blocksInFlight.addLast(executor.submit(() -> deflateBlock(uncompressed, length)));
+        blocksSubmitted++;
+
+        final byte[] idleBuffer = idleBuffers.poll();
+        buffer = idleBuffer != null ? idleBuffer : new byte[UNCOMPRESSED_BLOCK_SIZE];
+        bufferedBytes = 0;
+
+        // write the blocks that are ready right away, so that spans are resolved as early as possible
+        while ( !blocksInFlight.isEmpty() && blocksInFlight.peekFirst().isDone() ) {
+            writeBlock(await(blocksInFlight.removeFirst()));
+        }
+    }
+
+    private static ByteBuffer await(final Future<ByteBuffer> block) throws IOException {
+        try {
+            return block.get();
+        } catch ( final InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a block to be compressed");
+        } catch ( final ExecutionException e ) {
+            throw new IOException("Failed to compress a block", e.getCause());
+        }
+    }
+
+    private void writeBlock(final ByteBuffer block) throws IOException {
+        if ( blocksWritten >= oldestReferencedBlock ) {
+            if ( historySize == 0 ) {
+                historyStart = blocksWritten;
+            }
+            if ( historySize == blockAddresses.length ) {
+                blockAddresses = Arrays.copyOf(blockAddresses, 2 * historySize);
+            }
+            blockAddresses[historySize++] = bytesWritten;
+        }
+        out.write(block.array(), 0, block.limit());
+        bytesWritten += block.limit();
+        blocksWritten++;
+        resolvePendingSpans();
+    }
+
+    /**
+     * Resolve the ends of spans whose blocks have become resolvable, and hand the spans whose both ends are resolved
+     * to their consumers
+     */
+    private void resolvePendingSpans() {
+        for ( final PendingSpan span : pendingSpans ) {
+            if ( getBlock(span.start) > blocksWritten ) {
+                // spans are registered in order of their starts, so none of the following spans can be resolved
+                break;
+            }
+            if ( span.startFilePointer < 0 && isResolvable(span.start) ) {
+                span.startFilePointer = toFilePointer(span.start);
+            }
+            if ( span.endFilePointer < 0 && isResolvable(span.end) ) {
+                span.endFilePointer = toFilePointer(span.end);
+            }
+        }
+        while ( !pendingSpans.isEmpty() && pendingSpans.peekFirst().endFilePointer >= 0 ) {
+            final PendingSpan span = pendingSpans.removeFirst();
+            span.consumer.accept(span.startFilePointer, span.endFilePointer);
+        }
+    }
+
+    /**
+     * Deflate a block as {@link BlockCompressedOutputStream} does, on a worker thread
+     *
+     * @return the BGZF block, from position 0 to its limit
+     */
+    private ByteBuffer deflateBlock(final byte[] uncompressed, final int length) {
+        final byte[] block = new byte[BlockCompressedStreamConstants.BLOCK_HEADER_LENGTH + MAX_DEFLATED_SIZE + BlockCompressedStreamConstants.BLOCK_FOOTER_LENGTH];
+        final Deflater idleDeflater = idleDeflaters.poll();
+        final Deflater deflater = idleDeflater != null ? idleDeflater : deflaterFactory.makeDeflater(compressionLevel, true);
+        int deflatedSize;
+        try {
+            deflatedSize = deflate(deflater, uncompressed, length, block);
+        } finally {
+            idleDeflaters.add(deflater);
+        }
+        if ( deflatedSize < 0 ) {
+            // data that deflate doesn't shrink enough to fit in a block is stored uncompressed
+            final Deflater noCompressionDeflater = new Deflater(Deflater.NO_COMPRESSION, true);
+            try {
+                deflatedSize = deflate(noCompressionDeflater, uncompressed, length, block);
+            } finally {
+                noCompressionDeflater.end();
+            }
+            Utils.validate(deflatedSize >= 0, "unable to fit a block in the BGZF block size");
+        }
+
+        final CRC32 crc = new CRC32();
+        crc.update(uncompressed, 0, length);
+        idleBuffers.add(uncompressed);
+
+        final int blockSize = BlockCompressedStreamConstants.BLOCK_HEADER_LENGTH + deflatedSize + BlockCompressedStreamConstants.BLOCK_FOOTER_LENGTH;
+        final ByteBuffer blockBuffer = ByteBuffer.wrap(block).order(ByteOrder.LITTLE_ENDIAN);
+        blockBuffer.put(BlockCompressedStreamConstants.GZIP_ID1)
+                .put((byte) BlockCompressedStreamConstants.GZIP_ID2)
+                .put(BlockCompressedStreamConstants.GZIP_CM_DEFLATE)
+                .put((byte) BlockCompressedStreamConstants.GZIP_FLG)
+                .putInt(0) // modification time
+                .put((byte) BlockCompressedStreamConstants.GZIP_XFL)
+                .put((byte) BlockCompressedStreamConstants.GZIP_OS_UNKNOWN)
+                .putShort(BlockCompressedStreamConstants.GZIP_XLEN)
+                .put(BlockCompressedStreamConstants.BGZF_ID1)
+                .put(BlockCompressedStreamConstants.BGZF_ID2)
+                .putShort(BlockCompressedStreamConstants.BGZF_LEN)
+                .putShort((short) (blockSize - 1));
+        blockBuffer.position(BlockCompressedStreamConstants.BLOCK_HEADER_LENGTH + deflatedSize);
+        blockBuffer.putInt((int) crc.getValue()).putInt(length);
+        blockBuffer.flip();
+        return blockBuffer;
+    }
+
+    // returns the size of the deflated data, written after the block header, or -1 if it doesn't fit in a block
+    private static int deflate(final Deflater deflater, final byte[] uncompressed, final int length, final byte[] block) {
+        deflater.reset();
+        deflater.setInput(uncompressed, 0, length);
+        deflater.finish();
+        final int deflatedSize = deflater.deflate(block, BlockCompressedStreamConstants.BLOCK_HEADER_LENGTH, MAX_DEFLATED_SIZE);
+        return deflater.finished() ? deflatedSize : -1;
+    }
+}
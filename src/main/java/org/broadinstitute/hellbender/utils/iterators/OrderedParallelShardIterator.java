@@ -0,0 +1,303 @@
+package org.broadinstitute.hellbender.utils.iterators;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Processes a list of independent shards concurrently on a pool of worker threads, and returns the
+ * items produced by each shard in shard order, with the items of each shard in the order they were produced.
+ * Iterating over this class therefore gives exactly the same sequence of items as processing the shards
+ * one after another on a single thread.
+ *
+ * Each shard is processed by exactly one worker thread, which calls the supplied shard processor with the
+ * shard and a sink to which the processor should push its items. Any resources the processor needs (data sources,
+ * iterators, etc.) should be opened and closed within the processor call, so that no two threads ever share them.
+ *
+ * Memory use is bounded: each shard buffers at most {@code maxBufferedBatchesPerShard} batches of at most
+ * {@code batchSize} items, and at most {@code numThreads} shards are processed at any one time. A worker that
+ * gets ahead of the consumer blocks until the consumer catches up with its shard.
+ *
+ * If a worker throws, the exception is rethrown on the consuming thread once iteration reaches the failed shard.
+ *
+ * Clients must call {@link #close} (or exhaust the iterator) to release the worker threads. Workers are never
+ * interrupted, as an interrupt during a blocking NIO read would close a channel that may be shared with other
+ * iterations (see {@link java.nio.channels.ClosedByInterruptException}): instead, closing sets a cancellation flag
+ * that workers check each time they hand an item to the consumer, and that shard processors can check through the
+ * {@link BooleanSupplier} passed to a {@link ShardProcessor}.
+ *
+ * @param <S> type of the shards
+ * @param <T> type of the items produced by each shard
+ */
+public final class OrderedParallelShardIterator<S, T> implements Iterator<T>, AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(OrderedParallelShardIterator.class);
+
+    // How long a worker waits for buffer space between checks for cancellation
+    private static final long PUT_POLL_MILLISECONDS = 100;
+
+    // How long close() waits for the workers to notice the cancellation and stop
+    private static final long CLOSE_TIMEOUT_SECONDS = 60;
+
+    /**
+     * Processes a single shard on a worker thread.
+     *
+     * @param <S> type of the shards
+     * @param <T> type of the items produced by each shard
+     */
+    @FunctionalInterface
+    public interface ShardProcessor<S, T> {
+        /**
+         * @param shard shard to process
+         * @param sink destination of the items of the shard, which must be pushed in order
+         * @param cancelled returns true once the consumer has been closed, at which point the processor should stop
+         *                  as soon as possible (pushing an item to the sink after that stops the processor by throwing)
+         */
+        void process(S shard, Consumer<T> sink, BooleanSupplier cancelled);
+    }
+
+    private final ExecutorService executor;
+    private final Iterator<ShardBuffer<T>> pendingShards;
+
+    private ShardBuffer<T> currentShard;
+    private Iterator<T> currentBatch;
+    private boolean closed = false;
+    private volatile boolean cancelled = false;
+
+    /**
+     * @param shards shards to process, in the order in which their items should be returned
+     * @param shardProcessor function called on a worker thread for each shard, which must push the shard's items
+     *                       to the provided sink in order
+     * @param numThreads number of worker threads to use (must be >= 1)
+     * @param batchSize maximum number of items handed from a worker to the consumer at a time (must be >= 1)
+     * @param maxBufferedBatchesPerShard maximum number of batches buffered per shard before its worker blocks (must be >= 1)
+     * @param threadNameFormat name format for the worker threads, as used by {@link ThreadFactoryBuilder#setNameFormat}
+     */
+    public OrderedParallelShardIterator(final List<S> shards,
+                                        final BiConsumer<S, Consumer<T>> shardProcessor,
+                                        final int numThreads,
+                                        final int batchSize,
+                                        final int maxBufferedBatchesPerShard,
+                                        final String threadNameFormat) {
+        this(shards, (shard, sink, cancelled) -> Utils.nonNull(shardProcessor).accept(shard, sink),
+                numThreads, batchSize, maxBufferedBatchesPerShard, threadNameFormat);
+    }
+
+    /**
+     * @param shards shards to process, in the order in which their items should be returned
+     * @param shardProcessor called on a worker thread for each shard, which must push the shard's items to the
+     *                       provided sink in order, and may check for cancellation between items
+     * @param numThreads number of worker threads to use (must be >= 1)
+     * @param batchSize maximum number of items handed from a worker to the consumer at a time (must be >= 1)
+     * @param maxBufferedBatchesPerShard maximum number of batches buffered per shard before its worker blocks (must be >= 1)
+     * @param threadNameFormat name format for the worker threads, as used by {@link ThreadFactoryBuilder#setNameFormat}
+     */
+    public OrderedParallelShardIterator(final List<S> shards,
+                                        final ShardProcessor<S, T> shardProcessor,
+                                        final int numThreads,
+                                        final int batchSize,
+                                        final int maxBufferedBatchesPerShard,
+                                        final String threadNameFormat) {
+        Utils.nonNull(shards);
+        Utils.nonNull(shardProcessor);
+        Utils.validateArg(numThreads >= 1, "numThreads must be >= 1");
+        Utils.validateArg(batchSize >= 1, "batchSize must be >= 1");
+        Utils.validateArg(maxBufferedBatchesPerShard >= 1, "maxBufferedBatchesPerShard must be >= 1");
+        Utils.nonNull(threadNameFormat);
+
+        final ThreadFactory threadFactory = new ThreadFactoryBuilder()
+                .setNameFormat(threadNameFormat)
+                .setDaemon(true)
+                .build();
+        this.executor = Executors.newFixedThreadPool(numThreads, threadFactory);
+
+        // Shards are submitted in order, so the shard the consumer is waiting on has always been started
+        // before any shard that comes after it, and the consumer can never deadlock on a full buffer.
+        final List<ShardBuffer<T>> buffers = new ArrayList<>(shards.size());
+        for ( final S shard : shards ) {
+            final ShardBuffer<T> buffer = new ShardBuffer<>(maxBufferedBatchesPerShard, () -> cancelled);
+            buffers.add(buffer);
+            executor.execute(() -> buffer.fill(shard, shardProcessor, batchSize));
+        }
+        executor.shutdown();
+
+        this.pendingShards = buffers.iterator();
+        this.currentShard = pendingShards.hasNext() ? pendingShards.next() : null;
+        this.currentBatch = null;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while ( currentBatch == null || ! currentBatch.hasNext() ) {
+            if ( closed || currentShard == null ) {
+                return false;
+            }
+
+            final List<T> batch = currentShard.take();
+            if ( batch != null ) {
+                currentBatch = batch.iterator();
+            }
+            else {
+                currentShard = pendingShards.hasNext() ? pendingShards.next() : null;
+                if ( currentShard == null ) {
+                    close();
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public T next() {
+        if ( ! hasNext() ) {
+            throw new NoSuchElementException("next() called when there are no more items");
+        }
+        return currentBatch.next();
+    }
+
+    /**
+     * Stop all worker threads, abandoning any shards that have not yet been consumed. Returns once all workers
+     * have stopped, so that resources used by the shard processors may safely be released afterwards, or after
+     * a timeout if a worker doesn't check for cancellation in time.
+     */
+    @Override
+    public void close() {
+        if ( ! closed ) {
+            closed = true;
+            cancelled = true;
+            // the executor was shut down once all shards were submitted: shards that haven't started yet return at once
+            try {
+                if ( ! executor.awaitTermination(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS) ) {
+                    logger.warn(String.format("Worker threads still running %d seconds after being cancelled", CLOSE_TIMEOUT_SECONDS));
+                }
+            }
+            catch ( final InterruptedException e ) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Bounded hand-off buffer between the worker processing one shard and the consumer.
+     */
+    private static final class ShardBuffer<T> {
+        // Identity marker placed on the queue after the last batch of the shard
+        private final List<T> endOfShard = new ArrayList<>(0);
+        private final BlockingQueue<List<T>> batches;
+        private final BooleanSupplier cancelled;
+        private volatile Throwable failure = null;
+
+        ShardBuffer(final int capacity, final BooleanSupplier cancelled) {
+            this.batches = new ArrayBlockingQueue<>(capacity);
+            this.cancelled = cancelled;
+        }
+
+        <S> void fill(final S shard, final ShardProcessor<S, T> shardProcessor, final int batchSize) {
+            if ( cancelled.getAsBoolean() ) {
+                return;
+            }
+            try {
+                final List<List<T>> pendingBatch = new ArrayList<>(1);
+                pendingBatch.add(new ArrayList<>(batchSize));
+                shardProcessor.process(shard, item -> {
+                    if ( cancelled.getAsBoolean() ) {
+                        throw new WorkerCancelledException();
+                    }
+                    final List<T> batch = pendingBatch.get(0);
+                    batch.add(item);
+                    if ( batch.size() >= batchSize ) {
+                        put(batch);
+                        pendingBatch.set(0, new ArrayList<>(batchSize));
+                    }
+                }, cancelled);
+                if ( ! pendingBatch.get(0).isEmpty() ) {
+                    put(pendingBatch.get(0));
+                }
+            }
+            catch ( final WorkerCancelledException e ) {
+                // the consumer was closed: nothing left to do
+                return;
+            }
+            catch ( final Throwable t ) {
+                if ( cancelled.getAsBoolean() ) {
+                    // most likely a consequence of the consumer releasing the resources used by the processor
+                    return;
+                }
+                failure = t;
+            }
+
+            try {
+                put(endOfShard);
+            }
+            catch ( final WorkerCancelledException e ) {
+                // consumer is gone
+            }
+        }
+
+        // waits for buffer space, checking regularly whether the consumer has been closed
+        private void put(final List<T> batch) {
+            try {
+                while ( ! batches.offer(batch, PUT_POLL_MILLISECONDS, TimeUnit.MILLISECONDS) ) {
+                    if ( cancelled.getAsBoolean() ) {
+                        throw new WorkerCancelledException();
+                    }
+                }
+            }
+            catch ( final InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                throw new WorkerCancelledException();
+            }
+        }
+
+        /**
+         * @return the next batch for this shard, blocking until one is available, or null once the shard is exhausted
+         */
+        List<T> take() {
+            final List<T> batch;
+            try {
+                batch = batches.take();
+            }
+            catch ( final InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                throw new GATKException("Interrupted while waiting for a worker thread to process its shard", e);
+            }
+
+            if ( batch != endOfShard ) {
+                return batch;
+            }
+
+            if ( failure != null ) {
+                if ( failure instanceof RuntimeException ) {
+                    throw (RuntimeException)failure;
+                }
+                if ( failure instanceof Error ) {
+                    throw (Error)failure;
+                }
+                throw new GATKException("Exception thrown by worker thread while processing shard", failure);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Thrown within a worker to unwind a shard processor when the consumer has been closed.
+     */
+    private static final class WorkerCancelledException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+    }
+}
@@ -3,18 +3,36 @@ package org.broadinstitute.hellbender.utils.iterators;
 
 import htsjdk.samtools.SAMRecord;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.read.RawBAMRecordToGATKReadAdapter;
 import org.broadinstitute.hellbender.utils.read.SAMRecordToGATKReadAdapter;
+import org.broadinstitute.hellbender.utils.runtime.MetricsRegistry;
 
 import java.util.Iterator;
 
 /**
- * Wraps a SAMRecord iterator within an iterator of GATKReads.
+ * Wraps a SAMRecord iterator within an iterator of GATKReads, counting the reads decoded in the default metrics registry.
+ *
+ * If lazy decoding is enabled, the records read from BAM files are adapted by {@link RawBAMRecordToGATKReadAdapter#adapt},
+ * which keeps their variable-length fields in their BAM encoding until they are accessed. Such reads are only counted
+ * if they are decoded later on.
  */
 public final class SAMRecordToReadIterator implements Iterator<GATKRead>, Iterable<GATKRead> {
+    /**
+     * Count of the reads decoded from inputs, by this iterator or by {@link RawBAMRecordToGATKReadAdapter}
+     */
+    public static final MetricsRegistry.Counter READS_DECODED = MetricsRegistry.getDefault().counter(
+            "gatk_reads_decoded_total", "Reads decoded from SAM/BAM/CRAM inputs");
+
     private final Iterator<SAMRecord> samIterator;
+    private final boolean lazyDecoding;
 
     public SAMRecordToReadIterator( final Iterator<SAMRecord> samIterator ) {
+        this(samIterator, false);
+    }
+
+    public SAMRecordToReadIterator( final Iterator<SAMRecord> samIterator, final boolean lazyDecoding ) {
         this.samIterator = samIterator;
+        this.lazyDecoding = lazyDecoding;
     }
 
     @Override
@@ -24,7 +42,12 @@ public final class SAMRecordToReadIterator implements Iterator<GATKRead>, Iterab
 
     @Override
     public GATKRead next() {
-        return new SAMRecordToGATKReadAdapter(samIterator.next());
+        final SAMRecord samRecord = samIterator.next();
+        final GATKRead read = lazyDecoding ? RawBAMRecordToGATKReadAdapter.adapt(samRecord) : new SAMRecordToGATKReadAdapter(samRecord);
+        if ( read instanceof SAMRecordToGATKReadAdapter ) {
+            READS_DECODED.increment();
+        }
+        return read;
     }
 
     @Override
@@ -11,7 +11,6 @@ import org.broadinstitute.hellbender.utils.IntervalUtils;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.iterators.IntervalLocusIterator;
-import org.broadinstitute.hellbender.utils.iterators.IntervalOverlappingIterator;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
 
 import java.util.Iterator;
@@ -146,7 +145,7 @@ public class AlignmentContextIteratorBuilder {
             final IntervalLocusIterator intervalLocusIterator = new IntervalLocusIterator(finalIntervals.iterator());
             return new IntervalAlignmentContextIterator(libs, intervalLocusIterator, header.getSequenceDictionary());
         } else if (areIntervalsSpecified(finalIntervals)) {
-            return new IntervalOverlappingIterator<>(libs, finalIntervals, header.getSequenceDictionary());
+            return new IntervalOverlappingColumnIterator(libs, finalIntervals, header.getSequenceDictionary());
         } else {
             // prepare the iterator
             return libs;
@@ -0,0 +1,85 @@
+package org.broadinstitute.hellbender.utils.locusiterator;
+
+import htsjdk.samtools.SAMSequenceDictionary;
+import org.broadinstitute.hellbender.engine.AlignmentContext;
+import org.broadinstitute.hellbender.utils.IntervalUtils;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.iterators.IntervalOverlappingIterator;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterator over the AlignmentContexts of a {@link LocusIteratorByState} that overlap a sorted list of intervals
+ *
+ * Produces the same contexts as wrapping the LIBS in an {@link IntervalOverlappingIterator}, but the LIBS is
+ * iterated with {@link LocusIteratorByState#nextColumn()}, so that the pileups at loci outside of the intervals
+ * (which are covered by reads overlapping the edges of the intervals) are never materialized.
+ */
+final class IntervalOverlappingColumnIterator implements Iterator<AlignmentContext> {
+
+    private final LocusIteratorByState libs;
+
+    // sorted intervals
+    private final Iterator<SimpleInterval> intervals;
+
+    // the current interval to check, or null if we are past all intervals
+    private SimpleInterval currentInterval;
+
+    // the sequence dictionary to get contig ordering
+    private final SAMSequenceDictionary dictionary;
+
+    // the next context to return
+    private AlignmentContext next;
+
+    /**
+     * @param libs       the LIBS to take the columns from, which must not have been iterated yet
+     * @param intervals  sorted list of intervals to traverse
+     * @param dictionary sequence dictionary indicating the ordering of contigs
+     */
+    IntervalOverlappingColumnIterator(final LocusIteratorByState libs, final List<SimpleInterval> intervals, final SAMSequenceDictionary dictionary) {
+        this.libs = Utils.nonNull(libs);
+        Utils.nonEmpty(intervals);
+        this.dictionary = Utils.nonNull(dictionary);
+        this.intervals = intervals.iterator();
+        currentInterval = this.intervals.next();
+        advance();
+    }
+
+    @Override
+    public boolean hasNext() {
+        return next != null;
+    }
+
+    @Override
+    public AlignmentContext next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        final AlignmentContext toReturn = next;
+        advance();
+        return toReturn;
+    }
+
+    /**
+     * Advance to the next column overlapping an interval, setting next to null if there are no more
+     */
+    private void advance() {
+        next = null;
+        PileupColumn column;
+        while (currentInterval != null && (column = libs.nextColumn()) != null) {
+            // move past the intervals before this column
+            while (currentInterval != null && !currentInterval.overlaps(column)
+                    && IntervalUtils.compareLocatables(currentInterval, column, dictionary) < 0) {
+                currentInterval = intervals.hasNext() ? intervals.next() : null;
+            }
+            if (currentInterval != null && currentInterval.overlaps(column)) {
+                next = column.toAlignmentContext();
+                return;
+            }
+            // otherwise the column is before the current interval, so skip it
+        }
+    }
+}
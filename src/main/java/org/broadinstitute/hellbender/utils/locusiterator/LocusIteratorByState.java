@@ -3,7 +3,6 @@ package org.broadinstitute.hellbender.utils.locusiterator;
 import com.google.common.annotations.VisibleForTesting;
 import htsjdk.samtools.CigarOperator;
 import htsjdk.samtools.SAMFileHeader;
-import htsjdk.samtools.util.Locatable;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.broadinstitute.hellbender.engine.AlignmentContext;
@@ -16,6 +15,7 @@ import org.broadinstitute.hellbender.utils.read.GATKRead;
 import org.broadinstitute.hellbender.utils.read.ReadUtils;
 
 import java.util.*;
+import java.util.function.Consumer;
 
 /**
  * Iterator that traverses a SAM File, accumulating information on a per-locus basis
@@ -41,6 +41,9 @@ import java.util.*;
  * -- LIBS can optionally capture all of the reads that come off the iterator, before any leveling downsampling
  * occurs, if requested.  This allows users of LIBS to see both a ReadPileup view of the data as well as
  * a stream of unique, sorted reads
+ * -- Instead of iterating over AlignmentContexts, which allocates a pileup element per read at every locus, callers
+ * can iterate over reusable {@link PileupColumn}s with {@link #nextColumn()}.  The two kinds of iteration should not
+ * be mixed.
  */
 public final class LocusIteratorByState implements Iterator<AlignmentContext> {
     /** Indicates that we shouldn't do any downsampling */
@@ -86,6 +89,11 @@ public final class LocusIteratorByState implements Iterator<AlignmentContext> {
      */
     private AlignmentContext nextAlignmentContext;
 
+    /**
+     * The column for the current locus, refilled at each locus
+     */
+    private final PileupColumn column = new PileupColumn();
+
     // -----------------------------------------------------------------------------------------------------------------
     //
     // constructors and other basic operations
@@ -226,18 +234,6 @@ public final class LocusIteratorByState implements Iterator<AlignmentContext> {
         this.readStates = new ReadStateManager(samIterator, this.samples, downsamplingInfo, keepUniqueReadListInLIBS, header);
     }
 
-    /**
-     * Get the current location (i.e., the bp of the center of the pileup) of the pileup, or null if not anywhere yet
-     *
-     * Assumes that read states is updated to reflect the current pileup position, but not advanced to the
-     * next location.
-     *
-     * @return the location of the current pileup, or null if we're after all reads
-     */
-    private SimpleInterval getLocation() {
-        return readStates.isEmpty() ? null : readStates.getFirst().getLocation();
-    }
-
     // -----------------------------------------------------------------------------------------------------------------
     //
     // next() routine and associated collection operations
@@ -270,6 +266,23 @@ public final class LocusIteratorByState implements Iterator<AlignmentContext> {
         return currentAlignmentContext;
     }
 
+    /**
+     * Get the pileup at the next genomic position covered by at least one read, as a reusable column
+     *
+     * The same column object is returned on every call, and is overwritten by the next call, so that iterating
+     * with this method allocates nothing per locus.  Callers that need to keep any part of a column must copy
+     * it or materialize it (see {@link PileupColumn#toAlignmentContext()}).
+     *
+     * Must not be called while an AlignmentContext loaded by {@link #hasNext()} is waiting to be returned by
+     * {@link #next()}.
+     *
+     * @return the column for the next locus, or null if there are no more loci
+     */
+    public PileupColumn nextColumn() {
+        Utils.validate(nextAlignmentContext == null, "an AlignmentContext loaded by hasNext() must be consumed by next() before calling nextColumn()");
+        return loadNextColumn() ? column : null;
+    }
+
     /**
      * Move this LIBS until we are over position
      *
@@ -285,14 +298,10 @@ public final class LocusIteratorByState implements Iterator<AlignmentContext> {
      * @return a AlignmentContext at position, or null if this isn't possible
      */
     public AlignmentContext advanceToLocus(final int position, final boolean stopAtFirstNonEmptySiteAfterPosition) {
-        while (hasNext()) {
+        // a context already loaded by hasNext() comes first
+        if (nextAlignmentContext != null) {
             final AlignmentContext context = next();
 
-            if (context == null) {
-                // we ran out of data
-                return null;
-            }
-
             if (context.getPosition() == position) {
                 return context;
             }
@@ -302,6 +311,18 @@ public final class LocusIteratorByState implements Iterator<AlignmentContext> {
             }
         }
 
+        // loci before position are skipped as columns, without materializing their pileups
+        PileupColumn column;
+        while ((column = nextColumn()) != null) {
+            if (column.getPosition() == position) {
+                return column.toAlignmentContext();
+            }
+
+            if (column.getPosition() > position) {
+                return stopAtFirstNonEmptySiteAfterPosition ? column.toAlignmentContext() : null;
+            }
+        }
+
         return null;
     }
 
@@ -314,41 +335,79 @@ public final class LocusIteratorByState implements Iterator<AlignmentContext> {
         while (nextAlignmentContext == null && readStates.hasNext()) {
             readStates.collectPendingReads();
 
-            final Locatable location = getLocation();
+            final AlignmentStateMachine firstState = readStates.isEmpty() ? null : readStates.getFirst();
+            final SimpleInterval location = firstState == null ? null : firstState.getLocation();
 
             // We don't need to keep the pileup elements separated by sample within this method,
             // since they are just going to get combined into one monolithic pileup anyway
             // when we construct the final ReadPileup below. This optimization speeds up the
             // HaplotypeCaller by quite a bit!
             final List<PileupElement> allPileupElements = new ArrayList<>(100);
+            forEachStateInPileup(firstState, state -> allPileupElements.add(state.makePileupElement()));
 
-            for (final Map.Entry<String, PerSampleReadStateManager> sampleStatePair : readStates) {
-                final PerSampleReadStateManager readState = sampleStatePair.getValue();
-                final Iterator<AlignmentStateMachine> iterator = readState.iterator();
+            readStates.updateReadStates(); // critical - must be called after we get the current state offsets and location
+            if (!allPileupElements.isEmpty()) { // if we got reads with non-D/N over the current position, we are done
+                nextAlignmentContext = new AlignmentContext(location, new ReadPileup(location, allPileupElements));
+            }
+        }
+    }
 
-                while (iterator.hasNext()) {
-                    // state object with the read/offset information
-                    final AlignmentStateMachine state = iterator.next();
-                    final GATKRead read = state.getRead();
-                    final CigarOperator op = state.getCigarOperator();
+    /**
+     * Fill {@link #column} with the pileup at the next genomic position covered by at least one read that makes it
+     * into the pileup, advancing the read states past that position.
+     *
+     * @return false if there is no such position (in which case the column is garbage)
+     */
+    private boolean loadNextColumn() {
+        while (readStates.hasNext()) {
+            readStates.collectPendingReads();
 
-                    if (!includeReadsWithNsAtLoci && op == CigarOperator.N) {
-                        continue;
-                    }
+            final AlignmentStateMachine firstState = readStates.isEmpty() ? null : readStates.getFirst();
+            column.reset(firstState == null ? null : firstState.getContig(), firstState == null ? -1 : firstState.getGenomePosition());
+            forEachStateInPileup(firstState, column::add);
 
-                    if (!dontIncludeReadInPileup(read, location.getStart())) {
-                        if (!includeReadsWithDeletionAtLoci && op == CigarOperator.D) {
-                            continue;
-                        }
+            readStates.updateReadStates(); // critical - must be called after we get the current state offsets and location
+            if (!column.isEmpty()) { // if we got reads with non-D/N over the current position, we are done
+                return true;
+            }
+        }
+        return false;
+    }
 
-                        allPileupElements.add(state.makePileupElement());
-                    }
+    /**
+     * Pass the state of each read that makes it into the pileup at the current position to action, in pileup order
+     *
+     * @param firstState the first read state, at the current position, or null if there are no read states
+     * @param action what to do with the state of each read in the pileup
+     */
+    private void forEachStateInPileup(final AlignmentStateMachine firstState, final Consumer<AlignmentStateMachine> action) {
+        if (firstState == null) {
+            return;
+        }
+        // the location (i.e., the bp of the center of the pileup) of the current pileup
+        final int position = firstState.getGenomePosition();
+
+        for (final Map.Entry<String, PerSampleReadStateManager> sampleStatePair : readStates) {
+            final PerSampleReadStateManager readState = sampleStatePair.getValue();
+            final Iterator<AlignmentStateMachine> iterator = readState.iterator();
+
+            while (iterator.hasNext()) {
+                // state object with the read/offset information
+                final AlignmentStateMachine state = iterator.next();
+                final GATKRead read = state.getRead();
+                final CigarOperator op = state.getCigarOperator();
+
+                if (!includeReadsWithNsAtLoci && op == CigarOperator.N) {
+                    continue;
                 }
-            }
 
-            readStates.updateReadStates(); // critical - must be called after we get the current state offsets and location
-            if (!allPileupElements.isEmpty()) { // if we got reads with non-D/N over the current position, we are done
-                nextAlignmentContext = new AlignmentContext(location, new ReadPileup(location, allPileupElements));
+                if (!dontIncludeReadInPileup(read, position)) {
+                    if (!includeReadsWithDeletionAtLoci && op == CigarOperator.D) {
+                        continue;
+                    }
+
+                    action.accept(state);
+                }
             }
         }
     }
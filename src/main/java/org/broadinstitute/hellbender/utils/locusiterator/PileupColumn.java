@@ -0,0 +1,228 @@
+package org.broadinstitute.hellbender.utils.locusiterator;
+
+import htsjdk.samtools.CigarElement;
+import htsjdk.samtools.CigarOperator;
+import htsjdk.samtools.util.Locatable;
+import org.broadinstitute.hellbender.engine.AlignmentContext;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.pileup.PileupElement;
+import org.broadinstitute.hellbender.utils.pileup.ReadPileup;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reusable, columnar view of the pileup at a single locus, as produced by {@link LocusIteratorByState#nextColumn()}
+ *
+ * Instead of one {@link PileupElement} per read, the column keeps the state of each read at the locus in parallel
+ * arrays (the read, the offset into its bases, and its position in its cigar), which are recycled from one locus
+ * to the next. Reading a column therefore allocates nothing, but its contents are only valid until the iterator
+ * that produced it advances. Consumers that need to retain any of it must copy what they need, or materialize
+ * the column with {@link #getPileupElement(int)}, {@link #toReadPileup()} or {@link #toAlignmentContext()}.
+ *
+ * Elements are in the same order as in the {@link ReadPileup} that {@link LocusIteratorByState#next()} would
+ * have produced for the same locus.
+ */
+public final class PileupColumn implements Locatable {
+    private static final int INITIAL_CAPACITY = 100;
+
+    private String contig;
+    private int position;
+    private int size = 0;
+
+    private GATKRead[] reads = new GATKRead[INITIAL_CAPACITY];
+    private int[] offsets = new int[INITIAL_CAPACITY];
+    private CigarElement[] currentCigarElements = new CigarElement[INITIAL_CAPACITY];
+    private int[] currentCigarOffsets = new int[INITIAL_CAPACITY];
+    private int[] offsetsInCurrentCigar = new int[INITIAL_CAPACITY];
+
+    PileupColumn() { }
+
+    /**
+     * Empty the column and move it to a new locus, keeping the arrays
+     *
+     * The object slots of the previous locus are cleared, so that the column doesn't keep reads alive after the
+     * iterator is done with them.
+     */
+    void reset(final String contig, final int position) {
+        this.contig = contig;
+        this.position = position;
+        Arrays.fill(reads, 0, size, null);
+        Arrays.fill(currentCigarElements, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * Add the current state of a read to the column
+     *
+     * @param state a state that is neither a left nor a right edge
+     */
+    void add(final AlignmentStateMachine state) {
+        Utils.validate(!(state.isLeftEdge() || state.isRightEdge()), "Cannot make a pileup element from an edge alignment state");
+        if ( size == reads.length ) {
+            final int capacity = size * 2;
+            reads = Arrays.copyOf(reads, capacity);
+            offsets = Arrays.copyOf(offsets, capacity);
+            currentCigarElements = Arrays.copyOf(currentCigarElements, capacity);
+            currentCigarOffsets = Arrays.copyOf(currentCigarOffsets, capacity);
+            offsetsInCurrentCigar = Arrays.copyOf(offsetsInCurrentCigar, capacity);
+        }
+        reads[size] = state.getRead();
+        offsets[size] = state.getReadOffset();
+        currentCigarElements[size] = state.getCurrentCigarElement();
+        currentCigarOffsets[size] = state.getCurrentCigarElementOffset();
+        offsetsInCurrentCigar[size] = state.getOffsetIntoCurrentCigarElement();
+        size++;
+    }
+
+    /**
+     * @return the contig of the locus of this column
+     */
+    @Override
+    public String getContig() {
+        return contig;
+    }
+
+    /**
+     * @return the (1-based) position of the locus of this column on its contig
+     */
+    public int getPosition() {
+        return position;
+    }
+
+    @Override
+    public int getStart() {
+        return position;
+    }
+
+    @Override
+    public int getEnd() {
+        return position;
+    }
+
+    /**
+     * @return a newly allocated 1 bp interval for the locus of this column
+     */
+    public SimpleInterval getLocation() {
+        return new SimpleInterval(contig, position, position);
+    }
+
+    /**
+     * @return the number of elements (reads) in this column
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return true if there are no elements in this column
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return the read of the i-th element of this column
+     */
+    public GATKRead getRead(final int i) {
+        Utils.validIndex(i, size);
+        return reads[i];
+    }
+
+    /**
+     * @return the offset into the bases of the read of the i-th element, as in {@link PileupElement#getOffset()}
+     */
+    public int getOffset(final int i) {
+        Utils.validIndex(i, size);
+        return offsets[i];
+    }
+
+    /**
+     * @return the cigar element of the read of the i-th element at this locus
+     */
+    public CigarElement getCurrentCigarElement(final int i) {
+        Utils.validIndex(i, size);
+        return currentCigarElements[i];
+    }
+
+    /**
+     * @return the index of {@link #getCurrentCigarElement(int)} among the cigar elements of the read of the i-th element
+     */
+    public int getCurrentCigarOffset(final int i) {
+        Utils.validIndex(i, size);
+        return currentCigarOffsets[i];
+    }
+
+    /**
+     * @return the offset of the i-th element into {@link #getCurrentCigarElement(int)}
+     */
+    public int getOffsetInCurrentCigar(final int i) {
+        Utils.validIndex(i, size);
+        return offsetsInCurrentCigar[i];
+    }
+
+    /**
+     * @return true if the read of the i-th element has a deletion at this locus, as in {@link PileupElement#isDeletion()}
+     */
+    public boolean isDeletion(final int i) {
+        Utils.validIndex(i, size);
+        return currentCigarElements[i].getOperator() == CigarOperator.D;
+    }
+
+    /**
+     * @return the base of the i-th element, or {@link PileupElement#DELETION_BASE} for a deletion, as in {@link PileupElement#getBase()}
+     */
+    public byte getBase(final int i) {
+        return isDeletion(i) ? PileupElement.DELETION_BASE : reads[i].getBase(offsets[i]);
+    }
+
+    /**
+     * @return the base quality of the i-th element, or {@link PileupElement#DELETION_QUAL} for a deletion, as in {@link PileupElement#getQual()}
+     */
+    public byte getQual(final int i) {
+        return isDeletion(i) ? PileupElement.DELETION_QUAL : reads[i].getBaseQuality(offsets[i]);
+    }
+
+    /**
+     * @return the mapping quality of the read of the i-th element
+     */
+    public int getMappingQual(final int i) {
+        return getRead(i).getMappingQuality();
+    }
+
+    /**
+     * Materialize the i-th element of this column
+     *
+     * @return a new, independent pileup element
+     */
+    public PileupElement getPileupElement(final int i) {
+        Utils.validIndex(i, size);
+        return new PileupElement(reads[i], offsets[i], currentCigarElements[i], currentCigarOffsets[i], offsetsInCurrentCigar[i]);
+    }
+
+    /**
+     * Materialize this column
+     *
+     * @return a new pileup, independent of this column, equivalent to the one {@link LocusIteratorByState#next()} would produce
+     */
+    public ReadPileup toReadPileup() {
+        final List<PileupElement> elements = new ArrayList<>(size);
+        for ( int i = 0; i < size; i++ ) {
+            elements.add(getPileupElement(i));
+        }
+        return new ReadPileup(getLocation(), elements);
+    }
+
+    /**
+     * Materialize this column
+     *
+     * @return a new alignment context, independent of this column, equivalent to the one {@link LocusIteratorByState#next()} would produce
+     */
+    public AlignmentContext toAlignmentContext() {
+        final ReadPileup pileup = toReadPileup();
+        return new AlignmentContext(pileup.getLocation(), pileup);
+    }
+}
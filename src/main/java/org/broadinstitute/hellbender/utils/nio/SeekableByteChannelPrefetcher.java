@@ -3,48 +3,96 @@ package org.broadinstitute.hellbender.utils.nio;
 import com.google.common.base.Stopwatch;
 import java.util.concurrent.ThreadFactory;
 import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.config.ConfigFactory;
+import org.broadinstitute.hellbender.utils.runtime.MetricsRegistry;
 
-import java.io.Closeable;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
 import java.nio.channels.NonWritableChannelException;
 import java.nio.channels.SeekableByteChannel;
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Queue;
 import java.util.UnknownFormatConversionException;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import shaded.cloud_nio.com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /**
  * SeekableByteChannelPrefetcher wraps an existing SeekableByteChannel to add prefetching.
- * The prefetching is done on a different thread, so you can write simple code that repeatedly
+ * The prefetching is done on different threads, so you can write simple code that repeatedly
  * calls read() to get data, processes it, and then calls read again -- and yet this
  * simple code overlaps computation and communication for you.
  * (Of course this is only worthwhile if the underlying SeekableByteChannel doesn't already
  * implement prefetching).
+ *
+ * Up to {@link #DEFAULT_MAX_BLOCKS_IN_FLIGHT} blocks are prefetched ahead of the one being read by default
+ * (see {@link #addPrefetcher} and the cloudPrefetchMaxBlocks GATK configuration option for other values).
+ * The prefetch window adapts to the access pattern: it starts with a single block ahead of the
+ * one being read, doubles (up to the maximum) each time the reader moves on to the next block, and
+ * drops back to a single block as soon as the reader jumps to a block that we had not prefetched.
+ * Sequential readers therefore get several blocks in flight at once, while random-access readers
+ * don't pay for fetching data they will never use.
+ *
+ * The blocks in the window are fetched concurrently if the wrapped channel is a {@link FileChannel}
+ * (using positional reads), or if a {@link ChannelOpener} is provided, in which case each prefetching
+ * thread reads from its own channel onto the same data. This is how the concurrent fetching of blocks
+ * from cloud channels is done. Other channels are not safe for concurrent use, so for them the blocks
+ * in the window are fetched one after the other on a single thread.
  */
 public final class SeekableByteChannelPrefetcher implements SeekableByteChannel {
 
-    // Only one thread at a time should use chan.
-    // To ensure this is the case, only the prefetching thread uses it.
+    // By default, prefetch up to this many blocks after the one being read
+    public static final int DEFAULT_MAX_BLOCKS_IN_FLIGHT = 4;
+    // A deeper window requested through the configuration is limited to this many bytes in flight
+    public static final long MAX_CONFIGURED_BYTES_IN_FLIGHT = 160L * 1024 * 1024;
+    // size of the prefetch window right after a random access
+    private static final int MIN_BLOCKS_IN_FLIGHT = 1;
+
+    // Unless chan is a FileChannel (whose positional reads may be used concurrently),
+    // only one thread at a time should use chan. To ensure this is the case,
+    // only the (single) prefetching thread uses it, unless we have a channelOpener,
+    // in which case each prefetching thread uses its own channel and chan is only used for its size.
     private final SeekableByteChannel chan;
+    private final boolean concurrentReads;
+    private final ChannelOpener channelOpener;
+    // the channel of each prefetching thread, when we have a channelOpener, and all of those channels (to close them)
+    private final ThreadLocal<SeekableByteChannel> fetchChannel = new ThreadLocal<>();
+    private final Queue<SeekableByteChannel> fetchChannels = new ConcurrentLinkedQueue<>();
     private final int bufSize;
     private final ExecutorService exec;
     private final long size;
-    private List<WorkUnit> full = new ArrayList<>();
-    private WorkUnit fetching = null;
-    // total number of buffers
-    private final static int BUF_COUNT = 2;
+    // the blocks we hold or are fetching, by block index: the block last returned, possibly the one before it,
+    // and the prefetch window after it
+    private final Map<Long, WorkUnit> blocks = new LinkedHashMap<>();
+    // buffers of blocks we no longer need, available for reuse
+    private final Deque<ByteBuffer> spareBuffers = new ArrayDeque<>();
+    private final int maxBlocksInFlight;
+    // number of blocks before the one being read that we hold on to, for readers that step back across a block
+    // boundary. None with a window of a single block, to hold no more than two buffers.
+    private final int blocksKeptBehind;
+    // current size of the prefetch window, between MIN_BLOCKS_IN_FLIGHT and maxBlocksInFlight
+    private int blocksInFlight = MIN_BLOCKS_IN_FLIGHT;
+    private long lastBlockIndex = -1;
     // where we pretend to be, wrt returning bytes from read()
     private long position = 0;
     private boolean open;
     private Stopwatch betweenCallsToRead = Stopwatch.createUnstarted();
+    private final Stopwatch sinceFirstRead = Stopwatch.createUnstarted();
     private static int prefetcherCount = 0;
     private final int prefetcherIndex;
 
@@ -55,7 +103,8 @@ public final class SeekableByteChannelPrefetcher implements SeekableByteChannel
     public long msCopyingData = 0;
     // total number of bytes returned by read (if the user asks for the same bytes multiple times, they count)
     public long bytesReturned = 0;
-    // total number of bytes read over the network (whether returned to the user or not)
+    // total number of bytes read over the network (whether returned to the user or not), as of the last call
+    // to read() or getStatistics(). Prefetched blocks that were dropped before being fetched don't count.
     public long bytesRead = 0;
     // time spend in between calls to Read, ie. presumably while the user is processing the data we returned.
     public long msBetweenCallsToRead = 0;
@@ -63,28 +112,86 @@ public final class SeekableByteChannelPrefetcher implements SeekableByteChannel
     public long nbHit = 0;
     // number of times we had already started to prefetch the user's data (but it hadn't arrived yet).
     public long nbNearHit = 0;
-    // number of times we don't have what the user's asking for, we have to wait for a prefetch to finish,
-    // and the prefetch didn't return what the user wanted (either they are going backward, or jumping forward)
+    // number of times we don't have what the user's asking for, and we have to start fetching it
+    // (either they are going backward, or jumping forward past the prefetch window)
     public long nbMiss = 0;
-    // number of times the user asks for data with a lower index than what we already have
+    // number of times the user asks for data with a lower index than what we last returned
     // (so they're not following the expected pattern of increasing indexes)
     public long nbGoingBack = 0;
     // number of times the user asks for data past the end of the file
     public long nbReadsPastEnd = 0;
+    // number of times the user had to wait for a block that wasn't fetched yet (near-hits and misses)
+    public long nbStalls = 0;
+    // time spent blocked in those stalls. Unlike msWaitingForData this is always tracked,
+    // since we only need the clock when we're about to block anyway.
+    public long msStalled = 0;
+    private long nsStalled = 0;
+    // number of times a random access shrank the prefetch window back to its minimum size
+    public long nbWindowResets = 0;
+    // largest prefetch window used so far, in blocks
+    public int maxBlocksInFlightReached = MIN_BLOCKS_IN_FLIGHT;
+    // number of prefetched blocks that were dropped without ever being returned to the user
+    public long nbBlocksDiscarded = 0;
+    // number of bytes actually fetched from the channel, and total time spent fetching them
+    // (summed across prefetching threads)
+    private final AtomicLong bytesFetched = new AtomicLong();
+    private final AtomicLong nsFetching = new AtomicLong();
     // timing statistics have an overhead, so only turn them on when debugging performance
     // issues.
     private static final boolean trackTime = false;
 
+    // runtime metrics, summed across all prefetchers
+    private static final MetricsRegistry.Timer STALLS_METRIC = MetricsRegistry.getDefault().timer(
+            "gatk_prefetcher_stall_seconds", "Reads from prefetched channels that had to wait for their block to be fetched");
+    private static final MetricsRegistry.Counter BYTES_FETCHED_METRIC = MetricsRegistry.getDefault().counter(
+            "gatk_prefetcher_fetched_bytes_total", "Bytes fetched by the prefetchers of channels");
+
     /**
-     * Wraps the provided SeekableByteChannel within a SeekableByteChannelPrefetcher, using the provided buffer size
+     * Opens a new channel onto the data of the channel wrapped by a prefetcher, for use by one prefetching thread.
+     */
+    @FunctionalInterface
+    public interface ChannelOpener {
+        SeekableByteChannel open() throws IOException;
+    }
+
+    /**
+     * Wraps the provided SeekableByteChannel within a SeekableByteChannelPrefetcher, using the provided buffer size.
+     * The maximum number of blocks prefetched ahead of the one being read is taken from the cloudPrefetchMaxBlocks
+     * GATK configuration option, but is limited to {@link #MAX_CONFIGURED_BYTES_IN_FLIGHT} bytes.
+     *
+     * Unless the channel is a {@link FileChannel}, the blocks in flight are fetched one after the other:
+     * use {@link #addPrefetcher(int, SeekableByteChannel, Path)} to fetch them concurrently.
      *
      * @param bufferSizeMB buffer size in MB
      * @param channel channel to wrap in the prefetcher
      * @return wrapped channel
      */
     public static SeekableByteChannel addPrefetcher(int bufferSizeMB, SeekableByteChannel channel) {
+        return addPrefetcher(bufferSizeMB, channel, (ChannelOpener)null);
+    }
+
+    /**
+     * Wraps the provided SeekableByteChannel, which must have been opened on the provided path, within a
+     * SeekableByteChannelPrefetcher, as {@link #addPrefetcher(int, SeekableByteChannel)} does. The blocks in
+     * flight are fetched concurrently, each prefetching thread reading from its own channel opened on the path.
+     *
+     * @param bufferSizeMB buffer size in MB
+     * @param channel channel to wrap in the prefetcher
+     * @param path path the channel was opened on
+     * @return wrapped channel
+     */
+    public static SeekableByteChannel addPrefetcher(int bufferSizeMB, SeekableByteChannel channel, Path path) {
+        Utils.nonNull(path);
+        return addPrefetcher(bufferSizeMB, channel, () -> Files.newByteChannel(path));
+    }
+
+    private static SeekableByteChannel addPrefetcher(int bufferSizeMB, SeekableByteChannel channel, ChannelOpener channelOpener) {
+        final int bufSize = bufferSizeMB * 1024 * 1024;
+        final int configuredMaxBlocks = ConfigFactory.getInstance().getGATKConfig().cloudPrefetchMaxBlocks();
+        final int maxBlocksInFlight = (int)Math.max(MIN_BLOCKS_IN_FLIGHT,
+            Math.min(configuredMaxBlocks, MAX_CONFIGURED_BYTES_IN_FLIGHT / Math.max(1, bufSize)));
         try {
-            return new SeekableByteChannelPrefetcher(channel, bufferSizeMB * 1024 * 1024);
+            return new SeekableByteChannelPrefetcher(channel, bufSize, maxBlocksInFlight, channelOpener);
         } catch (IOException ex) {
             throw new GATKException("Unable to initialize the prefetcher: " + ex);
         }
@@ -95,62 +202,79 @@ public final class SeekableByteChannelPrefetcher implements SeekableByteChannel
      *
      * <p>Use it like this:
      * <ol>
-     *   <li> call()
-     *   <li> the data is now in buf, you can access it directly
-     *   <li> if need more, call resetForIndex(...) and go back to the top.
-     *   <li> else, call close()
+     *   <li> submit it to exec, and keep the future in futureBuf
+     *   <li> once futureBuf is done, the data is in buf and you can access it directly
+     *   <li> when you no longer need the data, recycle buf (only if futureBuf is done, since
+     *        otherwise a prefetching thread may still write into it).
      * </ol>
      */
-    private static class WorkUnit implements Callable<ByteBuffer>, Closeable {
+    private final class WorkUnit implements Callable<ByteBuffer> {
         public final ByteBuffer buf;
-        public long blockIndex;
-        private final SeekableByteChannel chan;
-        private final int blockSize;
+        public final long blockIndex;
         private Future<ByteBuffer> futureBuf;
+        // whether this block was ever returned by fetch()
+        private boolean used = false;
 
-        public WorkUnit(SeekableByteChannel chan, int blockSize, long blockIndex) {
-            this.chan = chan;
-            this.buf = ByteBuffer.allocate(blockSize);
-            this.futureBuf = null;
-            this.blockSize = blockSize;
+        public WorkUnit(ByteBuffer buf, long blockIndex) {
+            this.buf = buf;
             this.blockIndex = blockIndex;
         }
 
         @Override
         public ByteBuffer call() throws IOException {
-            long pos = ((long)blockSize) * blockIndex;
-            if (pos > chan.size()) {
+            long pos = ((long)bufSize) * blockIndex;
+            if (pos > size) {
                 return null;
             }
             if (pos < 0) {
                 // This should never happen, if the code's correct.
                 throw new IllegalArgumentException("blockIndex " + blockIndex + " has position " + pos + ": negative position is not valid.");
             }
-            chan.position(pos);
+            final long startNs = System.nanoTime();
             // read until buffer is full, or EOF
-            while (chan.read(buf) >= 0 && buf.hasRemaining()) {}
+            if (concurrentReads) {
+                final FileChannel fileChannel = (FileChannel)chan;
+                while (buf.hasRemaining() && fileChannel.read(buf, pos + buf.position()) >= 0) {}
+            } else {
+                final SeekableByteChannel readChannel = channelOpener != null ? getFetchChannel() : chan;
+                readChannel.position(pos);
+                while (readChannel.read(buf) >= 0 && buf.hasRemaining()) {}
+            }
+            nsFetching.addAndGet(System.nanoTime() - startNs);
+            bytesFetched.addAndGet(buf.position());
+            BYTES_FETCHED_METRIC.add(buf.position());
             return buf;
         }
 
         public ByteBuffer getBuf() throws ExecutionException, InterruptedException {
             return futureBuf.get();
         }
+    }
 
-        public WorkUnit resetForIndex(long blockIndex) {
-            this.blockIndex = blockIndex;
-            buf.clear();
-            futureBuf = null;
-            return this;
-        }
-
+    /**
+     * Wraps chan, prefetching blocks of bufSize bytes, with up to {@link #DEFAULT_MAX_BLOCKS_IN_FLIGHT} blocks
+     * prefetched ahead of the block being read.
+     */
+    public SeekableByteChannelPrefetcher(SeekableByteChannel chan, int bufSize) throws IOException {
+        this(chan, bufSize, DEFAULT_MAX_BLOCKS_IN_FLIGHT);
+    }
 
-        @Override
-        public void close() throws IOException {
-            chan.close();
-        }
+    /**
+     * Wraps chan, prefetching blocks of bufSize bytes, with up to maxBlocksInFlight blocks prefetched ahead
+     * of the block being read. Note that with more than one block in flight, a sequential reader may cause up
+     * to maxBlocksInFlight + 2 buffers of bufSize bytes to be held at once (maxBlocksInFlight + 1 otherwise).
+     */
+    public SeekableByteChannelPrefetcher(SeekableByteChannel chan, int bufSize, int maxBlocksInFlight) throws IOException {
+        this(chan, bufSize, maxBlocksInFlight, null);
     }
 
-    public SeekableByteChannelPrefetcher(SeekableByteChannel chan, int bufSize) throws IOException {
+    /**
+     * Wraps chan, as {@link #SeekableByteChannelPrefetcher(SeekableByteChannel, int, int)} does. If channelOpener
+     * is not null, the blocks in flight are fetched concurrently, each prefetching thread reading from its own
+     * channel opened by channelOpener (which must open channels onto the same data as chan), and closed along
+     * with this prefetcher.
+     */
+    public SeekableByteChannelPrefetcher(SeekableByteChannel chan, int bufSize, int maxBlocksInFlight, ChannelOpener channelOpener) throws IOException {
         if (chan instanceof SeekableByteChannelPrefetcher) {
             throw new IllegalArgumentException("Cannot put two prefetchers on the same channel.");
         }
@@ -161,6 +285,11 @@ public final class SeekableByteChannelPrefetcher implements SeekableByteChannel
         if (bufSize <= 0) {
             throw new IllegalArgumentException("bufSize must be positive");
         }
+        if (maxBlocksInFlight < MIN_BLOCKS_IN_FLIGHT) {
+            throw new IllegalArgumentException("maxBlocksInFlight must be at least " + MIN_BLOCKS_IN_FLIGHT);
+        }
+        this.maxBlocksInFlight = maxBlocksInFlight;
+        this.blocksKeptBehind = maxBlocksInFlight > MIN_BLOCKS_IN_FLIGHT ? 1 : 0;
         this.size = chan.size();
         if (bufSize > this.size) {
             this.bufSize = (int)this.size;
@@ -176,13 +305,30 @@ public final class SeekableByteChannelPrefetcher implements SeekableByteChannel
             .setNameFormat(nameFormat)
             .setDaemon(true)
             .build();
-        // Single thread to ensure no concurrent access to chan.
-        exec = Executors.newFixedThreadPool(1, threadFactory);
+        // Only FileChannels support concurrent (positional) reads; for anything else, unless each
+        // thread can open its own channel, use a single thread to ensure no concurrent access to chan.
+        this.concurrentReads = chan instanceof FileChannel;
+        this.channelOpener = concurrentReads ? null : channelOpener;
+        exec = Executors.newFixedThreadPool(concurrentReads || this.channelOpener != null ? maxBlocksInFlight : 1, threadFactory);
+    }
+
+    // The channel of the calling prefetching thread, opened on first use.
+    private SeekableByteChannel getFetchChannel() throws IOException {
+        SeekableByteChannel channel = fetchChannel.get();
+        if (channel == null) {
+            channel = channelOpener.open();
+            fetchChannels.add(channel);
+            fetchChannel.set(channel);
+        }
+        return channel;
     }
 
     public String getStatistics() {
         try {
+            bytesRead = bytesFetched.get();
             double returnedPct = (bytesRead > 0 ? (100.0 * bytesReturned / bytesRead) : 100.0);
+            long msFetching = TimeUnit.NANOSECONDS.toMillis(nsFetching.get());
+            long msSinceFirstRead = sinceFirstRead.elapsed(TimeUnit.MILLISECONDS);
             return String
                 .format("Bytes read: %12d\n  returned: %12d ( %3.2f %% )", bytesRead, bytesReturned,
                     returnedPct)
@@ -192,85 +338,117 @@ public final class SeekableByteChannelPrefetcher implements SeekableByteChannel
                 // but we're not done loading it in.
                 + String
                 .format("\nCache\n hits:      %12d\n near-hits: %12d\n misses:    %12d", nbHit,
-                    nbNearHit, nbMiss);
+                    nbNearHit, nbMiss)
+                + String.format("\nStalls: %d ( %d ms waiting )", nbStalls, msStalled)
+                + String.format("\nPrefetch window: up to %d of %d blocks, reset %d times, %d prefetched blocks discarded",
+                    maxBlocksInFlightReached, maxBlocksInFlight, nbWindowResets, nbBlocksDiscarded)
+                + String.format("\nThroughput\n fetching:  %12.2f MB/s\n returning: %12.2f MB/s",
+                    megabytesPerSecond(bytesFetched.get(), msFetching),
+                    megabytesPerSecond(bytesReturned, msSinceFirstRead));
         } catch (UnknownFormatConversionException x) {
             // let's not crash the whole program, instead just return no info
             return "(error while formatting statistics)";
         }
     }
 
-    // if we don't already have that block and the fetching thread is idle,
-    // make sure it now goes looking for that block index.
-    private void ensureFetching(long blockIndex) {
-        if (null != fetching) {
-            if (fetching.futureBuf.isDone()) {
-                full.add(fetching);
-                fetching = null;
-            } else {
-                return;
+    private static double megabytesPerSecond(long bytes, long ms) {
+        return ms > 0 ? (bytes / (1024.0 * 1024.0)) / (ms / 1000.0) : 0.0;
+    }
+
+    // Start fetching that block, unless we already have it or are already fetching it.
+    private WorkUnit ensureFetching(long blockIndex) {
+        WorkUnit w = blocks.get(blockIndex);
+        if (null == w) {
+            ByteBuffer buf = spareBuffers.poll();
+            if (null == buf) {
+                buf = ByteBuffer.allocate(bufSize);
             }
+            w = new WorkUnit(buf, blockIndex);
+            w.futureBuf = exec.submit(w);
+            blocks.put(blockIndex, w);
+        }
+        return w;
+    }
+
+    // Adjust the prefetch window for a request for this block: grow it while the user reads
+    // block after block, shrink it back when they jump to somewhere we didn't prefetch.
+    private void updateWindow(long blockIndex) {
+        if (blockIndex == lastBlockIndex) {
+            return;
         }
-        for (WorkUnit w : full) {
-            if (w.blockIndex == blockIndex) {
-                return;
+        if (blockIndex < lastBlockIndex) {
+            nbGoingBack++;
+        }
+        if (blockIndex == lastBlockIndex + 1) {
+            blocksInFlight = Math.min(maxBlocksInFlight, blocksInFlight * 2);
+            maxBlocksInFlightReached = Math.max(maxBlocksInFlightReached, blocksInFlight);
+        } else if (!blocks.containsKey(blockIndex)) {
+            if (blocksInFlight > MIN_BLOCKS_IN_FLIGHT) {
+                nbWindowResets++;
             }
+            blocksInFlight = MIN_BLOCKS_IN_FLIGHT;
         }
-        if (full.size() < BUF_COUNT) {
-            fetching = new WorkUnit(chan, bufSize, blockIndex);
-            bytesRead += bufSize;
-            fetching.futureBuf = exec.submit(fetching);
-        } else {
-            // reuse the oldest full buffer
-            fetching = full.remove(0);
-            fetching.resetForIndex(blockIndex);
-            bytesRead += bufSize;
-            fetching.futureBuf = exec.submit(fetching);
+    }
+
+    // Drop the blocks outside of [blockIndex - blocksKeptBehind, blockIndex + blocksInFlight], keeping their
+    // buffers for reuse if no prefetching thread is still filling them.
+    private void discardBlocksOutsideWindow(long blockIndex) {
+        for (Iterator<WorkUnit> it = blocks.values().iterator(); it.hasNext(); ) {
+            WorkUnit w = it.next();
+            if (w.blockIndex >= blockIndex - blocksKeptBehind && w.blockIndex <= blockIndex + blocksInFlight) {
+                continue;
+            }
+            it.remove();
+            if (!w.used) {
+                nbBlocksDiscarded++;
+            }
+            if (w.futureBuf.isDone()) {
+                w.buf.clear();
+                spareBuffers.push(w.buf);
+            } else {
+                // don't interrupt: that would close a FileChannel under our feet
+                w.futureBuf.cancel(false);
+            }
         }
     }
 
     // Return a buffer at this position, blocking if necessary.
-    // Start a background read of the buffer after this one (if there isn't one already).
-    public ByteBuffer fetch(long position) throws InterruptedException, ExecutionException {
+    // Start background reads of the buffers in the prefetch window after this one (if there aren't already).
+    public synchronized ByteBuffer fetch(long position) throws InterruptedException, ExecutionException {
         long blockIndex = position / bufSize;
-        boolean goingBack = false;
-        for (WorkUnit w : full) {
-            if (w.blockIndex == blockIndex) {
-                ensureFetching(blockIndex+1);
-                nbHit++;
-                return w.buf;
-            } else if (w.blockIndex > blockIndex) {
-                goingBack = true;
-            }
-        }
-        if (goingBack) {
-            // user is asking for a block with a lower index than we've already fetched -
-            // in other words they are not following the expected pattern of increasing indexes.
-            nbGoingBack++;
+        updateWindow(blockIndex);
+        discardBlocksOutsideWindow(blockIndex);
+
+        WorkUnit w = blocks.get(blockIndex);
+        if (null == w) {
+            nbMiss++;
+            w = ensureFetching(blockIndex);
+        } else if (w.futureBuf.isDone()) {
+            nbHit++;
+        } else {
+            nbNearHit++;
         }
-        if (null == fetching) {
-            ensureFetching(blockIndex);
+        // queue up the rest of the window before blocking, so it downloads while we wait
+        for (long i = blockIndex + 1; i <= blockIndex + blocksInFlight && i * bufSize < size; i++) {
+            ensureFetching(i);
         }
-        WorkUnit candidate = fetching;
-        // block until we have the buffer
-        ByteBuffer buf = candidate.getBuf();
-        full.add(candidate);
-        fetching = null;
-        if (candidate.blockIndex == blockIndex) {
-            // this is who we were waiting for
-            nbNearHit++;
-            ensureFetching(blockIndex+1);
-            return buf;
-        } else {
-            // wrong block. Let's fetch the right one now.
-            nbMiss++;
-            ensureFetching(blockIndex);
-            candidate = fetching;
-            buf = candidate.getBuf();
-            full.add(candidate);
-            fetching = null;
-            ensureFetching(blockIndex+1);
-            return buf;
+        lastBlockIndex = blockIndex;
+        w.used = true;
+        bytesRead = bytesFetched.get();
+
+        if (!w.futureBuf.isDone()) {
+            nbStalls++;
+            final long startNs = System.nanoTime();
+            try {
+                return w.getBuf();
+            } finally {
+                final long stallNs = System.nanoTime() - startNs;
+                STALLS_METRIC.record(stallNs);
+                nsStalled += stallNs;
+                msStalled = TimeUnit.NANOSECONDS.toMillis(nsStalled);
+            }
         }
+        return w.getBuf();
     }
 
 
@@ -287,6 +465,9 @@ public final class SeekableByteChannelPrefetcher implements SeekableByteChannel
     @Override
     public synchronized int read(ByteBuffer dst) throws IOException {
         if (!open) throw new ClosedChannelException();
+        if (!sinceFirstRead.isRunning()) {
+            sinceFirstRead.start();
+        }
         try {
             if (trackTime) {
                 msBetweenCallsToRead += betweenCallsToRead.elapsed(TimeUnit.MILLISECONDS);
@@ -461,6 +642,8 @@ public final class SeekableByteChannelPrefetcher implements SeekableByteChannel
         if (open) {
             // stop accepting work, interrupt worker thread.
             exec.shutdownNow();
+            blocks.clear();
+            spareBuffers.clear();
             try {
                 // give worker thread a bit of time to process the interruption.
                 exec.awaitTermination(1, TimeUnit.SECONDS);
@@ -468,6 +651,10 @@ public final class SeekableByteChannelPrefetcher implements SeekableByteChannel
                 // Restore interrupted status
                 Thread.currentThread().interrupt();
             }
+            for (SeekableByteChannel channel : fetchChannels) {
+                channel.close();
+            }
+            fetchChannels.clear();
             chan.close();
             open = false;
         }
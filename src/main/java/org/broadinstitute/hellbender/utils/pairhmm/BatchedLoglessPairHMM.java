@@ -0,0 +1,362 @@
+package org.broadinstitute.hellbender.utils.pairhmm;
+
+import com.google.common.primitives.UnsignedBytes;
+import htsjdk.variant.variantcontext.Allele;
+import org.broadinstitute.hellbender.utils.MathUtils;
+import org.broadinstitute.hellbender.utils.QualityUtils;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.genotyper.LikelihoodMatrix;
+import org.broadinstitute.hellbender.utils.haplotype.Haplotype;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.read.ReadUtils;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import static org.broadinstitute.hellbender.utils.pairhmm.PairHMMModel.*;
+
+/**
+ * Pure Java implementation of the same model as {@link LoglessPairHMM}, organized for speed without native code.
+ *
+ * Instead of computing one read against one haplotype at a time, this implementation computes a batch of reads
+ * against one haplotype at a time. The per-read values for all reads in the batch are stored interleaved
+ * (structure-of-arrays), so that the innermost loop runs over the reads of the batch with no dependencies between
+ * iterations, which the JIT compiler can vectorize.
+ *
+ * The matrices are computed a haplotype position (column) at a time, and each column only depends on the haplotype
+ * bases before it. So the columns computed for one haplotype are reused for the prefix that the next haplotype shares
+ * with it. Haplotypes are computed in lexicographic order of their bases, so that each haplotype shares the longest
+ * possible prefix with the one computed before it, regardless of the order in which haplotypes are given. To make
+ * columns reusable between haplotypes of different lengths, the initial condition doesn't depend on the haplotype
+ * length; the likelihoods are instead normalized by the haplotype length at the end.
+ *
+ * Because of this different order of floating point operations, the likelihoods are not bit-identical with those of
+ * {@link LoglessPairHMM}, so this implementation is only used when requested with BATCHED_LOGLESS_CACHING.
+ */
+public final class BatchedLoglessPairHMM extends PairHMM {
+    public static final int DEFAULT_MAX_BATCH_SIZE = 8;
+
+    private static final Comparator<byte[]> LEXICOGRAPHIC_ORDER = UnsignedBytes.lexicographicalComparator();
+
+    private final int maxBatchSize;
+
+    // initial condition (free deletions at the start of the read) for the first row in the deletion matrix
+    private double initialValue;
+    private double initialValueLog10;
+
+    // The reads in the current batch. Per-read-base values are stored interleaved: the value for lane (read) r
+    // at padded read position i (the first read base is at position 1) is at index i * batchSize + r
+    private int batchSize;
+    private int batchRows;
+    private final int[] readLengths;
+    private double[] matchToMatchProbs;
+    private double[] indelToMatchProbs;
+    private double[] matchToInsertionProbs;
+    private double[] insertionToInsertionProbs;
+    private double[] matchToDeletionProbs;
+    private double[] deletionToDeletionProbs;
+    private double[] matchPriors;
+    private double[] mismatchPriors;
+    private byte[] batchReadBases;
+
+    // priors for the current batch given each haplotype base, computed on demand
+    private final double[][] priorsByHaplotypeBase = new double[256][];
+
+    // Column j of the matrices (for haplotype positions up to j) for the current batch is at offset j * batchRows * batchSize.
+    // finalSums holds, at index j * batchSize + r, the sum over columns 1 to j of the match and insertion values in the
+    // last row for lane r, from which we get the likelihood of the read given a haplotype of length j.
+    private double[] matchMatrix;
+    private double[] insertionMatrix;
+    private double[] deletionMatrix;
+    private double[] finalSums;
+
+    // the haplotype for which columns have been computed for the current batch, or null if no columns are valid yet
+    private byte[] computedHaplotypeBases = null;
+
+    public BatchedLoglessPairHMM() {
+        this(DEFAULT_MAX_BATCH_SIZE);
+    }
+
+    /**
+     * @param maxBatchSize the maximum number of reads to compute at once
+     */
+    public BatchedLoglessPairHMM(final int maxBatchSize) {
+        Utils.validateArg(maxBatchSize > 0, () -> "maxBatchSize must be > 0 but got " + maxBatchSize);
+        this.maxBatchSize = maxBatchSize;
+        this.readLengths = new int[maxBatchSize];
+    }
+
+    @Override
+    public void doNotUseTristateCorrection() {
+        doNotUseTristateCorrection = true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void initialize( final int readMaxLength, final int haplotypeMaxLength ) {
+        super.initialize(readMaxLength, haplotypeMaxLength);
+
+        final int maxBatchValues = paddedMaxReadLength * maxBatchSize;
+        matchToMatchProbs = new double[maxBatchValues];
+        indelToMatchProbs = new double[maxBatchValues];
+        matchToInsertionProbs = new double[maxBatchValues];
+        insertionToInsertionProbs = new double[maxBatchValues];
+        matchToDeletionProbs = new double[maxBatchValues];
+        deletionToDeletionProbs = new double[maxBatchValues];
+        matchPriors = new double[maxBatchValues];
+        mismatchPriors = new double[maxBatchValues];
+        batchReadBases = new byte[maxBatchValues];
+
+        matchMatrix = new double[paddedMaxHaplotypeLength * maxBatchValues];
+        insertionMatrix = new double[paddedMaxHaplotypeLength * maxBatchValues];
+        deletionMatrix = new double[paddedMaxHaplotypeLength * maxBatchValues];
+        finalSums = new double[paddedMaxHaplotypeLength * maxBatchSize];
+
+        // the largest initial condition that can't overflow when summed over all positions of any haplotype
+        initialValue = LoglessPairHMM.INITIAL_CONDITION / haplotypeMaxLength;
+        initialValueLog10 = Math.log10(initialValue);
+
+        batchSize = 0;
+        computedHaplotypeBases = null;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Computes the reads in batches, and the haplotypes for each batch in lexicographic order.
+     */
+    @Override
+    public void computeLog10Likelihoods(final LikelihoodMatrix<Haplotype> logLikelihoods,
+                                        final List<GATKRead> processedReads,
+                                        final Map<GATKRead, byte[]> gcp) {
+        if (processedReads.isEmpty()) {
+            return;
+        }
+        if (doProfiling) {
+            startTime = System.nanoTime();
+        }
+        final List<Haplotype> alleles = logLikelihoods.alleles();
+        // (re)initialize the pairHMM only if necessary
+        final int readMaxLength = findMaxReadLength(processedReads);
+        final int haplotypeMaxLength = alleles.stream().mapToInt(Allele::length).max().orElse(0);
+        if (!initialized || readMaxLength > maxReadLength || haplotypeMaxLength > maxHaplotypeLength) {
+            initialize(readMaxLength, haplotypeMaxLength);
+        }
+
+        final int readCount = processedReads.size();
+        final int alleleCount = alleles.size();
+        final Integer[] haplotypeOrder = new Integer[alleleCount];
+        Arrays.setAll(haplotypeOrder, a -> a);
+        Arrays.sort(haplotypeOrder, Comparator.comparing(a -> alleles.get(a).getBases(), LEXICOGRAPHIC_ORDER));
+        // batch reads of similar lengths together, to minimize the work done for the padding of shorter reads
+        final Integer[] readOrder = new Integer[readCount];
+        Arrays.setAll(readOrder, r -> r);
+        Arrays.sort(readOrder, Comparator.comparingInt(r -> processedReads.get(r).getLength()));
+
+        mLogLikelihoodArray = new double[readCount * alleleCount];
+        final GATKRead[] batch = new GATKRead[maxBatchSize];
+        for (int batchStart = 0; batchStart < readCount; batchStart += maxBatchSize) {
+            final int size = Math.min(maxBatchSize, readCount - batchStart);
+            for (int r = 0; r < size; r++) {
+                batch[r] = processedReads.get(readOrder[batchStart + r]);
+            }
+            startBatch(size, batch[size - 1].getLength());
+            for (int r = 0; r < size; r++) {
+                setRead(r, batch[r].getBases(), batch[r].getBaseQualities(), ReadUtils.getBaseInsertionQualities(batch[r]),
+                        ReadUtils.getBaseDeletionQualities(batch[r]), gcp.get(batch[r]));
+            }
+
+            for (final int a : haplotypeOrder) {
+                final byte[] haplotypeBases = alleles.get(a).getBases();
+                computeColumns(haplotypeBases);
+                for (int r = 0; r < size; r++) {
+                    final int readIndex = readOrder[batchStart + r];
+                    final double lk = log10Likelihood(r, haplotypeBases.length);
+                    logLikelihoods.set(a, readIndex, lk);
+                    mLogLikelihoodArray[readIndex * alleleCount + a] = lk;
+                }
+            }
+        }
+        // the single-read computation must not reuse this batch
+        constantsAreInitialized = false;
+
+        if (doProfiling) {
+            threadLocalPairHMMComputeTimeDiff = (System.nanoTime() - startTime);
+            pairHMMComputeTime += threadLocalPairHMMComputeTimeDiff;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Computes a batch of one read. Rather than relying on hapStartIndex, reuses the columns for whatever prefix
+     * haplotypeBases shares with the previous haplotype computed for the same read.
+     */
+    @Override
+    protected double subComputeReadLikelihoodGivenHaplotypeLog10( final byte[] haplotypeBases,
+                                                                  final byte[] readBases,
+                                                                  final byte[] readQuals,
+                                                                  final byte[] insertionGOP,
+                                                                  final byte[] deletionGOP,
+                                                                  final byte[] overallGCP,
+                                                                  final int hapStartIndex,
+                                                                  final boolean recacheReadValues,
+                                                                  final int nextHapStartIndex) {
+        if ( ! constantsAreInitialized || recacheReadValues ) {
+            startBatch(1, readBases.length);
+            setRead(0, readBases, readQuals, insertionGOP, deletionGOP, overallGCP);
+
+            // note that we initialized the constants
+            constantsAreInitialized = true;
+        }
+
+        computeColumns(haplotypeBases);
+        return log10Likelihood(0, haplotypeBases.length);
+    }
+
+    /**
+     * Start a new batch of reads, invalidating all computed columns
+     *
+     * @param size number of reads in the batch
+     * @param maxLength length of the longest read in the batch
+     */
+    private void startBatch(final int size, final int maxLength) {
+        batchSize = size;
+        batchRows = maxLength + 1;
+        computedHaplotypeBases = null;
+        Arrays.fill(priorsByHaplotypeBase, null);
+
+        // padding rows (beyond the end of the shorter reads) have all probabilities zero, so their values stay zero
+        final int batchValues = batchRows * batchSize;
+        Arrays.fill(matchToMatchProbs, 0, batchValues, 0.0);
+        Arrays.fill(indelToMatchProbs, 0, batchValues, 0.0);
+        Arrays.fill(matchToInsertionProbs, 0, batchValues, 0.0);
+        Arrays.fill(insertionToInsertionProbs, 0, batchValues, 0.0);
+        Arrays.fill(matchToDeletionProbs, 0, batchValues, 0.0);
+        Arrays.fill(deletionToDeletionProbs, 0, batchValues, 0.0);
+        Arrays.fill(matchPriors, 0, batchValues, 0.0);
+        Arrays.fill(mismatchPriors, 0, batchValues, 0.0);
+
+        // the first column (before any haplotype base) is all zeros but for the initial condition in the deletion matrix
+        Arrays.fill(matchMatrix, 0, batchValues, 0.0);
+        Arrays.fill(insertionMatrix, 0, batchValues, 0.0);
+        Arrays.fill(deletionMatrix, 0, batchValues, 0.0);
+        Arrays.fill(finalSums, 0, batchSize, 0.0);
+
+        // the first row of each column holds the initial conditions
+        for (int column = 0; column < paddedMaxHaplotypeLength; column++) {
+            final int offset = column * batchValues;
+            for (int r = 0; r < batchSize; r++) {
+                matchMatrix[offset + r] = 0.0;
+                insertionMatrix[offset + r] = 0.0;
+                deletionMatrix[offset + r] = initialValue;
+            }
+        }
+    }
+
+    /**
+     * Set the values for a read in the current batch
+     */
+    private void setRead(final int lane, final byte[] bases, final byte[] quals, final byte[] insertionGOP, final byte[] deletionGOP, final byte[] overallGCP) {
+        readLengths[lane] = bases.length;
+        final double[] transition = new double[TRANS_PROB_ARRAY_LENGTH];
+        for (int i = 0; i < bases.length; i++) {
+            final int k = (i + 1) * batchSize + lane;
+            PairHMMModel.qualToTransProbs(transition, insertionGOP[i], deletionGOP[i], overallGCP[i]);
+            matchToMatchProbs[k] = transition[matchToMatch];
+            indelToMatchProbs[k] = transition[indelToMatch];
+            matchToInsertionProbs[k] = transition[matchToInsertion];
+            insertionToInsertionProbs[k] = transition[insertionToInsertion];
+            matchToDeletionProbs[k] = transition[matchToDeletion];
+            deletionToDeletionProbs[k] = transition[deletionToDeletion];
+            matchPriors[k] = QualityUtils.qualToProb(quals[i]);
+            mismatchPriors[k] = QualityUtils.qualToErrorProb(quals[i]) / (doNotUseTristateCorrection ? 1.0 : LoglessPairHMM.TRISTATE_CORRECTION);
+            batchReadBases[k] = bases[i];
+        }
+    }
+
+    /**
+     * @return the priors for all bases of the reads in the current batch given a haplotype base
+     */
+    private double[] getPriors(final byte haplotypeBase) {
+        double[] priors = priorsByHaplotypeBase[haplotypeBase & 0xff];
+        if (priors == null) {
+            priors = new double[batchRows * batchSize];
+            for (int k = batchSize; k < priors.length; k++) {
+                final byte x = batchReadBases[k];
+                priors[k] = x == haplotypeBase || x == (byte) 'N' || haplotypeBase == (byte) 'N' ? matchPriors[k] : mismatchPriors[k];
+            }
+            priorsByHaplotypeBase[haplotypeBase & 0xff] = priors;
+        }
+        return priors;
+    }
+
+    /**
+     * Compute the columns of the matrices for the current batch and haplotypeBases, starting after the prefix it
+     * shares with the last haplotype we computed columns for
+     */
+    private void computeColumns(final byte[] haplotypeBases) {
+        final int sharedPrefixLength = computedHaplotypeBases == null ? 0 : findSharedPrefixLength(computedHaplotypeBases, haplotypeBases);
+        computedHaplotypeBases = haplotypeBases;
+
+        final int stride = batchSize;
+        final int columnSize = batchRows * stride;
+        final double[] mm = matchToMatchProbs;
+        final double[] gm = indelToMatchProbs;
+        final double[] mi = matchToInsertionProbs;
+        final double[] ii = insertionToInsertionProbs;
+        final double[] md = matchToDeletionProbs;
+        final double[] dd = deletionToDeletionProbs;
+        final double[] match = matchMatrix;
+        final double[] insertion = insertionMatrix;
+        final double[] deletion = deletionMatrix;
+
+        for (int j = sharedPrefixLength + 1; j <= haplotypeBases.length; j++) {
+            final double[] prior = getPriors(haplotypeBases[j - 1]);
+            final int previous = (j - 1) * columnSize;
+            final int current = j * columnSize;
+            for (int i = 1; i < batchRows; i++) {
+                final int rowStart = i * stride;
+                // no dependencies between lanes, so this loop can be vectorized
+                for (int k = rowStart; k < rowStart + stride; k++) {
+                    match[current + k] = prior[k] * ( match[previous + k - stride] * mm[k] +
+                            insertion[previous + k - stride] * gm[k] +
+                            deletion[previous + k - stride] * gm[k] );
+                    insertion[current + k] = match[current + k - stride] * mi[k] + insertion[current + k - stride] * ii[k];
+                    deletion[current + k] = match[previous + k] * md[k] + deletion[previous + k] * dd[k];
+                }
+            }
+
+            // we ignore all paths that ended in deletions, but have to sum all the paths ending in the match and
+            // insertion states in the last row of each read
+            for (int r = 0; r < stride; r++) {
+                final int last = current + readLengths[r] * stride + r;
+                finalSums[j * stride + r] = finalSums[(j - 1) * stride + r] + match[last] + insertion[last];
+            }
+        }
+    }
+
+    private static int findSharedPrefixLength(final byte[] bases1, final byte[] bases2) {
+        final int minLength = Math.min(bases1.length, bases2.length);
+        for (int i = 0; i < minLength; i++) {
+            if (bases1[i] != bases2[i]) {
+                return i;
+            }
+        }
+        return minLength;
+    }
+
+    /**
+     * @return the log10 likelihood of the read in lane given the first haplotypeLength bases of the last haplotype computed
+     */
+    private double log10Likelihood(final int lane, final int haplotypeLength) {
+        // the initial condition of LoglessPairHMM is scaled by the haplotype length
+        final double result = Math.log10(finalSums[haplotypeLength * batchSize + lane]) - initialValueLog10 - Math.log10(haplotypeLength);
+        Utils.validate(MathUtils.goodLog10Probability(result), () -> "Invalid Log Probability: " + result);
+        return result;
+    }
+}
@@ -0,0 +1,821 @@
+package org.broadinstitute.hellbender.utils.read;
+
+import com.google.api.services.genomics.model.Read;
+import htsjdk.samtools.*;
+import htsjdk.samtools.util.Locatable;
+import htsjdk.samtools.util.StringUtil;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.iterators.SAMRecordToReadIterator;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Implementation of the {@link GATKRead} interface over the binary encoding of a record read from a BAM file.
+ *
+ * The fixed-length fields of the record (position, flags, mapping quality, lengths...) are kept decoded, but the
+ * read name, CIGAR, bases, base qualities and tags are kept in their BAM encoding, and each of them is only decoded
+ * the first time it is accessed. Reads that are filtered out or counted by their flags and positions are therefore
+ * never fully decoded.
+ *
+ * The read is copy-on-write: the first call to a method that modifies the read decodes it into a
+ * {@link SAMRecordToGATKReadAdapter}, which all methods use from then on.
+ *
+ * Until the read is modified, it may be accessed by several threads at once: decoding a field is a pure function of
+ * the binary encoding, so concurrent first accesses to a field may each decode it, but they all see an equal value.
+ * As with other GATKReads, the read must not be modified while it is accessed by other threads.
+ */
+public final class RawBAMRecordToGATKReadAdapter implements GATKRead, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private static final SAMRecordFactory SAM_RECORD_FACTORY = new DefaultSAMRecordFactory();
+
+    // base quality marking a record without base qualities in the BAM encoding
+    private static final byte NO_BASE_QUALITY = (byte) 0xFF;
+
+    // the fixed-length fields of the record, with reference names instead of reference indices
+    private final String referenceName;
+    private final int alignmentStart;
+    private final String mateReferenceName;
+    private final int mateAlignmentStart;
+    private final int flags;
+    private final int mappingQuality;
+    private final int inferredInsertSize;
+    private final int readNameLength; // null terminated
+    private final int cigarLength;
+    private final int readLength;
+
+    // read name, CIGAR, bases, base qualities and tags, as encoded in BAM. Never modified.
+    private final byte[] variableLengthBinaryBlock;
+
+    // the variable-length fields, decoded on first access
+    private transient volatile String name;
+    private transient volatile Cigar cigar;
+    private transient volatile byte[] bases;
+    private transient volatile byte[] baseQualities;
+    private transient volatile SAMBinaryTagAndValue attributes;
+    private transient volatile boolean attributesDecoded;
+
+    // the decoded read, once this read has been modified
+    private volatile SAMRecordToGATKReadAdapter decodedRead;
+
+    // hash code of the BAM encoding, or 0 if it hasn't been computed yet
+    private transient int encodedHashCode;
+
+    private RawBAMRecordToGATKReadAdapter( final String referenceName, final int alignmentStart,
+                                           final String mateReferenceName, final int mateAlignmentStart,
+                                           final int flags, final int mappingQuality, final int inferredInsertSize,
+                                           final int readNameLength, final int cigarLength, final int readLength,
+                                           final byte[] variableLengthBinaryBlock ) {
+        this.referenceName = referenceName;
+        this.alignmentStart = alignmentStart;
+        this.mateReferenceName = mateReferenceName;
+        this.mateAlignmentStart = mateAlignmentStart;
+        this.flags = flags;
+        this.mappingQuality = mappingQuality;
+        this.inferredInsertSize = inferredInsertSize;
+        this.readNameLength = readNameLength;
+        this.cigarLength = cigarLength;
+        this.readLength = readLength;
+        this.variableLengthBinaryBlock = variableLengthBinaryBlock;
+    }
+
+    /**
+     * Adapts a record to the GATKRead interface, keeping its variable-length fields in their BAM encoding if the
+     * record was read from a BAM file and hasn't been modified since, and wrapping it in a
+     * {@link SAMRecordToGATKReadAdapter} otherwise.
+     *
+     * The record is not used after this call if it is kept in its BAM encoding, but it must not be modified
+     * otherwise, as its BAM encoding is shared with the returned read.
+     *
+     * @param samRecord record to adapt. Must have a header if its reference names are set.
+     * @return a {@link RawBAMRecordToGATKReadAdapter} or a {@link SAMRecordToGATKReadAdapter}
+     */
+    public static GATKRead adapt( final SAMRecord samRecord ) {
+        Utils.nonNull(samRecord);
+        final byte[] variableLengthBinaryBlock = samRecord.getVariableBinaryRepresentation();
+        if ( variableLengthBinaryBlock == null ) {
+            return new SAMRecordToGATKReadAdapter(samRecord);
+        }
+        return new RawBAMRecordToGATKReadAdapter(samRecord.getReferenceName(), samRecord.getAlignmentStart(),
+                samRecord.getMateReferenceName(), samRecord.getMateAlignmentStart(),
+                samRecord.getFlags(), samRecord.getMappingQuality(), samRecord.getInferredInsertSize(),
+                samRecord.getReadNameLength() + 1, samRecord.getCigarLength(), samRecord.getReadLength(),
+                variableLengthBinaryBlock);
+    }
+
+    private int cigarOffset() {
+        return readNameLength;
+    }
+
+    private int basesOffset() {
+        return cigarOffset() + cigarLength * 4;
+    }
+
+    private int baseQualitiesOffset() {
+        return basesOffset() + (readLength + 1) / 2;
+    }
+
+    private int attributesOffset() {
+        return baseQualitiesOffset() + readLength;
+    }
+
+    private String decodedName() {
+        String decoded = name;
+        if ( decoded == null ) {
+            decoded = StringUtil.bytesToString(variableLengthBinaryBlock, 0, readNameLength - 1);
+            name = decoded;
+        }
+        return decoded;
+    }
+
+    private Cigar decodedCigar() {
+        Cigar decoded = cigar;
+        if ( decoded == null ) {
+            final List<CigarElement> elements = new ArrayList<>(cigarLength);
+            for ( int i = 0; i < cigarLength; i++ ) {
+                final int cigarElement = readInt(cigarOffset() + i * 4);
+                elements.add(new CigarElement(cigarElement >>> 4, CigarOperator.binaryToEnum(cigarElement & 0xF)));
+            }
+            decoded = new Cigar(elements);
+            cigar = decoded;
+        }
+        return decoded;
+    }
+
+    private int readInt( final int offset ) {
+        return (variableLengthBinaryBlock[offset] & 0xFF) | (variableLengthBinaryBlock[offset + 1] & 0xFF) << 8 |
+                (variableLengthBinaryBlock[offset + 2] & 0xFF) << 16 | (variableLengthBinaryBlock[offset + 3] & 0xFF) << 24;
+    }
+
+    private byte[] decodedBases() {
+        byte[] decoded = bases;
+        if ( decoded == null ) {
+            decoded = readLength == 0 ? SAMRecord.NULL_SEQUENCE : SAMUtils.compressedBasesToBytes(readLength, variableLengthBinaryBlock, basesOffset());
+            bases = decoded;
+        }
+        return decoded;
+    }
+
+    private byte[] decodedBaseQualities() {
+        byte[] decoded = baseQualities;
+        if ( decoded == null ) {
+            final int offset = baseQualitiesOffset();
+            decoded = readLength == 0 || variableLengthBinaryBlock[offset] == NO_BASE_QUALITY ? SAMRecord.NULL_QUALS :
+                    Arrays.copyOfRange(variableLengthBinaryBlock, offset, offset + readLength);
+            baseQualities = decoded;
+        }
+        return decoded;
+    }
+
+    private Object decodedAttribute( final short tag ) {
+        if ( ! attributesDecoded ) {
+            final int offset = attributesOffset();
+            attributes = BinaryTagCodec.readTags(variableLengthBinaryBlock, offset, variableLengthBinaryBlock.length - offset,
+                    ReadConstants.DEFAULT_READ_VALIDATION_STRINGENCY);
+            attributesDecoded = true;
+        }
+        final SAMBinaryTagAndValue attribute = attributes == null ? null : attributes.find(tag);
+        return attribute == null ? null : attribute.value;
+    }
+
+    private Object decodedAttribute( final String attributeName ) {
+        return decodedAttribute(SAMTagUtil.getSingleton().makeBinaryTag(attributeName));
+    }
+
+    /**
+     * @return a new record decoded from the BAM encoding of this read, without a header
+     */
+    private SAMRecord decodeSAMRecord() {
+        final BAMRecord samRecord = SAM_RECORD_FACTORY.createBAMRecord(null, SAMRecord.NO_ALIGNMENT_REFERENCE_INDEX, alignmentStart,
+                (short) readNameLength, (short) mappingQuality, 0, cigarLength, flags, readLength,
+                SAMRecord.NO_ALIGNMENT_REFERENCE_INDEX, mateAlignmentStart, inferredInsertSize, variableLengthBinaryBlock);
+        // clear the indexing bin
+        samRecord.setFlags(flags);
+        samRecord.setReferenceName(referenceName);
+        samRecord.setMateReferenceName(mateReferenceName);
+        return samRecord;
+    }
+
+    /**
+     * @return the decoded read, decoding it the first time this read is modified
+     */
+    private SAMRecordToGATKReadAdapter toDecodedRead() {
+        SAMRecordToGATKReadAdapter read = decodedRead;
+        if ( read == null ) {
+            read = SAMRecordToGATKReadAdapter.headerlessReadAdapter(decodeSAMRecord());
+            decodedRead = read;
+            SAMRecordToReadIterator.READS_DECODED.increment();
+        }
+        return read;
+    }
+
+    /**
+     * @return the decoded read if this read has been modified, or a new record decoded from the BAM encoding of
+     *         this read otherwise
+     */
+    private SAMRecord getSAMRecord() {
+        final SAMRecordToGATKReadAdapter read = decodedRead;
+        return read != null ? read.getEncapsulatedSamRecord() : decodeSAMRecord();
+    }
+
+    /**
+     * @return true if this read is still in its BAM encoding, false if it has been modified
+     */
+    public boolean isEncoded() {
+        return decodedRead == null;
+    }
+
+    @Override
+    public String getName() {
+        final GATKRead read = decodedRead;
+        return read != null ? read.getName() : decodedName();
+    }
+
+    @Override
+    public void setName( final String name ) {
+        toDecodedRead().setName(name);
+    }
+
+    @Override
+    public String getContig() {
+        final GATKRead read = decodedRead;
+        if ( read != null ) {
+            return read.getContig();
+        }
+        return isUnmapped() ? null : referenceName;
+    }
+
+    @Override
+    public int getStart() {
+        final GATKRead read = decodedRead;
+        if ( read != null ) {
+            return read.getStart();
+        }
+        return isUnmapped() ? ReadConstants.UNSET_POSITION : alignmentStart;
+    }
+
+    @Override
+    public int getEnd() {
+        final GATKRead read = decodedRead;
+        if ( read != null ) {
+            return read.getEnd();
+        }
+        return isUnmapped() ? ReadConstants.UNSET_POSITION : alignmentStart + decodedCigar().getReferenceLength() - 1;
+    }
+
+    @Override
+    public void setPosition( final String contig, final int start ) {
+        toDecodedRead().setPosition(contig, start);
+    }
+
+    @Override
+    public void setPosition( final Locatable locatable ) {
+        toDecodedRead().setPosition(locatable);
+    }
+
+    @Override
+    public String getAssignedContig() {
+        final GATKRead read = decodedRead;
+        return read != null ? read.getAssignedContig() : referenceName;
+    }
+
+    @Override
+    public int getAssignedStart() {
+        final GATKRead read = decodedRead;
+        return read != null ? read.getAssignedStart() : alignmentStart;
+    }
+
+    @Override
+    public int getUnclippedStart() {
+        final GATKRead read = decodedRead;
+        if ( read != null ) {
+            return read.getUnclippedStart();
+        }
+        return isUnmapped() ? ReadConstants.UNSET_POSITION : SAMUtils.getUnclippedStart(alignmentStart, decodedCigar());
+    }
+
+    @Override
+    public int getUnclippedEnd() {
+        final GATKRead read = decodedRead;
+        if ( read != null ) {
+            return read.getUnclippedEnd();
+        }
+        return isUnmapped() ? ReadConstants.UNSET_POSITION : SAMUtils.getUnclippedEnd(getEnd(), decodedCigar());
+    }
+
+    @Override
+    public int getSoftStart() {
+        final GATKRead read = decodedRead;
+        return read != null ? read.getSoftStart() : ReadUtils.getSoftStart(this);
+    }
+
+    @Override
+    public int getSoftEnd() {
+        final GATKRead read = decodedRead;
+        return read != null ? read.getSoftEnd() : ReadUtils.getSoftEnd(this);
+    }
+
+    @Override
+    public int getAdaptorBoundary() {
+        final GATKRead read = decodedRead;
+        return read != null ? read.getAdaptorBoundary() : ReadUtils.getAdaptorBoundary(this);
+    }
+
+    @Override
+    public String getMateContig() {
+        final GATKRead read = decodedRead;
+        if ( read != null ) {
+            return read.getMateContig();
+        }
+        return mateIsUnmapped() ? null : mateReferenceName;
+    }
+
+    @Override
+    public int getMateStart() {
+        final GATKRead read = decodedRead;
+        if ( read != null ) {
+            return read.getMateStart();
+        }
+        return mateIsUnmapped() ? ReadConstants.UNSET_POSITION : mateAlignmentStart;
+    }
+
+    @Override
+    public void setMatePosition( final String contig, final int start ) {
+        toDecodedRead().setMatePosition(contig, start);
+    }
+
+    @Override
+    public void setMatePosition( final Locatable locatable ) {
+        toDecodedRead().setMatePosition(locatable);
+    }
+
+    @Override
+    public int getFragmentLength() {
+        final GATKRead read = decodedRead;
+        return read != null ? read.getFragmentLength() : inferredInsertSize;
+    }
+
+    @Override
+    public void setFragmentLength( final int fragmentLength ) {
+        toDecodedRead().setFragmentLength(fragmentLength);
+    }
+
+    @Override
+    public int getMappingQuality() {
+        final GATKRead read = decodedRead;
+        if ( read != null ) {
+            return read.getMappingQuality();
+        }
+        return mappingQuality != SAMRecord.NO_MAPPING_QUALITY ? mappingQuality : ReadConstants.NO_MAPPING_QUALITY;
+    }
+
+    @Override
+    public void setMappingQuality( final int mappingQuality ) {
+        toDecodedRead().setMappingQuality(mappingQuality);
+    }
+
+    @Override
+    public byte[] getBases() {
+        final GATKRead read = decodedRead;
+        if ( read != null ) {
+            return read.getBases();
+        }
+        // Make a defensive copy to protect against direct modification of the returned array
+        return decodedBases().clone();
+    }
+
+    @Override
+    public byte[] getBasesNoCopy() {
+        final GATKRead read = decodedRead;
+        return read != null ? read.getBasesNoCopy() : decodedBases();
+    }
+
+    //Bounds checking is the caller's responsibility, as it's too expensive in this hotspot method
+    @Override
+    public byte getBase( final int i ) {
+        final GATKRead read = decodedRead;
+        return read != null ? read.getBase(i) : decodedBases()[i];
+    }
+
+    @Override
+    public int getLength() {
+        final GATKRead read = decodedRead;
+        return read != null ? read.getLength() : readLength;
+    }
+
+    @Override
+    public void setBases( final byte[] bases ) {
+        toDecodedRead().setBases(bases);
+    }
+
+    @Override
+    public byte[] getBaseQualities() {
+        final GATKRead read = decodedRead;
+        if ( read != null ) {
+            return read.getBaseQualities();
+        }
+        // Make a defensive copy to protect against direct modification of the returned array
+        return decodedBaseQualities().clone();
+    }
+
+    @Override
+    public byte[] getBaseQualitiesNoCopy() {
+        final GATKRead read = decodedRead;
+        return read != null ? read.getBaseQualitiesNoCopy() : decodedBaseQualities();
+    }
+
+    @Override
+    public int getBaseQualityCount() {
+        final GATKRead read = decodedRead;
+        return read != null ? read.getBaseQualityCount() : decodedBaseQualities().length;
+    }
+
+    //Bounds checking is the caller's responsibility, as it's too expensive in this hotspot method
+    @Override
+    public byte getBaseQuality( final int i ) {
+        final GATKRead read = decodedRead;
+        return read != null ? read.getBaseQuality(i) : decodedBaseQualities()[i];
+    }
+
+    @Override
+    public void setBaseQualities( final byte[] baseQualities ) {
+        toDecodedRead().setBaseQualities(baseQualities);
+    }
+
+    @Override
+    public Cigar getCigar() {
+        final GATKRead read = decodedRead;
+        if ( read != null ) {
+            return read.getCigar();
+        }
+        // Make a defensive copy before returning to guard against modification of the return value,
+        // since Cigar is a mutable type:
+        return new Cigar(decodedCigar().getCigarElements());
+    }
+
+    @Override
+    public List<CigarElement> getCigarElements() {
+        final GATKRead read = decodedRead;
+        //Cigar.getCigarElements returns an unmodifiable list so we don't wrap it again
+        return read != null ? read.getCigarElements() : decodedCigar().getCigarElements();
+    }
+
+    //Bounds checking is the caller's responsibility, as it's too expensive in this hotspot method
+    @Override
+    public CigarElement getCigarElement( final int index ) {
+        final GATKRead read = decodedRead;
+        return read != null ? read.getCigarElement(index) : decodedCigar().getCigarElement(index);
+    }
+
+    @Override
+    public int numCigarElements() {
+        final GATKRead read = decodedRead;
+        return read != null ? read.numCigarElements() : cigarLength;
+    }
+
+    @Override
+    public void setCigar( final Cigar cigar ) {
+        toDecodedRead().setCigar(cigar);
+    }
+
+    @Override
+    public void setCigar( final String cigarString ) {
+        toDecodedRead().setCigar(cigarString);
+    }
+
+    @Override
+    public String getReadGroup() {
+        final GATKRead read = decodedRead;
+        // May return null
+        return read != null ? read.getReadGroup() : (String) decodedAttribute(SAMTagUtil.getSingleton().RG);
+    }
+
+    @Override
+    public void setReadGroup( final String readGroupID ) {
+        toDecodedRead().setReadGroup(readGroupID);
+    }
+
+    @Override
+    public boolean isPaired() {
+        final GATKRead read = decodedRead;
+        return read != null ? read.isPaired() : (flags & SAMFlag.READ_PAIRED.intValue()) != 0;
+    }
+
+    @Override
+    public void setIsPaired( final boolean isPaired ) {
+        toDecodedRead().setIsPaired(isPaired);
+    }
+
+    @Override
+    public boolean isProperlyPaired() {
+        final GATKRead read = decodedRead;
+        return read != null ? read.isProperlyPaired() : isPaired() && (flags & SAMFlag.PROPER_PAIR.intValue()) != 0;
+    }
+
+    @Override
+    public void setIsProperlyPaired( final boolean isProperlyPaired ) {
+        toDecodedRead().setIsProperlyPaired(isProperlyPaired);
+    }
+
+    @Override
+    public boolean isUnmapped() {
+        final GATKRead read = decodedRead;
+        if ( read != null ) {
+            return read.isUnmapped();
+        }
+        return (flags & SAMFlag.READ_UNMAPPED.intValue()) != 0 ||
+               referenceName == null || referenceName.equals(SAMRecord.NO_ALIGNMENT_REFERENCE_NAME) ||
+               alignmentStart == SAMRecord.NO_ALIGNMENT_START;
+    }
+
+    @Override
+    public void setIsUnmapped() {
+        toDecodedRead().setIsUnmapped();
+    }
+
+    @Override
+    public boolean mateIsUnmapped() {
+        final GATKRead read = decodedRead;
+        if ( read != null ) {
+            return read.mateIsUnmapped();
+        }
+        Utils.validate(isPaired(), "Cannot get mate information for an unpaired read");
+
+        return (flags & SAMFlag.MATE_UNMAPPED.intValue()) != 0 ||
+               mateReferenceName == null || mateReferenceName.equals(SAMRecord.NO_ALIGNMENT_REFERENCE_NAME) ||
+               mateAlignmentStart == SAMRecord.NO_ALIGNMENT_START;
+    }
+
+    @Override
+    public void setMateIsUnmapped() {
+        toDecodedRead().setMateIsUnmapped();
+    }
+
+    @Override
+    public boolean isReverseStrand() {
+        final GATKRead read = decodedRead;
+        return read != null ? read.isReverseStrand() : (flags & SAMFlag.READ_REVERSE_STRAND.intValue()) != 0;
+    }
+
+    @Override
+    public void setIsReverseStrand( final boolean isReverseStrand ) {
+        toDecodedRead().setIsReverseStrand(isReverseStrand);
+    }
+
+    @Override
+    public boolean mateIsReverseStrand() {
+        final GATKRead read = decodedRead;
+        if ( read != null ) {
+            return read.mateIsReverseStrand();
+        }
+        Utils.validate(isPaired(), "Cannot get mate information for an unpaired read");
+
+        return (flags & SAMFlag.MATE_REVERSE_STRAND.intValue()) != 0;
+    }
+
+    @Override
+    public void setMateIsReverseStrand( final boolean mateIsReverseStrand ) {
+        toDecodedRead().setMateIsReverseStrand(mateIsReverseStrand);
+    }
+
+    @Override
+    public boolean isFirstOfPair() {
+        final GATKRead read = decodedRead;
+        return read != null ? read.isFirstOfPair() : isPaired() && (flags & SAMFlag.FIRST_OF_PAIR.intValue()) != 0;
+    }
+
+    @Override
+    public void setIsFirstOfPair() {
+        toDecodedRead().setIsFirstOfPair();
+    }
+
+    @Override
+    public boolean isSecondOfPair() {
+        final GATKRead read = decodedRead;
+        return read != null ? read.isSecondOfPair() : isPaired() && (flags & SAMFlag.SECOND_OF_PAIR.intValue()) != 0;
+    }
+
+    @Override
+    public void setIsSecondOfPair() {
+        toDecodedRead().setIsSecondOfPair();
+    }
+
+    @Override
+    public boolean isSecondaryAlignment() {
+        final GATKRead read = decodedRead;
+        return read != null ? read.isSecondaryAlignment() : (flags & SAMFlag.SECONDARY_ALIGNMENT.intValue()) != 0;
+    }
+
+    @Override
+    public void setIsSecondaryAlignment( final boolean isSecondaryAlignment ) {
+        toDecodedRead().setIsSecondaryAlignment(isSecondaryAlignment);
+    }
+
+    @Override
+    public boolean isSupplementaryAlignment() {
+        final GATKRead read = decodedRead;
+        return read != null ? read.isSupplementaryAlignment() : (flags & SAMFlag.SUPPLEMENTARY_ALIGNMENT.intValue()) != 0;
+    }
+
+    @Override
+    public void setIsSupplementaryAlignment( final boolean isSupplementaryAlignment ) {
+        toDecodedRead().setIsSupplementaryAlignment(isSupplementaryAlignment);
+    }
+
+    @Override
+    public boolean failsVendorQualityCheck() {
+        final GATKRead read = decodedRead;
+        return read != null ? read.failsVendorQualityCheck() : (flags & SAMFlag.READ_FAILS_VENDOR_QUALITY_CHECK.intValue()) != 0;
+    }
+
+    @Override
+    public void setFailsVendorQualityCheck( final boolean failsVendorQualityCheck ) {
+        toDecodedRead().setFailsVendorQualityCheck(failsVendorQualityCheck);
+    }
+
+    @Override
+    public boolean isDuplicate() {
+        final GATKRead read = decodedRead;
+        return read != null ? read.isDuplicate() : (flags & SAMFlag.DUPLICATE_READ.intValue()) != 0;
+    }
+
+    @Override
+    public void setIsDuplicate( final boolean isDuplicate ) {
+        toDecodedRead().setIsDuplicate(isDuplicate);
+    }
+
+    @Override
+    public boolean hasAttribute( final String attributeName ) {
+        final GATKRead read = decodedRead;
+        if ( read != null ) {
+            return read.hasAttribute(attributeName);
+        }
+        ReadUtils.assertAttributeNameIsLegal(attributeName);
+        return decodedAttribute(attributeName) != null;
+    }
+
+    @Override
+    public Integer getAttributeAsInteger( final String attributeName ) {
+        final GATKRead read = decodedRead;
+        if ( read != null ) {
+            return read.getAttributeAsInteger(attributeName);
+        }
+        ReadUtils.assertAttributeNameIsLegal(attributeName);
+        return SAMRecordToGATKReadAdapter.attributeAsInteger(attributeName, decodedAttribute(attributeName));
+    }
+
+    @Override
+    public String getAttributeAsString( final String attributeName ) {
+        final GATKRead read = decodedRead;
+        if ( read != null ) {
+            return read.getAttributeAsString(attributeName);
+        }
+        ReadUtils.assertAttributeNameIsLegal(attributeName);
+        return SAMRecordToGATKReadAdapter.attributeAsString(decodedAttribute(attributeName));
+    }
+
+    @Override
+    public byte[] getAttributeAsByteArray( final String attributeName ) {
+        final GATKRead read = decodedRead;
+        if ( read != null ) {
+            return read.getAttributeAsByteArray(attributeName);
+        }
+        ReadUtils.assertAttributeNameIsLegal(attributeName);
+        return SAMRecordToGATKReadAdapter.attributeAsByteArray(attributeName, decodedAttribute(attributeName));
+    }
+
+    @Override
+    public void setAttribute( final String attributeName, final Integer attributeValue ) {
+        toDecodedRead().setAttribute(attributeName, attributeValue);
+    }
+
+    @Override
+    public void setAttribute( final String attributeName, final String attributeValue ) {
+        toDecodedRead().setAttribute(attributeName, attributeValue);
+    }
+
+    @Override
+    public void setAttribute( final String attributeName, final byte[] attributeValue ) {
+        toDecodedRead().setAttribute(attributeName, attributeValue);
+    }
+
+    @Override
+    public void clearAttribute( final String attributeName ) {
+        toDecodedRead().clearAttribute(attributeName);
+    }
+
+    @Override
+    public void clearAttributes() {
+        toDecodedRead().clearAttributes();
+    }
+
+    @Override
+    public GATKRead copy() {
+        final GATKRead read = decodedRead;
+        if ( read != null ) {
+            return read.copy();
+        }
+        // the BAM encoding is never modified, so it can be shared by the copy
+        return new RawBAMRecordToGATKReadAdapter(referenceName, alignmentStart, mateReferenceName, mateAlignmentStart,
+                flags, mappingQuality, inferredInsertSize, readNameLength, cigarLength, readLength, variableLengthBinaryBlock);
+    }
+
+    @Override
+    public GATKRead deepCopy() {
+        final GATKRead read = decodedRead;
+        if ( read != null ) {
+            return read.deepCopy();
+        }
+        return new RawBAMRecordToGATKReadAdapter(referenceName, alignmentStart, mateReferenceName, mateAlignmentStart,
+                flags, mappingQuality, inferredInsertSize, readNameLength, cigarLength, readLength, variableLengthBinaryBlock.clone());
+    }
+
+    @Override
+    public String getSAMString() {
+        return getSAMRecord().getSAMString();
+    }
+
+    /**
+     * Converts this read to a SAMRecord as {@link SAMRecordToGATKReadAdapter#convertToSAMRecord} does, without
+     * changing this read. While the read is still in its BAM encoding, the returned record is a new record over that
+     * encoding, so modifying it doesn't modify this read. The variable-length fields of the returned record are
+     * decoded lazily, and it is written to BAM files from its unchanged BAM encoding.
+     */
+    @Override
+    public SAMRecord convertToSAMRecord( final SAMFileHeader header ) {
+        final SAMRecord samRecord = getSAMRecord();
+        samRecord.setHeaderStrict(header);
+        return samRecord;
+    }
+
+    @Override
+    public Read convertToGoogleGenomicsRead() {
+        // TODO: this converter is imperfect/lossy and should either be patched or replaced
+        return com.google.cloud.genomics.utils.ReadUtils.makeRead(getSAMRecord());
+    }
+
+    /**
+     * While this read is still in its BAM encoding, it is equal only to other reads in the same BAM encoding, and the
+     * comparison doesn't decode either read. Once it has been decoded (modified), it is equal to the reads that
+     * are equal to its decoded form, such as its copies. Like modifying any read, decoding this read may change
+     * its hash code.
+     */
+    @Override
+    public boolean equals( final Object o ) {
+        if ( this == o ) return true;
+        if ( o == null ) return false;
+
+        final SAMRecordToGATKReadAdapter read = decodedRead;
+        if ( read != null ) {
+            return read.equals(o instanceof RawBAMRecordToGATKReadAdapter ? ((RawBAMRecordToGATKReadAdapter) o).decodedRead : o);
+        }
+        if ( getClass() != o.getClass() ) return false;
+
+        final RawBAMRecordToGATKReadAdapter that = (RawBAMRecordToGATKReadAdapter) o;
+
+        return that.isEncoded() &&
+                alignmentStart == that.alignmentStart &&
+                mateAlignmentStart == that.mateAlignmentStart &&
+                flags == that.flags &&
+                mappingQuality == that.mappingQuality &&
+                inferredInsertSize == that.inferredInsertSize &&
+                readNameLength == that.readNameLength &&
+                cigarLength == that.cigarLength &&
+                readLength == that.readLength &&
+                Objects.equals(referenceName, that.referenceName) &&
+                Objects.equals(mateReferenceName, that.mateReferenceName) &&
+                Arrays.equals(variableLengthBinaryBlock, that.variableLengthBinaryBlock);
+    }
+
+    @Override
+    public int hashCode() {
+        final SAMRecordToGATKReadAdapter read = decodedRead;
+        if ( read != null ) {
+            return read.hashCode();
+        }
+        int result = encodedHashCode;
+        if ( result == 0 ) {
+            result = Objects.hashCode(referenceName);
+            result = 31 * result + alignmentStart;
+            result = 31 * result + Objects.hashCode(mateReferenceName);
+            result = 31 * result + mateAlignmentStart;
+            result = 31 * result + flags;
+            result = 31 * result + mappingQuality;
+            result = 31 * result + inferredInsertSize;
+            result = 31 * result + readLength;
+            result = 31 * result + Arrays.hashCode(variableLengthBinaryBlock);
+            // the BAM encoding never changes, so its hash code is computed only once
+            encodedHashCode = result;
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return commonToString();
+    }
+}
@@ -1,8 +1,10 @@
 package org.broadinstitute.hellbender.utils.read;
 
+import htsjdk.samtools.BamFileIoUtils;
 import htsjdk.samtools.Cigar;
 import htsjdk.samtools.CigarElement;
 import htsjdk.samtools.CigarOperator;
+import htsjdk.samtools.ParallelBAMFileWriter;
 import htsjdk.samtools.SAMFileHeader;
 import htsjdk.samtools.SAMFileWriter;
 import htsjdk.samtools.SAMFileWriterFactory;
@@ -1061,9 +1063,37 @@ public final class ReadUtils {
         final boolean preSorted,
         boolean createOutputBamIndex,
         final boolean createMD5)
+    {
+        return createCommonSAMWriter(outputPath, referenceFile, header, preSorted, createOutputBamIndex, createMD5, 0);
+    }
+
+    /**
+     * Create a common SAMFileWriter for use with GATK tools.
+     *
+     * @param outputPath - if this file has a .cram extension then a reference is required. Can not be null.
+     * @param referenceFile - the reference source to use. Can not be null if a output file has a .cram extension.
+     * @param header - header to be used for the output writer
+     * @param preSorted - if true then the records must already be sorted to match the header sort order
+     * @param createOutputBamIndex - if true an index will be created for .BAM and .CRAM files
+     * @param createMD5 - if true an MD5 file will be created
+     * @param compressionThreads - if greater than 0 and the output is a .BAM file, it is compressed on this many
+     *                             threads by a {@link ParallelBAMFileWriter}, with output identical to that of the
+     *                             htsjdk writer
+     *
+     * @return SAMFileWriter
+     */
+    public static SAMFileWriter createCommonSAMWriter(
+        final Path outputPath,
+        final File referenceFile,
+        final SAMFileHeader header,
+        final boolean preSorted,
+        boolean createOutputBamIndex,
+        final boolean createMD5,
+        final int compressionThreads)
     {
         Utils.nonNull(outputPath);
         Utils.nonNull(header);
+        Utils.validateArg(compressionThreads >= 0, "compressionThreads must be >= 0");
 
         if (createOutputBamIndex && header.getSortOrder() != SAMFileHeader.SortOrder.coordinate) {
             logger.warn("Skipping index file creation for: " +
@@ -1071,6 +1101,10 @@ public final class ReadUtils {
             createOutputBamIndex = false;
         }
 
+        if (compressionThreads > 0 && outputPath.toString().endsWith(BamFileIoUtils.BAM_FILE_EXTENSION)) {
+            return new ParallelBAMFileWriter(outputPath, header.clone(), preSorted, createOutputBamIndex, createMD5, compressionThreads);
+        }
+
         final SAMFileWriterFactory factory = new SAMFileWriterFactory().setCreateIndex(createOutputBamIndex).setCreateMd5File(createMD5);
         return ReadUtils.createCommonSAMWriterFromFactory(factory, outputPath, referenceFile, header, preSorted);
     }
@@ -569,8 +569,26 @@ public class SAMRecordToGATKReadAdapter implements GATKRead, Serializable {
     @Override
     public Integer getAttributeAsInteger( final String attributeName ) {
         ReadUtils.assertAttributeNameIsLegal(attributeName);
-        final Object attributeValue = samRecord.getAttribute(attributeName);
+        return attributeAsInteger(attributeName, samRecord.getAttribute(attributeName));
+    }
 
+    @Override
+    public String getAttributeAsString( final String attributeName ) {
+        ReadUtils.assertAttributeNameIsLegal(attributeName);
+        return attributeAsString(samRecord.getAttribute(attributeName));
+    }
+
+    @Override
+    public byte[] getAttributeAsByteArray( final String attributeName ) {
+        ReadUtils.assertAttributeNameIsLegal(attributeName);
+        return attributeAsByteArray(attributeName, samRecord.getAttribute(attributeName));
+    }
+
+    /**
+     * Converts the value of an attribute, as returned by {@link SAMRecord#getAttribute}, to an Integer
+     * (see {@link GATKRead#getAttributeAsInteger}).
+     */
+    static Integer attributeAsInteger( final String attributeName, final Object attributeValue ) {
         if ( attributeValue == null ) {
             return null;
         }
@@ -587,10 +605,11 @@ public class SAMRecordToGATKReadAdapter implements GATKRead, Serializable {
         }
     }
 
-    @Override
-    public String getAttributeAsString( final String attributeName ) {
-        ReadUtils.assertAttributeNameIsLegal(attributeName);
-        final Object attributeValue = samRecord.getAttribute(attributeName);
+    /**
+     * Converts the value of an attribute, as returned by {@link SAMRecord#getAttribute}, to a String
+     * (see {@link GATKRead#getAttributeAsString}).
+     */
+    static String attributeAsString( final Object attributeValue ) {
         if ( attributeValue instanceof byte[]) {
             // in case that the attribute is a byte[] array, the toString method will format it as name@hashCode
             // for a good representation of the byte[] as String, it encodes the bytes with the default charset (UTF-8)
@@ -601,11 +620,11 @@ public class SAMRecordToGATKReadAdapter implements GATKRead, Serializable {
         return attributeValue != null ? attributeValue.toString() : null;
     }
 
-    @Override
-    public byte[] getAttributeAsByteArray( final String attributeName ) {
-        ReadUtils.assertAttributeNameIsLegal(attributeName);
-        final Object attributeValue = samRecord.getAttribute(attributeName);
-
+    /**
+     * Converts the value of an attribute, as returned by {@link SAMRecord#getAttribute}, to a byte array
+     * (see {@link GATKRead#getAttributeAsByteArray}).
+     */
+    static byte[] attributeAsByteArray( final String attributeName, final Object attributeValue ) {
         if ( attributeValue == null ) {
             return null;
         }
@@ -698,6 +717,10 @@ public class SAMRecordToGATKReadAdapter implements GATKRead, Serializable {
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
+        if (o instanceof RawBAMRecordToGATKReadAdapter) {
+            // a lazily decoded read is equal to this read once it has been decoded into an equal SAMRecord
+            return o.equals(this);
+        }
         if (o == null || getClass() != o.getClass()) return false;
 
         SAMRecordToGATKReadAdapter that = (SAMRecordToGATKReadAdapter) o;
@@ -0,0 +1,165 @@
+package org.broadinstitute.hellbender.utils.read.markduplicates;
+
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMReadGroupRecord;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.read.ReadUtils;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Fixed-width binary key of a set of duplicate fragments or paired ends for MarkDuplicatesSpark. Two keys are equal
+ * iff the {@link ReadsKey} String keys of the same fragments or paired ends are equal, but these keys are much smaller
+ * to shuffle and cheaper to hash and compare.
+ *
+ * Each end is packed in a long made of its reference index, its stranded unclipped start and its strand, and
+ * libraries are identified by their index in a map built from the header by {@link #getLibraryIndices}. Keys sort by
+ * their first end, so that sorting keys keeps the duplicate sets at nearby positions together.
+ */
+public final class DuplicateSetKey implements Comparable<DuplicateSetKey>, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    // library index of the reads whose read group has no library
+    private static final int NO_LIBRARY = -1;
+
+    // second end of fragment keys and of the keys of paired ends without a second end: no packed end has this value
+    private static final long NO_END = Long.MIN_VALUE;
+
+    private final long firstEnd;
+    private final long secondEnd;
+    private final int library;
+    private final boolean fragment;
+
+    private DuplicateSetKey(final long firstEnd, final long secondEnd, final int library, final boolean fragment) {
+        this.firstEnd = firstEnd;
+        this.secondEnd = secondEnd;
+        this.library = library;
+        this.fragment = fragment;
+    }
+
+    /**
+     * Numbers the libraries of the read groups of the header, in order of first appearance.
+     *
+     * @return the index of the library of each read group with a library, by read group id
+     */
+    public static Map<String, Integer> getLibraryIndices(final SAMFileHeader header) {
+        final Map<String, Integer> libraries = new LinkedHashMap<>();
+        final Map<String, Integer> libraryIndices = new HashMap<>();
+        for ( final SAMReadGroupRecord readGroup : header.getReadGroups() ) {
+            if ( readGroup.getLibrary() != null ) {
+                final Integer library = libraries.computeIfAbsent(readGroup.getLibrary(), name -> libraries.size());
+                libraryIndices.put(readGroup.getReadGroupId(), library);
+            }
+        }
+        return libraryIndices;
+    }
+
+    /**
+     * Makes the key of a fragment: see {@link ReadsKey#keyForFragment}.
+     *
+     * @param libraryIndices library indices by read group id, as returned by {@link #getLibraryIndices}
+     */
+    public static DuplicateSetKey forFragment(final SAMFileHeader header, final Map<String, Integer> libraryIndices, final GATKRead read) {
+        return new DuplicateSetKey(packEnd(header, read), NO_END, getLibraryIndex(libraryIndices, read), true);
+    }
+
+    /**
+     * Makes the key of paired ends: see {@link ReadsKey#keyForPairedEnds}.
+     *
+     * @param libraryIndices library indices by read group id, as returned by {@link #getLibraryIndices}
+     * @param second second end of the pair. May be null.
+     */
+    public static DuplicateSetKey forPairedEnds(final SAMFileHeader header, final Map<String, Integer> libraryIndices,
+                                                final GATKRead first, final GATKRead second) {
+        return new DuplicateSetKey(packEnd(header, first), second == null ? NO_END : packEnd(header, second),
+                getLibraryIndex(libraryIndices, first), false);
+    }
+
+    private static int getLibraryIndex(final Map<String, Integer> libraryIndices, final GATKRead read) {
+        final Integer library = read.getReadGroup() == null ? null : libraryIndices.get(read.getReadGroup());
+        return library != null ? library : NO_LIBRARY;
+    }
+
+    // the reference index in the high bits, then the start with its sign bit flipped so that ends sort by position,
+    // then the strand
+    private static long packEnd(final SAMFileHeader header, final GATKRead read) {
+        final long start = ReadUtils.getStrandedUnclippedStart(read) ^ Integer.MIN_VALUE;
+        return ((long) ReadUtils.getReferenceIndex(read, header) << 33) | ((start & 0xFFFFFFFFL) << 1) | (read.isReverseStrand() ? 1 : 0);
+    }
+
+    /**
+     * Returns true if this is the key of a fragment.
+     */
+    public boolean isFragment() {
+        return fragment;
+    }
+
+    /**
+     * @return the reference index of the first end
+     */
+    public int getReferenceIndex() {
+        return getReferenceIndex(firstEnd);
+    }
+
+    /**
+     * @return the stranded unclipped start of the first end
+     */
+    public int getStrandedUnclippedStart() {
+        return getStrandedUnclippedStart(firstEnd);
+    }
+
+    private static int getReferenceIndex(final long end) {
+        return (int) (end >> 33);
+    }
+
+    private static int getStrandedUnclippedStart(final long end) {
+        return (int) (end >>> 1) ^ Integer.MIN_VALUE;
+    }
+
+    private static String endToString(final long end) {
+        return getReferenceIndex(end) + "|" + getStrandedUnclippedStart(end) + "|" + ((end & 1) == 0 ? "f" : "r");
+    }
+
+    @Override
+    public int compareTo(final DuplicateSetKey other) {
+        int result = Long.compare(firstEnd, other.firstEnd);
+        if ( result == 0 ) {
+            result = Integer.compare(library, other.library);
+        }
+        if ( result == 0 ) {
+            result = Boolean.compare(fragment, other.fragment);
+        }
+        if ( result == 0 ) {
+            result = Long.compare(secondEnd, other.secondEnd);
+        }
+        return result;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if ( this == o ) {
+            return true;
+        }
+        if ( !(o instanceof DuplicateSetKey) ) {
+            return false;
+        }
+        final DuplicateSetKey other = (DuplicateSetKey) o;
+        return firstEnd == other.firstEnd && secondEnd == other.secondEnd && library == other.library && fragment == other.fragment;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Long.hashCode(firstEnd);
+        result = 31 * result + Long.hashCode(secondEnd);
+        result = 31 * result + library;
+        return 31 * result + (fragment ? 1 : 0);
+    }
+
+    @Override
+    public String toString() {
+        return (fragment ? "f|" : "p|") + library + "|" + endToString(firstEnd) + (secondEnd == NO_END ? "" : "|" + endToString(secondEnd));
+    }
+}
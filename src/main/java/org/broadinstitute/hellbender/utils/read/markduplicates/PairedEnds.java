@@ -4,6 +4,8 @@ import htsjdk.samtools.SAMFileHeader;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
 import org.broadinstitute.hellbender.utils.read.ReadUtils;
 
+import java.util.Map;
+
 /**
  * Struct-like class to store information about the paired reads for mark duplicates.
  */
@@ -35,12 +37,18 @@ public class PairedEnds implements OpticalDuplicateFinder.PhysicalLocation {
     return this;
   }
 
-  public String key(final SAMFileHeader header) {
-    return ReadsKey.keyForPairedEnds(header, first, second);
+  /**
+   * @param libraryIndices library indices by read group id, as returned by {@link DuplicateSetKey#getLibraryIndices}
+   */
+  public DuplicateSetKey key(final SAMFileHeader header, final Map<String, Integer> libraryIndices) {
+    return DuplicateSetKey.forPairedEnds(header, libraryIndices, first, second);
   }
 
-  public String keyForFragment(final SAMFileHeader header) {
-    return ReadsKey.keyForFragment(header, first);
+  /**
+   * @param libraryIndices library indices by read group id, as returned by {@link DuplicateSetKey#getLibraryIndices}
+   */
+  public DuplicateSetKey keyForFragment(final SAMFileHeader header, final Map<String, Integer> libraryIndices) {
+    return DuplicateSetKey.forFragment(header, libraryIndices, first);
   }
 
   public GATKRead first() {
@@ -28,6 +28,7 @@ import org.broadinstitute.hellbender.utils.recalibration.covariates.StandardCova
 
 import java.io.Serializable;
 import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
 
 public final class BaseRecalibrationEngine implements Serializable {
     private static final long serialVersionUID = 1L;
@@ -35,6 +36,14 @@ public final class BaseRecalibrationEngine implements Serializable {
     protected static final Logger logger = LogManager.getLogger(BaseRecalibrationEngine.class);
     private final CovariateKeyCache keyCache;
 
+    /*
+     * When reads are processed concurrently, each thread needs its own key cache, since cached keys are
+     * overwritten by the next read of the same length, and the recalibration data is accumulated in
+     * concurrentTables before being merged into recalTables by finalizeData(). Both are null otherwise.
+     */
+    private final transient ThreadLocal<CovariateKeyCache> threadKeyCaches;
+    private final transient ConcurrentRecalibrationTables concurrentTables;
+
     /*
      * Every call to EventType.values() (or any enum type) creates a new array instance but they are all equal (ie contain identical elements).
      * This is very expensive and wasteful when this array is created billions of times as in the case of BQSR.
@@ -72,7 +81,7 @@ public final class BaseRecalibrationEngine implements Serializable {
     private BAQ baq; // BAQ the reads on the fly to generate the alignment uncertainty vector
     private static final byte NO_BAQ_UNCERTAINTY = (byte)'@';
 
-    private long numReadsProcessed = 0L;
+    private final LongAdder numReadsProcessed = new LongAdder();
 
     /**
      * Has finalizeData() been called?
@@ -80,6 +89,14 @@ public final class BaseRecalibrationEngine implements Serializable {
     private boolean finalized = false;
 
     public BaseRecalibrationEngine( final RecalibrationArgumentCollection recalArgs, final SAMFileHeader readsHeader ) {
+        this(recalArgs, readsHeader, false);
+    }
+
+    /**
+     * @param concurrent if true, {@link #processRead} may be called from several threads at once, provided each thread
+     *                   uses its own {@link ReferenceDataSource}
+     */
+    public BaseRecalibrationEngine( final RecalibrationArgumentCollection recalArgs, final SAMFileHeader readsHeader, final boolean concurrent ) {
         this.recalArgs = recalArgs;
         this.readsHeader = readsHeader;
 
@@ -97,6 +114,8 @@ public final class BaseRecalibrationEngine implements Serializable {
         }
         recalTables = new RecalibrationTables(covariates, numReadGroups);
         keyCache = new CovariateKeyCache();
+        threadKeyCaches = concurrent ? ThreadLocal.withInitial(CovariateKeyCache::new) : null;
+        concurrentTables = concurrent ? new ConcurrentRecalibrationTables(recalTables) : null;
         cachedEventTypes = recalArgs.computeIndelBQSRTables ? EventType.values() : new EventType[]{EventType.BASE_SUBSTITUTION};
     }
 
@@ -119,7 +138,14 @@ public final class BaseRecalibrationEngine implements Serializable {
             return; // the whole read was inside the adaptor so skip it
         }
 
-        RecalUtils.parsePlatformForRead(read, readsHeader, recalArgs);
+        if ( concurrentTables == null ) {
+            RecalUtils.parsePlatformForRead(read, readsHeader, recalArgs);
+        } else {
+            // this may set the platform of the read group in the shared header
+            synchronized (readsHeader) {
+                RecalUtils.parsePlatformForRead(read, readsHeader, recalArgs);
+            }
+        }
 
         int[] isSNP = new int[read.getLength()];
         int[] isInsertion = new int[isSNP.length];
@@ -133,7 +159,8 @@ public final class BaseRecalibrationEngine implements Serializable {
         final byte[] baqArray = (nErrors == 0 || !recalArgs.enableBAQ) ? flatBAQArray(read) : calculateBAQArray(read, refDS);
 
         if( baqArray != null ) { // some reads just can't be BAQ'ed
-            final ReadCovariates covariates = RecalUtils.computeCovariates(read, readsHeader, this.covariates, true, keyCache);
+            final CovariateKeyCache readKeyCache = threadKeyCaches == null ? keyCache : threadKeyCaches.get();
+            final ReadCovariates covariates = RecalUtils.computeCovariates(read, readsHeader, this.covariates, true, readKeyCache);
             final boolean[] skip = calculateSkipArray(read, knownSites); // skip known sites of variation as well as low quality and non-regular bases
             final double[] snpErrors = calculateFractionalErrorArray(isSNP, baqArray);
             final double[] insertionErrors = calculateFractionalErrorArray(isInsertion, baqArray);
@@ -144,7 +171,7 @@ public final class BaseRecalibrationEngine implements Serializable {
             updateRecalTablesForRead(info);
         }
 
-        numReadsProcessed++;
+        numReadsProcessed.increment();
     }
 
     /**
@@ -157,6 +184,9 @@ public final class BaseRecalibrationEngine implements Serializable {
      */
     public void finalizeData() {
         Utils.validate(!finalized, "FinalizeData() has already been called");
+        if ( concurrentTables != null ) {
+            concurrentTables.mergeInto(recalTables);
+        }
         finalizeRecalibrationTables(recalTables);
         finalized = true;
     }
@@ -208,8 +238,12 @@ public final class BaseRecalibrationEngine implements Serializable {
 
     /**
      * Get a possibly not-final recalibration table, to deal with distributed execution.
+     *
+     * It is an error to call this function before finalizeData has been called if reads are processed concurrently,
+     * since their data is only added to the table by finalizeData.
      */
     public RecalibrationTables getRecalibrationTables() {
+        Utils.validate(concurrentTables == null || finalized, "Cannot get recalibration tables of a concurrent engine until finalizeData() has been called");
         return recalTables;
     }
 
@@ -232,7 +266,7 @@ public final class BaseRecalibrationEngine implements Serializable {
     }
 
     public long getNumReadsProcessed() {
-        return numReadsProcessed;
+        return numReadsProcessed.sum();
     }
 
     /**
@@ -245,6 +279,7 @@ public final class BaseRecalibrationEngine implements Serializable {
         final GATKRead read = recalInfo.getRead();
         final ReadCovariates readCovariates = recalInfo.getCovariatesValues();
         final NestedIntegerArray<RecalDatum> qualityScoreTable = recalTables.getQualityScoreTable();
+        final ConcurrentRecalibrationTables.Stripe stripe = concurrentTables == null ? null : concurrentTables.getStripe();
 
         final int nCovariates = covariates.size();
         final int nSpecialCovariates = covariates.numberOfSpecialCovariates();
@@ -261,12 +296,20 @@ public final class BaseRecalibrationEngine implements Serializable {
                     final int key0 = keys[0];
                     final int key1 = keys[1];
 
-                    RecalUtils.incrementDatumOrPutIfNecessary3keys(qualityScoreTable, qual, isError, key0, key1, eventIndex);
+                    if (stripe == null) {
+                        RecalUtils.incrementDatumOrPutIfNecessary3keys(qualityScoreTable, qual, isError, key0, key1, eventIndex);
+                    } else {
+                        stripe.incrementQualityScoreTable(isError, key0, key1, eventIndex);
+                    }
 
                     for (int i = nSpecialCovariates; i < nCovariates; i++) {
                         final int keyi = keys[i];
                         if (keyi >= 0) {
-                            RecalUtils.incrementDatumOrPutIfNecessary4keys(recalTables.getTable(i), qual, isError, key0, key1, keyi, eventIndex);
+                            if (stripe == null) {
+                                RecalUtils.incrementDatumOrPutIfNecessary4keys(recalTables.getTable(i), qual, isError, key0, key1, keyi, eventIndex);
+                            } else {
+                                stripe.incrementAdditionalTable(i, isError, key0, key1, keyi, eventIndex);
+                            }
                         }
                     }
                 }
@@ -0,0 +1,160 @@
+package org.broadinstitute.hellbender.utils.recalibration;
+
+import org.broadinstitute.hellbender.utils.QualityUtils;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.collections.NestedIntegerArray;
+import org.broadinstitute.hellbender.utils.recalibration.covariates.StandardCovariateList;
+
+import java.io.Serializable;
+import java.util.List;
+
+import static org.broadinstitute.hellbender.utils.MathUtils.fastRound;
+import static org.broadinstitute.hellbender.utils.recalibration.RecalDatum.MAX_RECALIBRATED_Q_SCORE;
+
+/**
+ * The recalibration model of a set of {@link RecalibrationTables}, precomputed for applying it to base substitution qualities.
+ *
+ * The recalibrated quality of a base is the sum of a conditional prior, which depends only on the read group and
+ * reported quality of the base, and of one delta per additional covariate, which depends only on the read group,
+ * reported quality and key of that covariate (see {@link org.broadinstitute.hellbender.transformers.BQSRReadTransformer#hierarchicalBayesianQualityEstimate}).
+ * All of these terms are computed here once, when the tables are compiled: the priors in a dense array indexed by
+ * read group and quality, and the deltas in arrays indexed by the cells of {@link FlatRecalibrationTable}s. The
+ * rounding, quantization and static binning of the sum are folded into a single quality-indexed array of final qualities.
+ *
+ * Recalibrating a base therefore only takes array lookups and a few additions, with results identical to evaluating
+ * the model datum by datum. Once built, instances are never modified, so they can be shared by threads and broadcast.
+ */
+public final class CompiledRecalibrationTables implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private static final int BASE_SUBSTITUTION_INDEX = EventType.BASE_SUBSTITUTION.ordinal();
+
+    private final StandardCovariateList covariates;
+    private final int specialCovariateCount;
+    private final int totalCovariateCount;
+
+    private final int numReadGroups;
+    private final int qualDimension;
+    private final boolean[] hasReadGroup;
+    // prior for bases whose quality is not in the quality score table, by read group
+    private final double[] readGroupPriors;
+    // conditional prior of the covariates, by read group * qualDimension + quality
+    private final double[] conditionalPriors;
+
+    // indexed as the covariates, null for the special covariates
+    private final FlatRecalibrationTable[] covariateTables;
+    private final double[][] covariateDeltas;
+
+    // final quality for each rounded and bounded recalibrated quality
+    private final byte[] finalQuals;
+
+    /**
+     * @param tables recalibration tables to compile, as output by BQSR
+     * @param covariates the covariates the tables were computed with
+     * @param globalQScorePrior the global quality prior to use instead of the reported quality of the read groups, if positive
+     * @param quantizedQuals map from recalibrated quality to quantized quality, as in {@link QuantizationInfo#getQuantizedQuals()}
+     * @param staticQuantizedMapping map from quantized quality to statically binned quality, or null for no static binning
+     */
+    public CompiledRecalibrationTables(final RecalibrationTables tables, final StandardCovariateList covariates, final double globalQScorePrior,
+                                       final List<Byte> quantizedQuals, final byte[] staticQuantizedMapping) {
+        Utils.nonNull(tables);
+        Utils.nonNull(covariates);
+        Utils.nonNull(quantizedQuals);
+        Utils.validateArg(tables.numTables() == covariates.size(), "recalibration tables don't match the covariates");
+        Utils.validateArg(quantizedQuals.size() > MAX_RECALIBRATED_Q_SCORE, "quantized qualities should be given for all recalibrated qualities");
+
+        this.covariates = covariates;
+        specialCovariateCount = covariates.numberOfSpecialCovariates();
+        totalCovariateCount = covariates.size();
+
+        final FlatRecalibrationTable readGroupTable = new FlatRecalibrationTable(tables.getReadGroupTable());
+        final FlatRecalibrationTable qualityScoreTable = new FlatRecalibrationTable(tables.getQualityScoreTable());
+        numReadGroups = readGroupTable.getDimensions()[0];
+        qualDimension = qualityScoreTable.getDimensions()[1];
+
+        // the same computation as hierarchicalBayesianQualityEstimate(), term by term
+        hasReadGroup = new boolean[numReadGroups];
+        readGroupPriors = new double[numReadGroups];
+        conditionalPriors = new double[numReadGroups * qualDimension];
+        for ( int rg = 0; rg < numReadGroups; rg++ ) {
+            final int rgCell = readGroupTable.getCellIndex2Keys(rg, BASE_SUBSTITUTION_INDEX);
+            if ( rgCell == FlatRecalibrationTable.NO_CELL ) {
+                continue;
+            }
+            hasReadGroup[rg] = true;
+            final double epsilon = globalQScorePrior > 0.0 ? globalQScorePrior : readGroupTable.getEstimatedQReported(rgCell);
+            final double globalDeltaQ = readGroupTable.getEmpiricalQuality(rgCell, epsilon) - epsilon;
+            readGroupPriors[rg] = globalDeltaQ + epsilon;
+            for ( int qual = 0; qual < qualDimension; qual++ ) {
+                final int qsCell = qualityScoreTable.getCellIndex3Keys(rg, qual, BASE_SUBSTITUTION_INDEX);
+                final double deltaQReported = qsCell == FlatRecalibrationTable.NO_CELL ? 0.0 :
+                        qualityScoreTable.getEmpiricalQuality(qsCell, globalDeltaQ + epsilon) - (globalDeltaQ + epsilon);
+                conditionalPriors[rg * qualDimension + qual] = deltaQReported + globalDeltaQ + epsilon;
+            }
+        }
+
+        covariateTables = new FlatRecalibrationTable[totalCovariateCount];
+        covariateDeltas = new double[totalCovariateCount][];
+        for ( int i = specialCovariateCount; i < totalCovariateCount; i++ ) {
+            final NestedIntegerArray<RecalDatum> table = tables.getTable(i);
+            final FlatRecalibrationTable covariateTable = new FlatRecalibrationTable(table);
+            final double[] deltas = new double[covariateTable.numCells()];
+            for ( final NestedIntegerArray.Leaf<RecalDatum> leaf : table.getAllLeaves() ) {
+                final int rg = leaf.keys[0];
+                final int qual = leaf.keys[1];
+                if ( leaf.keys[3] != BASE_SUBSTITUTION_INDEX || !hasReadGroup(rg) || qual >= qualDimension ) {
+                    continue;
+                }
+                final double conditionalPrior = conditionalPriors[rg * qualDimension + qual];
+                final int cell = covariateTable.getCellIndex(leaf.keys);
+                deltas[cell] = covariateTable.getEmpiricalQuality(cell, conditionalPrior) - conditionalPrior;
+            }
+            covariateTables[i] = covariateTable;
+            covariateDeltas[i] = deltas;
+        }
+
+        finalQuals = new byte[MAX_RECALIBRATED_Q_SCORE + 1];
+        for ( int qual = 0; qual < finalQuals.length; qual++ ) {
+            final byte quantizedQual = quantizedQuals.get(qual);
+            finalQuals[qual] = staticQuantizedMapping == null ? quantizedQual : staticQuantizedMapping[quantizedQual];
+        }
+    }
+
+    /**
+     * @return the covariates of these tables, which the keys passed to {@link #getRecalibratedQuality(int[])} must come from
+     */
+    public StandardCovariateList getCovariates() {
+        return covariates;
+    }
+
+    /**
+     * @return true if there is recalibration data for the read group with the given key
+     */
+    public boolean hasReadGroup(final int readGroupKey) {
+        return readGroupKey >= 0 && readGroupKey < numReadGroups && hasReadGroup[readGroupKey];
+    }
+
+    /**
+     * Recalibrate the base substitution quality of a base
+     *
+     * @param keySet the covariate keys of the base, for base substitution. The read group must be one for which {@link #hasReadGroup(int)} is true.
+     * @return the final recalibrated, quantized and binned quality of the base
+     */
+    public byte getRecalibratedQuality(final int[] keySet) {
+        final int rgKey = keySet[0];
+        final int qualKey = keySet[1];
+        final double conditionalPrior = qualKey >= 0 && qualKey < qualDimension ? conditionalPriors[rgKey * qualDimension + qualKey] : readGroupPriors[rgKey];
+
+        double deltaQCovariates = 0.0;
+        for ( int i = specialCovariateCount; i < totalCovariateCount; i++ ) {
+            if ( keySet[i] >= 0 ) {
+                final int cell = covariateTables[i].getCellIndex4Keys(rgKey, qualKey, keySet[i], BASE_SUBSTITUTION_INDEX);
+                if ( cell != FlatRecalibrationTable.NO_CELL ) {
+                    deltaQCovariates += covariateDeltas[i][cell];
+                }
+            }
+        }
+        // recalibrated quality is bound between 1 and MAX_QUAL
+        return finalQuals[QualityUtils.boundQual(fastRound(conditionalPrior + deltaQCovariates), MAX_RECALIBRATED_Q_SCORE)];
+    }
+}
@@ -0,0 +1,195 @@
+package org.broadinstitute.hellbender.utils.recalibration;
+
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.collections.NestedIntegerArray;
+
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Accumulates recalibration data from many threads at once, for merging into {@link RecalibrationTables} afterwards.
+ *
+ * {@link RecalibrationTables} keep a {@link RecalDatum} per combination of covariate keys in {@link NestedIntegerArray} trees,
+ * which allocate their nodes and data lazily and so can't be updated concurrently. Instead, each thread that
+ * updates these tables gets its own stripe: for each table, dense arrays of observation and mismatch counters
+ * indexed by the flattened keys of the table. Updates therefore need neither locks nor atomic operations, and don't
+ * contend with other threads. The arrays are split into pages that are only allocated when first written to, since
+ * most of the key space of tables such as the context table is never seen.
+ *
+ * Once all updates are done, {@link #mergeInto(RecalibrationTables)} adds the counts of all stripes to ordinary
+ * recalibration tables. Mismatches are accumulated in the same way as {@link RecalDatum} does, so with a single
+ * thread the merged tables are identical to tables updated directly with
+ * {@link RecalUtils#incrementDatumOrPutIfNecessary3keys} and {@link RecalUtils#incrementDatumOrPutIfNecessary4keys}.
+ *
+ * Only the quality score table and the additional covariate tables are accumulated, the read group table being
+ * derived from the quality score table by {@link BaseRecalibrationEngine#finalizeRecalibrationTables}.
+ */
+public final class ConcurrentRecalibrationTables {
+    private static final int PAGE_BITS = 12;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    // index of the quality score table in RecalibrationTables, the additional tables come after it
+    private static final int QUALITY_SCORE_TABLE_INDEX = 1;
+
+    // dimensions of each table, indexed as in RecalibrationTables (the read group table is not accumulated)
+    private final int[][] dimensions;
+    private final int[] numPages;
+
+    private final Queue<Stripe> stripes = new ConcurrentLinkedQueue<>();
+    private final ThreadLocal<Stripe> threadStripe = ThreadLocal.withInitial(this::newStripe);
+    private volatile boolean merged = false;
+
+    /**
+     * @param tables recalibration tables with the same dimensions as those this data will be merged into
+     */
+    public ConcurrentRecalibrationTables(final RecalibrationTables tables) {
+        Utils.nonNull(tables);
+        dimensions = new int[tables.numTables()][];
+        numPages = new int[tables.numTables()];
+        for ( int i = QUALITY_SCORE_TABLE_INDEX; i < tables.numTables(); i++ ) {
+            final int[] tableDimensions = tables.getTable(i).getDimensions();
+            Utils.validateArg(tableDimensions.length == (i == QUALITY_SCORE_TABLE_INDEX ? 3 : 4),
+                    () -> "unexpected number of dimensions for recalibration table: " + tableDimensions.length);
+            long size = 1;
+            for ( final int dimension : tableDimensions ) {
+                size *= dimension;
+            }
+            final long pages = (size + PAGE_SIZE - 1) >> PAGE_BITS;
+            Utils.validateArg(pages <= Integer.MAX_VALUE, "recalibration table is too large");
+            dimensions[i] = tableDimensions.clone();
+            numPages[i] = (int) pages;
+        }
+    }
+
+    /**
+     * Get the stripe of the calling thread, which only that thread may update
+     *
+     * @return the stripe of the calling thread, created on the first call from that thread
+     */
+    public Stripe getStripe() {
+        Utils.validate(!merged, "Cannot update recalibration data once it has been merged");
+        return threadStripe.get();
+    }
+
+    private Stripe newStripe() {
+        final Stripe stripe = new Stripe();
+        stripes.add(stripe);
+        return stripe;
+    }
+
+    /**
+     * Add the data of all threads to tables. Must only be called once, after all updates by all threads are done.
+     *
+     * @param tables recalibration tables with the same dimensions as those this object was created with
+     */
+    public void mergeInto(final RecalibrationTables tables) {
+        Utils.nonNull(tables);
+        Utils.validateArg(tables.numTables() == dimensions.length, "Attempting to merge into RecalibrationTables with different sizes");
+        Utils.validate(!merged, "Recalibration data has already been merged");
+        merged = true;
+
+        for ( final Stripe stripe : stripes ) {
+            for ( int i = QUALITY_SCORE_TABLE_INDEX; i < dimensions.length; i++ ) {
+                stripe.mergeInto(i, tables.getTable(i));
+            }
+        }
+        stripes.clear();
+    }
+
+    /**
+     * Observation and mismatch counters of one thread
+     */
+    public final class Stripe {
+        // [table][page][offset in page], with null pages for parts of the table that were never updated
+        private final long[][][] observations = new long[dimensions.length][][];
+        private final double[][][] mismatches = new double[dimensions.length][][];
+
+        private Stripe() {
+            for ( int i = QUALITY_SCORE_TABLE_INDEX; i < dimensions.length; i++ ) {
+                observations[i] = new long[numPages[i]][];
+                mismatches[i] = new double[numPages[i]][];
+            }
+        }
+
+        /**
+         * Record an observation in the quality score table
+         *
+         * @param isError error value for this event
+         * @param key0, key1, key2 location of the observation in the table: read group, quality and event type keys
+         */
+        public void incrementQualityScoreTable(final double isError, final int key0, final int key1, final int key2) {
+            final int[] dims = dimensions[QUALITY_SCORE_TABLE_INDEX];
+            checkKey(key0, dims, 0);
+            checkKey(key1, dims, 1);
+            checkKey(key2, dims, 2);
+            increment(QUALITY_SCORE_TABLE_INDEX, ((long) key0 * dims[1] + key1) * dims[2] + key2, isError);
+        }
+
+        /**
+         * Record an observation in one of the additional covariate tables
+         *
+         * @param tableIndex index of the table in {@link RecalibrationTables}
+         * @param isError error value for this event
+         * @param key0, key1, key2, key3 location of the observation in the table: read group, quality, covariate and event type keys
+         */
+        public void incrementAdditionalTable(final int tableIndex, final double isError, final int key0, final int key1, final int key2, final int key3) {
+            Utils.validateArg(tableIndex > QUALITY_SCORE_TABLE_INDEX && tableIndex < dimensions.length, "not an additional covariate table");
+            final int[] dims = dimensions[tableIndex];
+            checkKey(key0, dims, 0);
+            checkKey(key1, dims, 1);
+            checkKey(key2, dims, 2);
+            checkKey(key3, dims, 3);
+            increment(tableIndex, (((long) key0 * dims[1] + key1) * dims[2] + key2) * dims[3] + key3, isError);
+        }
+
+        private void increment(final int tableIndex, final long index, final double isError) {
+            final int page = (int) (index >>> PAGE_BITS);
+            final int offset = (int) (index & PAGE_MASK);
+            long[] observationsPage = observations[tableIndex][page];
+            if ( observationsPage == null ) {
+                observationsPage = observations[tableIndex][page] = new long[PAGE_SIZE];
+                mismatches[tableIndex][page] = new double[PAGE_SIZE];
+            }
+            observationsPage[offset]++;
+            mismatches[tableIndex][page][offset] += RecalDatum.scaleMismatches(isError);
+        }
+
+        private void mergeInto(final int tableIndex, final NestedIntegerArray<RecalDatum> table) {
+            final int[] dims = dimensions[tableIndex];
+            Utils.validateArg(Arrays.equals(dims, table.getDimensions()), "Attempting to merge into a recalibration table with different dimensions");
+            final int[] keys = new int[dims.length];
+            for ( int page = 0; page < numPages[tableIndex]; page++ ) {
+                final long[] observationsPage = observations[tableIndex][page];
+                if ( observationsPage == null ) {
+                    continue;
+                }
+                final double[] mismatchesPage = mismatches[tableIndex][page];
+                for ( int offset = 0; offset < PAGE_SIZE; offset++ ) {
+                    if ( observationsPage[offset] == 0 ) {
+                        continue;
+                    }
+                    long index = ((long) page << PAGE_BITS) | offset;
+                    for ( int d = dims.length - 1; d >= 0; d-- ) {
+                        keys[d] = (int) (index % dims[d]);
+                        index /= dims[d];
+                    }
+                    RecalDatum datum = table.get(keys);
+                    if ( datum == null ) {
+                        // the quality key is the reported quality of the observations, as recorded by the quality score covariate
+                        datum = new RecalDatum(0L, 0.0, (byte) keys[1]);
+                        table.put(datum, keys);
+                    }
+                    datum.incrementScaled(observationsPage[offset], mismatchesPage[offset]);
+                }
+            }
+        }
+    }
+
+    private static void checkKey(final int key, final int[] dims, final int dimension) {
+        if ( key < 0 || key >= dims[dimension] ) {
+            throw new IllegalArgumentException("Key " + key + " is out of range for dimension " + dimension + " (max is " + (dims[dimension] - 1) + ")");
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package org.broadinstitute.hellbender.utils.recalibration;
+
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.collections.NestedIntegerArray;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Read-only copy of a recalibration table in flat primitive arrays, for fast lookups while applying the recalibration.
+ *
+ * A {@link NestedIntegerArray} lookup follows one pointer per dimension of the table and then one more to the
+ * {@link RecalDatum}. Here, each datum of the table becomes a cell, identified by an index into arrays of observations,
+ * mismatches, reported and empirical qualities. Small tables, such as the read group and quality score tables, are
+ * stored densely: the index of the cell for a combination of keys is computed from the keys and the dimensions of the
+ * table, and cells without data are marked by a negative number of observations. Tables whose key space is too large
+ * for that, such as the context and cycle tables, in which most combinations of keys never occur, are stored sparsely:
+ * their cells are numbered consecutively, and found through an open-addressing hash table keyed by the flattened keys.
+ *
+ * Either way, the getCellIndex methods return -1 where {@link NestedIntegerArray#get} would return null. Later changes
+ * to the original table are not reflected here.
+ *
+ * Like {@link RecalDatum}, caches empirical qualities as they are computed, and so is not thread-safe.
+ */
+public final class FlatRecalibrationTable implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    // tables with at most this many combinations of keys are stored densely
+    static final long MAX_DENSE_CELLS = 1 << 18;
+
+    public static final int NO_CELL = -1;
+
+    private static final int MIN_CAPACITY = 16;
+
+    private final int[] dimensions;
+    private final boolean dense;
+
+    // for sparse tables only: slotKeys[i] holds the flattened keys of cell slotCells[i], which is NO_CELL for empty slots
+    private final long[] slotKeys;
+    private final int[] slotCells;
+    private final int slotMask;
+
+    private final long[] numObservations;
+    private final double[] numMismatches;
+    private final double[] estimatedQReported;
+    // NaN until computed
+    private final double[] empiricalQuality;
+
+    /**
+     * @param table table to copy
+     */
+    public FlatRecalibrationTable(final NestedIntegerArray<RecalDatum> table) {
+        Utils.nonNull(table);
+        dimensions = table.getDimensions().clone();
+        long size = 1;
+        for ( final int dimension : dimensions ) {
+            size *= dimension;
+        }
+        final List<NestedIntegerArray.Leaf<RecalDatum>> leaves = table.getAllLeaves();
+        dense = size <= MAX_DENSE_CELLS;
+
+        final int numCells;
+        if ( dense ) {
+            numCells = (int) size;
+            slotKeys = null;
+            slotCells = null;
+            slotMask = 0;
+        } else {
+            numCells = leaves.size();
+            int capacity = MIN_CAPACITY;
+            while ( capacity < 2L * numCells ) {
+                capacity *= 2;
+            }
+            slotKeys = new long[capacity];
+            slotCells = new int[capacity];
+            Arrays.fill(slotCells, NO_CELL);
+            slotMask = capacity - 1;
+        }
+
+        numObservations = new long[numCells];
+        numMismatches = new double[numCells];
+        estimatedQReported = new double[numCells];
+        empiricalQuality = new double[numCells];
+        Arrays.fill(numObservations, -1L);
+        Arrays.fill(empiricalQuality, Double.NaN);
+
+        for ( int i = 0; i < leaves.size(); i++ ) {
+            final NestedIntegerArray.Leaf<RecalDatum> leaf = leaves.get(i);
+            final long flatKeys = flatten(leaf.keys);
+            final int cell;
+            if ( dense ) {
+                cell = (int) flatKeys;
+            } else {
+                cell = i;
+                final int slot = findSlot(flatKeys);
+                slotKeys[slot] = flatKeys;
+                slotCells[slot] = cell;
+            }
+            final RecalDatum datum = leaf.value;
+            numObservations[cell] = datum.getNumObservations();
+            numMismatches[cell] = datum.getNumMismatches();
+            estimatedQReported[cell] = datum.getEstimatedQReported();
+            if ( datum.hasEmpiricalQuality() ) {
+                empiricalQuality[cell] = datum.getEmpiricalQuality();
+            }
+        }
+    }
+
+    /**
+     * @return the dimensions of this table.  DO NOT MODIFY
+     */
+    public int[] getDimensions() {
+        return dimensions;
+    }
+
+    /**
+     * @return true if this table is stored densely
+     */
+    public boolean isDense() {
+        return dense;
+    }
+
+    /**
+     * @return the number of cells in this table, which is the size that arrays indexed by cell must have
+     */
+    public int numCells() {
+        return numObservations.length;
+    }
+
+    /**
+     * @return the index of the cell for the given keys, or {@link #NO_CELL} if there is no data for them
+     */
+    public int getCellIndex(final int... keys) {
+        Utils.validateArg(keys.length == dimensions.length, () -> "Exactly " + dimensions.length + " keys should be passed to this table but " + keys.length + " were provided");
+        for ( int i = 0; i < keys.length; i++ ) {
+            if ( keys[i] < 0 || keys[i] >= dimensions[i] ) {
+                return NO_CELL;
+            }
+        }
+        return cellIndex(flatten(keys));
+    }
+
+    /**
+     * Specialized version of getCellIndex for 2 keys, which avoids the allocation of the varargs array
+     */
+    public int getCellIndex2Keys(final int key0, final int key1) {
+        if ( key0 < 0 || key0 >= dimensions[0] || key1 < 0 || key1 >= dimensions[1] ) {
+            return NO_CELL;
+        }
+        return cellIndex((long) key0 * dimensions[1] + key1);
+    }
+
+    /**
+     * Specialized version of getCellIndex for 3 keys, which avoids the allocation of the varargs array
+     */
+    public int getCellIndex3Keys(final int key0, final int key1, final int key2) {
+        if ( key0 < 0 || key0 >= dimensions[0] || key1 < 0 || key1 >= dimensions[1] || key2 < 0 || key2 >= dimensions[2] ) {
+            return NO_CELL;
+        }
+        return cellIndex(((long) key0 * dimensions[1] + key1) * dimensions[2] + key2);
+    }
+
+    /**
+     * Specialized version of getCellIndex for 4 keys, which avoids the allocation of the varargs array
+     */
+    public int getCellIndex4Keys(final int key0, final int key1, final int key2, final int key3) {
+        if ( key0 < 0 || key0 >= dimensions[0] || key1 < 0 || key1 >= dimensions[1] || key2 < 0 || key2 >= dimensions[2] || key3 < 0 || key3 >= dimensions[3] ) {
+            return NO_CELL;
+        }
+        return cellIndex((((long) key0 * dimensions[1] + key1) * dimensions[2] + key2) * dimensions[3] + key3);
+    }
+
+    /**
+     * @return true if the cell with the given index holds data, as opposed to being an empty cell of a dense table
+     */
+    public boolean hasData(final int cell) {
+        return numObservations[cell] >= 0;
+    }
+
+    /**
+     * @return the number of observations of the cell with the given index, as in {@link RecalDatum#getNumObservations()}
+     */
+    public long getNumObservations(final int cell) {
+        return numObservations[cell];
+    }
+
+    /**
+     * @return the number of mismatches of the cell with the given index, as in {@link RecalDatum#getNumMismatches()}
+     */
+    public double getNumMismatches(final int cell) {
+        return numMismatches[cell];
+    }
+
+    /**
+     * @return the reported quality of the cell with the given index, as in {@link RecalDatum#getEstimatedQReported()}
+     */
+    public double getEstimatedQReported(final int cell) {
+        return estimatedQReported[cell];
+    }
+
+    /**
+     * Get the empirical quality of the cell with the given index, as in {@link RecalDatum#getEmpiricalQuality(double)}:
+     * it is computed with the given conditional prior on the first call, and cached.
+     */
+    public double getEmpiricalQuality(final int cell, final double conditionalPrior) {
+        double quality = empiricalQuality[cell];
+        if ( Double.isNaN(quality) ) {
+            quality = empiricalQuality[cell] = RecalDatum.calcEmpiricalQuality(numObservations[cell], numMismatches[cell], conditionalPrior);
+        }
+        return quality;
+    }
+
+    private long flatten(final int[] keys) {
+        long flatKeys = 0;
+        for ( int i = 0; i < keys.length; i++ ) {
+            flatKeys = flatKeys * dimensions[i] + keys[i];
+        }
+        return flatKeys;
+    }
+
+    private int cellIndex(final long flatKeys) {
+        if ( dense ) {
+            return numObservations[(int) flatKeys] >= 0 ? (int) flatKeys : NO_CELL;
+        }
+        return slotCells[findSlot(flatKeys)];
+    }
+
+    /**
+     * @return the slot holding flatKeys, or the empty slot where they would go
+     */
+    private int findSlot(final long flatKeys) {
+        int slot = hash(flatKeys) & slotMask;
+        while ( slotCells[slot] != NO_CELL && slotKeys[slot] != flatKeys ) {
+            slot = (slot + 1) & slotMask;
+        }
+        return slot;
+    }
+
+    private static int hash(final long flatKeys) {
+        long h = flatKeys * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 32;
+        return (int) (h ^ (h >>> 16));
+    }
+}
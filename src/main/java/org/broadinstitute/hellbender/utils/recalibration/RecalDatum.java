@@ -155,6 +155,13 @@ public final class RecalDatum implements Serializable {
         return empiricalQuality;
     }
 
+    /**
+     * @return true if the empirical quality has been set or computed, in which case it no longer depends on the conditional prior
+     */
+    boolean hasEmpiricalQuality() {
+        return empiricalQuality != UNINITIALIZED;
+    }
+
     public final byte getEmpiricalQualityAsByte() {
         return (byte)(Math.round(getEmpiricalQuality()));
     }
@@ -220,6 +227,22 @@ public final class RecalDatum implements Serializable {
         increment(1, isError ? 1.0 : 0.0);
     }
 
+    /**
+     * @return mismatches in the internal representation of this class, for accumulating them outside of a RecalDatum
+     */
+    static double scaleMismatches(final double mismatches) {
+        return mismatches*MULTIPLIER;
+    }
+
+    /**
+     * Same as {@link #increment(long, double)}, for mismatches accumulated with {@link #scaleMismatches(double)}
+     */
+    void incrementScaled(final long incObservations, final double incScaledMismatches) {
+        numObservations += incObservations;
+        numMismatches += incScaledMismatches;
+        empiricalQuality = UNINITIALIZED;
+    }
+
     // -------------------------------------------------------------------------------------
     //
     // Private implementation helper functions
@@ -240,14 +263,21 @@ public final class RecalDatum implements Serializable {
      * Calculate and cache the empirical quality score from mismatches and observations (expensive operation)
      */
     private void calcEmpiricalQuality(final double conditionalPrior) {
+        empiricalQuality = calcEmpiricalQuality(getNumObservations(), getNumMismatches(), conditionalPrior);
+    }
+
+    /**
+     * Calculate the empirical quality score of a datum with the given observations and mismatches (expensive operation)
+     */
+    static double calcEmpiricalQuality(final long numObservations, final double numMismatches, final double conditionalPrior) {
 
         // smoothing is one error and one non-error observation
-        final long mismatches = (long)(getNumMismatches() + 0.5) + SMOOTHING_CONSTANT;
-        final long observations = getNumObservations() + SMOOTHING_CONSTANT + SMOOTHING_CONSTANT;
+        final long mismatches = (long)(numMismatches + 0.5) + SMOOTHING_CONSTANT;
+        final long observations = numObservations + SMOOTHING_CONSTANT + SMOOTHING_CONSTANT;
 
         final double empiricalQual = RecalDatum.bayesianEstimateOfEmpiricalQuality(observations, mismatches, conditionalPrior);
 
-        empiricalQuality = Math.min(empiricalQual, (double) MAX_RECALIBRATED_Q_SCORE);
+        return Math.min(empiricalQual, (double) MAX_RECALIBRATED_Q_SCORE);
     }
 
     //static final boolean DEBUG = false;
@@ -0,0 +1,313 @@
+package org.broadinstitute.hellbender.utils.runtime;
+
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Registry of runtime metrics of the engine: counters of events (reads decoded, reads filtered, cache hits...) and
+ * timers of operations (PairHMM calls, assemblies...), which can be written out at any time, while they are being
+ * updated, as a Prometheus text exposition or as a line of JSON (see {@link MetricsReporter}).
+ *
+ * Metrics are identified by a name and by an optional label: all metrics with the same name form a family, with a
+ * single help text, type and label name, and one metric per value of the label (eg., one count of filtered reads per
+ * read filter). Looking a metric up takes a map lookup, so code on hot paths should look its metrics up once and keep
+ * them. Updating a metric is cheap and safe from any thread, so engine components update the metrics of the
+ * {@link #getDefault() default registry} unconditionally, whether or not the metrics are exported. The default
+ * registry is {@link #reset()} when each tool starts, so that a tool only reports its own metrics when several tools
+ * run in the same JVM.
+ */
+public final class MetricsRegistry {
+
+    private static final MetricsRegistry DEFAULT = new MetricsRegistry();
+
+    // valid metric and label names in the Prometheus exposition format
+    private static final Pattern NAME_PATTERN = Pattern.compile("[a-zA-Z_:][a-zA-Z0-9_:]*");
+
+    private final Map<String, MetricFamily> families = new ConcurrentSkipListMap<>();
+
+    /**
+     * @return the registry updated by the engine and exported by tools
+     */
+    public static MetricsRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * The type of a metric family, with its name in the Prometheus exposition format
+     */
+    private enum MetricType {
+        COUNTER("counter"),
+        TIMER("summary");
+
+        private final String prometheusType;
+
+        MetricType(final String prometheusType) {
+            this.prometheusType = prometheusType;
+        }
+    }
+
+    /**
+     * A metric: the value of a family of metrics for one value of its label
+     */
+    public abstract static class Metric {
+        private final String labelValue;
+
+        private Metric(final String labelValue) {
+            this.labelValue = labelValue;
+        }
+
+        /**
+         * @return the value of the label of this metric, or null if its family has no label
+         */
+        public String getLabelValue() {
+            return labelValue;
+        }
+
+        abstract void reset();
+    }
+
+    /**
+     * Count of events, which only goes up
+     */
+    public static final class Counter extends Metric {
+        private final LongAdder count = new LongAdder();
+
+        private Counter(final String labelValue) {
+            super(labelValue);
+        }
+
+        public void increment() {
+            count.increment();
+        }
+
+        public void add(final long n) {
+            Utils.validateArg(n >= 0, "counters can't go down");
+            count.add(n);
+        }
+
+        public long get() {
+            return count.sum();
+        }
+
+        @Override
+        void reset() {
+            count.reset();
+        }
+    }
+
+    /**
+     * Number and total duration of timed operations
+     */
+    public static final class Timer extends Metric {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+
+        private Timer(final String labelValue) {
+            super(labelValue);
+        }
+
+        /**
+         * Record an operation that started at the given time
+         *
+         * @param startNanos value of {@link System#nanoTime()} when the operation started
+         */
+        public void recordSince(final long startNanos) {
+            record(System.nanoTime() - startNanos);
+        }
+
+        /**
+         * Record an operation that took the given time
+         */
+        public void record(final long nanos) {
+            count.increment();
+            totalNanos.add(Math.max(0, nanos));
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getTotalNanos() {
+            return totalNanos.sum();
+        }
+
+        public double getTotalSeconds() {
+            return getTotalNanos() / (double) TimeUnit.SECONDS.toNanos(1);
+        }
+
+        @Override
+        void reset() {
+            count.reset();
+            totalNanos.reset();
+        }
+    }
+
+    private static final class MetricFamily {
+        private final String name;
+        private final String help;
+        private final MetricType type;
+        private final String labelName;
+        // keyed by label value, or by the empty string for a family with no label
+        private final Map<String, Metric> metrics = new ConcurrentSkipListMap<>();
+
+        private MetricFamily(final String name, final String help, final MetricType type, final String labelName) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+            this.labelName = labelName;
+        }
+
+        private Metric get(final String labelValue) {
+            return metrics.computeIfAbsent(labelValue == null ? "" : labelValue,
+                    key -> type == MetricType.COUNTER ? new Counter(labelValue) : new Timer(labelValue));
+        }
+    }
+
+    /**
+     * Set all metrics of this registry back to zero
+     *
+     * Metrics stay registered, since components look their metrics up once and keep them, and keep updating the
+     * same metrics after a reset. Updates made concurrently with a reset may or may not be kept.
+     */
+    public void reset() {
+        for ( final MetricFamily family : families.values() ) {
+            family.metrics.values().forEach(Metric::reset);
+        }
+    }
+
+    /**
+     * Get a counter with no label, creating it if necessary
+     *
+     * @param name name of the counter; by convention, counters end in "_total"
+     * @param help description of the counter
+     */
+    public Counter counter(final String name, final String help) {
+        return (Counter) getMetric(name, help, MetricType.COUNTER, null, null);
+    }
+
+    /**
+     * Get a counter for one value of a label, creating it if necessary
+     *
+     * @param name name of the counter family; by convention, counters end in "_total"
+     * @param help description of the counter family
+     * @param labelName name of the label that distinguishes the counters of the family
+     * @param labelValue value of the label for this counter
+     */
+    public Counter counter(final String name, final String help, final String labelName, final String labelValue) {
+        Utils.nonNull(labelValue);
+        return (Counter) getMetric(name, help, MetricType.COUNTER, labelName, labelValue);
+    }
+
+    /**
+     * Get a timer with no label, creating it if necessary
+     *
+     * @param name name of the timer; by convention, timers end in "_seconds"
+     * @param help description of the timer
+     */
+    public Timer timer(final String name, final String help) {
+        return (Timer) getMetric(name, help, MetricType.TIMER, null, null);
+    }
+
+    /**
+     * Get a timer for one value of a label, creating it if necessary
+     *
+     * @param name name of the timer family; by convention, timers end in "_seconds"
+     * @param help description of the timer family
+     * @param labelName name of the label that distinguishes the timers of the family
+     * @param labelValue value of the label for this timer
+     */
+    public Timer timer(final String name, final String help, final String labelName, final String labelValue) {
+        Utils.nonNull(labelValue);
+        return (Timer) getMetric(name, help, MetricType.TIMER, labelName, labelValue);
+    }
+
+    private Metric getMetric(final String name, final String help, final MetricType type, final String labelName, final String labelValue) {
+        Utils.nonNull(name);
+        Utils.nonNull(help);
+        Utils.validateArg(NAME_PATTERN.matcher(name).matches(), () -> "invalid metric name " + name);
+        Utils.validateArg(labelName == null || NAME_PATTERN.matcher(labelName).matches(), () -> "invalid label name " + labelName);
+        final MetricFamily family = families.computeIfAbsent(name, n -> new MetricFamily(name, help, type, labelName));
+        Utils.validateArg(family.type == type && Objects.equals(family.labelName, labelName),
+                () -> String.format("metric %s is already registered as a %s with label %s", name, family.type, family.labelName));
+        return family.get(labelValue);
+    }
+
+    /**
+     * Write the current values of all metrics in the Prometheus text exposition format
+     */
+    public void writePrometheusText(final Appendable out) throws IOException {
+        Utils.nonNull(out);
+        for ( final MetricFamily family : families.values() ) {
+            out.append("# HELP ").append(family.name).append(' ').append(family.help.replace("\\", "\\\\").replace("\n", "\\n")).append('\n');
+            out.append("# TYPE ").append(family.name).append(' ').append(family.type.prometheusType).append('\n');
+            for ( final Metric metric : family.metrics.values() ) {
+                final String labels = metric.labelValue == null ? "" : "{" + family.labelName + "=\"" + escape(metric.labelValue) + "\"}";
+                if ( metric instanceof Counter ) {
+                    out.append(family.name).append(labels).append(' ').append(Long.toString(((Counter) metric).get())).append('\n');
+                } else {
+                    final Timer timer = (Timer) metric;
+                    out.append(family.name).append("_count").append(labels).append(' ').append(Long.toString(timer.getCount())).append('\n');
+                    out.append(family.name).append("_sum").append(labels).append(' ').append(Double.toString(timer.getTotalSeconds())).append('\n');
+                }
+            }
+        }
+    }
+
+    /**
+     * Write the current values of all metrics as one line of JSON, of the form
+     * <pre>
+     * {"timestamp_ms":1500000000000,"metrics":[{"name":"gatk_reads_filtered_total","labels":{"filter":"MappingQualityReadFilter"},"value":12},{"name":"gatk_pairhmm_seconds","count":3,"sum":0.25}]}
+     * </pre>
+     * with the count and total seconds of timers, and the value of counters.
+     *
+     * @param timestampMillis time of the values, in milliseconds since the epoch
+     */
+    public void writeJsonLine(final Appendable out, final long timestampMillis) throws IOException {
+        Utils.nonNull(out);
+        out.append("{\"timestamp_ms\":").append(Long.toString(timestampMillis)).append(",\"metrics\":[");
+        boolean first = true;
+        for ( final MetricFamily family : families.values() ) {
+            for ( final Metric metric : family.metrics.values() ) {
+                out.append(first ? "" : ",").append("{\"name\":\"").append(family.name).append('"');
+                first = false;
+                if ( metric.labelValue != null ) {
+                    out.append(",\"labels\":{\"").append(family.labelName).append("\":\"").append(escape(metric.labelValue)).append("\"}");
+                }
+                if ( metric instanceof Counter ) {
+                    out.append(",\"value\":").append(Long.toString(((Counter) metric).get()));
+                } else {
+                    final Timer timer = (Timer) metric;
+                    out.append(",\"count\":").append(Long.toString(timer.getCount()))
+                            .append(",\"sum\":").append(Double.toString(timer.getTotalSeconds()));
+                }
+                out.append('}');
+            }
+        }
+        out.append("]}\n");
+    }
+
+    // escapes label values for both JSON strings and Prometheus label values
+    private static String escape(final String value) {
+        final StringBuilder escaped = new StringBuilder(value.length());
+        for ( int i = 0; i < value.length(); i++ ) {
+            final char c = value.charAt(i);
+            if ( c == '"' || c == '\\' ) {
+                escaped.append('\\').append(c);
+            } else if ( c == '\n' ) {
+                escaped.append("\\n");
+            } else if ( c < 0x20 ) {
+                escaped.append(String.format("\\u%04x", (int) c));
+            } else {
+                escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+}
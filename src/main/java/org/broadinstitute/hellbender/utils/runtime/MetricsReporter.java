@@ -0,0 +1,143 @@
+package org.broadinstitute.hellbender.utils.runtime;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exports the metrics of a {@link MetricsRegistry} to a file periodically, on a background thread, and a final time
+ * when closed.
+ *
+ * In {@link Format#JSON_LINES} format, each export appends a line with the values of all metrics at that time to
+ * the file, so the file holds the history of the metrics over the run. In {@link Format#PROMETHEUS} format, each export
+ * replaces the file (atomically, where the file system supports it) with the current values of the metrics, so
+ * that it can be scraped at any time, eg. by the textfile collector of the Prometheus node exporter.
+ */
+public final class MetricsReporter implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(MetricsReporter.class);
+
+    public enum Format {
+        /**
+         * One line of JSON per export, appended to the file
+         */
+        JSON_LINES,
+        /**
+         * Prometheus text exposition format, replacing the file at each export
+         */
+        PROMETHEUS
+    }
+
+    private final MetricsRegistry registry;
+    private final Path output;
+    private final Format format;
+    private final ScheduledExecutorService executor;
+    private boolean loggedFailure = false;
+    private boolean closed = false;
+
+    /**
+     * Start exporting metrics. The output file is created (or truncated) with an initial export right away.
+     *
+     * @param registry metrics to export
+     * @param output file to export to
+     * @param format format of the file
+     * @param secondsBetweenReports export the metrics every time this many seconds elapse; if 0, only export them
+     *                              when this reporter is created and closed
+     */
+    public MetricsReporter(final MetricsRegistry registry, final Path output, final Format format, final double secondsBetweenReports) {
+        this.registry = Utils.nonNull(registry);
+        this.output = Utils.nonNull(output);
+        this.format = Utils.nonNull(format);
+        Utils.validateArg(secondsBetweenReports >= 0, "secondsBetweenReports must be >= 0");
+
+        try {
+            Files.deleteIfExists(output);
+            write();
+        } catch ( final IOException e ) {
+            throw new UserException.CouldNotCreateOutputFile(output.toString(), e);
+        }
+
+        if ( secondsBetweenReports > 0 ) {
+            executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("metrics-reporter-%d").setDaemon(true).build());
+            final long periodMillis = Math.max(1L, (long) (secondsBetweenReports * 1000));
+            executor.scheduleAtFixedRate(this::report, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+        } else {
+            executor = null;
+        }
+    }
+
+    /**
+     * Export the current values of the metrics. Failures are logged rather than thrown, since they shouldn't
+     * interrupt the tool whose metrics are being exported.
+     */
+    public synchronized void report() {
+        if ( closed ) {
+            return;
+        }
+        try {
+            write();
+        } catch ( final IOException e ) {
+            if ( !loggedFailure ) {
+                logger.warn("Unable to write runtime metrics to " + output + ": " + e.getMessage());
+                loggedFailure = true;
+            }
+        }
+    }
+
+    private void write() throws IOException {
+        if ( format == Format.JSON_LINES ) {
+            try ( final Writer writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND) ) {
+                registry.writeJsonLine(writer, System.currentTimeMillis());
+            }
+        } else {
+            final Path tempPath = output.resolveSibling(output.getFileName() + ".tmp");
+            try ( final Writer writer = Files.newBufferedWriter(tempPath, StandardCharsets.UTF_8) ) {
+                registry.writePrometheusText(writer);
+            }
+            try {
+                Files.move(tempPath, output, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch ( final AtomicMoveNotSupportedException e ) {
+                Files.move(tempPath, output, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+
+    /**
+     * Stop the periodic exports, and export the final values of the metrics
+     */
+    @Override
+    public void close() {
+        if ( executor != null ) {
+            executor.shutdownNow();
+            try {
+                executor.awaitTermination(10, TimeUnit.SECONDS);
+            } catch ( final InterruptedException e ) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized ( this ) {
+            if ( closed ) {
+                return;
+            }
+            closed = true;
+            try {
+                write();
+            } catch ( final IOException e ) {
+                throw new UserException.CouldNotCreateOutputFile(output.toString(), e);
+            }
+        }
+    }
+}
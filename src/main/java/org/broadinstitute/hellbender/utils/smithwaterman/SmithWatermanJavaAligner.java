@@ -12,6 +12,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Pairwise discrete smith-waterman alignment implemented in pure java
@@ -23,7 +24,8 @@ import java.util.List;
  */
 public final class SmithWatermanJavaAligner implements SmithWatermanAligner {
     private static final SmithWatermanJavaAligner ALIGNER = new SmithWatermanJavaAligner();
-    private long totalComputeTime = 0;
+    // updated concurrently when the aligner is shared between threads
+    private final LongAdder totalComputeTime = new LongAdder();
 
     /**
      * return the stateless singleton instance of SmithWatermanJavaAligner
@@ -91,7 +93,7 @@ public final class SmithWatermanJavaAligner implements SmithWatermanAligner {
             alignmentResult = calculateCigar(sw, btrack, overhangStrategy); // length of the segment (continuous matches, insertions or deletions)
         }
 
-        totalComputeTime += System.nanoTime() - startTime;
+        totalComputeTime.add(System.nanoTime() - startTime);
         return alignmentResult;
     }
 
@@ -388,6 +390,6 @@ public final class SmithWatermanJavaAligner implements SmithWatermanAligner {
 
     @Override
     public void close() {
-        logger.info(String.format("Total compute time in java Smith-Waterman : %.2f sec", totalComputeTime * 1e-9));
+        logger.info(String.format("Total compute time in java Smith-Waterman : %.2f sec", totalComputeTime.sum() * 1e-9));
     }
 }
@@ -23,6 +23,7 @@ import org.broadinstitute.hellbender.tools.walkers.genotyper.GenotypeLikelihoodC
 import org.broadinstitute.hellbender.tools.walkers.genotyper.GenotypeLikelihoodCalculators;
 import org.broadinstitute.hellbender.utils.*;
 import org.broadinstitute.hellbender.utils.param.ParamUtils;
+import org.broadinstitute.hellbender.utils.variant.writers.ParallelBlockCompressedVCFWriter;
 
 import java.io.File;
 import java.io.Serializable;
@@ -65,8 +66,37 @@ public final class GATKVariantContextUtils {
             final SAMSequenceDictionary referenceDictionary,
             final boolean createMD5,
             final Options... options)
+    {
+        return createVCFWriter(outFile, referenceDictionary, createMD5, 0, options);
+    }
+
+    /**
+     * Creates a VariantContextWriter as {@link #createVCFWriter(File, SAMSequenceDictionary, boolean, Options...)}
+     * does, optionally compressing block-compressed VCF output on worker threads.
+     *
+     * @param outFile output File for this writer. May not be null.
+     * @param referenceDictionary required if on the fly indexing is set, otherwise can be null
+     * @param createMD5 true if an md5 file should be created
+     * @param compressionThreads if greater than 0 and the output is a block-compressed VCF, it is compressed on this
+     *                           many threads by a {@link ParallelBlockCompressedVCFWriter}, with output identical to
+     *                           that of the htsjdk writer. Ignored with {@link Options#USE_ASYNC_IO}.
+     * @param options variable length list of additional Options to be set for this writer
+     * @returns VariantContextWriter must be closed by the caller
+     */
+    public static VariantContextWriter createVCFWriter(
+            final File outFile,
+            final SAMSequenceDictionary referenceDictionary,
+            final boolean createMD5,
+            final int compressionThreads,
+            final Options... options)
     {
         Utils.nonNull(outFile);
+        Utils.validateArg(compressionThreads >= 0, "compressionThreads must be >= 0");
+
+        if (compressionThreads > 0 && !Arrays.asList(options).contains(Options.USE_ASYNC_IO) &&
+                VariantContextWriterBuilder.OutputType.BLOCK_COMPRESSED_VCF == getVariantFileTypeFromExtension(outFile)) {
+            return new ParallelBlockCompressedVCFWriter(outFile, referenceDictionary, createMD5, compressionThreads, options);
+        }
 
         VariantContextWriterBuilder vcWriterBuilder =
                 new VariantContextWriterBuilder().clearOptions().setOutputFile(outFile);
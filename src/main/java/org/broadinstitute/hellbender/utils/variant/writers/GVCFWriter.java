@@ -4,6 +4,7 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Range;
 import com.google.common.collect.RangeMap;
 import com.google.common.collect.TreeRangeMap;
+import htsjdk.samtools.util.Locatable;
 import htsjdk.variant.variantcontext.Allele;
 import htsjdk.variant.variantcontext.Genotype;
 import htsjdk.variant.variantcontext.VariantContext;
@@ -23,8 +24,12 @@ import static htsjdk.variant.vcf.VCFConstants.MAX_GENOTYPE_QUAL;
 
 /**
  * Genome-wide VCF writer
+ *
+ * Merges contiguous hom-ref sites of a single sample into blocks of sites with GQs in the same band. Hom-ref sites can
+ * be added either as VariantContexts or, by a {@link ReferenceConfidenceSink} such as the HaplotypeCaller reference
+ * confidence model, as {@link ReferenceConfidenceSite}s, in which case records are only built for emitted blocks.
  */
-public final class GVCFWriter implements VariantContextWriter {
+public final class GVCFWriter implements VariantContextWriter, ReferenceConfidenceSink {
 
     /** Where we'll ultimately write our VCF records */
     private final VariantContextWriter underlyingWriter;
@@ -153,15 +158,8 @@ public final class GVCFWriter implements VariantContextWriter {
      * @return a VariantContext to be emitted, or null if non is appropriate
      */
     protected VariantContext addHomRefSite(final VariantContext vc, final Genotype g) {
-
-        if (nextAvailableStart != -1) {
-            // don't create blocks while the hom-ref site falls before nextAvailableStart (for deletions)
-            if (vc.getStart() <= nextAvailableStart && vc.getContig().equals(contigOfNextAvailableStart)) {
-                return null;
-            }
-            // otherwise, reset to non-relevant
-            nextAvailableStart = -1;
-            contigOfNextAvailableStart = null;
+        if (isCoveredByPreviousVariant(vc)) {
+            return null;
         }
 
         final VariantContext result;
@@ -175,11 +173,32 @@ public final class GVCFWriter implements VariantContextWriter {
         return result;
     }
 
+    /**
+     * Is the site at or before the end of the last variant emitted (for deletions)?
+     * Once a site on or after nextAvailableStart is seen, resets nextAvailableStart to non-relevant.
+     */
+    private boolean isCoveredByPreviousVariant(final Locatable site) {
+        if (nextAvailableStart != -1) {
+            // don't create blocks while the hom-ref site falls before nextAvailableStart (for deletions)
+            if (site.getStart() <= nextAvailableStart && site.getContig().equals(contigOfNextAvailableStart)) {
+                return true;
+            }
+            // otherwise, reset to non-relevant
+            nextAvailableStart = -1;
+            contigOfNextAvailableStart = null;
+        }
+        return false;
+    }
+
     private boolean genotypeCanBeMergedInCurrentBlock(final Genotype g) {
+        return canBeMergedInCurrentBlock(g.getGQ(), g.getPloidy(), g.hasPL() ? g.getPL() : null);
+    }
+
+    private boolean canBeMergedInCurrentBlock(final int gq, final int ploidy, final int[] pls) {
         return currentBlock != null
-                && currentBlock.withinBounds(Math.min(g.getGQ(), MAX_GENOTYPE_QUAL))
-                && currentBlock.getPloidy() == g.getPloidy()
-                && (currentBlock.getMinPLs() == null || !g.hasPL() || (currentBlock.getMinPLs().length == g.getPL().length));
+                && currentBlock.withinBounds(Math.min(gq, MAX_GENOTYPE_QUAL))
+                && currentBlock.getPloidy() == ploidy
+                && (currentBlock.getMinPLs() == null || pls == null || (currentBlock.getMinPLs().length == pls.length));
     }
 
     /**
@@ -202,12 +221,7 @@ public final class GVCFWriter implements VariantContextWriter {
      */
     private HomRefBlock createNewBlock(final VariantContext vc, final Genotype g) {
         // figure out the GQ limits to use based on the GQ of g
-        final int gq = Math.min(g.getGQ(), MAX_GENOTYPE_QUAL);
-        final Range<Integer> partition = gqPartitions.get(gq);
-
-        if( partition == null) {
-            throw new GATKException("GQ " + g + " from " + vc + " didn't fit into any partition");
-        }
+        final Range<Integer> partition = getPartition(g.getGQ(), vc);
 
         // create the block, add g to it, and return it for use
         final HomRefBlock block = new HomRefBlock(vc, partition.lowerEndpoint(), partition.upperEndpoint(), defaultPloidy);
@@ -215,6 +229,27 @@ public final class GVCFWriter implements VariantContextWriter {
         return block;
     }
 
+    /**
+     * Helper function to create a new HomRefBlock from a reference confidence site
+     *
+     * @param site the site where want to start the band
+     * @return a newly allocated and initialized block containing the site already
+     */
+    private HomRefBlock createNewBlock(final ReferenceConfidenceSite site) {
+        final Range<Integer> partition = getPartition(site.getGQ(), site);
+        final HomRefBlock block = new HomRefBlock(site, partition.lowerEndpoint(), partition.upperEndpoint());
+        block.add(site);
+        return block;
+    }
+
+    private Range<Integer> getPartition(final int gq, final Locatable site) {
+        final Range<Integer> partition = gqPartitions.get(Math.min(gq, MAX_GENOTYPE_QUAL));
+        if( partition == null) {
+            throw new GATKException("GQ " + gq + " at " + site + " didn't fit into any partition");
+        }
+        return partition;
+    }
+
     /**
      * Add a VariantContext to this writer for emission
      *
@@ -254,6 +289,44 @@ public final class GVCFWriter implements VariantContextWriter {
 
     }
 
+    /**
+     * Add a reference confidence site to this writer for emission, merging it into the current hom-ref block when
+     * possible, without building a VariantContext for it
+     *
+     * Equivalent to adding {@link ReferenceConfidenceSite#toVariantContext()}
+     *
+     * @param site a non-null site, which may be reused by the caller once this method returns
+     */
+    @Override
+    public void addReferenceConfidenceSite(final ReferenceConfidenceSite site) {
+        Utils.nonNull(site);
+        if (site.getPloidy() == 0) {
+            // a genotype with no alleles isn't hom-ref, so it's written as it is
+            add(site.toVariantContext());
+            return;
+        }
+
+        if (sampleName == null) {
+            sampleName = site.getSampleName();
+        }
+
+        if (currentBlock != null && !currentBlock.isContiguous(site)) {
+            // we've made a non-contiguous step (across interval, onto another chr), so finalize
+            emitCurrentBlock();
+        }
+
+        if (isCoveredByPreviousVariant(site)) {
+            return;
+        }
+
+        if (canBeMergedInCurrentBlock(site.getGQ(), site.getPloidy(), site.getPLs())) {
+            currentBlock.add(site);
+        } else {
+            emitCurrentBlock();
+            currentBlock = createNewBlock(site);
+        }
+    }
+
     @Override
     public void setHeader(VCFHeader header) {
         underlyingWriter.setHeader(header);
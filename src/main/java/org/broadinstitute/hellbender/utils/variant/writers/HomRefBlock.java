@@ -8,15 +8,14 @@ import htsjdk.variant.variantcontext.VariantContext;
 import htsjdk.variant.variantcontext.VariantContextBuilder;
 import htsjdk.variant.vcf.VCFConstants;
 import org.broadinstitute.hellbender.exceptions.GATKException;
-import org.broadinstitute.hellbender.utils.MathUtils;
 import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.variant.GATKVCFConstants;
 import org.broadinstitute.hellbender.utils.variant.GATKVariantContextUtils;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedHashMap;
-import java.util.List;
+import java.util.NoSuchElementException;
 
 /**
  * Helper class for calculating a GQ band in the GVCF writer
@@ -30,12 +29,21 @@ final class HomRefBlock implements Locatable {
 
     private static final int HOM_REF_PL_POSITION = 0;  //the first value in the minPL[] is always the HomRef
 
+    private static final int INITIAL_DP_CAPACITY = 64;
+
+    // the VariantContext that starts this band, or null if the band was started by a ReferenceConfidenceSite
     private final VariantContext startingVC;
+    private final String source;
+    private final String contig;
+    private final int start;
     private final int minGQ, maxGQ;
-    private final List<Integer> DPs = new ArrayList<>();
     private final Allele ref;
     private final int ploidy;
 
+    // DPs of the sites of the band, in the first nDPs elements
+    private int[] DPs = new int[INITIAL_DP_CAPACITY];
+    private int nDPs = 0;
+
     private int end;
     private int[] minPLs = null;
 
@@ -47,16 +55,36 @@ final class HomRefBlock implements Locatable {
      * @param upperGQBound the upperGQBound (exclusive) to use in this band
      */
     public HomRefBlock(final VariantContext startingVC, final int lowerGQBound, final int upperGQBound, final int defaultPloidy) {
-        Utils.nonNull(startingVC, "startingVC cannot be null");
+        this(Utils.nonNull(startingVC, "startingVC cannot be null"), startingVC.getSource(), startingVC.getContig(), startingVC.getStart(),
+                startingVC.getReference(), startingVC.getMaxPloidy(defaultPloidy), lowerGQBound, upperGQBound);
+    }
+
+    /**
+     * Create a new HomRefBlock starting at a reference confidence site, without building a VariantContext for it
+     *
+     * @param startingSite the site that starts this band (for starting position information)
+     * @param lowerGQBound the lowerGQBound (inclusive) to use in this band
+     * @param upperGQBound the upperGQBound (exclusive) to use in this band
+     */
+    public HomRefBlock(final ReferenceConfidenceSite startingSite, final int lowerGQBound, final int upperGQBound) {
+        this(null, Utils.nonNull(startingSite, "startingSite cannot be null").getSource(), startingSite.getContig(), startingSite.getStart(),
+                Allele.create(startingSite.getRefBase(), true), startingSite.getPloidy(), lowerGQBound, upperGQBound);
+    }
+
+    private HomRefBlock(final VariantContext startingVC, final String source, final String contig, final int start,
+                        final Allele ref, final int ploidy, final int lowerGQBound, final int upperGQBound) {
         Utils.validateArg(upperGQBound <= VCFConstants.MAX_GENOTYPE_QUAL + 1, "upperGQBound must be <= " + (VCFConstants.MAX_GENOTYPE_QUAL + 1));
         if ( lowerGQBound > upperGQBound ) { throw new IllegalArgumentException("bad lowerGQBound " + lowerGQBound + " as it's >= upperGQBound " + upperGQBound); }
 
         this.startingVC = startingVC;
-        this.end = getStart() - 1;
-        this.ref = startingVC.getReference();
+        this.source = source;
+        this.contig = contig;
+        this.start = start;
+        this.end = start - 1;
+        this.ref = ref;
         this.minGQ = lowerGQBound;
         this.maxGQ = upperGQBound;
-        this.ploidy = startingVC.getMaxPloidy(defaultPloidy);
+        this.ploidy = ploidy;
     }
 
     /**
@@ -68,9 +96,14 @@ final class HomRefBlock implements Locatable {
      * is no variant-context to be output into the VCF.
      */
     public VariantContext toVariantContext(String sampleName) {
-        final VariantContextBuilder vcb = new VariantContextBuilder(getStartingVC());
-        vcb.attributes(new LinkedHashMap<>(2)); // clear the attributes
-        vcb.stop(getEnd());
+        final VariantContextBuilder vcb;
+        if ( startingVC != null ) {
+            vcb = new VariantContextBuilder(startingVC);
+            vcb.attributes(new LinkedHashMap<>(2)); // clear the attributes
+            vcb.stop(getEnd());
+        } else {
+            vcb = new VariantContextBuilder(source, contig, start, getEnd(), Arrays.asList(ref, Allele.NON_REF_ALLELE));
+        }
         vcb.attribute(VCFConstants.END_KEY, getEnd());
         final Genotype genotype = createHomRefGenotype(sampleName);
 
@@ -102,18 +135,34 @@ final class HomRefBlock implements Locatable {
     public void add(final int pos, final Genotype genotype) {
         Utils.nonNull(genotype, "genotype cannot be null");
         if ( ! genotype.hasPL() ) { throw new IllegalArgumentException("genotype must have PL field");}
+        add(pos, genotype.getPloidy(), genotype.getGQ(), genotype.getDP(), genotype.getPL(), false);
+    }
+
+    /**
+     * Add information from a reference confidence site to this band.
+     *
+     * Treats GQ values > 99 as 99.
+     *
+     * @param site A non-null site, whose position must be 1 base after the previous position
+     */
+    public void add(final ReferenceConfidenceSite site) {
+        Utils.nonNull(site, "site cannot be null");
+        add(site.getStart(), site.getPloidy(), site.getGQ(), site.getDP(), site.getPLs(), true);
+    }
+
+    private void add(final int pos, final int sitePloidy, final int gq, final int dp, final int[] pls, final boolean copyPLs) {
         if ( pos != end + 1 ) { throw new IllegalArgumentException("adding genotype at pos " + pos + " isn't contiguous with previous end " + end); }
-        if ( genotype.getPloidy() != ploidy) { throw new IllegalArgumentException("cannot add a genotype with a different ploidy: " + genotype.getPloidy() + " != " + ploidy); }
+        if ( sitePloidy != ploidy) { throw new IllegalArgumentException("cannot add a genotype with a different ploidy: " + sitePloidy + " != " + ploidy); }
         // Make sure the GQ is within the bounds of this band. Treat GQs > 99 as 99.
-        if ( !withinBounds(Math.min(genotype.getGQ(), VCFConstants.MAX_GENOTYPE_QUAL))) {
-            throw new IllegalArgumentException("cannot add a genotype with GQ=" + genotype.getGQ() + " because it's not within bounds ["
+        if ( !withinBounds(Math.min(gq, VCFConstants.MAX_GENOTYPE_QUAL))) {
+            throw new IllegalArgumentException("cannot add a genotype with GQ=" + gq + " because it's not within bounds ["
                     + this.getGQLowerBound() + ',' + this.getGQUpperBound() + ')');
         }
 
         if( minPLs == null ) {
-            minPLs = genotype.getPL();
+            // sites may be reused by their callers, so keep a copy of their PLs
+            minPLs = copyPLs ? pls.clone() : pls;
         } else { // otherwise take the min with the provided genotype's PLs
-            final int[] pls = genotype.getPL();
             if (pls.length != minPLs.length) {
                 throw new GATKException("trying to merge different PL array sizes: " + pls.length + " != " + minPLs.length);
             }
@@ -122,7 +171,10 @@ final class HomRefBlock implements Locatable {
             }
         }
         end = pos;
-        DPs.add(Math.max(genotype.getDP(), 0)); // DP must be >= 0
+        if ( nDPs == DPs.length ) {
+            DPs = Arrays.copyOf(DPs, 2 * nDPs);
+        }
+        DPs[nDPs++] = Math.max(dp, 0); // DP must be >= 0
     }
 
     /**
@@ -136,13 +188,22 @@ final class HomRefBlock implements Locatable {
 
     /** Get the min DP observed within this band */
     public int getMinDP() {
-        return Collections.min(DPs);
+        if ( nDPs == 0 ) { throw new NoSuchElementException("no DPs in this band"); }
+        int min = DPs[0];
+        for ( int i = 1; i < nDPs; i++ ) {
+            min = Math.min(min, DPs[i]);
+        }
+        return min;
     }
 
     /** Get the median DP observed within this band
      * If there are an even number of DPs recorded in this band the median is the mean of the two middle values */
     public int getMedianDP() {
-        return (int) Math.round(MathUtils.median(DPs));
+        Utils.validateArg(nDPs > 0, "cannot take the median of a band with no DPs");
+        final int[] sortedDPs = Arrays.copyOf(DPs, nDPs);
+        Arrays.sort(sortedDPs);
+        final int middle = nDPs / 2;
+        return nDPs % 2 == 1 ? sortedDPs[middle] : (int) Math.round((sortedDPs[middle - 1] + (double) sortedDPs[middle]) / 2);
     }
 
     /** Get the min PLs observed within this band, can be null if no PLs have yet been observed */
@@ -157,22 +218,25 @@ final class HomRefBlock implements Locatable {
         return minGQ;
     }
 
-    public boolean isContiguous(final VariantContext vc) {
-        return (vc.getEnd() == getEnd() + 1) && startingVC.getContig().equals(vc.getContig());
+    public boolean isContiguous(final Locatable site) {
+        return (site.getEnd() == getEnd() + 1) && contig.equals(site.getContig());
     }
 
+    /**
+     * @return the VariantContext that starts this band, or null if the band was started by a {@link ReferenceConfidenceSite}
+     */
     public VariantContext getStartingVC() {
         return startingVC;
     }
 
     @Override
     public String getContig() {
-        return startingVC.getContig();
+        return contig;
     }
 
     @Override
     public int getStart() {
-        return startingVC.getStart();
+        return start;
     }
 
     @Override
@@ -0,0 +1,116 @@
+package org.broadinstitute.hellbender.utils.variant.writers;
+
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.util.Md5CalculatingOutputStream;
+import htsjdk.tribble.index.Index;
+import htsjdk.tribble.index.IndexCreator;
+import htsjdk.tribble.index.tabix.TabixFormat;
+import htsjdk.tribble.index.tabix.TabixIndexCreator;
+import htsjdk.variant.variantcontext.VariantContext;
+import htsjdk.variant.variantcontext.writer.Options;
+import htsjdk.variant.variantcontext.writer.VariantContextWriter;
+import htsjdk.variant.variantcontext.writer.VariantContextWriterBuilder;
+import htsjdk.variant.vcf.VCFHeader;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.io.ParallelBlockCompressedOutputStream;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+
+/**
+ * Block-compressed VCF writer that compresses its output on a pool of worker threads, with a
+ * {@link ParallelBlockCompressedOutputStream}.
+ *
+ * The VCF file, and its tabix index and md5 file if requested, are identical to those of the block-compressed VCF
+ * writers of {@link VariantContextWriterBuilder} with the default compression level and deflater factory. The index
+ * is built on the fly: variants are added to the index once the blocks holding them have been written, so variants
+ * must not be modified once added to this writer.
+ */
+public final class ParallelBlockCompressedVCFWriter implements VariantContextWriter {
+
+    private final File outputFile;
+    private final ParallelBlockCompressedOutputStream bgzfStream;
+    private final VariantContextWriter writer;
+    private final IndexCreator indexCreator;
+
+    /**
+     * @param outputFile block-compressed VCF file to write
+     * @param referenceDictionary sequence dictionary of the index. May be null if no index is created.
+     * @param createMD5 if true, write the md5 of the VCF file next to it
+     * @param compressionThreads number of worker threads compressing the output
+     * @param options options of the writer: {@link Options#INDEX_ON_THE_FLY} writes a tabix index next to the VCF
+     *                file; {@link Options#USE_ASYNC_IO} is not supported
+     */
+    public ParallelBlockCompressedVCFWriter(final File outputFile, final SAMSequenceDictionary referenceDictionary,
+                                            final boolean createMD5, final int compressionThreads, final Options... options) {
+        this.outputFile = Utils.nonNull(outputFile);
+        Utils.nonNull(options);
+        try {
+            final OutputStream fileStream = Files.newOutputStream(outputFile.toPath());
+            bgzfStream = ParallelBlockCompressedOutputStream.withDefaultCompression(
+                    createMD5 ? new Md5CalculatingOutputStream(fileStream, new File(outputFile.getAbsolutePath() + ".md5")) : fileStream,
+                    compressionThreads);
+        } catch ( final IOException e ) {
+            throw new UserException.CouldNotCreateOutputFile(outputFile, e);
+        }
+
+        final VariantContextWriterBuilder builder = new VariantContextWriterBuilder().clearOptions().setOutputVCFStream(bgzfStream);
+        boolean indexOnTheFly = false;
+        for ( final Options option : options ) {
+            Utils.validateArg(option != Options.USE_ASYNC_IO, "asynchronous writing is not supported");
+            if ( option == Options.INDEX_ON_THE_FLY ) {
+                indexOnTheFly = true;
+            } else {
+                builder.setOption(option);
+            }
+        }
+        if ( referenceDictionary != null ) {
+            builder.setReferenceDictionary(referenceDictionary);
+        }
+        writer = builder.build();
+        indexCreator = !indexOnTheFly ? null :
+                referenceDictionary != null ? new TabixIndexCreator(referenceDictionary, TabixFormat.VCF) : new TabixIndexCreator(TabixFormat.VCF);
+    }
+
+    @Override
+    public void writeHeader(final VCFHeader header) {
+        writer.writeHeader(header);
+    }
+
+    @Override
+    public void setHeader(final VCFHeader header) {
+        writer.setHeader(header);
+    }
+
+    @Override
+    public void add(final VariantContext vc) {
+        if ( indexCreator != null ) {
+            // the VCF writer writes each variant to the stream as soon as it is added
+            final long position = bgzfStream.getPosition();
+            bgzfStream.whenWritten(position, position, (startFilePointer, endFilePointer) -> indexCreator.addFeature(vc, startFilePointer));
+        }
+        writer.add(vc);
+    }
+
+    @Override
+    public boolean checkError() {
+        return writer.checkError();
+    }
+
+    @Override
+    public void close() {
+        // closing the writer closes the stream, which writes all blocks, so that all variants are indexed
+        writer.close();
+        if ( indexCreator != null ) {
+            final Index index = indexCreator.finalizeIndex(bgzfStream.getFilePointer(bgzfStream.getPosition()));
+            try {
+                index.writeBasedOnFeatureFile(outputFile);
+            } catch ( final IOException e ) {
+                throw new UserException.CouldNotCreateOutputFile(outputFile, "could not write the index", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package org.broadinstitute.hellbender.utils.variant.writers;
+
+import htsjdk.variant.variantcontext.VariantContext;
+
+/**
+ * Destination of the records of a single sample reference confidence model, in genomic order: variant calls as
+ * {@link VariantContext}s, and hom-ref sites as {@link ReferenceConfidenceSite}s, so that a destination that merges
+ * hom-ref sites into blocks (such as {@link GVCFWriter}) doesn't need a VariantContext to be built for each of them.
+ */
+public interface ReferenceConfidenceSink {
+
+    /**
+     * Add a record that isn't a reference confidence site, such as a variant call
+     *
+     * @param vc a non-null VariantContext with exactly one genotype
+     */
+    void add(final VariantContext vc);
+
+    /**
+     * Add the reference confidence of a single site
+     *
+     * @param site a non-null site, which the caller may reuse for the next site once this method returns, so
+     *             implementations must copy any value they keep
+     */
+    void addReferenceConfidenceSite(final ReferenceConfidenceSite site);
+}
@@ -0,0 +1,154 @@
+package org.broadinstitute.hellbender.utils.variant.writers;
+
+import htsjdk.samtools.util.Locatable;
+import htsjdk.variant.variantcontext.Allele;
+import htsjdk.variant.variantcontext.GenotypeBuilder;
+import htsjdk.variant.variantcontext.VariantContext;
+import htsjdk.variant.variantcontext.VariantContextBuilder;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.variant.GATKVariantContextUtils;
+
+import java.util.Arrays;
+
+/**
+ * The reference confidence of a single sample at a single site: the values of the hom-ref genotype of the
+ * {@code <NON_REF>} record of the site, as primitives.
+ *
+ * A reference confidence model emits one of these for each hom-ref site it covers, so to avoid allocating one per
+ * site it is mutable, and {@link #set} to the values of each site in turn. {@link #toVariantContext()} builds the
+ * record of the site for destinations that need one.
+ */
+public final class ReferenceConfidenceSite implements Locatable {
+
+    private final String source;
+    private final String sampleName;
+    private final int ploidy;
+
+    private String contig;
+    private int position;
+    private byte refBase;
+    private int refDepth;
+    private int nonRefDepth;
+    private int[] pls;
+    private int gq;
+
+    /**
+     * Create a site, which must be {@link #set} before use
+     *
+     * @param source source of the records built by {@link #toVariantContext()}
+     * @param sampleName name of the sample
+     * @param ploidy ploidy of the sample
+     */
+    public ReferenceConfidenceSite(final String source, final String sampleName, final int ploidy) {
+        this.source = Utils.nonNull(source);
+        this.sampleName = Utils.nonNull(sampleName);
+        Utils.validateArg(ploidy >= 0, "ploidy must be >= 0");
+        this.ploidy = ploidy;
+    }
+
+    /**
+     * Set the values of this site
+     *
+     * @param contig contig of the site
+     * @param position position of the site
+     * @param refBase reference base at the site
+     * @param refDepth number of informative reads supporting the reference
+     * @param nonRefDepth number of informative reads supporting any non-reference allele
+     * @param pls PLs of the hom-ref, het and hom-var genotypes of the reference and {@code <NON_REF>} alleles, which
+     *            this site takes ownership of
+     */
+    public void set(final String contig, final int position, final byte refBase, final int refDepth, final int nonRefDepth, final int[] pls) {
+        this.contig = Utils.nonNull(contig);
+        this.position = position;
+        this.refBase = refBase;
+        this.refDepth = refDepth;
+        this.nonRefDepth = nonRefDepth;
+        this.pls = Utils.nonNull(pls);
+        this.gq = GATKVariantContextUtils.calculateGQFromPLs(pls);
+    }
+
+    /**
+     * @return a new site with the values of this one, for destinations that need to keep a site after it is reused
+     */
+    public ReferenceConfidenceSite copy() {
+        final ReferenceConfidenceSite copy = new ReferenceConfidenceSite(source, sampleName, ploidy);
+        copy.contig = contig;
+        copy.position = position;
+        copy.refBase = refBase;
+        copy.refDepth = refDepth;
+        copy.nonRefDepth = nonRefDepth;
+        copy.pls = pls; // we own our PLs and never modify them, so they can be shared
+        copy.gq = gq;
+        return copy;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public String getSampleName() {
+        return sampleName;
+    }
+
+    public int getPloidy() {
+        return ploidy;
+    }
+
+    @Override
+    public String getContig() {
+        return contig;
+    }
+
+    @Override
+    public int getStart() {
+        return position;
+    }
+
+    @Override
+    public int getEnd() {
+        return position;
+    }
+
+    public byte getRefBase() {
+        return refBase;
+    }
+
+    /**
+     * @return the DP of the site (the sum of its AD values)
+     */
+    public int getDP() {
+        return refDepth + nonRefDepth;
+    }
+
+    public int getGQ() {
+        return gq;
+    }
+
+    /**
+     * @return the PLs of the site; not a copy, so callers must not modify them
+     */
+    public int[] getPLs() {
+        return pls;
+    }
+
+    /**
+     * Build the record of this site: a hom-ref genotype at a site with the reference and {@code <NON_REF>} alleles
+     *
+     * @return a newly built VariantContext with the AD, DP, GQ and PL of this site
+     */
+    public VariantContext toVariantContext() {
+        final Allele refAllele = Allele.create(refBase, true);
+        final VariantContextBuilder vcb = new VariantContextBuilder(source, contig, position, position, Arrays.asList(refAllele, Allele.NON_REF_ALLELE));
+        final GenotypeBuilder gb = new GenotypeBuilder(sampleName, GATKVariantContextUtils.homozygousAlleleList(refAllele, ploidy));
+        gb.AD(new int[]{refDepth, nonRefDepth});
+        gb.DP(getDP());
+        gb.GQ(gq);
+        gb.PL(pls);
+        return vcb.genotypes(gb.make()).make();
+    }
+
+    @Override
+    public String toString() {
+        return "ReferenceConfidenceSite{" + contig + ':' + position + ", GQ=" + gq + ", DP=" + getDP() + ", PL=" + Arrays.toString(pls) + '}';
+    }
+}
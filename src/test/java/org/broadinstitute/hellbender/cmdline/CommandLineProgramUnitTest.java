@@ -4,6 +4,7 @@ package org.broadinstitute.hellbender.cmdline;
 import org.broadinstitute.barclay.argparser.CommandLineException;
 import org.broadinstitute.barclay.argparser.SpecialArgumentsCollection;
 import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.utils.runtime.MetricsRegistry;
 import org.junit.Assert;
 import org.testng.annotations.Test;
 
@@ -52,6 +53,32 @@ public class CommandLineProgramUnitTest extends GATKBaseTest {
         }
     }
 
+    private static class MetricsRecorder extends CommandLineProgram {
+        private static final MetricsRegistry.Counter EVENTS = MetricsRegistry.getDefault().counter("test_clp_events_total", "Test events");
+
+        private long eventsAtStart = -1;
+
+        @Override
+        protected Object doWork() {
+            eventsAtStart = EVENTS.get();
+            EVENTS.increment();
+            return null;
+        }
+    }
+
+    @Test
+    public void testDefaultMetricsAreResetWhenToolStarts() {
+        final MetricsRecorder first = new MetricsRecorder();
+        first.instanceMain(new String[0]);
+        Assert.assertEquals(0, first.eventsAtStart);
+        Assert.assertEquals(1, MetricsRecorder.EVENTS.get());
+
+        // a second tool in the same JVM doesn't see the metrics of the first
+        final MetricsRecorder second = new MetricsRecorder();
+        second.instanceMain(new String[0]);
+        Assert.assertEquals(0, second.eventsAtStart);
+    }
+
     private static CommandLineProgram getClp() {
         return new CommandLineProgram() {
             @Override
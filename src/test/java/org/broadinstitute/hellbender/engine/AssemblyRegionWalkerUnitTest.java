@@ -0,0 +1,138 @@
+package org.broadinstitute.hellbender.engine;
+
+import org.broadinstitute.barclay.argparser.CommandLineProgramProperties;
+import org.broadinstitute.hellbender.CommandLineProgramTest;
+import org.broadinstitute.hellbender.cmdline.TestProgramGroup;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.activityprofile.ActivityProfileState;
+import org.broadinstitute.hellbender.utils.downsampling.ReadsDownsampler;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+public class AssemblyRegionWalkerUnitTest extends CommandLineProgramTest {
+
+    @CommandLineProgramProperties(
+            summary = "Dummy that records the assembly regions it processes, and the randomness given to its downsamplers",
+            oneLineSummary = "none",
+            programGroup = TestProgramGroup.class
+    )
+    private static class TestAssemblyRegionWalker extends AssemblyRegionWalker {
+        private final List<Random> downsamplerRandoms = Collections.synchronizedList(new ArrayList<>());
+        private final List<SimpleInterval> regionSpans = new ArrayList<>();
+
+        @Override
+        protected int defaultMinAssemblyRegionSize() { return 10; }
+
+        @Override
+        protected int defaultMaxAssemblyRegionSize() { return 30; }
+
+        @Override
+        protected int defaultAssemblyRegionPadding() { return 10; }
+
+        @Override
+        protected int defaultMaxReadsPerAlignmentStart() { return 1; }
+
+        @Override
+        protected double defaultActiveProbThreshold() { return 0.002; }
+
+        @Override
+        protected int defaultMaxProbPropagationDistance() { return 5; }
+
+        @Override
+        protected boolean includeReadsWithDeletionsInIsActivePileups() { return true; }
+
+        @Override
+        protected ReadsDownsampler createDownsampler(final Random random) {
+            downsamplerRandoms.add(random);
+            return super.createDownsampler(random);
+        }
+
+        @Override
+        public AssemblyRegionEvaluator assemblyRegionEvaluator() {
+            return (locusPileup, referenceContext, featureContext) -> new ActivityProfileState(new SimpleInterval(locusPileup), 1.0);
+        }
+
+        @Override
+        protected AssemblyRegionWorker makeAssemblyRegionWorker() {
+            return new AssemblyRegionWorker() {
+                @Override
+                public AssemblyRegionEvaluator assemblyRegionEvaluator() {
+                    return TestAssemblyRegionWalker.this.assemblyRegionEvaluator();
+                }
+
+                @Override
+                public Runnable apply(final AssemblyRegion region, final ReferenceContext referenceContext, final FeatureContext featureContext) {
+                    final SimpleInterval span = region.getSpan();
+                    return () -> regionSpans.add(span);
+                }
+            };
+        }
+
+        @Override
+        public void apply(final AssemblyRegion region, final ReferenceContext referenceContext, final FeatureContext featureContext) {
+            regionSpans.add(region.getSpan());
+        }
+    }
+
+    private static TestAssemblyRegionWalker runTestWalker(final int traversalThreads, final int traversalShardSize) {
+        final TestAssemblyRegionWalker tool = new TestAssemblyRegionWalker();
+        final String[] args = {
+                "-I", toolsTestDir + "count_reads_sorted.bam",
+                "-R", toolsTestDir + "count_reads.fasta",
+                "--" + AssemblyRegionWalker.TRAVERSAL_THREADS_LONG_NAME, Integer.toString(traversalThreads),
+                "--" + AssemblyRegionWalker.TRAVERSAL_SHARD_SIZE_LONG_NAME, Integer.toString(traversalShardSize)
+        };
+        tool.instanceMain(args);
+        return tool;
+    }
+
+    @Test
+    public void testSingleThreadedTraversalUsesGATKRandomGenerator() {
+        final TestAssemblyRegionWalker tool = runTestWalker(1, AssemblyRegionWalker.DEFAULT_TRAVERSAL_SHARD_SIZE);
+
+        // one read shard per contig, all downsampled as before multithreaded traversal was added
+        Assert.assertFalse(tool.downsamplerRandoms.isEmpty());
+        for ( final Random random : tool.downsamplerRandoms ) {
+            Assert.assertSame(random, Utils.getRandomGenerator());
+        }
+    }
+
+    @Test
+    public void testMultithreadedTraversalUsesRandomGeneratorPerShard() {
+        final TestAssemblyRegionWalker tool = runTestWalker(2, 100);
+
+        final Set<Random> distinctRandoms = Collections.newSetFromMap(new IdentityHashMap<>());
+        for ( final Random random : tool.downsamplerRandoms ) {
+            Assert.assertNotSame(random, Utils.getRandomGenerator());
+            distinctRandoms.add(random);
+        }
+        Assert.assertEquals(distinctRandoms.size(), tool.downsamplerRandoms.size());
+        // chr7 and chr8 are longer than the shard size
+        Assert.assertTrue(distinctRandoms.size() > 8);
+    }
+
+    @Test
+    public void testMultithreadedTraversalOutputOrder() {
+        final List<SimpleInterval> singleThreadedRegions = runTestWalker(1, AssemblyRegionWalker.DEFAULT_TRAVERSAL_SHARD_SIZE).regionSpans;
+        Assert.assertFalse(singleThreadedRegions.isEmpty());
+
+        // with shards larger than the contigs, regions are the same as in a single-threaded traversal
+        Assert.assertEquals(runTestWalker(3, AssemblyRegionWalker.DEFAULT_TRAVERSAL_SHARD_SIZE).regionSpans, singleThreadedRegions);
+
+        // with smaller shards, regions never cross a shard boundary, and are emitted in order whatever the number of threads
+        final List<SimpleInterval> smallShardRegions = runTestWalker(2, 100).regionSpans;
+        for ( final SimpleInterval span : smallShardRegions ) {
+            Assert.assertEquals((span.getStart() - 1) / 100, (span.getEnd() - 1) / 100, "region crosses a shard boundary: " + span);
+        }
+        Assert.assertEquals(runTestWalker(4, 100).regionSpans, smallShardRegions);
+        Assert.assertEquals(smallShardRegions.get(0), singleThreadedRegions.get(0));
+    }
+}
@@ -373,6 +373,35 @@ public final class FeatureDataSourceUnitTest extends GATKBaseTest {
         }
     }
 
+    @Test(dataProvider = "SingleDataSourceMultipleQueriesTestData")
+    public void testSingleDataSourceMultipleQueriesWithMultiWindowCache( final List<Pair<SimpleInterval, List<String>>> testQueries ) {
+        try (final FeatureDataSource<VariantContext> featureSource = new FeatureDataSource<>(QUERY_TEST_VCF)) {
+            featureSource.enableMultiWindowQueryCache(2);
+
+            // Run the queries twice, so that the second pass exercises cache hits on earlier windows
+            for ( int pass = 0; pass < 2; ++pass ) {
+                for ( Pair<SimpleInterval, List<String>> testQuery : testQueries ) {
+                    final List<VariantContext> queryResults = featureSource.queryAndPrefetch(testQuery.getLeft());
+                    checkVariantQueryResults(queryResults, testQuery.getRight(), testQuery.getLeft());
+                }
+            }
+        }
+    }
+
+    @Test(dataProvider = "SingleDataSourceMultipleQueriesTestData")
+    public void testSingleDataSourceMultipleQueriesWithQueryLookaheadIntervals( final List<Pair<SimpleInterval, List<String>>> testQueries ) {
+        try (final FeatureDataSource<VariantContext> featureSource = new FeatureDataSource<>(QUERY_TEST_VCF, "lookahead", 10)) {
+            featureSource.enableMultiWindowQueryCache(1);
+            featureSource.setQueryLookaheadIntervals(Arrays.asList(new SimpleInterval("1", 100, 300), new SimpleInterval("1", 305, 1000),
+                                                                   new SimpleInterval("2", 500, 700), new SimpleInterval("3", 1, 2000)));
+
+            for ( Pair<SimpleInterval, List<String>> testQuery : testQueries ) {
+                final List<VariantContext> queryResults = featureSource.queryAndPrefetch(testQuery.getLeft());
+                checkVariantQueryResults(queryResults, testQuery.getRight(), testQuery.getLeft());
+            }
+        }
+    }
+
     @DataProvider(name = "GVCFQueryTestData")
     public Object[][] getGVCFQueryTestData() {
 
@@ -401,6 +430,15 @@ public final class FeatureDataSourceUnitTest extends GATKBaseTest {
         }
     }
 
+    @Test(dataProvider = "GVCFQueryTestData")
+    public void testQueryGVCFWithMultiWindowCache( final SimpleInterval queryInterval, final List<String> expectedVariantIDs ) {
+        try ( FeatureDataSource<VariantContext> featureSource = new FeatureDataSource<>(QUERY_TEST_GVCF) ) {
+            featureSource.enableMultiWindowQueryCache(2);
+            final List<VariantContext> queryResults = featureSource.queryAndPrefetch(queryInterval);
+            checkVariantQueryResults(queryResults, expectedVariantIDs, queryInterval);
+        }
+    }
+
     /**************************************************
      * Direct testing on the FeatureCache inner class
      **************************************************/
@@ -665,4 +703,101 @@ public final class FeatureDataSourceUnitTest extends GATKBaseTest {
      * End of direct testing on the FeatureCache inner class
      *********************************************************/
 
+    /**************************************************
+     * Direct testing on the MultiWindowFeatureCache class
+     **************************************************/
+
+    @Test
+    public void testMultiWindowCacheHitDetection() {
+        final MultiWindowFeatureCache<ArtificialTestFeature> cache = new MultiWindowFeatureCache<>(3);
+        cache.fill(Collections.<ArtificialTestFeature>emptyList().iterator(), new SimpleInterval("1", 100, 200));
+        cache.fill(Collections.<ArtificialTestFeature>emptyList().iterator(), new SimpleInterval("1", 1000, 2000));
+        cache.fill(Collections.<ArtificialTestFeature>emptyList().iterator(), new SimpleInterval("2", 1, 50));
+
+        Assert.assertTrue(cache.cacheHit(new SimpleInterval("1", 100, 200)));
+        Assert.assertTrue(cache.cacheHit(new SimpleInterval("1", 1500, 1600)));
+        // backwards query into an earlier window
+        Assert.assertTrue(cache.cacheHit(new SimpleInterval("1", 150, 160)));
+        Assert.assertTrue(cache.cacheHit(new SimpleInterval("2", 1, 1)));
+
+        // spans two windows, or overhangs one
+        Assert.assertFalse(cache.cacheHit(new SimpleInterval("1", 150, 1500)));
+        Assert.assertFalse(cache.cacheHit(new SimpleInterval("1", 99, 150)));
+        Assert.assertFalse(cache.cacheHit(new SimpleInterval("1", 500, 600)));
+        Assert.assertFalse(cache.cacheHit(new SimpleInterval("3", 100, 200)));
+
+        Assert.assertEquals(cache.getNumCacheHits(), 4);
+        Assert.assertEquals(cache.getNumCacheMisses(), 4);
+    }
+
+    @Test
+    public void testMultiWindowCacheLeastRecentlyUsedEviction() {
+        final MultiWindowFeatureCache<ArtificialTestFeature> cache = new MultiWindowFeatureCache<>(2);
+        final SimpleInterval first = new SimpleInterval("1", 1, 100);
+        final SimpleInterval second = new SimpleInterval("1", 201, 300);
+        final SimpleInterval third = new SimpleInterval("1", 401, 500);
+
+        cache.fill(Collections.<ArtificialTestFeature>emptyList().iterator(), first);
+        cache.fill(Collections.<ArtificialTestFeature>emptyList().iterator(), second);
+
+        // touch the first window so that the second becomes least recently used
+        Assert.assertTrue(cache.cacheHit(new SimpleInterval("1", 10, 20)));
+        cache.fill(Collections.<ArtificialTestFeature>emptyList().iterator(), third);
+
+        Assert.assertEquals(cache.getCachedWindows(), Arrays.asList(first, third));
+        Assert.assertEquals(cache.getNumEvictions(), 1);
+        Assert.assertFalse(cache.cacheHit(new SimpleInterval("1", 250, 260)));
+    }
+
+    @Test
+    public void testMultiWindowCacheReplacesOverlappedWindows() {
+        final MultiWindowFeatureCache<ArtificialTestFeature> cache = new MultiWindowFeatureCache<>(5);
+        cache.fill(Collections.<ArtificialTestFeature>emptyList().iterator(), new SimpleInterval("1", 1, 100));
+        cache.fill(Collections.<ArtificialTestFeature>emptyList().iterator(), new SimpleInterval("1", 201, 300));
+        cache.fill(Collections.<ArtificialTestFeature>emptyList().iterator(), new SimpleInterval("1", 401, 500));
+
+        final SimpleInterval spanning = new SimpleInterval("1", 50, 250);
+        cache.fill(Collections.singletonList(new ArtificialTestFeature("1", 60, 70)).iterator(), spanning);
+
+        Assert.assertEquals(cache.getCachedWindows(), Arrays.asList(new SimpleInterval("1", 401, 500), spanning));
+        Assert.assertEquals(cache.getNumReplacements(), 2);
+        Assert.assertEquals(cache.getNumEvictions(), 0);
+        Assert.assertEquals(cache.getNumFeaturesLoaded(), 1);
+    }
+
+    @Test
+    public void testMultiWindowCacheFeatureRetrieval() {
+        // Features are sorted by start position only, and some are long, so retrieval can't simply scan from the query start
+        final List<ArtificialTestFeature> feats = Arrays.asList(
+                new ArtificialTestFeature("1", 1, 1),
+                new ArtificialTestFeature("1", 1, 100),
+                new ArtificialTestFeature("1", 5, 5),
+                new ArtificialTestFeature("1", 10, 10),
+                new ArtificialTestFeature("1", 10, 100),
+                new ArtificialTestFeature("1", 50, 50),
+                new ArtificialTestFeature("1", 51, 55),
+                new ArtificialTestFeature("1", 52, 52),
+                new ArtificialTestFeature("1", 55, 60),
+                new ArtificialTestFeature("1", 75, 75),
+                new ArtificialTestFeature("1", 80, 100)
+        );
+        final MultiWindowFeatureCache<ArtificialTestFeature> cache = new MultiWindowFeatureCache<>(1);
+        cache.fill(feats.iterator(), new SimpleInterval("1", 1, 100));
+
+        for ( int start = 1; start <= 100; ++start ) {
+            for ( int end = start; end <= 100; end += 7 ) {
+                final SimpleInterval query = new SimpleInterval("1", start, end);
+                final List<ArtificialTestFeature> expected = feats.stream()
+                        .filter(feat -> feat.getStart() <= query.getEnd() && feat.getEnd() >= query.getStart())
+                        .collect(Collectors.toList());
+                Assert.assertTrue(cache.cacheHit(query));
+                Assert.assertEquals(cache.getCachedFeatures(query), expected, "Wrong Features returned for query " + query);
+            }
+        }
+    }
+
+    /*********************************************************
+     * End of direct testing on the MultiWindowFeatureCache class
+     *********************************************************/
+
 }
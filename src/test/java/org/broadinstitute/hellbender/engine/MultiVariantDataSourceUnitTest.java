@@ -11,6 +11,7 @@ import org.testng.annotations.Test;
 
 import java.io.File;
 import java.util.*;
+import java.util.stream.Collectors;
 
 public final class MultiVariantDataSourceUnitTest extends GATKBaseTest {
     private static final String ENGINE_TEST_DIRECTORY = publicTestDir + "org/broadinstitute/hellbender/engine/";
@@ -133,12 +134,13 @@ public final class MultiVariantDataSourceUnitTest extends GATKBaseTest {
 
     @Test
     public void testIteratorOverlapping() {
-        //Test interleaved files that include some variants that start at the same position in both files
+        //Test interleaved files that include some variants that start at the same position in both files,
+        //which are returned in the order of the files
         String expectedIDOrder[] = new String[] {
-                "a", "b", "c", "d", "e", "f", "g", "h", "i", "j", "k", "l", "m", "n",
+                "a", "b", "c", "d", "e", "f", "g", "h", "i", "k", "j", "l", "m", "n",
                 "o", "o_overlap",
                 "p", "q", "r", "s", "t", "u", "v", "w",
-                "x", "x_overlap",
+                "x_overlap", "x",
                 "y", "z"
         };
         List<FeatureInput<VariantContext>> featureInputs = new ArrayList<>();
@@ -161,6 +163,100 @@ public final class MultiVariantDataSourceUnitTest extends GATKBaseTest {
         }
     }
 
+    @Test
+    public void testIteratorOverlappingFollowsSourceOrder() {
+        // variants that start at the same position are returned in the order of their sources
+        final List<FeatureInput<VariantContext>> featureInputs = Arrays.asList(
+                new FeatureInput<>(new File(MULTI_VARIANT_TEST_DIRECTORY, "interleavedVariants_2_WithOverlap.vcf").getAbsolutePath(),
+                        "interleavedVariants_2_WithOverlap"),
+                new FeatureInput<>(new File(MULTI_VARIANT_TEST_DIRECTORY, "interleavedVariants_1_WithOverlap.vcf").getAbsolutePath(),
+                        "interleavedVariants_1_WithOverlap"));
+
+        try (final MultiVariantDataSource multiVariantSource =
+                     new MultiVariantDataSource(featureInputs, FeatureDataSource.DEFAULT_QUERY_LOOKAHEAD_BASES)) {
+            final List<String> ids = new ArrayList<>();
+            multiVariantSource.forEach(vc -> ids.add(vc.getID()));
+            Assert.assertEquals(ids, Arrays.asList(
+                    "a", "b", "c", "d", "e", "f", "g", "h", "i", "j", "k", "l", "m", "n",
+                    "o_overlap", "o",
+                    "p", "q", "r", "s", "t", "v", "u", "w",
+                    "x", "x_overlap",
+                    "y", "z"));
+        }
+    }
+
+    @Test
+    public void testIteratorOverManySources() {
+        final List<File> vcfs = Arrays.asList(
+                baseVariants,
+                new File(MULTI_VARIANT_TEST_DIRECTORY, "interleavedVariants_1.vcf"),
+                new File(MULTI_VARIANT_TEST_DIRECTORY, "splitVariants_2.vcf"),
+                baseVariants,
+                new File(MULTI_VARIANT_TEST_DIRECTORY, "interleavedVariants_2_WithOverlap.vcf"),
+                new File(MULTI_VARIANT_TEST_DIRECTORY, "splitVariants_1.vcf"),
+                new File(MULTI_VARIANT_TEST_DIRECTORY, "interleavedVariants_1_WithOverlap.vcf"));
+
+        // expect all variants stably sorted by position, with the variants of each source in source order
+        final List<FeatureInput<VariantContext>> featureInputs = new ArrayList<>();
+        final List<VariantContext> expected = new ArrayList<>();
+        for ( int i = 0; i < vcfs.size(); i++ ) {
+            final FeatureInput<VariantContext> featureInput = new FeatureInput<>(vcfs.get(i).getAbsolutePath(), "source" + i);
+            featureInputs.add(featureInput);
+            try ( final FeatureDataSource<VariantContext> source = new FeatureDataSource<>(featureInput, 0, VariantContext.class) ) {
+                source.forEach(expected::add);
+            }
+        }
+        // all of the test files are on the same contigs, in the same order
+        final List<String> contigs = Arrays.asList("1", "2", "3", "4");
+        expected.sort(Comparator.<VariantContext>comparingInt(vc -> contigs.indexOf(vc.getContig())).thenComparingInt(VariantContext::getStart));
+
+        try (final MultiVariantDataSource multiVariantSource =
+                     new MultiVariantDataSource(featureInputs, FeatureDataSource.DEFAULT_QUERY_LOOKAHEAD_BASES)) {
+            for ( int pass = 0; pass < 2; pass++ ) {
+                final List<String> actual = new ArrayList<>();
+                multiVariantSource.forEach(vc -> actual.add(vc.getContig() + ":" + vc.getStart() + ":" + vc.getID()));
+                Assert.assertEquals(actual, expected.stream().map(vc -> vc.getContig() + ":" + vc.getStart() + ":" + vc.getID()).collect(Collectors.toList()));
+            }
+
+            final List<String> queried = new ArrayList<>();
+            multiVariantSource.query(new SimpleInterval("2", 200, 600)).forEachRemaining(vc -> queried.add(vc.getID()));
+            Assert.assertEquals(queried, expected.stream()
+                    .filter(vc -> vc.getContig().equals("2") && vc.getStart() <= 600 && vc.getEnd() >= 200)
+                    .map(VariantContext::getID).collect(Collectors.toList()));
+        }
+    }
+
+    @DataProvider(name = "SourceQueryLookaheadData")
+    public Object[][] getSourceQueryLookaheadData() {
+        // total lookahead, number of sources, expected lookahead per source
+        return new Object[][] {
+                { 0, 1, 0 },
+                { 0, 10, 0 },
+                { 500, 1, 500 },
+                { 500, 10, MultiVariantDataSource.MIN_SOURCE_QUERY_LOOKAHEAD_BASES },
+                { 50, 10, 50 },
+                { 100_000, 1, 100_000 },
+                { 100_000, 4, 25_000 },
+                { 100_000, 1000, MultiVariantDataSource.MIN_SOURCE_QUERY_LOOKAHEAD_BASES }
+        };
+    }
+
+    @Test(dataProvider = "SourceQueryLookaheadData")
+    public void testGetSourceQueryLookaheadBases( final int queryLookaheadBases, final int numSources, final int expected ) {
+        Assert.assertEquals(MultiVariantDataSource.getSourceQueryLookaheadBases(queryLookaheadBases, numSources), expected);
+    }
+
+    @Test
+    public void testSourceQueryLookaheadShrinksWithNumberOfSourcesAtDefaultLookahead() {
+        int previousLookahead = Integer.MAX_VALUE;
+        for ( final int numSources : new int[]{1, 2, 4, 8} ) {
+            final int sourceLookahead = MultiVariantDataSource.getSourceQueryLookaheadBases(FeatureDataSource.DEFAULT_QUERY_LOOKAHEAD_BASES, numSources);
+            Assert.assertTrue(sourceLookahead < previousLookahead, "lookahead per source didn't shrink with " + numSources + " sources");
+            Assert.assertTrue(sourceLookahead * numSources <= FeatureDataSource.DEFAULT_QUERY_LOOKAHEAD_BASES);
+            previousLookahead = sourceLookahead;
+        }
+    }
+
     @Test
     public void testSerialQueries() {
         List<FeatureInput<VariantContext>> featureInputs = new ArrayList<>();
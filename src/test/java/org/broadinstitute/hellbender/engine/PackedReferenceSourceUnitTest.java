@@ -0,0 +1,198 @@
+package org.broadinstitute.hellbender.engine;
+
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.SAMSequenceRecord;
+import htsjdk.samtools.reference.ReferenceSequence;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.io.IOUtils;
+import org.broadinstitute.hellbender.utils.reference.ReferenceBases;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ReadOnlyBufferException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+
+public final class PackedReferenceSourceUnitTest extends GATKBaseTest {
+
+    private static final Path TEST_REFERENCE = IOUtils.getPath(hg19MiniReference);
+
+    private Path image;
+
+    @BeforeClass
+    public void writeImage() {
+        image = createTempFile("packedReference", PackedReferenceSource.IMAGE_EXTENSION).toPath();
+        try ( final ReferenceDataSource reference = new ReferenceFileSource(TEST_REFERENCE) ) {
+            PackedReferenceSource.writeImage(reference, image);
+        }
+    }
+
+    private static byte[] toArray(final ByteBuffer buffer) {
+        Assert.assertEquals(buffer.position(), 0);
+        final byte[] bases = new byte[buffer.remaining()];
+        buffer.get(bases);
+        return bases;
+    }
+
+    @Test
+    public void testMatchesFileSource() {
+        final Random random = new Random(16);
+        try ( final ReferenceDataSource expected = new ReferenceFileSource(TEST_REFERENCE);
+              final ReferenceDataSource actual = new PackedReferenceSource(image) ) {
+            Assert.assertEquals(actual.getSequenceDictionary(), expected.getSequenceDictionary());
+
+            for ( final SAMSequenceRecord sequence : expected.getSequenceDictionary().getSequences() ) {
+                final int length = sequence.getSequenceLength();
+                for ( int i = 0; i < 100; i++ ) {
+                    final int start = 1 + random.nextInt(length);
+                    final int stop = i == 0 ? length : start + random.nextInt(Math.min(1000, length - start + 1));
+                    final SimpleInterval interval = new SimpleInterval(sequence.getSequenceName(), i == 0 ? 1 : start, stop);
+
+                    final ReferenceSequence expectedSequence = expected.queryAndPrefetch(interval);
+                    final ReferenceSequence actualSequence = actual.queryAndPrefetch(interval);
+                    Assert.assertEquals(actualSequence.getName(), expectedSequence.getName());
+                    Assert.assertEquals(actualSequence.getContigIndex(), expectedSequence.getContigIndex());
+                    Assert.assertEquals(actualSequence.getBases(), expectedSequence.getBases(), interval.toString());
+                    Assert.assertEquals(toArray(actual.queryBuffer(interval)), expectedSequence.getBases(), interval.toString());
+                }
+            }
+        }
+    }
+
+    @Test(expectedExceptions = ReadOnlyBufferException.class)
+    public void testBufferIsReadOnly() {
+        try ( final ReferenceDataSource reference = new PackedReferenceSource(image) ) {
+            reference.queryBuffer(new SimpleInterval("1", 100, 200)).put(0, (byte) 'A');
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testQueryPastEndOfContig() {
+        try ( final ReferenceDataSource reference = new PackedReferenceSource(image) ) {
+            final int length = reference.getSequenceDictionary().getSequence("1").getSequenceLength();
+            reference.queryAndPrefetch("1", length - 10, length + 1);
+        }
+    }
+
+    @Test(expectedExceptions = UserException.MissingContigInSequenceDictionary.class)
+    public void testQueryUnknownContig() {
+        try ( final ReferenceDataSource reference = new PackedReferenceSource(image) ) {
+            reference.queryAndPrefetch("chr1", 1, 10);
+        }
+    }
+
+    @Test(expectedExceptions = UserException.MalformedFile.class)
+    public void testNotAnImage() {
+        new PackedReferenceSource(TEST_REFERENCE);
+    }
+
+    @Test(expectedExceptions = UserException.MalformedFile.class)
+    public void testTruncatedImage() throws IOException {
+        final File truncated = createTempFile("truncatedPackedReference", PackedReferenceSource.IMAGE_EXTENSION);
+        final byte[] bytes = Files.readAllBytes(image);
+        Files.write(truncated.toPath(), Arrays.copyOf(bytes, bytes.length - 1));
+        new PackedReferenceSource(truncated.toPath());
+    }
+
+    @Test
+    public void testWriteImageReplacesExistingImage() throws IOException {
+        final File dir = createTempDir("packedReference");
+        final Path existing = dir.toPath().resolve("existing" + PackedReferenceSource.IMAGE_EXTENSION);
+        Files.write(existing, new byte[]{'n', 'o', 't', ' ', 'a', 'n', ' ', 'i', 'm', 'a', 'g', 'e'});
+
+        try ( final ReferenceDataSource reference = new ReferenceFileSource(TEST_REFERENCE) ) {
+            PackedReferenceSource.writeImage(reference, existing);
+        }
+        Assert.assertEquals(Files.readAllBytes(existing), Files.readAllBytes(image));
+        // the temporary file the image was written to is gone
+        Assert.assertEquals(dir.list(), new String[]{existing.getFileName().toString()});
+    }
+
+    @Test
+    public void testFailedWriteLeavesExistingImage() throws IOException {
+        final File dir = createTempDir("packedReference");
+        final Path existing = dir.toPath().resolve("existing" + PackedReferenceSource.IMAGE_EXTENSION);
+        Files.copy(image, existing);
+
+        // the dictionary claims more bases than the reference has
+        final SAMSequenceDictionary dictionary = new SAMSequenceDictionary(Collections.singletonList(new SAMSequenceRecord("1", 100)));
+        final ReferenceDataSource shortReference = ReferenceDataSource.of(new ReferenceBases(new byte[]{'A', 'C', 'G', 'T'}, new SimpleInterval("1", 1, 4)), dictionary);
+        try {
+            PackedReferenceSource.writeImage(shortReference, existing);
+            Assert.fail("writing an image of an inconsistent reference should fail");
+        } catch ( final IllegalArgumentException e ) {
+            // expected
+        }
+        Assert.assertEquals(Files.readAllBytes(existing), Files.readAllBytes(image));
+        Assert.assertEquals(dir.list(), new String[]{existing.getFileName().toString()});
+    }
+
+    @Test
+    public void testCompanionImage() throws IOException {
+        final File dir = createTempDir("packedReference");
+        final Path fasta = dir.toPath().resolve("hg19mini.fasta");
+        Files.copy(TEST_REFERENCE, fasta);
+        Files.copy(IOUtils.getPath(publicTestDir + "hg19mini.fasta.fai"), dir.toPath().resolve("hg19mini.fasta.fai"));
+        Files.copy(IOUtils.getPath(publicTestDir + "hg19mini.dict"), dir.toPath().resolve("hg19mini.dict"));
+
+        Assert.assertFalse(PackedReferenceSource.hasUpToDateImage(fasta));
+        try ( final ReferenceDataSource reference = ReferenceDataSource.of(fasta) ) {
+            Assert.assertTrue(reference instanceof ReferenceFileSource);
+        }
+
+        final Path companion = PackedReferenceSource.getImagePath(fasta);
+        Assert.assertEquals(companion, dir.toPath().resolve("hg19mini.fasta" + PackedReferenceSource.IMAGE_EXTENSION));
+        Files.copy(image, companion);
+        Files.setLastModifiedTime(companion, Files.getLastModifiedTime(fasta));
+        Assert.assertTrue(PackedReferenceSource.hasUpToDateImage(fasta));
+        try ( final ReferenceDataSource reference = ReferenceDataSource.of(fasta) ) {
+            Assert.assertTrue(reference instanceof PackedReferenceSource);
+            Assert.assertEquals(new String(reference.queryAndPrefetch("1", 11041, 11045).getBases()), "GCAAA");
+        }
+
+        // an image older than its fasta may be stale
+        Files.setLastModifiedTime(fasta, FileTime.fromMillis(Files.getLastModifiedTime(companion).toMillis() + 1000));
+        Assert.assertFalse(PackedReferenceSource.hasUpToDateImage(fasta));
+        try ( final ReferenceDataSource reference = ReferenceDataSource.of(fasta) ) {
+            Assert.assertTrue(reference instanceof ReferenceFileSource);
+        }
+    }
+
+    @Test
+    public void testConcurrentQueries() throws InterruptedException {
+        try ( final ReferenceDataSource expected = new ReferenceFileSource(TEST_REFERENCE);
+              final ReferenceDataSource reference = new PackedReferenceSource(image) ) {
+            final byte[] expectedBases = expected.queryAndPrefetch("2", 1, 16000).getBases();
+            final Thread[] threads = new Thread[4];
+            final boolean[] mismatches = new boolean[threads.length];
+            for ( int t = 0; t < threads.length; t++ ) {
+                final int thread = t;
+                threads[t] = new Thread(() -> {
+                    for ( int start = 1 + thread; start + 50 <= expectedBases.length; start += threads.length ) {
+                        final ByteBuffer bases = reference.queryBuffer(new SimpleInterval("2", start, start + 49));
+                        for ( int i = 0; i < 50; i++ ) {
+                            mismatches[thread] |= bases.get(i) != expectedBases[start - 1 + i];
+                        }
+                    }
+                });
+                threads[t].start();
+            }
+            for ( final Thread thread : threads ) {
+                thread.join();
+            }
+            for ( final boolean mismatch : mismatches ) {
+                Assert.assertFalse(mismatch);
+            }
+        }
+    }
+}
@@ -2,6 +2,7 @@ package org.broadinstitute.hellbender.engine;
 
 import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.utils.runtime.MetricsRegistry;
 import org.testng.Assert;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
@@ -141,6 +142,22 @@ public class ProgressMeterUnitTest extends GATKBaseTest {
 
     }
 
+    @Test
+    public void testRecordsMetric() {
+        final MetricsRegistry.Counter metric = MetricsRegistry.getDefault().counter("gatk_traversal_records_total",
+                "Records processed from the primary input of the traversal", "record_type", "testRecordsMetric");
+        final ProgressMeter meter = new ProgressMeter(1.0, new ListBasedTimeFunction(Arrays.asList(1000l, 1500l, 2000l, 2500l)));
+        meter.setRecordLabel("testRecordsMetric");
+        meter.start();
+        for ( int i = 1; i <= ProgressMeter.DEFAULT_RECORDS_BETWEEN_TIME_CHECKS * 2 + 10; ++i ) {
+            meter.update(new SimpleInterval("1", 1, 1));
+        }
+        // the metric is only updated at time checks
+        Assert.assertEquals(metric.get(), ProgressMeter.DEFAULT_RECORDS_BETWEEN_TIME_CHECKS * 2);
+        meter.stop();
+        Assert.assertEquals(metric.get(), ProgressMeter.DEFAULT_RECORDS_BETWEEN_TIME_CHECKS * 2 + 10);
+    }
+
     @Test(expectedExceptions = IllegalStateException.class)
     public void testMustStartBeforeUpdate() throws Exception {
         ProgressMeter pm = new ProgressMeter();
@@ -8,6 +8,7 @@ import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.io.IOUtils;
 import org.broadinstitute.hellbender.utils.test.XorWrapper;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.read.RawBAMRecordToGATKReadAdapter;
 import org.broadinstitute.hellbender.utils.read.ReadUtils;
 import org.broadinstitute.hellbender.utils.read.SAMFileGATKReadWriter;
 import org.broadinstitute.hellbender.utils.read.SAMRecordToGATKReadAdapter;
@@ -87,6 +88,31 @@ public final class ReadsDataSourceUnitTest extends GATKBaseTest {
         }
     }
 
+    @Test
+    public void testLazyReadDecoding() {
+        final List<GATKRead> expectedReads = new ArrayList<>();
+        new ReadsDataSource(FIRST_TEST_BAM).forEach(expectedReads::add);
+
+        final ReadsDataSource readsSource = new ReadsDataSource(FIRST_TEST_BAM);
+        readsSource.setLazyReadDecoding(true);
+        final List<GATKRead> reads = new ArrayList<>();
+        for ( final GATKRead read : readsSource ) {
+            Assert.assertTrue(read instanceof RawBAMRecordToGATKReadAdapter, "Expected a lazily decoded read for a BAM input");
+            reads.add(read);
+        }
+        Assert.assertEquals(reads.size(), expectedReads.size());
+        for ( int i = 0; i < reads.size(); i++ ) {
+            Assert.assertEquals(reads.get(i).getSAMString(), expectedReads.get(i).getSAMString());
+        }
+
+        // the records of text inputs have no BAM encoding
+        final ReadsDataSource samSource = new ReadsDataSource(FIRST_TEST_SAM);
+        samSource.setLazyReadDecoding(true);
+        for ( final GATKRead read : samSource ) {
+            Assert.assertTrue(read instanceof SAMRecordToGATKReadAdapter);
+        }
+    }
+
     @DataProvider(name = "SingleFileCompleteTraversalData")
     public Object[][] getSingleFileCompleteTraversalData() {
         // Files, with expected read names in the expected order
@@ -168,6 +194,70 @@ public final class ReadsDataSourceUnitTest extends GATKBaseTest {
         }
     }
 
+    @Test(dataProvider = "SingleFileTraversalWithIntervalsData")
+    public void testSingleFileAsynchronousTraversalWithIntervals( final Path samFile, final List<SimpleInterval> intervals, final List<String> expectedReadNames ) {
+        try (ReadsDataSource readsSource = new ReadsDataSource(samFile)) {
+            readsSource.setTraversalBounds(intervals);
+
+            final List<String> readNames = new ArrayList<>();
+            readsSource.asynchronousIterator(Function.identity(), 1, 1).forEachRemaining(read -> readNames.add(read.getName()));
+
+            Assert.assertEquals(readNames, expectedReadNames, "Wrong reads returned in asynchronous traversal by intervals of " + samFile.toAbsolutePath());
+        }
+    }
+
+    @Test
+    public void testAsynchronousTraversalAppliesReadPipeline() {
+        try (ReadsDataSource readsSource = new ReadsDataSource(Arrays.asList(FIRST_TEST_BAM, SECOND_TEST_BAM))) {
+            final List<String> expectedReadNames = new ArrayList<>();
+            readsSource.forEach(read -> {
+                if ( ! read.getName().startsWith("a") ) {
+                    expectedReadNames.add(read.getName().toUpperCase());
+                }
+            });
+
+            final List<String> readNames = new ArrayList<>();
+            readsSource.asynchronousIterator(
+                    reads -> reads.filter(read -> ! read.getName().startsWith("a"))
+                                  .peek(read -> read.setName(read.getName().toUpperCase())),
+                    2, 1)
+                    .forEachRemaining(read -> readNames.add(read.getName()));
+
+            Assert.assertFalse(readNames.isEmpty());
+            Assert.assertEquals(readNames, expectedReadNames);
+        }
+    }
+
+    @Test
+    public void testQueryDuringAsynchronousTraversal() {
+        try (ReadsDataSource readsSource = new ReadsDataSource(FIRST_TEST_BAM)) {
+            final Iterator<GATKRead> asyncReads = readsSource.asynchronousIterator(Function.identity(), 1, 1);
+            Assert.assertEquals(asyncReads.next().getName(), "a");
+
+            // starting a new iteration stops the asynchronous one
+            final List<String> queryReadNames = new ArrayList<>();
+            readsSource.query(new SimpleInterval("1", 200, 209)).forEachRemaining(read -> queryReadNames.add(read.getName()));
+            Assert.assertEquals(queryReadNames, Arrays.asList("a", "b"));
+            Assert.assertFalse(asyncReads.hasNext());
+        }
+    }
+
+    @Test(timeOut = 30000)
+    public void testQueriesAfterStoppingFilteredAsynchronousTraversal() {
+        try (ReadsDataSource readsSource = new ReadsDataSource(FIRST_TEST_BAM)) {
+            // the pipeline filters out every read, so the background thread never hands a read back
+            final Iterator<GATKRead> asyncReads = readsSource.asynchronousIterator(reads -> reads.filter(read -> false), 1, 1);
+
+            // stopping the asynchronous iteration must leave the readers usable for later queries
+            for ( int i = 0; i < 2; i++ ) {
+                final List<String> queryReadNames = new ArrayList<>();
+                readsSource.query(new SimpleInterval("1", 200, 209)).forEachRemaining(read -> queryReadNames.add(read.getName()));
+                Assert.assertEquals(queryReadNames, Arrays.asList("a", "b"));
+            }
+            Assert.assertFalse(asyncReads.hasNext());
+        }
+    }
+
     @DataProvider(name = "SingleFileQueryByIntervalData")
     public Object[][] getSingleFileQueryByIntervalData() {
         // Files, with a single query interval, and expected read names in the expected order
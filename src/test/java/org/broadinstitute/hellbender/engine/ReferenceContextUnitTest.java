@@ -10,6 +10,7 @@ import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
 import java.io.File;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -36,6 +37,7 @@ public final class ReferenceContextUnitTest extends GATKBaseTest {
                            "Empty ReferenceContext reports having both a backing data source and an interval");
         Assert.assertEquals(refContext.getBases().length, 0, "Empty ReferenceContext should have returned an empty bases array from getBases()");
         Assert.assertFalse(refContext.iterator().hasNext(), "Empty ReferenceContext should have returned an empty bases iterator from iterator()");
+        Assert.assertFalse(refContext.getBasesBuffer().hasRemaining(), "Empty ReferenceContext should have returned an empty buffer from getBasesBuffer()");
     }
 
     @DataProvider(name = "WindowlessReferenceIntervalDataProvider")
@@ -97,6 +99,24 @@ public final class ReferenceContextUnitTest extends GATKBaseTest {
         }
     }
 
+    @Test(dataProvider = "WindowedReferenceIntervalDataProvider")
+    public void testGetBasesBuffer( final SimpleInterval interval, final int windowStartOffset, final int windowStopOffset, final SimpleInterval expectedWindow, final String expectedBases ) {
+        try (ReferenceDataSource reference = new ReferenceFileSource(TEST_REFERENCE)) {
+            ReferenceContext refContext = new ReferenceContext(reference, interval, windowStartOffset, windowStopOffset);
+
+            Assert.assertEquals(refContext.getBase(), (byte) expectedBases.charAt(interval.getStart() - expectedWindow.getStart()), "Wrong base from refContext.getBase()");
+            final ByteBuffer buffer = refContext.getBasesBuffer();
+            Assert.assertTrue(buffer.isReadOnly(), "Buffer from refContext.getBasesBuffer() should be read-only");
+            final byte[] bases = new byte[buffer.remaining()];
+            buffer.get(bases);
+            Assert.assertEquals(new String(bases), expectedBases, "Wrong bases from refContext.getBasesBuffer()");
+
+            // each call returns an independent view
+            Assert.assertEquals(refContext.getBasesBuffer().position(), 0, "Buffer from refContext.getBasesBuffer() should start at position 0");
+            checkReferenceContextBases(refContext, expectedBases);
+        }
+    }
+
     @Test(dataProvider = "WindowedReferenceIntervalDataProvider")
     public void testWindowedContextUsingIntervalObjects( final SimpleInterval interval, final int windowStartOffset, final int windowStopOffset, final SimpleInterval expectedWindow, final String expectedBases ) {
         try (ReferenceDataSource reference = new ReferenceFileSource(TEST_REFERENCE)) {
@@ -1,6 +1,12 @@
 package org.broadinstitute.hellbender.engine.spark;
 
 import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import htsjdk.samtools.BAMRecordCodec;
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMRecordSparkCodec;
 import org.apache.spark.SparkConf;
 import org.apache.spark.serializer.KryoRegistrator;
 import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
@@ -8,8 +14,12 @@ import org.broadinstitute.hellbender.utils.read.GATKRead;
 import org.broadinstitute.hellbender.utils.read.SAMRecordToGATKReadAdapter;
 import org.broadinstitute.hellbender.utils.test.SparkTestUtils;
 import org.testng.Assert;
+import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
 public class SAMRecordToGATKReadAdapterSerializerUnitTest {
 
     public static class TestGATKRegistrator implements KryoRegistrator {
@@ -43,4 +53,90 @@ public class SAMRecordToGATKReadAdapterSerializerUnitTest {
         final GATKRead roundTrippedRead2 = SparkTestUtils.roundTripInKryo(read, GATKRead.class, conf);
         Assert.assertEquals(roundTrippedRead2, read);
     }
+
+    @DataProvider(name = "reads")
+    public Object[][] reads() {
+        final SAMFileHeader header = ArtificialReadUtils.createArtificialSamHeader(3, 1, 1000);
+
+        final GATKRead pairedRead = ArtificialReadUtils.createArtificialRead(header, "pair", 0, 100, new byte[] {'A', 'C', 'G', 'T', 'N'}, new byte[] {10, 20, 30, 40, 2}, "2S3M");
+        pairedRead.setIsPaired(true);
+        pairedRead.setMatePosition(header.getSequence(2).getSequenceName(), 500);
+        pairedRead.setFragmentLength(-12345);
+        pairedRead.setMappingQuality(255);
+        pairedRead.setAttribute("XS", "string");
+        pairedRead.setAttribute("XI", -7);
+        ((SAMRecordToGATKReadAdapter) pairedRead).getEncapsulatedSamRecord().setUnsignedArrayAttribute("XA", new short[] {1, (short) 60000});
+
+        final GATKRead unmappedRead = ArtificialReadUtils.createArtificialRead(header, "unmapped", 0, 1, new byte[] {'A', 'C', 'G'}, new byte[3], "*");
+        unmappedRead.setIsUnmapped();
+        ((SAMRecordToGATKReadAdapter) unmappedRead).getEncapsulatedSamRecord().setBaseQualities(SAMRecord.NULL_QUALS);
+
+        final GATKRead emptyRead = ArtificialReadUtils.createArtificialRead(header, "empty", 1, 1, new byte[0], new byte[0], "*");
+
+        // Spark tools serialize headerless reads
+        for ( final GATKRead read : new GATKRead[] {pairedRead, unmappedRead, emptyRead} ) {
+            ((SAMRecordToGATKReadAdapter) read).getEncapsulatedSamRecord().setHeaderStrict(null);
+        }
+        return new Object[][] {
+                {ArtificialReadUtils.createHeaderlessSamBackedRead("read1", "1", 100, 50), header},
+                {pairedRead, header},
+                {unmappedRead, header},
+                {emptyRead, header}
+        };
+    }
+
+    @Test(dataProvider = "reads")
+    public void testRoundTrip(final GATKRead read, final SAMFileHeader header) {
+        final SparkConf conf = new SparkConf().set("spark.kryo.registrator",
+                "org.broadinstitute.hellbender.engine.spark.SAMRecordToGATKReadAdapterSerializerUnitTest$TestGATKRegistrator");
+        final GATKRead roundTrippedRead = SparkTestUtils.roundTripInKryo(read, GATKRead.class, conf);
+        Assert.assertEquals(roundTrippedRead, read);
+
+        // reads decoded by the serializer are written from their unchanged binary representation
+        Assert.assertEquals(SparkTestUtils.roundTripInKryo(roundTrippedRead, GATKRead.class, conf), read);
+
+        // as are reads decoded from a BAM file
+        final SAMRecord bamRecord = decodeBAMRecord(((SAMRecordToGATKReadAdapter) read).getEncapsulatedSamRecord(), header);
+        bamRecord.setHeaderStrict(null);
+        Assert.assertEquals(SparkTestUtils.roundTripInKryo(new SAMRecordToGATKReadAdapter(bamRecord), GATKRead.class, conf), read);
+
+        // changing a decoded read invalidates its binary representation
+        roundTrippedRead.setAttribute("XN", "new");
+        roundTrippedRead.setBaseQualities(new byte[roundTrippedRead.getLength()]);
+        Assert.assertEquals(SparkTestUtils.roundTripInKryo(roundTrippedRead, GATKRead.class, conf), roundTrippedRead);
+    }
+
+    @Test
+    public void testSmallerThanSparkCodec() {
+        final GATKRead read = ArtificialReadUtils.createHeaderlessSamBackedRead("read1", "1", 100, 50);
+        read.setIsPaired(true);
+        read.setMatePosition("1", 300);
+        read.setReadGroup("ReadGroup1");
+
+        final Output output = new Output(1024);
+        new SAMRecordToGATKReadAdapterSerializer().write(new Kryo(), output, (SAMRecordToGATKReadAdapter) read);
+
+        final ByteArrayOutputStream sparkCodecOutput = new ByteArrayOutputStream();
+        final SAMRecordSparkCodec sparkCodec = new SAMRecordSparkCodec();
+        sparkCodec.setOutputStream(sparkCodecOutput);
+        sparkCodec.encode(((SAMRecordToGATKReadAdapter) read).getEncapsulatedSamRecord());
+        // the SAMRecordSparkCodec encoding, plus the reference names
+        final int sparkCodecSize = sparkCodecOutput.size() + 2 * 2;
+
+        Assert.assertTrue(output.position() < sparkCodecSize - 20, output.position() + " " + sparkCodecSize);
+        final Input input = new Input(output.toBytes());
+        Assert.assertEquals(new SAMRecordToGATKReadAdapterSerializer().read(new Kryo(), input, SAMRecordToGATKReadAdapter.class), read);
+    }
+
+    // decodes the BAM encoding of the record, as reading a BAM file would
+    private static SAMRecord decodeBAMRecord(final SAMRecord record, final SAMFileHeader header) {
+        final SAMRecord recordWithHeader = record.deepCopy();
+        recordWithHeader.setHeader(header);
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final BAMRecordCodec codec = new BAMRecordCodec(header);
+        codec.setOutputStream(bytes);
+        codec.encode(recordWithHeader);
+        codec.setInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        return codec.decode();
+    }
 }
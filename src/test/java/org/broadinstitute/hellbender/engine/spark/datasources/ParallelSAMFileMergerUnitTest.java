@@ -0,0 +1,95 @@
+package org.broadinstitute.hellbender.engine.spark.datasources;
+
+import htsjdk.samtools.SAMFileHeader;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
+import org.seqdoop.hadoop_bam.SAMFormat;
+import org.seqdoop.hadoop_bam.SplittingBAMIndexer;
+import org.seqdoop.hadoop_bam.util.SAMFileMerger;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+public final class ParallelSAMFileMergerUnitTest extends GATKBaseTest {
+
+    // writes parts of random bytes, with splitting indices if requested, as a Hadoop output format would
+    private static void writeParts(final Path partDirectory, final int[] partSizes, final boolean writeIndices) throws IOException {
+        Files.createDirectories(partDirectory);
+        final Random random = new Random(partSizes.length);
+        for ( int i = 0; i < partSizes.length; i++ ) {
+            final byte[] bytes = new byte[partSizes[i]];
+            random.nextBytes(bytes);
+            final Path part = partDirectory.resolve(String.format("part-r-%05d.bam", i));
+            Files.write(part, bytes);
+            if ( writeIndices ) {
+                try ( final OutputStream out = Files.newOutputStream(part.resolveSibling(part.getFileName() + SplittingBAMIndexer.OUTPUT_FILE_EXTENSION)) ) {
+                    final SplittingBAMIndexer indexer = new SplittingBAMIndexer(out);
+                    for ( long offset = 0; offset < partSizes[i]; offset += 1000 ) {
+                        indexer.writeVirtualOffset(offset << 16 | random.nextInt(1 << 16));
+                    }
+                    indexer.finish(partSizes[i]);
+                }
+            }
+        }
+        Files.createFile(partDirectory.resolve("_SUCCESS"));
+    }
+
+    @DataProvider(name = "merges")
+    public Object[][] merges() {
+        return new Object[][] {
+                {SAMFormat.BAM, new int[] {10000, 0, 2500, 999, 30001}, true, 1},
+                {SAMFormat.BAM, new int[] {10000, 0, 2500, 999, 30001}, true, 1000},
+                {SAMFormat.BAM, new int[] {5}, false, 1},
+                {SAMFormat.CRAM, new int[] {4000, 12345}, false, 777}
+        };
+    }
+
+    @Test(dataProvider = "merges")
+    public void testMatchesSAMFileMerger(final SAMFormat format, final int[] partSizes, final boolean writeIndices, final long chunkSize) throws IOException {
+        final SAMFileHeader header = ArtificialReadUtils.createArtificialSamHeader();
+        final Path directory = createTempDir("merge").toPath();
+        final Path expectedOutput = directory.resolve("expected.bam");
+        final Path actualOutput = directory.resolve("actual.bam");
+        writeParts(directory.resolve("expected.parts"), partSizes, writeIndices);
+        writeParts(directory.resolve("actual.parts"), partSizes, writeIndices);
+
+        SAMFileMerger.mergeParts(directory.resolve("expected.parts").toString(), expectedOutput.toString(), format, header);
+        ParallelSAMFileMerger.mergeParts(directory.resolve("actual.parts").toString(), actualOutput.toString(), format, header, 4, chunkSize);
+
+        Assert.assertEquals(Files.readAllBytes(actualOutput), Files.readAllBytes(expectedOutput));
+        final File actualIndex = new File(actualOutput + SplittingBAMIndexer.OUTPUT_FILE_EXTENSION);
+        Assert.assertEquals(actualIndex.exists(), writeIndices);
+        if ( writeIndices ) {
+            Assert.assertEquals(Files.readAllBytes(actualIndex.toPath()), Files.readAllBytes(new File(expectedOutput + SplittingBAMIndexer.OUTPUT_FILE_EXTENSION).toPath()));
+        }
+        Assert.assertFalse(Files.exists(directory.resolve("actual.parts")));
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void testPartLengthMismatch() throws IOException {
+        final Path directory = createTempDir("merge").toPath();
+        final Path partDirectory = directory.resolve("output.parts");
+        writeParts(partDirectory, new int[] {3000, 2000}, true);
+        // the index of the second part no longer matches its size
+        Files.write(partDirectory.resolve("part-r-00001.bam"), new byte[1500]);
+        ParallelSAMFileMerger.mergeParts(partDirectory.toString(), directory.resolve("output.bam").toString(), SAMFormat.BAM,
+                ArtificialReadUtils.createArtificialSamHeader(), 2, 100);
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void testMissingSuccessFile() throws IOException {
+        final Path directory = createTempDir("merge").toPath();
+        final Path partDirectory = directory.resolve("output.parts");
+        writeParts(partDirectory, new int[] {100}, false);
+        Files.delete(partDirectory.resolve("_SUCCESS"));
+        ParallelSAMFileMerger.mergeParts(partDirectory.toString(), directory.resolve("output.bam").toString(), SAMFormat.BAM,
+                ArtificialReadUtils.createArtificialSamHeader(), 2);
+    }
+}
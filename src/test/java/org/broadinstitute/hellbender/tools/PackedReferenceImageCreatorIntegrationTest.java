@@ -0,0 +1,34 @@
+package org.broadinstitute.hellbender.tools;
+
+import org.broadinstitute.hellbender.CommandLineProgramTest;
+import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
+import org.broadinstitute.hellbender.engine.PackedReferenceSource;
+import org.broadinstitute.hellbender.engine.ReferenceDataSource;
+import org.broadinstitute.hellbender.engine.ReferenceFileSource;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.io.IOUtils;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.util.Arrays;
+
+public final class PackedReferenceImageCreatorIntegrationTest extends CommandLineProgramTest {
+
+    @Test
+    public void testImageFileGeneration() {
+        final File image = createTempFile("packedReference", PackedReferenceSource.IMAGE_EXTENSION);
+        runCommandLine(Arrays.asList(
+                "--" + StandardArgumentDefinitions.INPUT_LONG_NAME, hg19MiniReference,
+                "--" + StandardArgumentDefinitions.OUTPUT_LONG_NAME, image.getAbsolutePath()));
+
+        try ( final ReferenceDataSource fasta = new ReferenceFileSource(IOUtils.getPath(hg19MiniReference));
+              final ReferenceDataSource packed = new PackedReferenceSource(image.toPath()) ) {
+            Assert.assertEquals(packed.getSequenceDictionary(), fasta.getSequenceDictionary());
+            for ( final String contig : Arrays.asList("1", "2", "3", "4") ) {
+                final SimpleInterval wholeContig = new SimpleInterval(contig, 1, fasta.getSequenceDictionary().getSequence(contig).getSequenceLength());
+                Assert.assertEquals(packed.queryAndPrefetch(wholeContig).getBases(), fasta.queryAndPrefetch(wholeContig).getBases());
+            }
+        }
+    }
+}
@@ -1,9 +1,13 @@
 package org.broadinstitute.hellbender.tools.examples;
 
 import org.broadinstitute.hellbender.CommandLineProgramTest;
+import org.broadinstitute.hellbender.engine.AssemblyRegionWalker;
+import org.broadinstitute.hellbender.utils.test.ArgumentsBuilder;
 import org.broadinstitute.hellbender.utils.test.IntegrationTestSpec;
+import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
+import java.io.File;
 import java.util.Arrays;
 
 public class ExampleAssemblyRegionWalkerIntegrationTest extends CommandLineProgramTest {
@@ -22,4 +26,62 @@ public class ExampleAssemblyRegionWalkerIntegrationTest extends CommandLineProgr
 
         testSpec.executeTest("testExampleAssemblyRegionWalker", this);
     }
+
+    @Test
+    public void testSingleThreadedTraversalWithDownsampling() throws Exception {
+        // expected output produced before multithreaded traversal was added, which must not change single-threaded output
+        IntegrationTestSpec testSpec = new IntegrationTestSpec(
+                " -R " + v37_chr17_1Mb_Reference +
+                " -I " + NA12878_chr17_1k_BAM +
+                " -L 17:69000-70000 " +
+                " --" + AssemblyRegionWalker.MAX_STARTS_LONG_NAME + " 1 " +
+                " -O %s",
+                Arrays.asList(TEST_OUTPUT_DIRECTORY + "expected_ExampleAssemblyRegionWalkerIntegrationTest_downsampled_output.txt")
+        );
+
+        testSpec.executeTest("testSingleThreadedTraversalWithDownsampling", this);
+    }
+
+    // none of these intervals crosses a boundary between shards of the default size
+    private static final String INTERVALS_WITHIN_DEFAULT_SHARDS = "-L 20:10000001-10020000 -L 21:10000001-10020000 -L 20:10050000-10060000";
+
+    @Test
+    public void testMultithreadedTraversalMatchesSingleThreaded() throws Exception {
+        // without downsampling, and with each interval in a single shard, the regions are the same as in a single-threaded run
+        final File singleThreadedOutput = runWithTraversalThreads(1, 0, INTERVALS_WITHIN_DEFAULT_SHARDS, AssemblyRegionWalker.DEFAULT_TRAVERSAL_SHARD_SIZE);
+        final File multiThreadedOutput = runWithTraversalThreads(3, 0, INTERVALS_WITHIN_DEFAULT_SHARDS, AssemblyRegionWalker.DEFAULT_TRAVERSAL_SHARD_SIZE);
+
+        IntegrationTestSpec.assertEqualTextFiles(multiThreadedOutput, singleThreadedOutput);
+    }
+
+    @DataProvider(name = "maxReadsPerAlignmentStart")
+    public Object[][] maxReadsPerAlignmentStart() {
+        // the default, and a value low enough for most alignment starts to be downsampled
+        return new Object[][] { {50}, {1} };
+    }
+
+    @Test(dataProvider = "maxReadsPerAlignmentStart")
+    public void testMultithreadedTraversalDoesNotDependOnThreadCount(final int maxReadsPerAlignmentStart) throws Exception {
+        final String intervals = "-L 20:10000000-10020000 -L 21:10000000-10020000 -L 20:10050000-10060000";
+        final File twoThreadOutput = runWithTraversalThreads(2, maxReadsPerAlignmentStart, intervals, 5000);
+        final File fourThreadOutput = runWithTraversalThreads(4, maxReadsPerAlignmentStart, intervals, 5000);
+
+        IntegrationTestSpec.assertEqualTextFiles(fourThreadOutput, twoThreadOutput);
+    }
+
+    private File runWithTraversalThreads(final int traversalThreads, final int maxReadsPerAlignmentStart,
+                                         final String intervals, final int traversalShardSize) throws Exception {
+        final File out = createTempFile("testMultithreadedTraversal", ".txt");
+        final ArgumentsBuilder args = new ArgumentsBuilder();
+        args.addReference(new File(b37_reference_20_21));
+        args.addInput(new File(NA12878_20_21_WGS_bam));
+        args.addOutput(out);
+        args.add("-knownVariants " + dbsnp_138_b37_20_21_vcf);
+        args.add(intervals);
+        args.add("--" + AssemblyRegionWalker.TRAVERSAL_THREADS_LONG_NAME + " " + traversalThreads);
+        args.add("--" + AssemblyRegionWalker.TRAVERSAL_SHARD_SIZE_LONG_NAME + " " + traversalShardSize);
+        args.add("--" + AssemblyRegionWalker.MAX_STARTS_LONG_NAME + " " + maxReadsPerAlignmentStart);
+        runCommandLine(args);
+        return out;
+    }
 }
@@ -9,6 +9,7 @@ import org.apache.spark.api.java.JavaSparkContext;
 import org.broadinstitute.hellbender.engine.spark.SparkContextFactory;
 import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.read.markduplicates.DuplicateSetKey;
 import org.broadinstitute.hellbender.utils.read.markduplicates.ReadsKey;
 import org.broadinstitute.hellbender.GATKBaseTest;
 import org.testng.Assert;
@@ -19,6 +20,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 public class MarkDuplicatesSparkUtilsUnitTest extends GATKBaseTest {
     @Test(groups = "spark")
@@ -67,6 +69,29 @@ public class MarkDuplicatesSparkUtilsUnitTest extends GATKBaseTest {
                 ImmutableList.of(pairIterable(key1, read1, read3), pairIterable(key2, read2, read4)));
     }
 
+    @Test
+    public void testDuplicateSetKeyPartitioner() {
+        final SAMFileHeader header = ArtificialReadUtils.createArtificialSamHeaderWithGroups(2, 1, 1000000, 1);
+        final Map<String, Integer> libraryIndices = DuplicateSetKey.getLibraryIndices(header);
+        final MarkDuplicatesSparkUtils.DuplicateSetKeyPartitioner partitioner = new MarkDuplicatesSparkUtils.DuplicateSetKeyPartitioner(7);
+        Assert.assertEquals(partitioner.numPartitions(), 7);
+
+        final GATKRead read = ArtificialReadUtils.createArtificialRead(header, "N", 0, 1, 20);
+        final GATKRead mate = ArtificialReadUtils.createArtificialRead(header, "N", 1, 500000, 20);
+        final int firstBinPartition = partitioner.getPartition(DuplicateSetKey.forFragment(header, libraryIndices, read));
+        // fragments and pairs starting in the same bin go to the same partition
+        read.setPosition(read.getContig(), 1000);
+        Assert.assertEquals(partitioner.getPartition(DuplicateSetKey.forPairedEnds(header, libraryIndices, read, mate)), firstBinPartition);
+        // the next bin goes to the next partition
+        read.setPosition(read.getContig(), 70000);
+        Assert.assertEquals(partitioner.getPartition(DuplicateSetKey.forFragment(header, libraryIndices, read)), (firstBinPartition + 1) % 7);
+        // reads clipped before the start of the contig don't get a negative partition
+        read.setCigar("10S10M");
+        read.setPosition(read.getContig(), 1);
+        final int partition = partitioner.getPartition(DuplicateSetKey.forFragment(header, libraryIndices, read));
+        Assert.assertTrue(partition >= 0 && partition < 7);
+    }
+
     private String getReadGroupId(final SAMFileHeader header, final int index) {
         return header.getReadGroups().get(index).getReadGroupId();
     }
@@ -0,0 +1,213 @@
+package org.broadinstitute.hellbender.tools.walkers.haplotypecaller;
+
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMReadGroupRecord;
+import htsjdk.samtools.reference.ReferenceSequenceFile;
+import htsjdk.variant.variantcontext.VariantContext;
+import org.apache.logging.log4j.LogManager;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.engine.AssemblyRegion;
+import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.readthreading.ReadThreadingAssembler;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.fasta.CachingIndexedFastaSequenceFile;
+import org.broadinstitute.hellbender.utils.genotyper.IndexedSampleList;
+import org.broadinstitute.hellbender.utils.genotyper.SampleList;
+import org.broadinstitute.hellbender.utils.haplotype.Haplotype;
+import org.broadinstitute.hellbender.utils.io.IOUtils;
+import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.smithwaterman.SmithWatermanAligner;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public final class AssemblyResultCacheUnitTest extends GATKBaseTest {
+
+    private static final String SAMPLE = "sample";
+    private static final String READ_GROUP = "rg";
+    private static final SimpleInterval ACTIVE_SPAN = new SimpleInterval("1", 12050, 12150);
+    private static final int EXTENSION = 100;
+    private static final int SNP_POSITION = 12100;
+    private static final int READ_LENGTH = 100;
+
+    private ReferenceSequenceFile reference;
+    private SAMFileHeader header;
+    private SampleList samples;
+
+    @BeforeClass
+    public void init() throws IOException {
+        reference = new CachingIndexedFastaSequenceFile(IOUtils.getPath(hg19MiniReference));
+        header = new SAMFileHeader();
+        header.setSequenceDictionary(reference.getSequenceDictionary());
+        final SAMReadGroupRecord readGroup = new SAMReadGroupRecord(READ_GROUP);
+        readGroup.setSample(SAMPLE);
+        header.addReadGroup(readGroup);
+        samples = new IndexedSampleList(SAMPLE);
+    }
+
+    @AfterClass
+    public void tearDown() throws IOException {
+        reference.close();
+    }
+
+    // Reads tiling the extended region, every other one carrying a SNP
+    private AssemblyRegion makeRegion(final byte snpBase) {
+        final SimpleInterval extendedSpan = new SimpleInterval(ACTIVE_SPAN.getContig(), ACTIVE_SPAN.getStart() - EXTENSION, ACTIVE_SPAN.getEnd() + EXTENSION);
+        final AssemblyRegion region = new AssemblyRegion(ACTIVE_SPAN, Collections.emptyList(), true, EXTENSION, header);
+        final List<GATKRead> reads = new ArrayList<>();
+        int readNumber = 0;
+        for ( int start = extendedSpan.getStart(); start + READ_LENGTH - 1 <= extendedSpan.getEnd(); start += 5 ) {
+            final byte[] bases = reference.getSubsequenceAt(ACTIVE_SPAN.getContig(), start, start + READ_LENGTH - 1).getBases();
+            if ( readNumber % 2 == 0 && start <= SNP_POSITION && SNP_POSITION < start + READ_LENGTH ) {
+                bases[SNP_POSITION - start] = snpBase;
+            }
+            final byte[] quals = new byte[READ_LENGTH];
+            Arrays.fill(quals, (byte)30);
+            final GATKRead read = ArtificialReadUtils.createArtificialRead(header, "read" + readNumber++, ACTIVE_SPAN.getContig(), start, bases, quals, READ_LENGTH + "M");
+            read.setMappingQuality(60);
+            read.setReadGroup(READ_GROUP);
+            reads.add(read);
+        }
+        region.addAll(reads);
+        return region;
+    }
+
+    private AssemblyResultSet assemble(final AssemblyRegion region, final HaplotypeCallerArgumentCollection hcArgs, final AssemblyResultCache cache) {
+        final ReadThreadingAssembler assemblyEngine = AssemblyBasedCallerUtils.createReadThreadingAssembler(hcArgs);
+        try ( final SmithWatermanAligner aligner = SmithWatermanAligner.getAligner(SmithWatermanAligner.Implementation.JAVA) ) {
+            return AssemblyBasedCallerUtils.assembleReads(region, Collections.emptyList(), hcArgs, header, samples,
+                    LogManager.getLogger(AssemblyResultCacheUnitTest.class), reference, assemblyEngine, aligner, cache);
+        }
+    }
+
+    private static void assertSameAssemblyResult(final AssemblyResultSet actual, final AssemblyResultSet expected) {
+        final List<Haplotype> actualHaplotypes = actual.getHaplotypeList();
+        final List<Haplotype> expectedHaplotypes = expected.getHaplotypeList();
+        Assert.assertEquals(actualHaplotypes, expectedHaplotypes);
+        for ( int i = 0; i < expectedHaplotypes.size(); ++i ) {
+            final Haplotype actualHaplotype = actualHaplotypes.get(i);
+            final Haplotype expectedHaplotype = expectedHaplotypes.get(i);
+            Assert.assertEquals(actualHaplotype.isReference(), expectedHaplotype.isReference());
+            Assert.assertEquals(actualHaplotype.getCigar(), expectedHaplotype.getCigar());
+            Assert.assertEquals(actualHaplotype.getAlignmentStartHapwrtRef(), expectedHaplotype.getAlignmentStartHapwrtRef());
+            Assert.assertEquals(actualHaplotype.getScore(), expectedHaplotype.getScore());
+            Assert.assertEquals(new SimpleInterval(actualHaplotype.getGenomeLocation()), new SimpleInterval(expectedHaplotype.getGenomeLocation()));
+            final AssemblyResult expectedAssemblyResult = expected.getAssemblyResultForHaplotype(expectedHaplotype);
+            final AssemblyResult actualAssemblyResult = actual.getAssemblyResultForHaplotype(actualHaplotype);
+            Assert.assertEquals(actualAssemblyResult == null, expectedAssemblyResult == null);
+            if ( expectedAssemblyResult != null ) {
+                Assert.assertEquals(actualAssemblyResult.getKmerSize(), expectedAssemblyResult.getKmerSize());
+                Assert.assertEquals(actualAssemblyResult.getStatus(), expectedAssemblyResult.getStatus());
+            }
+        }
+        Assert.assertEquals(actual.isVariationPresent(), expected.isVariationPresent());
+        Assert.assertEquals(actual.getMinimumKmerSize(), expected.getMinimumKmerSize());
+        Assert.assertEquals(actual.getMaximumKmerSize(), expected.getMaximumKmerSize());
+        Assert.assertEquals(actual.getPaddedReferenceLoc(), expected.getPaddedReferenceLoc());
+        Assert.assertEquals(actual.getFullReferenceWithPadding(), expected.getFullReferenceWithPadding());
+        Assert.assertEquals(actual.getVariationEvents().stream().map(VariantContext::toStringWithoutGenotypes).collect(Collectors.toList()),
+                expected.getVariationEvents().stream().map(VariantContext::toStringWithoutGenotypes).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testCachedResultMatchesAssembly() {
+        final File cacheDir = createTempDir("assemblyResultCache");
+        final HaplotypeCallerArgumentCollection hcArgs = new HaplotypeCallerArgumentCollection();
+
+        final AssemblyResultSet uncached = assemble(makeRegion((byte)'T'), hcArgs, null);
+        Assert.assertTrue(uncached.isVariationPresent());
+
+        final AssemblyResultCache firstRunCache = new AssemblyResultCache(cacheDir.getAbsolutePath(), hcArgs);
+        assertSameAssemblyResult(assemble(makeRegion((byte)'T'), hcArgs, firstRunCache), uncached);
+        Assert.assertEquals(firstRunCache.getNumHits(), 0);
+        Assert.assertEquals(firstRunCache.getNumMisses(), 1);
+
+        // a later run with the same inputs finds the result
+        final AssemblyResultCache secondRunCache = new AssemblyResultCache(cacheDir.getAbsolutePath(), hcArgs);
+        final AssemblyRegion region = makeRegion((byte)'T');
+        final AssemblyResultSet cached = assemble(region, hcArgs, secondRunCache);
+        Assert.assertEquals(secondRunCache.getNumHits(), 1);
+        Assert.assertEquals(secondRunCache.getNumMisses(), 0);
+        Assert.assertSame(cached.getRegionForGenotyping(), region);
+        assertSameAssemblyResult(cached, uncached);
+    }
+
+    @Test
+    public void testChangedInputsMissTheCache() {
+        final File cacheDir = createTempDir("assemblyResultCache");
+        final HaplotypeCallerArgumentCollection hcArgs = new HaplotypeCallerArgumentCollection();
+        final AssemblyResultCache cache = new AssemblyResultCache(cacheDir.getAbsolutePath(), hcArgs);
+        assemble(makeRegion((byte)'T'), hcArgs, cache);
+
+        // different reads
+        final AssemblyResultSet differentReads = assemble(makeRegion((byte)'A'), hcArgs, cache);
+        Assert.assertEquals(cache.getNumHits(), 0);
+        assertSameAssemblyResult(differentReads, assemble(makeRegion((byte)'A'), hcArgs, null));
+
+        // different assembler arguments
+        final HaplotypeCallerArgumentCollection otherArgs = new HaplotypeCallerArgumentCollection();
+        otherArgs.assemblerArgs.kmerSizes = Arrays.asList(15, 35);
+        final AssemblyResultCache otherArgsCache = new AssemblyResultCache(cacheDir.getAbsolutePath(), otherArgs);
+        assemble(makeRegion((byte)'T'), otherArgs, otherArgsCache);
+        Assert.assertEquals(otherArgsCache.getNumHits(), 0);
+
+        // a different GATK version
+        final AssemblyResultCache otherVersionCache = new AssemblyResultCache(cacheDir.getAbsolutePath(), hcArgs, "some.other.version");
+        assemble(makeRegion((byte)'T'), hcArgs, otherVersionCache);
+        Assert.assertEquals(otherVersionCache.getNumHits(), 0);
+
+        // but the original inputs still hit
+        assemble(makeRegion((byte)'T'), hcArgs, cache);
+        Assert.assertEquals(cache.getNumHits(), 1);
+    }
+
+    @Test
+    public void testCacheIsNotUsedWhenWritingGraphs() {
+        final File cacheDir = createTempDir("assemblyResultCache");
+        final HaplotypeCallerArgumentCollection hcArgs = new HaplotypeCallerArgumentCollection();
+        assemble(makeRegion((byte)'T'), hcArgs, new AssemblyResultCache(cacheDir.getAbsolutePath(), hcArgs));
+
+        final HaplotypeCallerArgumentCollection graphArgs = new HaplotypeCallerArgumentCollection();
+        graphArgs.assemblerArgs.graphOutput = createTempFile("graphs", ".dot").getAbsolutePath();
+        final AssemblyResultCache cache = new AssemblyResultCache(cacheDir.getAbsolutePath(), graphArgs);
+        assemble(makeRegion((byte)'T'), graphArgs, cache);
+        Assert.assertEquals(cache.getNumHits(), 0);
+        Assert.assertEquals(cache.getNumMisses(), 0);
+    }
+
+    @Test
+    public void testUnreadableEntriesAreIgnored() throws IOException {
+        final File cacheDir = createTempDir("assemblyResultCache");
+        final HaplotypeCallerArgumentCollection hcArgs = new HaplotypeCallerArgumentCollection();
+        final AssemblyResultSet expected = assemble(makeRegion((byte)'T'), hcArgs, new AssemblyResultCache(cacheDir.getAbsolutePath(), hcArgs));
+
+        final List<Path> entries;
+        try ( final Stream<Path> files = Files.walk(cacheDir.toPath()) ) {
+            entries = files.filter(Files::isRegularFile).collect(Collectors.toList());
+        }
+        Assert.assertEquals(entries.size(), 1);
+        Files.write(entries.get(0), new byte[]{1, 2, 3});
+
+        final AssemblyResultCache cache = new AssemblyResultCache(cacheDir.getAbsolutePath(), hcArgs);
+        assertSameAssemblyResult(assemble(makeRegion((byte)'T'), hcArgs, cache), expected);
+        Assert.assertEquals(cache.getNumHits(), 0);
+        Assert.assertEquals(cache.getNumMisses(), 1);
+
+        // the bad entry was replaced by a good one
+        final AssemblyResultCache laterCache = new AssemblyResultCache(cacheDir.getAbsolutePath(), hcArgs);
+        assertSameAssemblyResult(assemble(makeRegion((byte)'T'), hcArgs, laterCache), expected);
+        Assert.assertEquals(laterCache.getNumHits(), 1);
+    }
+}
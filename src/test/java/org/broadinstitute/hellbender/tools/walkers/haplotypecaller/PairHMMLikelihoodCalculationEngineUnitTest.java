@@ -7,6 +7,7 @@ import htsjdk.variant.variantcontext.Allele;
 import org.broadinstitute.gatk.nativebindings.pairhmm.PairHMMNativeArguments;
 import org.broadinstitute.hellbender.utils.MathUtils;
 import org.broadinstitute.hellbender.utils.QualityUtils;
+import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.genotyper.IndexedSampleList;
 import org.broadinstitute.hellbender.utils.genotyper.LikelihoodMatrix;
 import org.broadinstitute.hellbender.utils.genotyper.ReadLikelihoods;
@@ -204,4 +205,46 @@ public final class PairHMMLikelihoodCalculationEngineUnitTest extends GATKBaseTe
         lce.close();
         new File(PairHMMLikelihoodCalculationEngine.LIKELIHOODS_FILENAME).delete();
     }
+
+    @Test
+    public void testDuplicateReadsGetTheSameLikelihoods() {
+        // testComputeLikelihoods may have turned this on
+        PairHMMLikelihoodCalculationEngine.writeLikelihoodsToFile = false;
+        final String sample = "sample1";
+        final byte[] refBases = "ACGTTGCAACGTAGCTAGCTGACTGACCATGCA".getBytes();
+        final byte[] altBases = "ACGTTGCAACGTAGCTTGCTGACTGACCATGCA".getBytes();
+        // three groups of duplicates, differing in bases, base qualities and mapping quality (which caps base qualities)
+        final List<GATKRead> reads = new ArrayList<>();
+        for ( int i = 0; i < 12; i++ ) {
+            final byte[] bases = Arrays.copyOfRange(i % 3 == 0 ? altBases : refBases, 5, 25);
+            final byte[] quals = Utils.dupBytes(i % 3 == 1 ? (byte) 20 : (byte) 30, bases.length);
+            final GATKRead read = ArtificialReadUtils.createArtificialRead(bases, quals, bases.length + "M");
+            read.setName("read" + i);
+            read.setMappingQuality(i % 3 == 2 && i > 6 ? 25 : 60);
+            reads.add(read);
+        }
+        final Map<String, List<GATKRead>> perSampleReadList = Collections.singletonMap(sample, reads);
+
+        final AssemblyResultSet assemblyResultSet = new AssemblyResultSet();
+        for ( final Haplotype haplotype : Arrays.asList(new Haplotype(refBases, true), new Haplotype(altBases, false)) ) {
+            haplotype.setGenomeLocation(reads.get(0));
+            assemblyResultSet.add(haplotype);
+        }
+
+        final ReadLikelihoodCalculationEngine lce = new PairHMMLikelihoodCalculationEngine((byte) 10, new PairHMMNativeArguments(),
+                PairHMM.Implementation.LOGLESS_CACHING, -4.5, PairHMMLikelihoodCalculationEngine.PCRErrorModel.CONSERVATIVE);
+        final LikelihoodMatrix<Haplotype> likelihoods = lce.computeReadLikelihoods(assemblyResultSet, new IndexedSampleList(sample), perSampleReadList).sampleMatrix(0);
+
+        // each read on its own
+        for ( int r = 0; r < reads.size(); r++ ) {
+            final LikelihoodMatrix<Haplotype> single = lce.computeReadLikelihoods(assemblyResultSet, new IndexedSampleList(sample),
+                    Collections.singletonMap(sample, Collections.singletonList(reads.get(r)))).sampleMatrix(0);
+            for ( int a = 0; a < likelihoods.numberOfAlleles(); a++ ) {
+                Assert.assertEquals(likelihoods.get(a, r), single.get(a, 0), 1e-10, "read " + r + " haplotype " + a);
+            }
+        }
+        Assert.assertNotEquals(likelihoods.get(0, 0), likelihoods.get(0, 1));
+        Assert.assertNotEquals(likelihoods.get(0, 2), likelihoods.get(0, 11));
+        lce.close();
+    }
 }
@@ -0,0 +1,95 @@
+package org.broadinstitute.hellbender.tools.walkers.haplotypecaller.readthreading;
+
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.Kmer;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.*;
+
+public final class PackedKmerMapUnitTest extends GATKBaseTest {
+    private static final byte[] BASES = {'A', 'C', 'G', 'T'};
+
+    @DataProvider(name = "kmerSizes")
+    public Object[][] kmerSizes() {
+        return new Object[][] {{1}, {10}, {25}, {32}, {33}, {65}};
+    }
+
+    // a random sequence over a small alphabet, so short kmers repeat, with an occasional N
+    private static byte[] randomSequence(final Random random, final int length) {
+        final byte[] sequence = new byte[length];
+        for ( int i = 0; i < length; i++ ) {
+            sequence[i] = random.nextInt(100) == 0 ? (byte)'N' : BASES[random.nextInt(BASES.length)];
+        }
+        return sequence;
+    }
+
+    @Test(dataProvider = "kmerSizes")
+    public void testAgreesWithHashMap(final int kmerSize) {
+        final Random random = new Random(kmerSize);
+        final PackedKmerMap<Integer> map = new PackedKmerMap<>(kmerSize);
+        final Map<Kmer, Integer> expected = new HashMap<>();
+        Assert.assertEquals(map.getKmerSize(), kmerSize);
+
+        final byte[] sequence = randomSequence(random, 5000);
+        for ( int start = 0; start + kmerSize <= sequence.length; start++ ) {
+            final Kmer kmer = new Kmer(sequence, start, kmerSize);
+            Assert.assertEquals(map.putIfAbsent(sequence, start, start), expected.putIfAbsent(kmer, start));
+
+            // remove every third kmer, possibly one added much earlier, to exercise deletion from probe sequences
+            if ( start % 3 == 0 ) {
+                final int removeStart = random.nextInt(start + 1);
+                Assert.assertEquals(map.remove(sequence, removeStart), expected.remove(new Kmer(sequence, removeStart, kmerSize)));
+            }
+            Assert.assertEquals(map.size(), expected.size());
+        }
+
+        for ( int start = 0; start + kmerSize <= sequence.length; start++ ) {
+            final Kmer kmer = new Kmer(sequence, start, kmerSize);
+            Assert.assertEquals(map.get(sequence, start), expected.get(kmer));
+            Assert.assertEquals(map.containsKey(sequence, start), expected.containsKey(kmer));
+        }
+
+        // kmers not in the sequence at all
+        final byte[] other = randomSequence(new Random(-kmerSize), 500);
+        for ( int start = 0; start + kmerSize <= other.length; start++ ) {
+            Assert.assertEquals(map.get(other, start), expected.get(new Kmer(other, start, kmerSize)));
+        }
+
+        Assert.assertEquals(new HashSet<>(map.keys()), expected.keySet());
+        Assert.assertEquals(map.keys().size(), expected.size());
+        Assert.assertEquals(new HashSet<>(map.values()), new HashSet<>(expected.values()));
+
+        map.clear();
+        Assert.assertEquals(map.size(), 0);
+        Assert.assertTrue(map.keys().isEmpty());
+        Assert.assertNull(map.get(sequence, 0));
+    }
+
+    @Test
+    public void testUnpackableKmers() {
+        final byte[] sequence = "ACGTNACGTacgt".getBytes();
+        final PackedKmerSet set = new PackedKmerSet(4, 1);
+        for ( int start = 0; start + 4 <= sequence.length; start++ ) {
+            set.add(sequence, start);
+        }
+        // ACGT occurs twice, and lower case bases are distinct from upper case ones, as they are for Kmer
+        Assert.assertEquals(set.size(), 9);
+        Assert.assertTrue(set.contains("TNAC".getBytes(), 0));
+        Assert.assertTrue(set.contains("acgt".getBytes(), 0));
+        Assert.assertFalse(set.contains("NNNN".getBytes(), 0));
+        Assert.assertFalse(set.add("xACGT".getBytes(), 1));
+
+        final Set<String> kmers = new HashSet<>();
+        for ( final Kmer kmer : set.toKmers() ) {
+            kmers.add(new String(kmer.bases()));
+        }
+        Assert.assertEquals(kmers, new HashSet<>(Arrays.asList("ACGT", "CGTN", "GTNA", "TNAC", "NACG", "CGTa", "GTac", "Tacg", "acgt")));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testKmerBeyondEndOfSequence() {
+        new PackedKmerMap<Integer>(5).get("ACGT".getBytes(), 0);
+    }
+}
@@ -226,6 +226,63 @@ public final class ReadThreadingAssemblerUnitTest extends GATKBaseTest {
         Assert.assertEquals(haplotypes.get(1), altHaplotype);
     }
 
+    @DataProvider(name = "ConcurrentKmerSizesData")
+    public Object[][] makeConcurrentKmerSizesData() {
+        final List<Object[]> tests = new ArrayList<>();
+        for ( final List<Integer> kmerSizes : Arrays.asList(Arrays.asList(10, 25), Arrays.asList(5, 10, 15, 20, 25, 30), Arrays.asList(3, 4)) ) {
+            for ( final int numThreads : Arrays.asList(2, 4) ) {
+                tests.add(new Object[]{kmerSizes, numThreads});
+            }
+        }
+        return tests.toArray(new Object[][]{});
+    }
+
+    @Test(dataProvider = "ConcurrentKmerSizesData")
+    public void testConcurrentKmerSizesMatchSequential(final List<Integer> kmerSizes, final int numThreads) {
+        final SimpleInterval loc = new SimpleInterval("1", 100000, 100200);
+        final byte[] refBases = seq.getSubsequenceAt(loc.getContig(), loc.getStart(), loc.getEnd()).getBases();
+
+        // reads carrying a SNP and a deletion on alternate reads, plus reads with sequencing errors
+        final Random random = new Random(kmerSizes.size() * 31 + numThreads);
+        final List<GATKRead> reads = new LinkedList<>();
+        for ( int i = 0; i < 30; i++ ) {
+            final StringBuilder alt = new StringBuilder(new String(refBases));
+            if ( i % 2 == 0 ) {
+                alt.setCharAt(100, alt.charAt(100) == 'A' ? 'C' : 'A');
+            } else {
+                alt.delete(60, 63);
+            }
+            if ( i % 5 == 0 ) {
+                final int errorPos = random.nextInt(alt.length());
+                alt.setCharAt(errorPos, alt.charAt(errorPos) == 'G' ? 'T' : 'G');
+            }
+            final byte[] bases = alt.toString().getBytes();
+            reads.add(ArtificialReadUtils.createArtificialRead(header, "read" + i, loc.getContig(), loc.getStart(), bases, Utils.dupBytes((byte) 30, bases.length), bases.length + "M"));
+        }
+
+        final ReadThreadingAssembler sequentialAssembler = new ReadThreadingAssembler(128, kmerSizes, false, false, 1);
+        final ReadThreadingAssembler concurrentAssembler = new ReadThreadingAssembler(128, kmerSizes, false, false, 1);
+        concurrentAssembler.setNumKmerSizeThreads(numThreads);
+        Assert.assertEquals(concurrentAssembler.getNumKmerSizeThreads(), numThreads);
+
+        // the order of haplotypes with equal scores isn't deterministic even when assembling sequentially, so compare them by their bases
+        final Map<Haplotype, Haplotype> expected = new HashMap<>();
+        assemble(sequentialAssembler, refBases, loc, reads).forEach(h -> expected.put(h, h));
+        for ( int i = 0; i < 3; i++ ) {
+            final List<Haplotype> actual = assemble(concurrentAssembler, refBases, loc, reads);
+            Assert.assertEquals(new HashSet<>(actual), expected.keySet());
+            for ( final Haplotype haplotype : actual ) {
+                Assert.assertEquals(haplotype.getCigar(), expected.get(haplotype).getCigar());
+                Assert.assertEquals(haplotype.getScore(), expected.get(haplotype).getScore());
+            }
+        }
+
+        // closing the assembler shuts its threads down, after which it assembles on the calling thread
+        concurrentAssembler.close();
+        Assert.assertEquals(concurrentAssembler.getNumKmerSizeThreads(), 1);
+        Assert.assertEquals(new HashSet<>(assemble(concurrentAssembler, refBases, loc, reads)), expected.keySet());
+    }
+
     private static class TestAssembler {
         final ReadThreadingAssembler assembler;
         private final SAMFileHeader header;
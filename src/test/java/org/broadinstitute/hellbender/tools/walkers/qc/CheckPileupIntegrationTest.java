@@ -1,13 +1,18 @@
 package org.broadinstitute.hellbender.tools.walkers.qc;
 
 import org.broadinstitute.hellbender.CommandLineProgramTest;
+import org.broadinstitute.hellbender.engine.ParallelLocusWalker;
 import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.test.ArgumentsBuilder;
 import org.broadinstitute.hellbender.utils.test.IntegrationTestSpec;
+import org.testng.Assert;
 import org.testng.annotations.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.Arrays;
+import java.util.List;
 
 /**
  * Run validating pileup across a set of core data as proof of the integrity of the GATK core.
@@ -54,4 +59,25 @@ public class CheckPileupIntegrationTest extends CommandLineProgramTest {
         testSpec.executeTest("testBasicPileup", this);
     }
 
+    @Test
+    public void testMultithreadedCheckPileupMatchesSingleThreaded() throws IOException {
+        final File singleThreadedOutput = createTempFile("singleThreadedCheckPileup", ".txt");
+        final File multiThreadedOutput = createTempFile("multiThreadedCheckPileup", ".txt");
+
+        // the BAQ pileup differs from the GATK's one at many loci, so the mismatches must be reported in order
+        for ( final File output : Arrays.asList(singleThreadedOutput, multiThreadedOutput) ) {
+            final ArgumentsBuilder args = new ArgumentsBuilder();
+            args.addBooleanArgument("continue-after-error", true);
+            args.addReference(new File(hg19MiniReference));
+            args.addInput(new File(TEST_DATA_DIRECTORY + "reads_data_source_test1.bam"));
+            args.addArgument("pileup", TEST_OUTPUT_DIRECTORY + "reads_data_source_test1.samtools.baq.pileup");
+            args.addArgument(ParallelLocusWalker.TRAVERSAL_THREADS_LONG_NAME, output == singleThreadedOutput ? "1" : "3");
+            args.addOutput(output);
+            runCommandLine(args);
+        }
+
+        final List<String> expectedLines = Files.readAllLines(singleThreadedOutput.toPath());
+        Assert.assertFalse(expectedLines.isEmpty());
+        Assert.assertEquals(Files.readAllLines(multiThreadedOutput.toPath()), expectedLines);
+    }
 }
@@ -1,13 +1,21 @@
 package org.broadinstitute.hellbender.tools.walkers.qc;
 
+import org.broadinstitute.barclay.argparser.CommandLineException;
 import org.broadinstitute.hellbender.CommandLineProgramTest;
+import org.broadinstitute.hellbender.engine.ParallelLocusWalker;
 import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.test.ArgumentsBuilder;
 import org.broadinstitute.hellbender.utils.test.IntegrationTestSpec;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -86,5 +94,44 @@ public class PileupIntegrationTest extends CommandLineProgramTest {
         runCommandLine(args);
     }
 
+    @DataProvider(name = "multithreadedPileupData")
+    public Object[][] getMultithreadedPileupData() {
+        return new Object[][] {
+                { b37_reference_20_21, NA12878_20_21_WGS_bam, Arrays.asList("20:9999900-10000000", "21:9999900-10000000", "20:10000092-10000112") },
+                { hg19MiniReference, publicTestDir + "org/broadinstitute/hellbender/engine/reads_data_source_test1.bam", Collections.emptyList() },
+                // without an index, the reads are traversed on a single thread
+                { hg19MiniReference, publicTestDir + "org/broadinstitute/hellbender/engine/unindexed.bam", Collections.emptyList() }
+        };
+    }
+
+    @Test(dataProvider = "multithreadedPileupData")
+    public void testMultithreadedPileupMatchesSingleThreaded(final String reference, final String bam, final List<String> intervals) throws IOException {
+        final File singleThreadedOutput = createTempFile("singleThreadedPileup", ".txt");
+        final File multiThreadedOutput = createTempFile("multiThreadedPileup", ".txt");
+
+        for ( final File output : Arrays.asList(singleThreadedOutput, multiThreadedOutput) ) {
+            final ArgumentsBuilder args = new ArgumentsBuilder();
+            args.addReference(new File(reference));
+            args.addInput(new File(bam));
+            intervals.forEach(interval -> args.addArgument("L", interval));
+            args.addArgument(ParallelLocusWalker.TRAVERSAL_THREADS_LONG_NAME, output == singleThreadedOutput ? "1" : "3");
+            args.addOutput(output);
+            runCommandLine(args);
+        }
 
+        final List<String> expectedLines = Files.readAllLines(singleThreadedOutput.toPath());
+        Assert.assertFalse(expectedLines.isEmpty());
+        Assert.assertEquals(Files.readAllLines(multiThreadedOutput.toPath()), expectedLines);
+    }
+
+    @Test(expectedExceptions = CommandLineException.BadArgumentValue.class)
+    public void testMultithreadedPileupWithDownsampling() throws IOException {
+        final ArgumentsBuilder args = new ArgumentsBuilder();
+        args.addReference(new File(hg19MiniReference));
+        args.addInput(new File(publicTestDir + "org/broadinstitute/hellbender/engine/reads_data_source_test1.bam"));
+        args.addArgument("maxDepthPerSample", "10");
+        args.addArgument(ParallelLocusWalker.TRAVERSAL_THREADS_LONG_NAME, "3");
+        args.addOutput(createTempFile("multiThreadedPileup", ".txt"));
+        runCommandLine(args);
+    }
 }
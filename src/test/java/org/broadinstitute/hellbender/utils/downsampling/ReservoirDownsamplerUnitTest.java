@@ -129,4 +129,26 @@ public final class ReservoirDownsamplerUnitTest extends GATKBaseTest {
         ReadsDownsampler rd = new ReservoirDownsampler(1, true);
         rd.signalNoMoreReadsBefore(null);
     }
+
+    @Test
+    public void testSameRandomGeneratorSeedRetainsSameReads() throws Exception {
+        final SAMFileHeader header = ArtificialReadUtils.createArtificialSamHeader(1, 1, 1000000);
+        final List<GATKRead> reads = new ArrayList<>();
+        for ( int i = 0; i < 1000; i++ ) {
+            reads.add(ArtificialReadUtils.createArtificialRead(header, "read" + i, 0, 1, 100));
+        }
+
+        final List<GATKRead> retained = downsampleWithShardRandomGenerator(reads, 0);
+        // draws from other generators, such as the GATK one, don't affect which reads are retained
+        Utils.getRandomGenerator().nextInt();
+        Assert.assertEquals(downsampleWithShardRandomGenerator(reads, 0), retained);
+        Assert.assertNotEquals(downsampleWithShardRandomGenerator(reads, 1), retained);
+    }
+
+    private static List<GATKRead> downsampleWithShardRandomGenerator(final List<GATKRead> reads, final int shardIndex) {
+        final ReservoirDownsampler downsampler = new ReservoirDownsampler(10, false, Utils.makeShardRandomGenerator(shardIndex));
+        downsampler.submit(reads);
+        downsampler.signalEndOfInput();
+        return downsampler.consumeFinalizedItems();
+    }
 }
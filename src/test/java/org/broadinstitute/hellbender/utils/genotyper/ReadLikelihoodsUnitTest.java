@@ -391,6 +391,56 @@ public final class ReadLikelihoodsUnitTest {
     }
 
 
+    @Test(dataProvider = "dataSets")
+    public void testAddReadsAndAllelesAfterFiltering(final String[] samples, final Allele[] alleles, final Map<String,List<GATKRead>> reads) {
+        final ReadLikelihoods<Allele> original = new ReadLikelihoods<>(new IndexedSampleList(samples), new IndexedAlleleList<>(alleles), reads);
+        fillWithRandomLikelihoods(samples, alleles, original);
+        final ReadLikelihoods<Allele> result = original.copy();
+        final SimpleInterval evenReadOverlap = new SimpleInterval(SAM_HEADER.getSequenceDictionary().getSequences().get(0).getSequenceName(), EVEN_READ_START, EVEN_READ_START);
+        result.filterToOnlyOverlappingUnclippedReads(evenReadOverlap);
+
+        // add back the odd reads, twice over, which takes more room than the sample had to begin with
+        final Map<String,List<GATKRead>> readsToAdd = new LinkedHashMap<>();
+        for (int s = 0; s < samples.length; s++) {
+            final List<GATKRead> oddReads = new ArrayList<>();
+            for (int r = 1; r < original.sampleReadCount(s); r += 2) {
+                oddReads.add(original.sampleMatrix(s).getRead(r));
+            }
+            readsToAdd.put(samples[s], oddReads);
+        }
+        result.addReads(readsToAdd, -3.0);
+        result.addReads(readsToAdd, 0.0);
+        final Allele newAllele = Allele.create("ACCCCCAAAATTTAAAGGG".getBytes(), false);
+        result.addMissingAlleles(Collections.singletonList(newAllele), -12.5);
+
+        final double[][][] expectedLikelihoods = new double[samples.length][alleles.length + 1][];
+        for (int s = 0; s < samples.length; s++) {
+            final int evenReadCount = (original.sampleReadCount(s) + 1) / 2;
+            final int oddReadCount = original.sampleReadCount(s) / 2;
+            Assert.assertEquals(result.sampleReadCount(s), evenReadCount + 2 * oddReadCount);
+            for (int a = 0; a <= alleles.length; a++) {
+                expectedLikelihoods[s][a] = new double[result.sampleReadCount(s)];
+                for (int r = 0; r < result.sampleReadCount(s); r++) {
+                    expectedLikelihoods[s][a][r] = a == alleles.length ? -12.5
+                            : r < evenReadCount ? original.sampleMatrix(s).get(a, 2 * r)
+                            : r < evenReadCount + oddReadCount ? -3.0 : 0.0;
+                }
+            }
+            for (int r = 0; r < result.sampleReadCount(s); r++) {
+                final GATKRead expectedRead = r < evenReadCount ? original.sampleMatrix(s).getRead(2 * r)
+                        : readsToAdd.get(samples[s]).get((r - evenReadCount) % Math.max(oddReadCount, 1));
+                Assert.assertSame(result.sampleMatrix(s).getRead(r), expectedRead);
+            }
+        }
+        testLikelihoodMatrixQueries(samples, result, expectedLikelihoods);
+
+        // copying and marginalizing the result keeps the likelihoods
+        testLikelihoodMatrixQueries(samples, result.copy(), expectedLikelihoods);
+        final Map<Allele,List<Allele>> identityMap = new LinkedHashMap<>();
+        result.alleles().forEach(allele -> identityMap.put(allele, Collections.singletonList(allele)));
+        testLikelihoodMatrixQueries(samples, result.marginalize(identityMap), expectedLikelihoods);
+    }
+
     @Test(dataProvider = "dataSets")
     public void testAddNonRefAllele(final String[] samples, final Allele[] alleles, final Map<String,List<GATKRead>> reads) {
         final ReadLikelihoods<Allele> original = new ReadLikelihoods<>(new IndexedSampleList(samples), new IndexedAlleleList<>(alleles), reads);
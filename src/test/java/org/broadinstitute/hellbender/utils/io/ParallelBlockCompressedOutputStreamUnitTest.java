@@ -0,0 +1,150 @@
+package org.broadinstitute.hellbender.utils.io;
+
+import htsjdk.samtools.util.BlockCompressedInputStream;
+import htsjdk.samtools.util.BlockCompressedOutputStream;
+import htsjdk.samtools.util.LocationAware;
+import htsjdk.samtools.util.zip.DeflaterFactory;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+public final class ParallelBlockCompressedOutputStreamUnitTest extends GATKBaseTest {
+
+    // writes the same sequence of chunks of bases and random bytes, with a few flushes, to a stream, and returns the
+    // positions of the stream before each chunk, and at the end
+    private static List<Long> writeChunks(final OutputStream out, final long seed) throws IOException {
+        final Random random = new Random(seed);
+        final List<Long> positions = new ArrayList<>();
+        for ( int i = 0; i < 2000; i++ ) {
+            positions.add(((LocationAware) out).getPosition());
+            final byte[] chunk = new byte[random.nextInt(i % 100 == 0 ? 100000 : 500)];
+            if ( random.nextInt(10) == 0 ) {
+                random.nextBytes(chunk);
+            } else {
+                for ( int j = 0; j < chunk.length; j++ ) {
+                    chunk[j] = (byte) "ACGT".charAt(random.nextInt(4));
+                }
+            }
+            if ( chunk.length == 1 ) {
+                out.write(chunk[0]);
+            } else {
+                out.write(chunk);
+            }
+            if ( random.nextInt(500) == 0 ) {
+                out.flush();
+            }
+        }
+        positions.add(((LocationAware) out).getPosition());
+        return positions;
+    }
+
+    @DataProvider(name = "compression")
+    public Object[][] compression() {
+        return new Object[][] {
+                {1, 5},
+                {2, 5},
+                {4, 1},
+                {3, 9},
+                {2, 0}
+        };
+    }
+
+    @Test(dataProvider = "compression")
+    public void testMatchesBlockCompressedOutputStream(final int numThreads, final int compressionLevel) throws IOException {
+        final DeflaterFactory deflaterFactory = new DeflaterFactory();
+
+        final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        final BlockCompressedOutputStream expectedOut = new BlockCompressedOutputStream(expected, (File) null, compressionLevel, deflaterFactory);
+        final List<Long> expectedFilePointers = writeChunks(expectedOut, 20);
+        expectedOut.close();
+        expectedFilePointers.add(expectedOut.getPosition());
+
+        final ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        final List<Long> actualFilePointers = new ArrayList<>();
+        try ( final ParallelBlockCompressedOutputStream out = new ParallelBlockCompressedOutputStream(actual, compressionLevel, deflaterFactory, numThreads) ) {
+            final List<Long> positions = writeChunks(out, 20);
+            // register spans between consecutive positions, as a writer would for each record
+            for ( int i = 0; i + 1 < positions.size(); i++ ) {
+                final boolean first = i == 0;
+                out.whenWritten(positions.get(i), positions.get(i + 1), (start, end) -> {
+                    if ( first ) {
+                        actualFilePointers.add(start);
+                    }
+                    actualFilePointers.add(end);
+                });
+            }
+            out.close();
+            actualFilePointers.add(out.getFilePointer(out.getPosition()));
+        }
+
+        Assert.assertEquals(actual.toByteArray(), expected.toByteArray());
+        Assert.assertEquals(actualFilePointers, expectedFilePointers);
+    }
+
+    @Test
+    public void testSpansResolvedInOrder() throws IOException {
+        final byte[] data = new byte[1000000];
+        Arrays.fill(data, (byte) 'A');
+        final List<Integer> resolved = new ArrayList<>();
+        try ( final ParallelBlockCompressedOutputStream out = ParallelBlockCompressedOutputStream.withDefaultCompression(new ByteArrayOutputStream(), 2) ) {
+            final long start = out.getPosition();
+            out.write(data);
+            final long middle = out.getPosition();
+            out.write(data);
+            // a long span registered before a short one that ends earlier
+            out.whenWritten(start, out.getPosition(), (s, e) -> resolved.add(0));
+            out.whenWritten(middle, middle, (s, e) -> resolved.add(1));
+            out.close();
+        }
+        Assert.assertEquals(resolved, Arrays.asList(0, 1));
+    }
+
+    @Test
+    public void testReadBack() throws IOException {
+        final byte[] data = new byte[300000];
+        new Random(7).nextBytes(data);
+        final ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try ( final ParallelBlockCompressedOutputStream out = ParallelBlockCompressedOutputStream.withDefaultCompression(compressed, 3) ) {
+            out.write(data, 10, data.length - 10);
+        }
+        try ( final InputStream in = new BlockCompressedInputStream(new ByteArrayInputStream(compressed.toByteArray())) ) {
+            final byte[] read = new byte[data.length];
+            int n = 0;
+            for ( int r; (r = in.read(read, n, read.length - n)) > 0; ) {
+                n += r;
+            }
+            Assert.assertEquals(Arrays.copyOf(read, n), Arrays.copyOfRange(data, 10, data.length));
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testSpanBeforeRegisteredSpan() throws IOException {
+        try ( final ParallelBlockCompressedOutputStream out = ParallelBlockCompressedOutputStream.withDefaultCompression(new ByteArrayOutputStream(), 1) ) {
+            final long start = out.getPosition();
+            out.write(new byte[200000]);
+            final long middle = out.getPosition();
+            out.whenWritten(middle, middle, (s, e) -> {});
+            out.flush();
+            out.whenWritten(start, middle, (s, e) -> {});
+        }
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void testWriteAfterClose() throws IOException {
+        final ParallelBlockCompressedOutputStream out = ParallelBlockCompressedOutputStream.withDefaultCompression(new ByteArrayOutputStream(), 1);
+        out.close();
+        out.write(1);
+    }
+}
@@ -0,0 +1,135 @@
+package org.broadinstitute.hellbender.utils.iterators;
+
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+public class OrderedParallelShardIteratorUnitTest extends GATKBaseTest {
+
+    // Each shard is a count of items to produce; items are "shard:index" strings
+    private static final BiConsumer<Integer, Consumer<String>> COUNTING_PROCESSOR = (shardSize, sink) -> {
+        for ( int i = 0; i < shardSize; ++i ) {
+            sink.accept(shardSize + ":" + i);
+        }
+    };
+
+    private static List<String> expectedItems(final List<Integer> shards) {
+        final List<String> expected = new ArrayList<>();
+        for ( final int shardSize : shards ) {
+            for ( int i = 0; i < shardSize; ++i ) {
+                expected.add(shardSize + ":" + i);
+            }
+        }
+        return expected;
+    }
+
+    @DataProvider(name = "OrderingData")
+    public Object[][] getOrderingData() {
+        final Random random = new Random(1);
+        final List<Integer> manyShards = new ArrayList<>();
+        for ( int i = 0; i < 50; ++i ) {
+            manyShards.add(random.nextInt(500));
+        }
+
+        return new Object[][] {
+                { Collections.emptyList(), 1, 1, 1 },
+                { Collections.emptyList(), 4, 10, 2 },
+                { Arrays.asList(0, 0, 0), 2, 10, 2 },
+                { Arrays.asList(5), 1, 1, 1 },
+                { Arrays.asList(5, 0, 3), 3, 2, 1 },
+                { Arrays.asList(1000, 1, 10, 0, 100), 2, 7, 3 },
+                { manyShards, 1, 16, 4 },
+                { manyShards, 4, 1, 1 },
+                { manyShards, 8, 33, 2 }
+        };
+    }
+
+    @Test(dataProvider = "OrderingData")
+    public void testItemsReturnedInShardOrder(final List<Integer> shards, final int numThreads, final int batchSize, final int maxBufferedBatches) {
+        final List<String> actual = new ArrayList<>();
+        try ( final OrderedParallelShardIterator<Integer, String> iter =
+                      new OrderedParallelShardIterator<>(shards, COUNTING_PROCESSOR, numThreads, batchSize, maxBufferedBatches, "test-thread-%d") ) {
+            iter.forEachRemaining(actual::add);
+            Assert.assertFalse(iter.hasNext());
+        }
+
+        Assert.assertEquals(actual, expectedItems(shards));
+    }
+
+    @Test(expectedExceptions = UserException.class)
+    public void testWorkerExceptionRethrownOnConsumer() {
+        final BiConsumer<Integer, Consumer<String>> failingProcessor = (shardSize, sink) -> {
+            COUNTING_PROCESSOR.accept(shardSize, sink);
+            if ( shardSize == 3 ) {
+                throw new UserException("worker failure");
+            }
+        };
+
+        try ( final OrderedParallelShardIterator<Integer, String> iter =
+                      new OrderedParallelShardIterator<>(Arrays.asList(10, 3, 10), failingProcessor, 2, 2, 1, "test-thread-%d") ) {
+            final List<String> actual = new ArrayList<>();
+            try {
+                iter.forEachRemaining(actual::add);
+            }
+            finally {
+                // everything from the shards before the failed one must have been returned
+                Assert.assertEquals(actual.subList(0, 10), expectedItems(Arrays.asList(10)));
+            }
+        }
+    }
+
+    @Test
+    public void testCloseBeforeExhaustion() {
+        final OrderedParallelShardIterator<Integer, String> iter =
+                new OrderedParallelShardIterator<>(Arrays.asList(10000, 10000, 10000), COUNTING_PROCESSOR, 3, 1, 1, "test-thread-%d");
+        Assert.assertTrue(iter.hasNext());
+        Assert.assertEquals(iter.next(), "10000:0");
+
+        // workers blocked on their full buffers must be released
+        iter.close();
+        Assert.assertFalse(iter.hasNext());
+    }
+
+    @Test(timeOut = 30000)
+    public void testCloseWhileProcessorProducesNothing() throws InterruptedException {
+        // a processor that filters out everything it reads never hands an item to the sink, so it must check for
+        // cancellation itself, and must not be interrupted, which could close channels it shares with others
+        final CountDownLatch started = new CountDownLatch(1);
+        final AtomicBoolean stoppedWithoutInterrupt = new AtomicBoolean(false);
+        final OrderedParallelShardIterator<Integer, String> iter = new OrderedParallelShardIterator<Integer, String>(Arrays.asList(1, 2),
+                (shard, sink, cancelled) -> {
+                    started.countDown();
+                    while ( ! cancelled.getAsBoolean() ) {
+                        Thread.yield();
+                    }
+                    stoppedWithoutInterrupt.set(! Thread.currentThread().isInterrupted());
+                }, 1, 1, 1, "test-thread-%d");
+        started.await();
+
+        iter.close();
+        Assert.assertTrue(stoppedWithoutInterrupt.get());
+        Assert.assertFalse(iter.hasNext());
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testInvalidNumThreads() {
+        new OrderedParallelShardIterator<>(Arrays.asList(1), COUNTING_PROCESSOR, 0, 1, 1, "test-thread-%d");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testInvalidBatchSize() {
+        new OrderedParallelShardIterator<>(Arrays.asList(1), COUNTING_PROCESSOR, 1, 0, 1, "test-thread-%d");
+    }
+}
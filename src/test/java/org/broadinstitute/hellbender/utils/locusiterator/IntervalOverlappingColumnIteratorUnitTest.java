@@ -0,0 +1,52 @@
+package org.broadinstitute.hellbender.utils.locusiterator;
+
+import org.broadinstitute.hellbender.engine.AlignmentContext;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.downsampling.DownsamplingMethod;
+import org.broadinstitute.hellbender.utils.iterators.IntervalOverlappingIterator;
+import org.broadinstitute.hellbender.utils.read.ArtificialBAMBuilder;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+public final class IntervalOverlappingColumnIteratorUnitTest extends LocusIteratorByStateBaseTest {
+
+    @DataProvider(name = "intervals")
+    public Object[][] getIntervals() {
+        final String contig = header.getSequenceDictionary().getSequence(0).getSequenceName();
+        return new Object[][] {
+                { Collections.singletonList(new SimpleInterval(contig, 5, 5)) },
+                { Arrays.asList(new SimpleInterval(contig, 1, 3), new SimpleInterval(contig, 15, 40), new SimpleInterval(contig, 100, 300)) },
+                // in the gaps between reads
+                { Arrays.asList(new SimpleInterval(contig, 12, 20), new SimpleInterval(contig, 33, 42)) },
+                // after all reads
+                { Collections.singletonList(new SimpleInterval(contig, 2000, 3000)) }
+        };
+    }
+
+    @Test(dataProvider = "intervals")
+    public void testMatchesIntervalOverlappingIterator(final List<SimpleInterval> intervals) {
+        // 3 reads of 10 bases starting every 21 bases
+        final ArtificialBAMBuilder bamBuilder = new ArtificialBAMBuilder(header.getSequenceDictionary(), 3, 50);
+        bamBuilder.createAndSetHeader(2).setReadLength(10).setAlignmentStart(1).setSkipNLoci(20);
+        final List<GATKRead> reads = bamBuilder.makeReads();
+        final Supplier<LocusIteratorByState> makeLIBS = () -> new LocusIteratorByState(new FakeCloseableIterator<>(reads.iterator()),
+                DownsamplingMethod.NONE, false, bamBuilder.getSamples(), bamBuilder.getHeader(), true);
+
+        final List<String> expected = new ArrayList<>();
+        new IntervalOverlappingIterator<>(makeLIBS.get(), intervals, header.getSequenceDictionary())
+                .forEachRemaining(context -> expected.add(context.getLocation() + " " + context.getBasePileup()));
+        final List<String> actual = new ArrayList<>();
+        new IntervalOverlappingColumnIterator(makeLIBS.get(), intervals, header.getSequenceDictionary())
+                .forEachRemaining(context -> actual.add(context.getLocation() + " " + context.getBasePileup()));
+
+        Assert.assertEquals(actual, expected);
+    }
+}
@@ -19,6 +19,7 @@ import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
 import java.util.*;
+import java.util.function.Supplier;
 
 public final class LocusIteratorByStateUnitTest extends LocusIteratorByStateBaseTest {
 
@@ -60,6 +61,24 @@ public final class LocusIteratorByStateUnitTest extends LocusIteratorByStateBase
 
     }
 
+    @Test
+    public void testAdvanceAfterHasNext() {
+        final GATKRead mapped1 = ArtificialReadUtils.createArtificialRead(header, "mapped1", 0, 1, 10);
+        final List<GATKRead> reads = Arrays.asList(mapped1);
+
+        // the context loaded by hasNext() is returned if it is at the position
+        final LocusIteratorByState li = makeLIBS(reads, DownsamplingMethod.NONE, true, header);
+        Assert.assertTrue(li.hasNext());
+        Assert.assertEquals(li.advanceToLocus(1, false).getPosition(), 1);
+
+        // and skipped otherwise
+        Assert.assertTrue(li.hasNext());
+        final AlignmentContext alignmentContext5 = li.advanceToLocus(5, true);
+        Assert.assertEquals(alignmentContext5.getPosition(), 5);
+        Assert.assertEquals(alignmentContext5.getBasePileup().getReads(), reads);
+        Assert.assertEquals(li.next().getPosition(), 6);
+    }
+
     @Test(enabled = false)
     public void testUnmappedAndAllIReadsPassThrough() {
         final int readLength = 10;
@@ -445,6 +464,67 @@ public final class LocusIteratorByStateUnitTest extends LocusIteratorByStateBase
         Assert.assertEquals(bpVisited, expectedBpToVisit, "Didn't visit the expected number of bp");
     }
 
+    @Test(dataProvider = "MyLIBSTest")
+    public void testColumnsMatchAlignmentContexts(final LIBSTest params) {
+        final List<GATKRead> reads = Arrays.asList(params.makeRead());
+        assertColumnsMatchAlignmentContexts(makeLIBS(reads, null, false, header), makeLIBS(reads, null, false, header));
+    }
+
+    @Test
+    public void testDeepColumnsMatchAlignmentContexts() {
+        // more reads per locus than a column has room for initially
+        final ArtificialBAMBuilder bamBuilder = new ArtificialBAMBuilder(header.getSequenceDictionary(), 150, 5);
+        bamBuilder.createAndSetHeader(2).setReadLength(10).setAlignmentStart(1);
+        final List<GATKRead> reads = bamBuilder.makeReads();
+        final Supplier<LocusIteratorByState> makeLIBS = () -> new LocusIteratorByState(new FakeCloseableIterator<>(reads.iterator()),
+                DownsamplingMethod.NONE, false, bamBuilder.getSamples(), bamBuilder.getHeader(), true);
+        assertColumnsMatchAlignmentContexts(makeLIBS.get(), makeLIBS.get());
+    }
+
+    private static void assertColumnsMatchAlignmentContexts(final LocusIteratorByState columns, final LocusIteratorByState contexts) {
+        PileupColumn column;
+        PileupColumn previousColumn = null;
+        while ( (column = columns.nextColumn()) != null ) {
+            if ( previousColumn != null ) {
+                Assert.assertSame(column, previousColumn, "columns should be reused");
+            }
+            previousColumn = column;
+
+            Assert.assertTrue(contexts.hasNext());
+            final AlignmentContext context = contexts.next();
+            Assert.assertEquals(column.getContig(), context.getContig());
+            Assert.assertEquals(column.getPosition(), context.getPosition());
+            Assert.assertEquals(column.getLocation(), context.getLocation());
+
+            final ReadPileup pileup = context.getBasePileup();
+            Assert.assertEquals(column.size(), pileup.size());
+            int i = 0;
+            for ( final PileupElement element : pileup ) {
+                Assert.assertSame(column.getRead(i), element.getRead());
+                Assert.assertEquals(column.getOffset(i), element.getOffset());
+                Assert.assertEquals(column.getCurrentCigarElement(i), element.getCurrentCigarElement());
+                Assert.assertEquals(column.getCurrentCigarOffset(i), element.getCurrentCigarOffset());
+                Assert.assertEquals(column.getOffsetInCurrentCigar(i), element.getOffsetInCurrentCigar());
+                Assert.assertEquals(column.isDeletion(i), element.isDeletion());
+                Assert.assertEquals(column.getBase(i), element.getBase());
+                Assert.assertEquals(column.getQual(i), element.getQual());
+                Assert.assertEquals(column.getMappingQual(i), element.getMappingQual());
+                Assert.assertEquals(column.getPileupElement(i).toString(), element.toString());
+                i++;
+            }
+            Assert.assertEquals(column.toReadPileup().toString(), pileup.toString());
+        }
+        Assert.assertFalse(contexts.hasNext());
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void testColumnsAfterPendingAlignmentContext() {
+        final List<GATKRead> reads = Arrays.asList(ArtificialReadUtils.createArtificialRead(header, "mapped1", 0, 1, 10));
+        final LocusIteratorByState li = makeLIBS(reads, DownsamplingMethod.NONE, false, header);
+        Assert.assertTrue(li.hasNext());
+        li.nextColumn();
+    }
+
     // ------------------------------------------------------------
     //
     // Tests for keeping reads
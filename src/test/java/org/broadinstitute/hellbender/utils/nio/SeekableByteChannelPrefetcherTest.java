@@ -6,6 +6,9 @@ import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.SeekableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
@@ -105,6 +108,129 @@ public class SeekableByteChannelPrefetcherTest {
         chan.close();
     }
 
+    @Test
+    public void testSequentialReadGrowsWindow() throws Exception {
+        SeekableByteChannel chan1 = Files.newByteChannel(Paths.get(input));
+        SeekableByteChannelPrefetcher chan2 = new SeekableByteChannelPrefetcher(
+            Files.newByteChannel(Paths.get(input)), 1024, 4);
+        // read the whole file, in pieces that don't line up with the blocks
+        for (int i = 0; i < chan1.size() / 700 + 1; i++) {
+            testReading(chan1, chan2, 700);
+        }
+        Assert.assertEquals(chan2.position(), chan1.size());
+        Assert.assertEquals(chan2.maxBlocksInFlightReached, 4);
+        Assert.assertEquals(chan2.nbWindowResets, 0);
+        Assert.assertEquals(chan2.nbMiss, 1);
+        Assert.assertEquals(chan2.nbGoingBack, 0);
+        chan2.close();
+    }
+
+    @Test
+    public void testDefaultWindow() throws Exception {
+        SeekableByteChannel chan1 = Files.newByteChannel(Paths.get(input));
+        SeekableByteChannelPrefetcher chan2 = new SeekableByteChannelPrefetcher(
+            Files.newByteChannel(Paths.get(input)), 1024);
+        for (int i = 0; i < chan1.size() / 700 + 1; i++) {
+            testReading(chan1, chan2, 700);
+        }
+        Assert.assertEquals(chan2.position(), chan1.size());
+        Assert.assertEquals(chan2.maxBlocksInFlightReached, SeekableByteChannelPrefetcher.DEFAULT_MAX_BLOCKS_IN_FLIGHT);
+        Assert.assertTrue(SeekableByteChannelPrefetcher.DEFAULT_MAX_BLOCKS_IN_FLIGHT > 1);
+        // only the bytes actually fetched count as read, not the block size of every block we asked for
+        chan2.getStatistics();
+        Assert.assertEquals(chan2.bytesRead, chan1.size());
+        chan2.close();
+    }
+
+    @Test
+    public void testRandomAccessResetsWindow() throws Exception {
+        SeekableByteChannel chan1 = Files.newByteChannel(Paths.get(input));
+        SeekableByteChannelPrefetcher chan2 = new SeekableByteChannelPrefetcher(
+            Files.newByteChannel(Paths.get(input)), 1024, 4);
+        // grow the window
+        testReading(chan1, chan2, 5000);
+        Assert.assertEquals(chan2.maxBlocksInFlightReached, 4);
+        // jumping backwards, or forward past the window, shrinks it back
+        testSeeking(chan1, chan2, 100);
+        Assert.assertEquals(chan2.nbWindowResets, 1);
+        testReading(chan1, chan2, 3000);
+        testSeeking(chan1, chan2, 50000);
+        Assert.assertEquals(chan2.nbWindowResets, 2);
+        // jumping to a block we've already prefetched doesn't
+        testSeeking(chan1, chan2, 51200);
+        Assert.assertEquals(chan2.nbWindowResets, 2);
+        testSeeking(chan1, chan2, 60000);
+        testSeeking(chan1, chan2, 2000);
+        testSeeking(chan1, chan2, 40000);
+        Assert.assertEquals(chan2.nbGoingBack, 2);
+        chan2.close();
+    }
+
+    @Test
+    public void testNonFileChannel() throws Exception {
+        // channels other than FileChannels are never used concurrently, but must still return the right data
+        SeekableByteChannel chan1 = Files.newByteChannel(Paths.get(input));
+        SeekableByteChannel chan2 = new SeekableByteChannelPrefetcher(
+            new DelegatingChannel(Files.newByteChannel(Paths.get(input))), 1024, 4);
+
+        testReading(chan1, chan2, 10000);
+        testSeeking(chan1, chan2, 128);
+        testReading(chan1, chan2, 3000);
+        testSeeking(chan1, chan2, 50000);
+        testSeeking(chan1, chan2, 1500);
+        testSeeking(chan1, chan2, (int)chan1.size()-127);
+        testSeeking(chan1, chan2, (int)chan1.size()+128);
+        chan2.close();
+    }
+
+    @Test
+    public void testNonFileChannelWithChannelOpener() throws Exception {
+        // with a way to reopen the data, the blocks of channels other than FileChannels are fetched concurrently,
+        // each prefetching thread reading from its own channel
+        final List<DelegatingChannel> openedChannels = Collections.synchronizedList(new ArrayList<>());
+        final SeekableByteChannelPrefetcher.ChannelOpener opener = () -> {
+            final DelegatingChannel channel = new DelegatingChannel(Files.newByteChannel(Paths.get(input)));
+            openedChannels.add(channel);
+            return channel;
+        };
+        SeekableByteChannel chan1 = Files.newByteChannel(Paths.get(input));
+        SeekableByteChannelPrefetcher chan2 = new SeekableByteChannelPrefetcher(
+            new DelegatingChannel(Files.newByteChannel(Paths.get(input))), 1024, 4, opener);
+
+        for (int i = 0; i < chan1.size() / 700 + 1; i++) {
+            testReading(chan1, chan2, 700);
+        }
+        Assert.assertEquals(chan2.maxBlocksInFlightReached, 4);
+        testSeeking(chan1, chan2, 128);
+        testSeeking(chan1, chan2, 50000);
+        testSeeking(chan1, chan2, (int)chan1.size()-127);
+
+        // one channel per prefetching thread that fetched a block, and more than one thread fetched blocks
+        Assert.assertTrue(openedChannels.size() > 1 && openedChannels.size() <= 4, "opened " + openedChannels.size() + " channels");
+        chan2.close();
+        for (DelegatingChannel channel : openedChannels) {
+            Assert.assertFalse(channel.isOpen());
+        }
+    }
+
+    @Test
+    public void testStatistics() throws Exception {
+        SeekableByteChannelPrefetcher chan = new SeekableByteChannelPrefetcher(
+            Files.newByteChannel(Paths.get(input)), 1024, 4);
+        readFully(chan, ByteBuffer.allocate(4096));
+        Assert.assertEquals(chan.bytesReturned, 4096);
+        Assert.assertTrue(chan.nbStalls <= chan.nbNearHit + chan.nbMiss);
+        String stats = chan.getStatistics();
+        Assert.assertTrue(stats.contains("Stalls"), stats);
+        Assert.assertTrue(stats.contains("Throughput"), stats);
+        chan.close();
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testInvalidMaxBlocksInFlight() throws Exception {
+        new SeekableByteChannelPrefetcher(Files.newByteChannel(Paths.get(input)), 1024, 0);
+    }
+
     private void testReading(SeekableByteChannel chan1, SeekableByteChannel chan2, int howMuch) throws IOException {
         ByteBuffer one = ByteBuffer.allocate(howMuch);
         ByteBuffer two = ByteBuffer.allocate(howMuch);
@@ -130,6 +256,47 @@ public class SeekableByteChannelPrefetcherTest {
         Assert.assertEquals(one.array(), two.array());
     }
 
+    /**
+     * Hides the type of the wrapped channel, so the prefetcher can't tell it's a FileChannel.
+     */
+    private static final class DelegatingChannel implements SeekableByteChannel {
+        private final SeekableByteChannel chan;
+
+        DelegatingChannel(SeekableByteChannel chan) {
+            this.chan = chan;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException { return chan.read(dst); }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException { return chan.write(src); }
+
+        @Override
+        public long position() throws IOException { return chan.position(); }
+
+        @Override
+        public SeekableByteChannel position(long newPosition) throws IOException {
+            chan.position(newPosition);
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException { return chan.size(); }
+
+        @Override
+        public SeekableByteChannel truncate(long size) throws IOException {
+            chan.truncate(size);
+            return this;
+        }
+
+        @Override
+        public boolean isOpen() { return chan.isOpen(); }
+
+        @Override
+        public void close() throws IOException { chan.close(); }
+    }
+
     private void readFully(ReadableByteChannel chan, ByteBuffer buf) throws IOException {
         // the countdown isn't strictly necessary but it protects us against infinite loops
         // for some potential bugs in the channel implementation.
@@ -0,0 +1,150 @@
+package org.broadinstitute.hellbender.utils.pairhmm;
+
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.utils.genotyper.IndexedAlleleList;
+import org.broadinstitute.hellbender.utils.genotyper.IndexedSampleList;
+import org.broadinstitute.hellbender.utils.genotyper.LikelihoodMatrix;
+import org.broadinstitute.hellbender.utils.genotyper.ReadLikelihoods;
+import org.broadinstitute.hellbender.utils.haplotype.Haplotype;
+import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.read.ReadUtils;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.*;
+
+public final class BatchedLoglessPairHMMUnitTest extends GATKBaseTest {
+    private static final String SAMPLE = "sample";
+    private static final byte[] BASES = {'A', 'C', 'G', 'T'};
+
+    private static byte[] randomBases(final Random random, final int length) {
+        final byte[] bases = new byte[length];
+        for ( int i = 0; i < length; i++ ) {
+            bases[i] = random.nextInt(50) == 0 ? (byte)'N' : BASES[random.nextInt(BASES.length)];
+        }
+        return bases;
+    }
+
+    private static byte[] randomQuals(final Random random, final int length, final int minQual, final int maxQual) {
+        final byte[] quals = new byte[length];
+        for ( int i = 0; i < length; i++ ) {
+            quals[i] = (byte)(minQual + random.nextInt(maxQual - minQual + 1));
+        }
+        return quals;
+    }
+
+    // haplotypes of different lengths, many of them sharing prefixes, in no particular order
+    private static List<Haplotype> makeHaplotypes(final Random random, final int numHaplotypes) {
+        final byte[] reference = randomBases(random, 150);
+        final List<Haplotype> haplotypes = new ArrayList<>();
+        haplotypes.add(new Haplotype(reference, true));
+        while ( haplotypes.size() < numHaplotypes ) {
+            final StringBuilder haplotype = new StringBuilder(new String(reference));
+            final int position = 5 + random.nextInt(reference.length - 10);
+            switch ( random.nextInt(3) ) {
+                case 0: haplotype.setCharAt(position, (char) BASES[random.nextInt(BASES.length)]); break;
+                case 1: haplotype.delete(position, position + 1 + random.nextInt(4)); break;
+                default: haplotype.insert(position, new String(randomBases(random, 1 + random.nextInt(4))));
+            }
+            final Haplotype alt = new Haplotype(haplotype.toString().getBytes(), false);
+            if ( ! haplotypes.contains(alt) ) {
+                haplotypes.add(alt);
+            }
+        }
+        Collections.shuffle(haplotypes, random);
+        return haplotypes;
+    }
+
+    // reads drawn from the haplotypes, with errors, of varying lengths
+    private static List<GATKRead> makeReads(final Random random, final List<Haplotype> haplotypes, final int numReads) {
+        final List<GATKRead> reads = new ArrayList<>();
+        for ( int i = 0; i < numReads; i++ ) {
+            final byte[] haplotype = haplotypes.get(random.nextInt(haplotypes.size())).getBases();
+            final int length = 20 + random.nextInt(80);
+            final int start = random.nextInt(haplotype.length - length);
+            final byte[] bases = Arrays.copyOfRange(haplotype, start, start + length);
+            for ( int j = 0; j < bases.length; j++ ) {
+                if ( random.nextInt(30) == 0 ) {
+                    bases[j] = BASES[random.nextInt(BASES.length)];
+                }
+            }
+            final GATKRead read = ArtificialReadUtils.createArtificialRead(bases, randomQuals(random, length, 5, 40), length + "M");
+            ReadUtils.setInsertionBaseQualities(read, randomQuals(random, length, 30, 45));
+            ReadUtils.setDeletionBaseQualities(read, randomQuals(random, length, 30, 45));
+            reads.add(read);
+        }
+        return reads;
+    }
+
+    private static LikelihoodMatrix<Haplotype> computeLikelihoods(final PairHMM hmm, final List<Haplotype> haplotypes, final List<GATKRead> reads) {
+        final Map<GATKRead, byte[]> gcps = new LinkedHashMap<>();
+        for ( final GATKRead read : reads ) {
+            final byte[] gcp = new byte[read.getLength()];
+            Arrays.fill(gcp, (byte) 10);
+            gcps.put(read, gcp);
+        }
+        final ReadLikelihoods<Haplotype> likelihoods = new ReadLikelihoods<>(new IndexedSampleList(SAMPLE), new IndexedAlleleList<>(haplotypes),
+                Collections.singletonMap(SAMPLE, reads));
+        final LikelihoodMatrix<Haplotype> matrix = likelihoods.sampleMatrix(0);
+        hmm.initialize(haplotypes, Collections.singletonMap(SAMPLE, reads), PairHMM.findMaxReadLength(reads),
+                haplotypes.stream().mapToInt(Haplotype::length).max().getAsInt());
+        hmm.computeLog10Likelihoods(matrix, reads, gcps);
+        return matrix;
+    }
+
+    @DataProvider(name = "batches")
+    public Object[][] batches() {
+        return new Object[][] {
+                // maxBatchSize, numHaplotypes, numReads
+                {1, 5, 10},
+                {8, 1, 3},
+                {8, 10, 17},
+                {8, 40, 64},
+                {3, 20, 50}
+        };
+    }
+
+    @Test(dataProvider = "batches")
+    public void testBatchesMatchLoglessPairHMM(final int maxBatchSize, final int numHaplotypes, final int numReads) {
+        final Random random = new Random(maxBatchSize * 1000 + numHaplotypes * 100 + numReads);
+        final List<Haplotype> haplotypes = makeHaplotypes(random, numHaplotypes);
+        final List<GATKRead> reads = makeReads(random, haplotypes, numReads);
+
+        final LoglessPairHMM loglessHMM = new LoglessPairHMM();
+        final BatchedLoglessPairHMM batchedHMM = new BatchedLoglessPairHMM(maxBatchSize);
+        final LikelihoodMatrix<Haplotype> expected = computeLikelihoods(loglessHMM, haplotypes, reads);
+        // the second time around, the batched HMM reuses its matrices
+        for ( int i = 0; i < 2; i++ ) {
+            final LikelihoodMatrix<Haplotype> actual = computeLikelihoods(batchedHMM, haplotypes, reads);
+            for ( int a = 0; a < haplotypes.size(); a++ ) {
+                for ( int r = 0; r < reads.size(); r++ ) {
+                    Assert.assertEquals(actual.get(a, r), expected.get(a, r), 1e-9, "haplotype " + a + " read " + r);
+                    Assert.assertEquals(batchedHMM.getLogLikelihoodArray()[r * haplotypes.size() + a], expected.get(a, r), 1e-9);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSingleReadsAfterBatch() {
+        final Random random = new Random(42);
+        final List<Haplotype> haplotypes = makeHaplotypes(random, 10);
+        final List<GATKRead> reads = makeReads(random, haplotypes, 20);
+        final BatchedLoglessPairHMM batchedHMM = new BatchedLoglessPairHMM();
+        final LikelihoodMatrix<Haplotype> expected = computeLikelihoods(batchedHMM, haplotypes, reads);
+
+        // computing one read at a time, the state left behind by the batch must not be reused
+        for ( int r = 0; r < reads.size(); r++ ) {
+            final GATKRead read = reads.get(r);
+            final byte[] gcp = new byte[read.getLength()];
+            Arrays.fill(gcp, (byte) 10);
+            for ( int a = 0; a < haplotypes.size(); a++ ) {
+                final double actual = batchedHMM.computeReadLikelihoodGivenHaplotypeLog10(haplotypes.get(a).getBases(), read.getBases(),
+                        read.getBaseQualities(), ReadUtils.getBaseInsertionQualities(read), ReadUtils.getBaseDeletionQualities(read), gcp, a == 0, null);
+                Assert.assertEquals(actual, expected.get(a, r), 1e-9, "haplotype " + a + " read " + r);
+            }
+        }
+    }
+}
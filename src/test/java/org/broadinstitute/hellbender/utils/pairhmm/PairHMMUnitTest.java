@@ -24,16 +24,18 @@ public final class PairHMMUnitTest extends GATKBaseTest {
     final N2MemoryPairHMM exactHMM = new Log10PairHMM(true); // the log truth implementation
     final N2MemoryPairHMM originalHMM = new Log10PairHMM(false); // the reference implementation
     final N2MemoryPairHMM loglessHMM = new LoglessPairHMM();
+    final BatchedLoglessPairHMM batchedHMM = new BatchedLoglessPairHMM();
 
     @BeforeClass
     public void initialize() {
         exactHMM.doNotUseTristateCorrection();
         originalHMM.doNotUseTristateCorrection();
         loglessHMM.doNotUseTristateCorrection();
+        batchedHMM.doNotUseTristateCorrection();
     }
 
-    private List<N2MemoryPairHMM> getHMMs() {
-        return Arrays.asList(exactHMM, originalHMM, loglessHMM);
+    private List<PairHMM> getHMMs() {
+        return Arrays.asList(exactHMM, originalHMM, loglessHMM, batchedHMM);
     }
 
     // --------------------------------------------------------------------------------
@@ -749,7 +751,8 @@ public final class PairHMMUnitTest extends GATKBaseTest {
     @Test
     public void dumpMatrices(){
         //doesn't test anything other than not-blowing up
-        getHMMs().forEach(hmm -> hmm.initialize(3, 3));
-        getHMMs().forEach(hmm -> hmm.dumpMatrices());
+        final List<N2MemoryPairHMM> hmms = Arrays.asList(exactHMM, originalHMM, loglessHMM);
+        hmms.forEach(hmm -> hmm.initialize(3, 3));
+        hmms.forEach(hmm -> hmm.dumpMatrices());
     }
 }
\ No newline at end of file
@@ -0,0 +1,322 @@
+package org.broadinstitute.hellbender.utils.read;
+
+import htsjdk.samtools.BAMRecordCodec;
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMTag;
+import org.apache.commons.lang3.SerializationUtils;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.utils.iterators.SAMRecordToReadIterator;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+public final class RawBAMRecordToGATKReadAdapterUnitTest extends GATKBaseTest {
+
+    private static final SAMFileHeader HEADER = ArtificialReadUtils.createArtificialSamHeaderWithGroups(3, 1, 1000, 2);
+
+    // the getters of GATKRead, with the exceptions they throw
+    private static final List<Function<GATKRead, Object>> GETTERS = new ArrayList<>();
+    static {
+        GETTERS.add(GATKRead::getName);
+        GETTERS.add(GATKRead::getLength);
+        GETTERS.add(GATKRead::isEmpty);
+        GETTERS.add(GATKRead::getContig);
+        GETTERS.add(GATKRead::getStart);
+        GETTERS.add(GATKRead::getEnd);
+        GETTERS.add(GATKRead::getAssignedContig);
+        GETTERS.add(GATKRead::getAssignedStart);
+        GETTERS.add(GATKRead::getUnclippedStart);
+        GETTERS.add(GATKRead::getUnclippedEnd);
+        GETTERS.add(GATKRead::getSoftStart);
+        GETTERS.add(GATKRead::getSoftEnd);
+        GETTERS.add(GATKRead::getAdaptorBoundary);
+        GETTERS.add(GATKRead::getMateContig);
+        GETTERS.add(GATKRead::getMateStart);
+        GETTERS.add(GATKRead::getFragmentLength);
+        GETTERS.add(GATKRead::getMappingQuality);
+        GETTERS.add(GATKRead::getBases);
+        GETTERS.add(GATKRead::getBasesNoCopy);
+        GETTERS.add(GATKRead::getBasesString);
+        GETTERS.add(read -> read.isEmpty() ? null : read.getBase(read.getLength() - 1));
+        GETTERS.add(GATKRead::getBaseQualities);
+        GETTERS.add(GATKRead::getBaseQualitiesNoCopy);
+        GETTERS.add(GATKRead::getBaseQualityCount);
+        GETTERS.add(read -> read.getBaseQualityCount() == 0 ? null : read.getBaseQuality(0));
+        GETTERS.add(read -> read.getCigar().toString());
+        GETTERS.add(GATKRead::getCigarElements);
+        GETTERS.add(read -> read.numCigarElements() == 0 ? null : read.getCigarElement(read.numCigarElements() - 1));
+        GETTERS.add(GATKRead::numCigarElements);
+        GETTERS.add(GATKRead::getReadGroup);
+        GETTERS.add(GATKRead::isPaired);
+        GETTERS.add(GATKRead::isProperlyPaired);
+        GETTERS.add(GATKRead::isUnmapped);
+        GETTERS.add(GATKRead::mateIsUnmapped);
+        GETTERS.add(GATKRead::isReverseStrand);
+        GETTERS.add(GATKRead::mateIsReverseStrand);
+        GETTERS.add(GATKRead::isFirstOfPair);
+        GETTERS.add(GATKRead::isSecondOfPair);
+        GETTERS.add(GATKRead::isSecondaryAlignment);
+        GETTERS.add(GATKRead::isSupplementaryAlignment);
+        GETTERS.add(GATKRead::failsVendorQualityCheck);
+        GETTERS.add(GATKRead::isDuplicate);
+        GETTERS.add(read -> read.hasAttribute("XS"));
+        GETTERS.add(read -> read.hasAttribute("ZZ"));
+        GETTERS.add(read -> read.getAttributeAsInteger("XI"));
+        GETTERS.add(read -> read.getAttributeAsInteger("XS"));
+        GETTERS.add(read -> read.getAttributeAsString("XS"));
+        GETTERS.add(read -> read.getAttributeAsString("XB"));
+        GETTERS.add(read -> read.getAttributeAsByteArray("XB"));
+        GETTERS.add(read -> read.getAttributeAsByteArray("XI"));
+        GETTERS.add(GATKRead::getSAMString);
+        GETTERS.add(GATKRead::toString);
+        GETTERS.add(read -> read.convertToGoogleGenomicsRead().toString());
+    }
+
+    private static Object get( final Function<GATKRead, Object> getter, final GATKRead read ) {
+        try {
+            final Object value = getter.apply(read);
+            return value instanceof byte[] ? new String((byte[]) value) : value;
+        } catch ( final RuntimeException e ) {
+            return e.getClass();
+        }
+    }
+
+    // decodes the BAM encoding of the record, as reading a BAM file would
+    private static SAMRecord toBAMRecord( final SAMRecord record ) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final BAMRecordCodec codec = new BAMRecordCodec(HEADER);
+        codec.setOutputStream(bytes);
+        codec.encode(record);
+        codec.setInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        return codec.decode();
+    }
+
+    private static GATKRead adapt( final SAMRecord record ) {
+        final GATKRead read = RawBAMRecordToGATKReadAdapter.adapt(toBAMRecord(record));
+        Assert.assertTrue(read instanceof RawBAMRecordToGATKReadAdapter);
+        return read;
+    }
+
+    @DataProvider(name = "records")
+    public Object[][] records() {
+        final List<Object[]> records = new ArrayList<>();
+
+        final SAMRecord basic = ArtificialReadUtils.createArtificialSAMRecord(HEADER, "basic", 0, 100,
+                new byte[] {'A', 'C', 'G', 'T', 'N', 'A', 'C'}, new byte[] {10, 20, 30, 40, 2, 35, 36}, "2S3M1I1S");
+        basic.setMappingQuality(60);
+        basic.setAttribute(SAMTag.RG.name(), "ReadGroup0");
+        basic.setAttribute("XS", "42");
+        basic.setAttribute("XI", 7);
+        basic.setAttribute("XB", new byte[] {1, 2, 3});
+        records.add(new Object[] {basic});
+
+        final SAMRecord paired = basic.deepCopy();
+        paired.setReadName("paired");
+        paired.setReadPairedFlag(true);
+        paired.setProperPairFlag(true);
+        paired.setSecondOfPairFlag(true);
+        paired.setReadNegativeStrandFlag(true);
+        paired.setMateNegativeStrandFlag(true);
+        paired.setMateReferenceIndex(2);
+        paired.setMateAlignmentStart(500);
+        paired.setInferredInsertSize(-300);
+        paired.setDuplicateReadFlag(true);
+        paired.setSupplementaryAlignmentFlag(true);
+        records.add(new Object[] {paired});
+
+        final SAMRecord adaptorBoundary = paired.deepCopy();
+        adaptorBoundary.setMateReferenceIndex(0);
+        adaptorBoundary.setMateAlignmentStart(95);
+        adaptorBoundary.setInferredInsertSize(-20);
+        records.add(new Object[] {adaptorBoundary});
+
+        final SAMRecord mateUnmapped = paired.deepCopy();
+        mateUnmapped.setMateUnmappedFlag(true);
+        mateUnmapped.setReadFailsVendorQualityCheckFlag(true);
+        mateUnmapped.setSecondaryAlignment(true);
+        mateUnmapped.setMappingQuality(255);
+        records.add(new Object[] {mateUnmapped});
+
+        final SAMRecord unmapped = ArtificialReadUtils.createArtificialUnmappedRead(HEADER, new byte[] {'A', 'C', 'G'}, new byte[] {30, 30, 30}).convertToSAMRecord(HEADER);
+        unmapped.setReadName("unmapped");
+        unmapped.setBaseQualities(SAMRecord.NULL_QUALS);
+        records.add(new Object[] {unmapped});
+
+        final SAMRecord placedUnmapped = basic.deepCopy();
+        placedUnmapped.setReadUnmappedFlag(true);
+        placedUnmapped.setMappingQuality(0);
+        records.add(new Object[] {placedUnmapped});
+
+        final SAMRecord empty = ArtificialReadUtils.createArtificialSAMRecord(HEADER, "empty", 1, 1, new byte[0], new byte[0], "*");
+        empty.clearAttributes();
+        records.add(new Object[] {empty});
+
+        return records.toArray(new Object[][]{});
+    }
+
+    @Test(dataProvider = "records")
+    public void testGettersMatchSAMRecordAdapter( final SAMRecord record ) {
+        final GATKRead expected = new SAMRecordToGATKReadAdapter(toBAMRecord(record));
+        final GATKRead read = adapt(record);
+        for ( int i = 0; i < GETTERS.size(); i++ ) {
+            Assert.assertEquals(get(GETTERS.get(i), read), get(GETTERS.get(i), expected), "getter " + i);
+        }
+        Assert.assertTrue(((RawBAMRecordToGATKReadAdapter) read).isEncoded());
+
+        // converting the read to a SAMRecord leaves it in its BAM encoding
+        final int hashCode = read.hashCode();
+        final long readsDecoded = SAMRecordToReadIterator.READS_DECODED.get();
+        final SAMRecord samRecord = read.convertToSAMRecord(HEADER);
+        Assert.assertTrue(((RawBAMRecordToGATKReadAdapter) read).isEncoded());
+        Assert.assertEquals(read.hashCode(), hashCode);
+        Assert.assertEquals(read, adapt(record));
+        Assert.assertEquals(SAMRecordToReadIterator.READS_DECODED.get(), readsDecoded);
+        Assert.assertEquals(samRecord.getSAMString(), record.getSAMString());
+        Assert.assertEquals(samRecord.getReferenceIndex(), record.getReferenceIndex());
+        Assert.assertEquals(samRecord.getMateReferenceIndex(), record.getMateReferenceIndex());
+        Assert.assertNotNull(samRecord.getVariableBinaryRepresentation());
+
+        // and modifying the record doesn't modify the read
+        samRecord.setReadName("modified");
+        samRecord.setAlignmentStart(samRecord.getAlignmentStart() + 1);
+        for ( int i = 0; i < GETTERS.size(); i++ ) {
+            Assert.assertEquals(get(GETTERS.get(i), read), get(GETTERS.get(i), expected), "getter " + i + " after conversion");
+        }
+
+        // modifying the read decodes it, which is counted
+        read.setIsDuplicate(!read.isDuplicate());
+        Assert.assertFalse(((RawBAMRecordToGATKReadAdapter) read).isEncoded());
+        Assert.assertEquals(SAMRecordToReadIterator.READS_DECODED.get(), readsDecoded + 1);
+        Assert.assertEquals(read.convertToSAMRecord(HEADER).getDuplicateReadFlag(), read.isDuplicate());
+    }
+
+    @Test(dataProvider = "records")
+    public void testCopyOnWrite( final SAMRecord record ) {
+        final GATKRead read = adapt(record);
+        final GATKRead copy = read.copy();
+        final GATKRead deepCopy = read.deepCopy();
+        Assert.assertEquals(copy, read);
+        Assert.assertEquals(deepCopy, read);
+
+        read.setName("newName");
+        read.setIsDuplicate(!read.isDuplicate());
+        read.setAttribute("XN", "new");
+        read.setCigar("1H" + read.getCigar().toString().replace("*", ""));
+        Assert.assertFalse(((RawBAMRecordToGATKReadAdapter) read).isEncoded());
+        Assert.assertEquals(read.getName(), "newName");
+        Assert.assertEquals(read.getAttributeAsString("XN"), "new");
+        Assert.assertEquals(read.getCigarElement(0).getLength(), 1);
+        Assert.assertNotEquals(read, copy);
+
+        // copies are not affected by changes to the read
+        final GATKRead expected = new SAMRecordToGATKReadAdapter(toBAMRecord(record));
+        for ( final GATKRead unchanged : new GATKRead[] {copy, deepCopy} ) {
+            Assert.assertTrue(((RawBAMRecordToGATKReadAdapter) unchanged).isEncoded());
+            for ( int i = 0; i < GETTERS.size(); i++ ) {
+                Assert.assertEquals(get(GETTERS.get(i), unchanged), get(GETTERS.get(i), expected), "getter " + i);
+            }
+        }
+
+        // nor is the read by changes to its copies
+        final GATKRead readCopy = read.copy();
+        readCopy.setName("otherName");
+        Assert.assertEquals(read.getName(), "newName");
+    }
+
+    @Test(dataProvider = "records")
+    public void testEqualsAndHashCode( final SAMRecord record ) {
+        final GATKRead read = adapt(record);
+        final GATKRead sameEncoding = adapt(record);
+        Assert.assertEquals(sameEncoding, read);
+        Assert.assertEquals(sameEncoding.hashCode(), read.hashCode());
+        Assert.assertTrue(((RawBAMRecordToGATKReadAdapter) read).isEncoded());
+
+        final SAMRecord otherRecord = record.deepCopy();
+        otherRecord.setReadName(record.getReadName() + "x");
+        final GATKRead other = adapt(otherRecord);
+        Assert.assertTrue(((RawBAMRecordToGATKReadAdapter) other).isEncoded());
+        Assert.assertNotEquals(other, read);
+        Assert.assertNotEquals(read, other);
+
+        // once modified, the read is equal to its copies, which are no longer lazily decoded
+        read.setName("newName");
+        final GATKRead copy = read.copy();
+        Assert.assertTrue(copy instanceof SAMRecordToGATKReadAdapter);
+        Assert.assertEquals(copy, read);
+        Assert.assertEquals(read, copy);
+        Assert.assertEquals(copy.hashCode(), read.hashCode());
+        Assert.assertNotEquals(read, sameEncoding);
+        Assert.assertNotEquals(sameEncoding, read);
+
+        sameEncoding.setName("newName");
+        Assert.assertEquals(sameEncoding, read);
+        Assert.assertEquals(sameEncoding.hashCode(), read.hashCode());
+    }
+
+    @Test(dataProvider = "records")
+    public void testSerialization( final SAMRecord record ) {
+        final RawBAMRecordToGATKReadAdapter read = (RawBAMRecordToGATKReadAdapter) adapt(record);
+        read.getCigar();
+        read.getReadGroup();
+        final GATKRead roundTripped = SerializationUtils.roundtrip(read);
+        Assert.assertEquals(roundTripped, read);
+        Assert.assertEquals(roundTripped.getSAMString(), read.getSAMString());
+
+        read.setMappingQuality(3);
+        final GATKRead changedRoundTripped = SerializationUtils.roundtrip(read);
+        Assert.assertEquals(changedRoundTripped.getMappingQuality(), 3);
+        Assert.assertEquals(changedRoundTripped, read);
+    }
+
+    @Test
+    public void testConcurrentFirstAccesses() throws Exception {
+        final SAMRecord record = (SAMRecord) records()[1][0];
+        final GATKRead expected = new SAMRecordToGATKReadAdapter(toBAMRecord(record));
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for ( int repeat = 0; repeat < 200; repeat++ ) {
+                // every thread accesses the fields of the same new read in a different order
+                final GATKRead read = adapt(record);
+                final List<Future<?>> accesses = new ArrayList<>();
+                for ( int thread = 0; thread < 4; thread++ ) {
+                    final int firstGetter = thread * GETTERS.size() / 4;
+                    accesses.add(executor.submit((Callable<Void>) () -> {
+                        for ( int i = 0; i < GETTERS.size(); i++ ) {
+                            final Function<GATKRead, Object> getter = GETTERS.get((firstGetter + i) % GETTERS.size());
+                            Assert.assertEquals(get(getter, read), get(getter, expected));
+                        }
+                        return null;
+                    }));
+                }
+                for ( final Future<?> access : accesses ) {
+                    access.get();
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testRecordsNotFromBAMAreNotEncoded() {
+        final SAMRecord record = (SAMRecord) records()[0][0];
+        Assert.assertTrue(RawBAMRecordToGATKReadAdapter.adapt(record) instanceof SAMRecordToGATKReadAdapter);
+
+        final SAMRecord changedRecord = toBAMRecord(record);
+        changedRecord.setAttribute("XN", "new");
+        final GATKRead read = RawBAMRecordToGATKReadAdapter.adapt(changedRecord);
+        Assert.assertTrue(read instanceof SAMRecordToGATKReadAdapter);
+        Assert.assertEquals(read.getAttributeAsString("XN"), "new");
+    }
+}
@@ -590,6 +590,38 @@ public final class ReadUtilsUnitTest extends GATKBaseTest {
         }
     }
 
+    @Test
+    public void testSAMWriterWithCompressionThreads() throws Exception {
+        final SAMFileHeader header = ArtificialReadUtils.createArtificialSamHeader(3, 1, 200000);
+        final Random random = new Random(5);
+        final RandomDNA randomDNA = new RandomDNA(random);
+        final List<SAMRecord> reads = new ArrayList<>();
+        for ( int contig = 0; contig < 3; contig++ ) {
+            for ( int start = 1; start < 190000; start += random.nextInt(60) ) {
+                final SAMRecord read = ArtificialReadUtils.createArtificialSAMRecord(header, "read" + reads.size(), contig, start, 100);
+                read.setReadBases(randomDNA.nextBases(100));
+                reads.add(read);
+            }
+        }
+        for ( int i = 0; i < 100; i++ ) {
+            reads.add(ArtificialReadUtils.createArtificialSAMRecord(header, "unmapped" + i, SAMRecord.NO_ALIGNMENT_REFERENCE_INDEX, SAMRecord.NO_ALIGNMENT_START, 100));
+        }
+
+        final File dir = createTempDir("compressionThreads");
+        final File expected = new File(dir, "expected.bam");
+        final File actual = new File(dir, "actual.bam");
+        for ( final File output : Arrays.asList(expected, actual) ) {
+            try ( final SAMFileWriter writer = ReadUtils.createCommonSAMWriter(output.toPath(), null, header, true, true, true, output == actual ? 3 : 0) ) {
+                reads.forEach(writer::addAlignment);
+            }
+        }
+
+        Assert.assertTrue(expected.length() > 10 * 65536, "the test should write many blocks");
+        Assert.assertEquals(Files.readAllBytes(actual.toPath()), Files.readAllBytes(expected.toPath()));
+        Assert.assertEquals(Files.readAllBytes(new File(dir, "actual.bai").toPath()), Files.readAllBytes(new File(dir, "expected.bai").toPath()));
+        Assert.assertEquals(Files.readAllBytes(new File(dir, "actual.bam.md5").toPath()), Files.readAllBytes(new File(dir, "expected.bam.md5").toPath()));
+    }
+
     @DataProvider(name="hasCRAMFileContents")
     public Object[][] createHasCRAMFileContentsData() {
         return new Object[][] {
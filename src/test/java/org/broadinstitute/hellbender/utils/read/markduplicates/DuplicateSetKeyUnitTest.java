@@ -0,0 +1,107 @@
+package org.broadinstitute.hellbender.utils.read.markduplicates;
+
+import htsjdk.samtools.SAMFileHeader;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.read.ReadUtils;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public final class DuplicateSetKeyUnitTest extends GATKBaseTest {
+
+    // reads in 4 read groups of 2 libraries, plus read groups without library or missing from the header, at a few
+    // positions, with or without soft clips, on both strands
+    private static List<GATKRead> makeReads(final SAMFileHeader header) {
+        final Random random = new Random(13);
+        final String[] readGroups = {"ReadGroup0", "ReadGroup1", "ReadGroup2", "ReadGroup3", "ReadGroup4", "Unknown", null};
+        final String[] cigars = {"10M", "2S8M", "8M2S", "3S4M3S"};
+        final List<GATKRead> reads = new ArrayList<>();
+        for ( int i = 0; i < 300; i++ ) {
+            final GATKRead read = ArtificialReadUtils.createArtificialRead(header, "read" + i, random.nextInt(2), 1 + random.nextInt(4),
+                    new byte[10], new byte[10], cigars[random.nextInt(cigars.length)]);
+            read.setReadGroup(readGroups[random.nextInt(readGroups.length)]);
+            read.setIsReverseStrand(random.nextBoolean());
+            reads.add(read);
+        }
+        return reads;
+    }
+
+    private static SAMFileHeader makeHeader() {
+        final SAMFileHeader header = ArtificialReadUtils.createArtificialSamHeaderWithGroups(2, 1, 1000, 5);
+        for ( int i = 0; i < 4; i++ ) {
+            header.getReadGroups().get(i).setLibrary("library" + (i % 2));
+        }
+        return header;
+    }
+
+    @Test
+    public void testFragmentKeysMatchStringKeys() {
+        final SAMFileHeader header = makeHeader();
+        final Map<String, Integer> libraryIndices = DuplicateSetKey.getLibraryIndices(header);
+        final List<GATKRead> reads = makeReads(header);
+        for ( final GATKRead first : reads ) {
+            final DuplicateSetKey key = DuplicateSetKey.forFragment(header, libraryIndices, first);
+            Assert.assertTrue(key.isFragment());
+            Assert.assertEquals(key.getReferenceIndex(), ReadUtils.getReferenceIndex(first, header));
+            Assert.assertEquals(key.getStrandedUnclippedStart(), ReadUtils.getStrandedUnclippedStart(first));
+            for ( final GATKRead second : reads ) {
+                final DuplicateSetKey otherKey = DuplicateSetKey.forFragment(header, libraryIndices, second);
+                final boolean expected = ReadsKey.keyForFragment(header, first).equals(ReadsKey.keyForFragment(header, second));
+                Assert.assertEquals(key.equals(otherKey), expected, key + " " + otherKey);
+                Assert.assertEquals(key.compareTo(otherKey) == 0, expected);
+                Assert.assertEquals(Integer.signum(key.compareTo(otherKey)), -Integer.signum(otherKey.compareTo(key)));
+                if ( expected ) {
+                    Assert.assertEquals(key.hashCode(), otherKey.hashCode());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testPairedEndsKeysMatchStringKeys() {
+        final SAMFileHeader header = makeHeader();
+        final Map<String, Integer> libraryIndices = DuplicateSetKey.getLibraryIndices(header);
+        final List<GATKRead> reads = makeReads(header);
+        final List<DuplicateSetKey> keys = new ArrayList<>();
+        final List<String> stringKeys = new ArrayList<>();
+        for ( int i = 0; i + 1 < reads.size(); i += 2 ) {
+            // pairs whose second end is missing have different keys from fragments at the same position
+            final GATKRead second = i % 10 == 0 ? null : reads.get(i + 1);
+            keys.add(DuplicateSetKey.forPairedEnds(header, libraryIndices, reads.get(i), second));
+            stringKeys.add(ReadsKey.keyForPairedEnds(header, reads.get(i), second));
+            keys.add(DuplicateSetKey.forFragment(header, libraryIndices, reads.get(i)));
+            stringKeys.add(ReadsKey.keyForFragment(header, reads.get(i)));
+        }
+        for ( int i = 0; i < keys.size(); i++ ) {
+            Assert.assertEquals(keys.get(i).isFragment(), ReadsKey.isFragment(stringKeys.get(i)));
+            for ( int j = 0; j < keys.size(); j++ ) {
+                final boolean expected = stringKeys.get(i).equals(stringKeys.get(j));
+                Assert.assertEquals(keys.get(i).equals(keys.get(j)), expected, keys.get(i) + " " + keys.get(j));
+                Assert.assertEquals(keys.get(i).compareTo(keys.get(j)) == 0, expected);
+            }
+        }
+    }
+
+    @Test
+    public void testKeysSortByPosition() {
+        final SAMFileHeader header = makeHeader();
+        final Map<String, Integer> libraryIndices = DuplicateSetKey.getLibraryIndices(header);
+        final GATKRead read = ArtificialReadUtils.createArtificialRead(header, "read", 0, 1, new byte[10], new byte[10], "5S5M");
+        final DuplicateSetKey clippedBeforeContigStart = DuplicateSetKey.forFragment(header, libraryIndices, read);
+        read.setPosition(read.getContig(), 100);
+        final DuplicateSetKey onFirstContig = DuplicateSetKey.forFragment(header, libraryIndices, read);
+        read.setPosition(header.getSequence(1).getSequenceName(), 1);
+        final DuplicateSetKey onSecondContig = DuplicateSetKey.forFragment(header, libraryIndices, read);
+
+        Assert.assertEquals(clippedBeforeContigStart.getStrandedUnclippedStart(), -4);
+        Assert.assertTrue(clippedBeforeContigStart.compareTo(onFirstContig) < 0);
+        Assert.assertTrue(onFirstContig.compareTo(onSecondContig) < 0);
+        Assert.assertEquals(onSecondContig.getReferenceIndex(), 1);
+    }
+}
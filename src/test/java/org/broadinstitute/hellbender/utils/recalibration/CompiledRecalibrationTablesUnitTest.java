@@ -0,0 +1,141 @@
+package org.broadinstitute.hellbender.utils.recalibration;
+
+import org.apache.spark.SparkConf;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.engine.spark.GATKRegistrator;
+import org.broadinstitute.hellbender.transformers.BQSRReadTransformer;
+import org.broadinstitute.hellbender.utils.MathUtils;
+import org.broadinstitute.hellbender.utils.QualityUtils;
+import org.broadinstitute.hellbender.utils.recalibration.covariates.StandardCovariateList;
+import org.broadinstitute.hellbender.utils.test.SparkTestUtils;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public final class CompiledRecalibrationTablesUnitTest extends GATKBaseTest {
+    private static final int NUM_READ_GROUPS = 3;
+    private static final int MAX_COVARIATE_KEY = 300;
+    private static final int SUBSTITUTION = EventType.BASE_SUBSTITUTION.ordinal();
+
+    private static StandardCovariateList makeCovariates() {
+        final List<String> readGroups = IntStream.range(0, NUM_READ_GROUPS).mapToObj(i -> "readgroup" + i).collect(Collectors.toList());
+        return new StandardCovariateList(new RecalibrationArgumentCollection(), readGroups);
+    }
+
+    private static RecalDatum randomDatum(final Random random, final int qual) {
+        final long observations = 1 + random.nextInt(10000);
+        return new RecalDatum(observations, observations * random.nextDouble() / 20, (byte) qual);
+    }
+
+    // the last read group has no data at all
+    private static RecalibrationTables makeTables(final StandardCovariateList covariates, final Random random) {
+        final RecalibrationTables tables = new RecalibrationTables(covariates, NUM_READ_GROUPS);
+        for ( int rg = 0; rg < NUM_READ_GROUPS - 1; rg++ ) {
+            tables.getReadGroupTable().put(randomDatum(random, 30), rg, SUBSTITUTION);
+            for ( int qual = 10; qual < 40; qual += 1 + random.nextInt(3) ) {
+                tables.getQualityScoreTable().put(randomDatum(random, qual), rg, qual, SUBSTITUTION);
+                for ( int i = 2; i < tables.numTables(); i++ ) {
+                    for ( int j = 0; j < 20; j++ ) {
+                        tables.getTable(i).put(randomDatum(random, qual), rg, qual, random.nextInt(MAX_COVARIATE_KEY), SUBSTITUTION);
+                    }
+                }
+            }
+        }
+        return tables;
+    }
+
+    private static int[] randomKeySet(final int numCovariates, final Random random) {
+        final int[] keySet = new int[numCovariates];
+        keySet[0] = random.nextInt(NUM_READ_GROUPS);
+        keySet[1] = 5 + random.nextInt(40);
+        for ( int i = 2; i < numCovariates; i++ ) {
+            // missing covariate values have negative keys
+            keySet[i] = random.nextInt(10) == 0 ? -1 : random.nextInt(MAX_COVARIATE_KEY);
+        }
+        return keySet;
+    }
+
+    // the quality BQSRReadTransformer used to compute datum by datum
+    private static byte expectedQuality(final RecalibrationTables tables, final int[] keySet, final double globalQScorePrior,
+                                        final List<Byte> quantizedQuals, final byte[] staticQuantizedMapping) {
+        final RecalDatum rgDatum = tables.getReadGroupTable().get(keySet[0], SUBSTITUTION);
+        final RecalDatum qsDatum = tables.getQualityScoreTable().get(keySet[0], keySet[1], SUBSTITUTION);
+        final RecalDatum[] covDatums = new RecalDatum[tables.numTables() - 2];
+        for ( int i = 2; i < tables.numTables(); i++ ) {
+            covDatums[i - 2] = keySet[i] < 0 ? null : tables.getTable(i).get(keySet[0], keySet[1], keySet[i], SUBSTITUTION);
+        }
+        final double epsilon = globalQScorePrior > 0.0 ? globalQScorePrior : rgDatum.getEstimatedQReported();
+        final double recalibratedQual = BQSRReadTransformer.hierarchicalBayesianQualityEstimate(epsilon, rgDatum, qsDatum, covDatums);
+        final byte quantizedQual = quantizedQuals.get(QualityUtils.boundQual(MathUtils.fastRound(recalibratedQual), RecalDatum.MAX_RECALIBRATED_Q_SCORE));
+        return staticQuantizedMapping == null ? quantizedQual : staticQuantizedMapping[quantizedQual];
+    }
+
+    @DataProvider(name = "compilations")
+    public Object[][] compilations() {
+        final List<Byte> identity = new ArrayList<>();
+        final List<Byte> quantized = new ArrayList<>();
+        for ( int qual = 0; qual <= QualityUtils.MAX_SAM_QUAL_SCORE; qual++ ) {
+            identity.add((byte) qual);
+            quantized.add((byte) (qual < 20 ? 10 : qual < 30 ? 20 : 30));
+        }
+        final byte[] staticMapping = BQSRReadTransformer.constructStaticQuantizedMapping(new ArrayList<>(Arrays.asList(10, 20, 30)), false);
+        return new Object[][] {
+                // global prior, quantized quals, static mapping
+                {-1.0, identity, null},
+                {25.0, identity, null},
+                {-1.0, quantized, null},
+                {-1.0, identity, staticMapping}
+        };
+    }
+
+    @Test(dataProvider = "compilations")
+    public void testMatchesHierarchicalEstimate(final double globalQScorePrior, final List<Byte> quantizedQuals, final byte[] staticQuantizedMapping) {
+        final Random random = new Random(15);
+        final StandardCovariateList covariates = makeCovariates();
+        final RecalibrationTables tables = makeTables(covariates, random);
+        final CompiledRecalibrationTables compiledTables = new CompiledRecalibrationTables(tables, covariates, globalQScorePrior, quantizedQuals, staticQuantizedMapping);
+        Assert.assertSame(compiledTables.getCovariates(), covariates);
+
+        Assert.assertFalse(compiledTables.hasReadGroup(-1));
+        Assert.assertFalse(compiledTables.hasReadGroup(NUM_READ_GROUPS - 1));
+        Assert.assertFalse(compiledTables.hasReadGroup(NUM_READ_GROUPS));
+        for ( int i = 0; i < 10000; i++ ) {
+            final int[] keySet = randomKeySet(tables.numTables(), random);
+            if ( compiledTables.hasReadGroup(keySet[0]) ) {
+                Assert.assertEquals(compiledTables.getRecalibratedQuality(keySet),
+                        expectedQuality(tables, keySet, globalQScorePrior, quantizedQuals, staticQuantizedMapping), Arrays.toString(keySet));
+            }
+        }
+    }
+
+    @Test
+    public void testSerialization() {
+        final Random random = new Random(15);
+        final StandardCovariateList covariates = makeCovariates();
+        final RecalibrationTables tables = makeTables(covariates, random);
+        final CompiledRecalibrationTables compiledTables = new CompiledRecalibrationTables(tables, covariates, -1.0, new QuantizationInfo(tables, 8).getQuantizedQuals(), null);
+
+        final SparkConf conf = new SparkConf().set("spark.kryo.registrator", GATKRegistrator.class.getName());
+        final CompiledRecalibrationTables kryoTables = SparkTestUtils.roundTripInKryo(compiledTables, CompiledRecalibrationTables.class, conf);
+        for ( int i = 0; i < 1000; i++ ) {
+            final int[] keySet = randomKeySet(tables.numTables(), random);
+            Assert.assertEquals(kryoTables.hasReadGroup(keySet[0]), compiledTables.hasReadGroup(keySet[0]));
+            if ( compiledTables.hasReadGroup(keySet[0]) ) {
+                Assert.assertEquals(kryoTables.getRecalibratedQuality(keySet), compiledTables.getRecalibratedQuality(keySet));
+            }
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testTooFewQuantizedQuals() {
+        final StandardCovariateList covariates = makeCovariates();
+        new CompiledRecalibrationTables(new RecalibrationTables(covariates, NUM_READ_GROUPS), covariates, -1.0, Arrays.asList((byte) 10, (byte) 20), null);
+    }
+}
@@ -0,0 +1,144 @@
+package org.broadinstitute.hellbender.utils.recalibration;
+
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.utils.collections.NestedIntegerArray;
+import org.broadinstitute.hellbender.utils.recalibration.covariates.StandardCovariateList;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public final class ConcurrentRecalibrationTablesUnitTest extends GATKBaseTest {
+    private static final int NUM_READ_GROUPS = 3;
+    private static final int NUM_UPDATES = 20000;
+
+    private static RecalibrationTables makeTables() {
+        final List<String> readGroups = IntStream.range(0, NUM_READ_GROUPS).mapToObj(i -> "readgroup" + i).collect(Collectors.toList());
+        return new RecalibrationTables(new StandardCovariateList(new RecalibrationArgumentCollection(), readGroups), NUM_READ_GROUPS);
+    }
+
+    // an update of the quality score table and all additional tables, as BaseRecalibrationEngine does for one base of a read
+    private static final class Update {
+        final int readGroup;
+        final byte qual;
+        final int eventIndex;
+        final double isError;
+        final int[] covariateKeys;
+
+        Update(final Random random, final int numTables) {
+            readGroup = random.nextInt(NUM_READ_GROUPS);
+            qual = (byte) (10 + random.nextInt(30));
+            eventIndex = random.nextInt(EventType.values().length);
+            // fractional errors, as for BAQ'ed reads
+            isError = random.nextInt(4) == 0 ? 1.0 / (1 + random.nextInt(3)) : 0.0;
+            covariateKeys = new int[numTables];
+            for ( int i = 2; i < numTables; i++ ) {
+                covariateKeys[i] = random.nextInt(300);
+            }
+        }
+
+        void apply(final RecalibrationTables tables) {
+            RecalUtils.incrementDatumOrPutIfNecessary3keys(tables.getQualityScoreTable(), qual, isError, readGroup, qual, eventIndex);
+            for ( int i = 2; i < covariateKeys.length; i++ ) {
+                RecalUtils.incrementDatumOrPutIfNecessary4keys(tables.getTable(i), qual, isError, readGroup, qual, covariateKeys[i], eventIndex);
+            }
+        }
+
+        void apply(final ConcurrentRecalibrationTables.Stripe stripe) {
+            stripe.incrementQualityScoreTable(isError, readGroup, qual, eventIndex);
+            for ( int i = 2; i < covariateKeys.length; i++ ) {
+                stripe.incrementAdditionalTable(i, isError, readGroup, qual, covariateKeys[i], eventIndex);
+            }
+        }
+    }
+
+    private static List<Update> makeUpdates(final int numTables) {
+        final Random random = new Random(13);
+        final List<Update> updates = new ArrayList<>(NUM_UPDATES);
+        for ( int i = 0; i < NUM_UPDATES; i++ ) {
+            updates.add(new Update(random, numTables));
+        }
+        return updates;
+    }
+
+    private static void assertTablesEqual(final RecalibrationTables actual, final RecalibrationTables expected, final double mismatchesTolerance) {
+        Assert.assertEquals(actual.numTables(), expected.numTables());
+        for ( int i = 0; i < expected.numTables(); i++ ) {
+            final NestedIntegerArray<RecalDatum> actualTable = actual.getTable(i);
+            final List<NestedIntegerArray.Leaf<RecalDatum>> expectedLeaves = expected.getTable(i).getAllLeaves();
+            Assert.assertEquals(actualTable.getAllLeaves().size(), expectedLeaves.size(), "table " + i);
+            for ( final NestedIntegerArray.Leaf<RecalDatum> leaf : expectedLeaves ) {
+                final RecalDatum datum = actualTable.get(leaf.keys);
+                Assert.assertNotNull(datum);
+                Assert.assertEquals(datum.getNumObservations(), leaf.value.getNumObservations());
+                Assert.assertEquals(datum.getNumMismatches(), leaf.value.getNumMismatches(), mismatchesTolerance);
+                Assert.assertEquals(datum.getEstimatedQReported(), leaf.value.getEstimatedQReported());
+            }
+        }
+    }
+
+    @Test
+    public void testSingleThreadMatchesRecalUtils() {
+        final RecalibrationTables expected = makeTables();
+        final RecalibrationTables actual = makeTables();
+        final ConcurrentRecalibrationTables concurrentTables = new ConcurrentRecalibrationTables(actual);
+        for ( final Update update : makeUpdates(expected.numTables()) ) {
+            update.apply(expected);
+            update.apply(concurrentTables.getStripe());
+        }
+        concurrentTables.mergeInto(actual);
+        Assert.assertTrue(actual.getReadGroupTable().getAllLeaves().isEmpty());
+
+        // accumulated in the same order, the mismatches should be identical
+        assertTablesEqual(actual, expected, 0.0);
+    }
+
+    @Test
+    public void testManyThreads() throws InterruptedException {
+        final int numThreads = 4;
+        final RecalibrationTables expected = makeTables();
+        final RecalibrationTables actual = makeTables();
+        final List<Update> updates = makeUpdates(expected.numTables());
+        updates.forEach(update -> update.apply(expected));
+
+        final ConcurrentRecalibrationTables concurrentTables = new ConcurrentRecalibrationTables(actual);
+        final List<Thread> threads = new ArrayList<>();
+        for ( int t = 0; t < numThreads; t++ ) {
+            final int thread = t;
+            threads.add(new Thread(() -> {
+                for ( int i = thread; i < updates.size(); i += numThreads ) {
+                    updates.get(i).apply(concurrentTables.getStripe());
+                }
+            }));
+        }
+        for ( final Thread thread : threads ) {
+            thread.start();
+        }
+        for ( final Thread thread : threads ) {
+            thread.join();
+        }
+        concurrentTables.mergeInto(actual);
+
+        // the sums of the fractional mismatches of different threads are added in a different order
+        assertTablesEqual(actual, expected, 1e-9);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testKeyOutOfRange() {
+        final RecalibrationTables tables = makeTables();
+        new ConcurrentRecalibrationTables(tables).getStripe().incrementQualityScoreTable(1.0, NUM_READ_GROUPS, 20, 0);
+    }
+
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void testUpdateAfterMerge() {
+        final RecalibrationTables tables = makeTables();
+        final ConcurrentRecalibrationTables concurrentTables = new ConcurrentRecalibrationTables(tables);
+        concurrentTables.getStripe().incrementQualityScoreTable(1.0, 0, 20, 0);
+        concurrentTables.mergeInto(tables);
+        concurrentTables.getStripe();
+    }
+}
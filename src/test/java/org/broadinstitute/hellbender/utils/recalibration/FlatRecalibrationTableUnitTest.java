@@ -0,0 +1,111 @@
+package org.broadinstitute.hellbender.utils.recalibration;
+
+import org.apache.spark.SparkConf;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.engine.spark.GATKRegistrator;
+import org.broadinstitute.hellbender.utils.collections.NestedIntegerArray;
+import org.broadinstitute.hellbender.utils.test.SparkTestUtils;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.Random;
+
+public final class FlatRecalibrationTableUnitTest extends GATKBaseTest {
+
+    @DataProvider(name = "tables")
+    public Object[][] tables() {
+        return new Object[][] {
+                // dimensions, number of datums
+                {new int[]{4, 3}, 5},
+                {new int[]{4, 94, 3}, 300},
+                {new int[]{2, 94, 1002, 3}, 3000},      // sparse, like the cycle table
+                {new int[]{1, 94, 1 << 20, 3}, 5000}    // sparse, like the context table
+        };
+    }
+
+    private static NestedIntegerArray<RecalDatum> makeTable(final int[] dimensions, final int numDatums, final Random random) {
+        final NestedIntegerArray<RecalDatum> table = new NestedIntegerArray<>(dimensions);
+        for ( int i = 0; i < numDatums; i++ ) {
+            final int[] keys = randomKeys(dimensions, random);
+            final long observations = random.nextInt(1000);
+            final RecalDatum datum = new RecalDatum(observations, observations * random.nextDouble() / 10, (byte) (5 + random.nextInt(35)));
+            // as after BaseRecalibrationEngine.finalizeRecalibrationTables, some datums already have an empirical quality
+            if ( random.nextBoolean() ) {
+                datum.setEmpiricalQuality(random.nextInt(40));
+            }
+            table.put(datum, keys);
+        }
+        return table;
+    }
+
+    private static int[] randomKeys(final int[] dimensions, final Random random) {
+        final int[] keys = new int[dimensions.length];
+        for ( int d = 0; d < dimensions.length; d++ ) {
+            keys[d] = random.nextInt(dimensions[d]);
+        }
+        return keys;
+    }
+
+    private static int getCellIndex(final FlatRecalibrationTable table, final int[] keys) {
+        final int cell = table.getCellIndex(keys);
+        switch ( keys.length ) {
+            case 2: Assert.assertEquals(table.getCellIndex2Keys(keys[0], keys[1]), cell); break;
+            case 3: Assert.assertEquals(table.getCellIndex3Keys(keys[0], keys[1], keys[2]), cell); break;
+            case 4: Assert.assertEquals(table.getCellIndex4Keys(keys[0], keys[1], keys[2], keys[3]), cell); break;
+            default: Assert.fail();
+        }
+        return cell;
+    }
+
+    @Test(dataProvider = "tables")
+    public void testMatchesNestedIntegerArray(final int[] dimensions, final int numDatums) {
+        final Random random = new Random(numDatums);
+        final NestedIntegerArray<RecalDatum> table = makeTable(dimensions, numDatums, random);
+        final FlatRecalibrationTable flatTable = new FlatRecalibrationTable(table);
+        Assert.assertEquals(flatTable.getDimensions(), dimensions);
+        Assert.assertEquals(flatTable.isDense(), flatTable.numCells() != table.getAllLeaves().size());
+
+        for ( final NestedIntegerArray.Leaf<RecalDatum> leaf : table.getAllLeaves() ) {
+            final int cell = getCellIndex(flatTable, leaf.keys);
+            Assert.assertNotEquals(cell, FlatRecalibrationTable.NO_CELL);
+            Assert.assertTrue(flatTable.hasData(cell));
+            Assert.assertEquals(flatTable.getNumObservations(cell), leaf.value.getNumObservations());
+            Assert.assertEquals(flatTable.getNumMismatches(cell), leaf.value.getNumMismatches());
+            Assert.assertEquals(flatTable.getEstimatedQReported(cell), leaf.value.getEstimatedQReported());
+
+            // the first prior is used, and the quality cached, just as by the datum
+            final double prior = random.nextInt(40);
+            Assert.assertEquals(flatTable.getEmpiricalQuality(cell, prior), leaf.value.getEmpiricalQuality(prior));
+            Assert.assertEquals(flatTable.getEmpiricalQuality(cell, prior + 5), leaf.value.getEmpiricalQuality(prior + 5));
+        }
+
+        for ( int i = 0; i < 1000; i++ ) {
+            final int[] keys = randomKeys(dimensions, random);
+            Assert.assertEquals(getCellIndex(flatTable, keys) == FlatRecalibrationTable.NO_CELL, table.get(keys) == null);
+        }
+
+        // keys out of range
+        final int[] keys = new int[dimensions.length];
+        keys[dimensions.length - 1] = dimensions[dimensions.length - 1];
+        Assert.assertEquals(getCellIndex(flatTable, keys), FlatRecalibrationTable.NO_CELL);
+        keys[dimensions.length - 1] = -1;
+        Assert.assertEquals(getCellIndex(flatTable, keys), FlatRecalibrationTable.NO_CELL);
+    }
+
+    @Test(dataProvider = "tables")
+    public void testSerialization(final int[] dimensions, final int numDatums) {
+        final NestedIntegerArray<RecalDatum> table = makeTable(dimensions, numDatums, new Random(numDatums));
+        final FlatRecalibrationTable flatTable = new FlatRecalibrationTable(table);
+
+        final SparkConf conf = new SparkConf().set("spark.kryo.registrator", GATKRegistrator.class.getName());
+        final FlatRecalibrationTable kryoTable = SparkTestUtils.roundTripInKryo(flatTable, FlatRecalibrationTable.class, conf);
+
+        for ( final NestedIntegerArray.Leaf<RecalDatum> leaf : table.getAllLeaves() ) {
+            final int cell = getCellIndex(kryoTable, leaf.keys);
+            Assert.assertEquals(cell, flatTable.getCellIndex(leaf.keys));
+            Assert.assertEquals(kryoTable.getNumObservations(cell), leaf.value.getNumObservations());
+            Assert.assertEquals(kryoTable.getEmpiricalQuality(cell, 20.0), leaf.value.getEmpiricalQuality(20.0));
+        }
+    }
+}
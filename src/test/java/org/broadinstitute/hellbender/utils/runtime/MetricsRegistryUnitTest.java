@@ -0,0 +1,124 @@
+package org.broadinstitute.hellbender.utils.runtime;
+
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+public final class MetricsRegistryUnitTest extends GATKBaseTest {
+
+    @Test
+    public void testCounters() {
+        final MetricsRegistry registry = new MetricsRegistry();
+        final MetricsRegistry.Counter counter = registry.counter("test_events_total", "Test events");
+        Assert.assertSame(registry.counter("test_events_total", "Test events"), counter);
+        counter.increment();
+        counter.add(4);
+        Assert.assertEquals(counter.get(), 5);
+
+        final MetricsRegistry.Counter a = registry.counter("test_labelled_total", "Labelled events", "kind", "a");
+        final MetricsRegistry.Counter b = registry.counter("test_labelled_total", "Labelled events", "kind", "b");
+        Assert.assertNotSame(a, b);
+        Assert.assertSame(registry.counter("test_labelled_total", "Labelled events", "kind", "a"), a);
+        Assert.assertEquals(a.getLabelValue(), "a");
+        Assert.assertNull(counter.getLabelValue());
+    }
+
+    @Test
+    public void testReset() {
+        final MetricsRegistry registry = new MetricsRegistry();
+        final MetricsRegistry.Counter counter = registry.counter("test_events_total", "Test events", "kind", "a");
+        final MetricsRegistry.Timer timer = registry.timer("test_operation_seconds", "Test operations");
+        counter.add(3);
+        timer.record(10);
+
+        registry.reset();
+        Assert.assertEquals(counter.get(), 0);
+        Assert.assertEquals(timer.getCount(), 0);
+        Assert.assertEquals(timer.getTotalNanos(), 0);
+
+        // the metrics are still registered, and updated by the components that hold them
+        Assert.assertSame(registry.counter("test_events_total", "Test events", "kind", "a"), counter);
+        counter.increment();
+        Assert.assertEquals(registry.counter("test_events_total", "Test events", "kind", "a").get(), 1);
+    }
+
+    @Test
+    public void testConcurrentUpdates() {
+        final MetricsRegistry registry = new MetricsRegistry();
+        IntStream.range(0, 100_000).parallel().forEach(i -> {
+            registry.counter("test_events_total", "Test events", "parity", Integer.toString(i % 2)).increment();
+            registry.timer("test_operation_seconds", "Test operations").record(10);
+        });
+        Assert.assertEquals(registry.counter("test_events_total", "Test events", "parity", "0").get(), 50_000);
+        Assert.assertEquals(registry.counter("test_events_total", "Test events", "parity", "1").get(), 50_000);
+        Assert.assertEquals(registry.timer("test_operation_seconds", "Test operations").getCount(), 100_000);
+        Assert.assertEquals(registry.timer("test_operation_seconds", "Test operations").getTotalNanos(), 1_000_000);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testTypeMismatch() {
+        final MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("test_metric", "Test metric");
+        registry.timer("test_metric", "Test metric");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testLabelMismatch() {
+        final MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("test_metric_total", "Test metric", "kind", "a");
+        registry.counter("test_metric_total", "Test metric", "type", "a");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testInvalidName() {
+        new MetricsRegistry().counter("test-metric", "Test metric");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testCounterCantGoDown() {
+        new MetricsRegistry().counter("test_metric_total", "Test metric").add(-1);
+    }
+
+    private static MetricsRegistry makeExportTestRegistry() {
+        final MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("test_reads_filtered_total", "Reads filtered", "filter", "Quoted\"Filter").add(3);
+        registry.counter("test_reads_filtered_total", "Reads filtered", "filter", "AFilter").add(2);
+        registry.counter("test_reads_decoded_total", "Reads decoded").add(12);
+        registry.timer("test_assembly_seconds", "Assemblies").record(TimeUnit.MILLISECONDS.toNanos(1500));
+        return registry;
+    }
+
+    @Test
+    public void testPrometheusText() throws IOException {
+        final StringBuilder text = new StringBuilder();
+        makeExportTestRegistry().writePrometheusText(text);
+        Assert.assertEquals(text.toString(),
+                "# HELP test_assembly_seconds Assemblies\n" +
+                "# TYPE test_assembly_seconds summary\n" +
+                "test_assembly_seconds_count 1\n" +
+                "test_assembly_seconds_sum 1.5\n" +
+                "# HELP test_reads_decoded_total Reads decoded\n" +
+                "# TYPE test_reads_decoded_total counter\n" +
+                "test_reads_decoded_total 12\n" +
+                "# HELP test_reads_filtered_total Reads filtered\n" +
+                "# TYPE test_reads_filtered_total counter\n" +
+                "test_reads_filtered_total{filter=\"AFilter\"} 2\n" +
+                "test_reads_filtered_total{filter=\"Quoted\\\"Filter\"} 3\n");
+    }
+
+    @Test
+    public void testJsonLine() throws IOException {
+        final StringBuilder text = new StringBuilder();
+        makeExportTestRegistry().writeJsonLine(text, 1234L);
+        Assert.assertEquals(text.toString(),
+                "{\"timestamp_ms\":1234,\"metrics\":[" +
+                "{\"name\":\"test_assembly_seconds\",\"count\":1,\"sum\":1.5}," +
+                "{\"name\":\"test_reads_decoded_total\",\"value\":12}," +
+                "{\"name\":\"test_reads_filtered_total\",\"labels\":{\"filter\":\"AFilter\"},\"value\":2}," +
+                "{\"name\":\"test_reads_filtered_total\",\"labels\":{\"filter\":\"Quoted\\\"Filter\"},\"value\":3}]}\n");
+    }
+}
@@ -0,0 +1,71 @@
+package org.broadinstitute.hellbender.utils.runtime;
+
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+public final class MetricsReporterUnitTest extends GATKBaseTest {
+
+    @Test
+    public void testJsonLines() throws IOException {
+        final MetricsRegistry registry = new MetricsRegistry();
+        final MetricsRegistry.Counter counter = registry.counter("test_events_total", "Test events");
+        final Path output = createTempFile("metrics", ".jsonl").toPath();
+
+        try ( final MetricsReporter reporter = new MetricsReporter(registry, output, MetricsReporter.Format.JSON_LINES, 0) ) {
+            counter.add(2);
+            reporter.report();
+            counter.add(3);
+        }
+        final List<String> lines = Files.readAllLines(output, StandardCharsets.UTF_8);
+        Assert.assertEquals(lines.size(), 3);
+        Assert.assertTrue(lines.get(0).endsWith("\"metrics\":[{\"name\":\"test_events_total\",\"value\":0}]}"), lines.get(0));
+        Assert.assertTrue(lines.get(1).endsWith("\"metrics\":[{\"name\":\"test_events_total\",\"value\":2}]}"), lines.get(1));
+        Assert.assertTrue(lines.get(2).endsWith("\"metrics\":[{\"name\":\"test_events_total\",\"value\":5}]}"), lines.get(2));
+    }
+
+    @Test
+    public void testPrometheusReplacesFile() throws IOException {
+        final MetricsRegistry registry = new MetricsRegistry();
+        final MetricsRegistry.Counter counter = registry.counter("test_events_total", "Test events");
+        final Path output = createTempFile("metrics", ".prom").toPath();
+
+        try ( final MetricsReporter reporter = new MetricsReporter(registry, output, MetricsReporter.Format.PROMETHEUS, 0) ) {
+            counter.add(2);
+            reporter.report();
+            Assert.assertTrue(new String(Files.readAllBytes(output), StandardCharsets.UTF_8).endsWith("\ntest_events_total 2\n"));
+            counter.add(3);
+        }
+        Assert.assertEquals(new String(Files.readAllBytes(output), StandardCharsets.UTF_8),
+                "# HELP test_events_total Test events\n# TYPE test_events_total counter\ntest_events_total 5\n");
+        Assert.assertFalse(Files.exists(output.resolveSibling(output.getFileName() + ".tmp")));
+    }
+
+    @Test
+    public void testPeriodicReports() throws IOException, InterruptedException {
+        final MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("test_events_total", "Test events").increment();
+        final Path output = createTempFile("metrics", ".jsonl").toPath();
+
+        try ( final MetricsReporter reporter = new MetricsReporter(registry, output, MetricsReporter.Format.JSON_LINES, 0.01) ) {
+            for ( int i = 0; i < 500 && Files.readAllLines(output, StandardCharsets.UTF_8).size() < 3; i++ ) {
+                Thread.sleep(10);
+            }
+        }
+        Assert.assertTrue(Files.readAllLines(output, StandardCharsets.UTF_8).size() >= 4);
+    }
+
+    @Test(expectedExceptions = UserException.CouldNotCreateOutputFile.class)
+    public void testUnwritableOutput() {
+        final File dir = createTempDir("metrics");
+        new MetricsReporter(new MetricsRegistry(), dir.toPath().resolve("missing").resolve("metrics.jsonl"), MetricsReporter.Format.JSON_LINES, 0);
+    }
+}
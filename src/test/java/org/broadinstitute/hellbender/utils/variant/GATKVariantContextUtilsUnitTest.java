@@ -25,6 +25,7 @@ import org.testng.annotations.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -1676,6 +1677,42 @@ public final class GATKVariantContextUtilsUnitTest extends GATKBaseTest {
         }
     }
 
+    @Test
+    public void testCreateVCFWriterWithCompressionThreads() throws IOException {
+        final SAMSequenceDictionary dictionary = new SAMSequenceDictionary();
+        for ( int i = 1; i <= 3; i++ ) {
+            dictionary.addSequence(new SAMSequenceRecord("chr" + i, 100000));
+        }
+        final VCFHeader header = new VCFHeader(Collections.singleton(new VCFHeaderLine(
+                VCFHeaderVersion.VCF4_2.getFormatString(), VCFHeaderVersion.VCF4_2.getVersionString())), Collections.emptyList());
+        header.setSequenceDictionary(dictionary);
+
+        final Random random = new Random(3);
+        final List<VariantContext> variants = new ArrayList<>();
+        for ( final SAMSequenceRecord contig : dictionary.getSequences() ) {
+            for ( int position = 1; position <= contig.getSequenceLength(); position += 1 + random.nextInt(5) ) {
+                variants.add(new VariantContextBuilder("test", contig.getSequenceName(), position, position, Arrays.asList(Aref, random.nextBoolean() ? C : G))
+                        .id("var" + variants.size()).make());
+            }
+        }
+
+        final File dir = createTempDir("compressionThreads");
+        final File expected = new File(dir, "expected.vcf.gz");
+        final File actual = new File(dir, "actual.vcf.gz");
+        for ( final File output : Arrays.asList(expected, actual) ) {
+            try ( final VariantContextWriter writer = GATKVariantContextUtils.createVCFWriter(
+                    output, dictionary, true, output == actual ? 2 : 0, Options.INDEX_ON_THE_FLY) ) {
+                writer.writeHeader(header);
+                variants.forEach(writer::add);
+            }
+        }
+
+        for ( final String extension : Arrays.asList("", TabixUtils.STANDARD_INDEX_EXTENSION, ".md5") ) {
+            Assert.assertEquals(Files.readAllBytes(new File(actual.getPath() + extension).toPath()),
+                    Files.readAllBytes(new File(expected.getPath() + extension).toPath()), extension);
+        }
+    }
+
     @DataProvider(name="createVCFWriterLenientData")
     public Object[][] createVCFWriterLenientData() {
         return new Object[][]{
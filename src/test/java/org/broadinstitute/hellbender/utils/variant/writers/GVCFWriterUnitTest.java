@@ -340,6 +340,44 @@ public class GVCFWriterUnitTest extends GATKBaseTest {
         assertGoodVC(mockWriter.emitted.get(2), CHR1, 6, 7, false);
     }
 
+    @Test
+    public void testReferenceConfidenceSitesMatchVariantContexts() {
+        final MockWriter expectedWriter = new MockWriter();
+        final GVCFWriter fromVariantContexts = new GVCFWriter(expectedWriter, standardPartition, HomoSapiensConstants.DEFAULT_PLOIDY);
+        final MockWriter actualWriter = new MockWriter();
+        final GVCFWriter fromSites = new GVCFWriter(actualWriter, standardPartition, HomoSapiensConstants.DEFAULT_PLOIDY);
+
+        // the sites path reuses a single site, as the reference confidence model does
+        final ReferenceConfidenceSite site = new ReferenceConfidenceSite("test", SAMPLE_NAME, HomoSapiensConstants.DEFAULT_PLOIDY);
+        final Random random = new Random(19);
+        for ( final String contig : Arrays.asList(CHR1, CHR2) ) {
+            for ( int position = 1; position <= 2000; position++ ) {
+                if ( random.nextInt(200) == 0 ) {
+                    final VariantContext deletion = makeDeletion(position, 2 + random.nextInt(5));
+                    final VariantContext variant = new VariantContextBuilder(deletion).chr(contig).make();
+                    fromVariantContexts.add(variant);
+                    fromSites.add(variant);
+                } else if ( random.nextInt(300) == 0 ) {
+                    // leave a gap between sites
+                    position += random.nextInt(10);
+                } else {
+                    final int gq = random.nextInt(30);
+                    site.set(contig, position, (byte) 'G', random.nextInt(20), random.nextInt(3), new int[]{0, gq, gq + random.nextInt(40)});
+                    fromVariantContexts.add(site.toVariantContext());
+                    fromSites.addReferenceConfidenceSite(site);
+                }
+            }
+        }
+        fromVariantContexts.close();
+        fromSites.close();
+
+        Assert.assertTrue(expectedWriter.emitted.size() > 10);
+        Assert.assertEquals(actualWriter.emitted.size(), expectedWriter.emitted.size());
+        for ( int i = 0; i < expectedWriter.emitted.size(); i++ ) {
+            Assert.assertEquals(actualWriter.emitted.get(i).toStringDecodeGenotypes(), expectedWriter.emitted.get(i).toStringDecodeGenotypes());
+        }
+    }
+
     @Test
     public void testHomRefAlt() {
         final MockWriter mockWriter = new MockWriter();
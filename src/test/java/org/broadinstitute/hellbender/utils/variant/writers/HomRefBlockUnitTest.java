@@ -5,8 +5,10 @@ import htsjdk.variant.variantcontext.Genotype;
 import htsjdk.variant.variantcontext.GenotypeBuilder;
 import htsjdk.variant.variantcontext.VariantContext;
 import htsjdk.variant.variantcontext.VariantContextBuilder;
+import htsjdk.variant.vcf.VCFConstants;
 import org.broadinstitute.hellbender.exceptions.GATKException;
 import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.utils.MathUtils;
 import org.broadinstitute.hellbender.utils.variant.HomoSapiensConstants;
 import org.testng.Assert;
 import org.testng.annotations.DataProvider;
@@ -162,6 +164,53 @@ public class HomRefBlockUnitTest extends GATKBaseTest {
         Assert.assertTrue(genotype.getAlleles().stream().allMatch(a -> a.equals(REF)));
     }
 
+    @Test
+    public void testAddReferenceConfidenceSites() {
+        final ReferenceConfidenceSite site = new ReferenceConfidenceSite("test", SAMPLE_NAME, HomoSapiensConstants.DEFAULT_PLOIDY);
+        site.set("20", 1, (byte) 'A', 12, 0, new int[]{0, 15, 100});
+        final HomRefBlock block = new HomRefBlock(site, 10, 20);
+        Assert.assertNull(block.getStartingVC());
+        Assert.assertEquals(block.getRef(), REF);
+        block.add(site);
+
+        // the block must keep its own copy of the PLs of the reused site
+        final List<Integer> DPs = new ArrayList<>(Arrays.asList(12));
+        for ( int pos = 2; pos <= 201; pos++ ) {
+            final int[] pls = {0, 10 + pos % 7, 90 + pos % 5};
+            site.set("20", pos, (byte) 'C', pos % 13, pos % 3, pls);
+            block.add(site);
+            DPs.add(pos % 13 + pos % 3);
+        }
+        Assert.assertEquals(block.getEnd(), 201);
+        Assert.assertEquals(block.getMinPLs(), new int[]{0, 10, 90});
+        Assert.assertEquals(block.getMinDP(), 0);
+        Assert.assertEquals(block.getMedianDP(), (int) Math.round(MathUtils.median(DPs)));
+
+        final VariantContext vc = block.toVariantContext(SAMPLE_NAME);
+        Assert.assertEquals(vc.getSource(), "test");
+        Assert.assertEquals(vc.getContig(), "20");
+        Assert.assertEquals(vc.getStart(), 1);
+        Assert.assertEquals(vc.getEnd(), 201);
+        Assert.assertEquals(vc.getAttributeAsInt(VCFConstants.END_KEY, -1), 201);
+        Assert.assertEquals(vc.getAlleles(), Arrays.asList(REF, Allele.NON_REF_ALLELE));
+        final Genotype genotype = vc.getGenotype(0);
+        Assert.assertEquals(genotype.getGQ(), 10);
+        Assert.assertEquals(genotype.getPL(), new int[]{0, 10, 90});
+        Assert.assertTrue(genotype.getAlleles().stream().allMatch(a -> a.equals(REF)));
+    }
+
+    @Test
+    public void testMedianOfEvenNumberOfDPs() {
+        final HomRefBlock band = getHomRefBlock(getVariantContext());
+        final GenotypeBuilder gb = getValidGenotypeBuilder();
+        band.add(1, gb.DP(3).make());
+        band.add(2, gb.DP(8).make());
+        band.add(3, gb.DP(1).make());
+        band.add(4, gb.DP(4).make());
+        // mean of the two middle values 3 and 4, rounded up
+        assertValues(band, 1, 4);
+    }
+
     public static HomRefBlock getHomRefBlock(VariantContext vc) {
         return new HomRefBlock(vc, 10, 20, HomoSapiensConstants.DEFAULT_PLOIDY);
     }